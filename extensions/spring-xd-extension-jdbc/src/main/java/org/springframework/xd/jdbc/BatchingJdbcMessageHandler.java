@@ -0,0 +1,393 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.batch.item.database.ItemSqlParameterSourceProvider;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Inserts the {@link Map} payloads produced by {@link JdbcMessagePayloadTransformer} into a table, in
+ * batches. Rows are buffered until {@code batchSize} of them are pending, or until {@code flushInterval}
+ * milliseconds have passed, and each batch is written in a single transaction.
+ * <p>
+ * By default a batch is written as a JDBC batch of the prepared statement built by
+ * {@link NamedColumnJdbcBatchItemWriter}. When {@code multiRowInsert} is set, the batch is instead sent as
+ * a single {@code INSERT ... VALUES (...), (...)} statement, which is much faster on PostgreSQL and
+ * Greenplum and is also understood by MySQL, HSQLDB and H2.
+ * <p>
+ * A batch that fails to insert is rolled back and is not retried, so rows are written at most once. When the
+ * batch was completed by a message, the error is thrown to that message's sender; every other row of the batch
+ * is sent to the {@code errorChannel} as an {@link org.springframework.messaging.support.ErrorMessage} whose
+ * failed message is the row's original message. When no error channel is set, the {@code errorChannel} bean,
+ * which logs the errors by default, is used.
+ * <p>
+ * With a {@code batchSize} of 1, each row is inserted with a single statement outside of an explicit
+ * transaction.
+ */
+public class BatchingJdbcMessageHandler extends AbstractMessageHandler implements DisposableBean {
+
+	/**
+	 * The largest number of bind parameters PostgreSQL accepts in one statement.
+	 */
+	static final int MAX_BIND_PARAMETERS = 32767;
+
+	private final DataSource dataSource;
+
+	private final Object monitor = new Object();
+
+	private final AtomicLong batchCount = new AtomicLong();
+
+	private final AtomicLong rowCount = new AtomicLong();
+
+	private String tableName;
+
+	private String[] columnNames;
+
+	private int batchSize = 1;
+
+	private long flushInterval;
+
+	private boolean multiRowInsert;
+
+	private List<Message<Map<String, Object>>> pending = new ArrayList<Message<Map<String, Object>>>();
+
+	private NamedColumnJdbcBatchItemWriter<Map<String, Object>> writer;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private TransactionTemplate transactionTemplate;
+
+	private ScheduledExecutorService flushScheduler;
+
+	private MessageChannel errorChannel;
+
+	private MessagePublishingErrorHandler errorHandler;
+
+	public BatchingJdbcMessageHandler(DataSource dataSource) {
+		Assert.notNull(dataSource, "'dataSource' cannot be null");
+		this.dataSource = dataSource;
+	}
+
+	public void setTableName(String tableName) {
+		this.tableName = tableName;
+	}
+
+	/**
+	 * @param columnNames a comma delimited list of the columns to insert into.
+	 */
+	public void setColumnNames(String columnNames) {
+		this.columnNames = StringUtils.tokenizeToStringArray(columnNames, ",");
+	}
+
+	/**
+	 * @param batchSize the number of rows written per transaction; 1 (the default) writes each message
+	 * as it arrives.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @param flushInterval the interval, in milliseconds, after which a partial batch is written; 0 (the
+	 * default) only writes full batches.
+	 */
+	public void setFlushInterval(long flushInterval) {
+		Assert.isTrue(flushInterval >= 0, "'flushInterval' cannot be negative");
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * @param multiRowInsert true to write each batch with a single multi-row {@code INSERT} statement
+	 * rather than a JDBC batch.
+	 */
+	public void setMultiRowInsert(boolean multiRowInsert) {
+		this.multiRowInsert = multiRowInsert;
+	}
+
+	/**
+	 * @param errorChannel the channel that rows of a failed batch are sent to; defaults to the
+	 * {@code errorChannel} bean.
+	 */
+	public void setErrorChannel(MessageChannel errorChannel) {
+		this.errorChannel = errorChannel;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "jdbc:batching-outbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		super.onInit();
+		Assert.hasText(this.tableName, "'tableName' must be set");
+		Assert.notEmpty(this.columnNames, "'columnNames' must be set");
+		this.writer = new NamedColumnJdbcBatchItemWriter<Map<String, Object>>();
+		this.writer.setDataSource(this.dataSource);
+		this.writer.setTableName(this.tableName);
+		this.writer.setColumnNames(this.columnNames);
+		this.writer.setItemSqlParameterSourceProvider(new ColumnSqlParameterSourceProvider(this.columnNames));
+		this.writer.afterPropertiesSet();
+		this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+		if (this.batchSize > 1) {
+			this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(this.dataSource));
+		}
+		this.errorHandler = getBeanFactory() == null ? new MessagePublishingErrorHandler()
+				: new MessagePublishingErrorHandler(new BeanFactoryChannelResolver(getBeanFactory()));
+		if (this.errorChannel != null) {
+			this.errorHandler.setDefaultErrorChannel(this.errorChannel);
+		}
+		if (this.batchSize > 1 && this.flushInterval > 0) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("jdbc-flush-");
+			threadFactory.setDaemon(true);
+			this.flushScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+			this.flushScheduler.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						flush();
+					}
+					catch (RuntimeException e) {
+						// keep the schedule going
+						logger.error("Failed to flush buffered rows to " + tableName, e);
+					}
+				}
+
+			}, this.flushInterval, this.flushInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void handleMessageInternal(Message<?> message) throws Exception {
+		Assert.isInstanceOf(Map.class, message.getPayload(), "Expected a Map payload");
+		List<Message<Map<String, Object>>> batch = null;
+		synchronized (this.monitor) {
+			this.pending.add((Message<Map<String, Object>>) message);
+			if (this.pending.size() >= this.batchSize) {
+				batch = swapPending();
+			}
+		}
+		if (batch != null) {
+			try {
+				write(batch);
+			}
+			catch (RuntimeException e) {
+				publishFailedRows(batch, message, e);
+				throw new MessageHandlingException(message, "Failed to write " + batch.size() + " rows to "
+						+ this.tableName, e);
+			}
+		}
+	}
+
+	/**
+	 * Write any pending rows now. If the write fails, the rows are sent to the error channel.
+	 */
+	public void flush() {
+		List<Message<Map<String, Object>>> batch;
+		synchronized (this.monitor) {
+			batch = swapPending();
+		}
+		if (!batch.isEmpty()) {
+			try {
+				write(batch);
+			}
+			catch (RuntimeException e) {
+				publishFailedRows(batch, null, e);
+			}
+		}
+	}
+
+	private List<Message<Map<String, Object>>> swapPending() {
+		List<Message<Map<String, Object>>> batch = this.pending;
+		this.pending = new ArrayList<Message<Map<String, Object>>>(Math.min(this.batchSize, 1024));
+		return batch;
+	}
+
+	/**
+	 * Send an error for each row of a failed batch, except the one reported to its sender.
+	 */
+	private void publishFailedRows(List<Message<Map<String, Object>>> batch, Message<?> reported,
+			RuntimeException cause) {
+		for (Message<Map<String, Object>> row : batch) {
+			if (row != reported) {
+				this.errorHandler.handleError(new MessageHandlingException(row, "Failed to write " + batch.size()
+						+ " rows to " + this.tableName, cause));
+			}
+		}
+	}
+
+	private void write(List<Message<Map<String, Object>>> messages) {
+		final List<Map<String, Object>> batch = new ArrayList<Map<String, Object>>(messages.size());
+		for (Message<Map<String, Object>> message : messages) {
+			batch.add(message.getPayload());
+		}
+		if (this.transactionTemplate == null) {
+			// a single row is one statement, which needs no transaction of its own
+			insert(batch);
+		}
+		else {
+			this.transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus status) {
+					insert(batch);
+				}
+
+			});
+		}
+		this.batchCount.incrementAndGet();
+		this.rowCount.addAndGet(batch.size());
+	}
+
+	private void insert(List<Map<String, Object>> batch) {
+		if (this.multiRowInsert) {
+			insertMultiRow(batch);
+		}
+		else {
+			writeBatch(batch);
+		}
+	}
+
+	private void writeBatch(List<Map<String, Object>> batch) {
+		try {
+			this.writer.write(batch);
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Failed to write batch", e);
+		}
+	}
+
+	private void insertMultiRow(List<Map<String, Object>> batch) {
+		int rowsPerStatement = Math.max(1, MAX_BIND_PARAMETERS / this.columnNames.length);
+		for (int from = 0; from < batch.size(); from += rowsPerStatement) {
+			List<Map<String, Object>> rows = batch.subList(from, Math.min(batch.size(), from + rowsPerStatement));
+			Object[] args = new Object[rows.size() * this.columnNames.length];
+			int i = 0;
+			for (Map<String, Object> row : rows) {
+				for (String column : this.columnNames) {
+					args[i++] = row.get(column);
+				}
+			}
+			this.jdbcTemplate.update(multiRowInsertSql(rows.size()), args);
+		}
+	}
+
+	String multiRowInsertSql(int rows) {
+		StringBuilder row = new StringBuilder("(");
+		for (int i = 0; i < this.columnNames.length; i++) {
+			row.append(i == 0 ? "?" : ", ?");
+		}
+		row.append(")");
+		StringBuilder sql = new StringBuilder("insert into ").append(this.tableName).append("(")
+				.append(StringUtils.arrayToDelimitedString(this.columnNames, ", ")).append(") values ");
+		for (int i = 0; i < rows; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(row);
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * @return the number of rows waiting to be written.
+	 */
+	public int getPendingCount() {
+		synchronized (this.monitor) {
+			return this.pending.size();
+		}
+	}
+
+	/**
+	 * @return the number of batches written.
+	 */
+	public long getBatchCount() {
+		return this.batchCount.get();
+	}
+
+	/**
+	 * @return the number of rows written.
+	 */
+	public long getRowCount() {
+		return this.rowCount.get();
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (this.flushScheduler != null) {
+			this.flushScheduler.shutdown();
+			this.flushScheduler.awaitTermination(this.flushInterval, TimeUnit.MILLISECONDS);
+		}
+		flush();
+	}
+
+
+	/**
+	 * Binds each column to the value stored under its name, or null when there is none.
+	 */
+	private static class ColumnSqlParameterSourceProvider implements ItemSqlParameterSourceProvider<Map<String, Object>> {
+
+		private final String[] columnNames;
+
+		ColumnSqlParameterSourceProvider(String[] columnNames) {
+			this.columnNames = columnNames;
+		}
+
+		@Override
+		public SqlParameterSource createSqlParameterSource(Map<String, Object> item) {
+			MapSqlParameterSource source = new MapSqlParameterSource();
+			for (String column : this.columnNames) {
+				source.addValue(column, item.get(column));
+			}
+			return source;
+		}
+
+	}
+
+}
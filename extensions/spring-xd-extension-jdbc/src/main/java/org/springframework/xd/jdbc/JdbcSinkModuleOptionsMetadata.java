@@ -16,6 +16,8 @@
 
 package org.springframework.xd.jdbc;
 
+import javax.validation.constraints.Min;
+
 import org.springframework.xd.jdbc.JdbcSinkModuleOptionsMetadata.JdbcSinkImportToJdbcMixin;
 import org.springframework.xd.module.options.spi.Mixin;
 import org.springframework.xd.module.options.spi.ModuleOption;
@@ -31,6 +33,12 @@ public class JdbcSinkModuleOptionsMetadata {
 
 	private String columns = "payload";
 
+	private int batchSize = 1;
+
+	private long flushInterval = 1000;
+
+	private boolean multiRowInsert = false;
+
 	@ModuleOption("the database columns to map the data to")
 	public void setColumns(String columns) {
 		this.columns = columns;
@@ -40,6 +48,35 @@ public class JdbcSinkModuleOptionsMetadata {
 		return columns;
 	}
 
+	@Min(1)
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	@ModuleOption("the number of rows to insert per transaction")
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	@Min(0)
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	@ModuleOption("interval (ms) after which a partial batch is inserted; 0 only inserts full batches")
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	public boolean isMultiRowInsert() {
+		return multiRowInsert;
+	}
+
+	@ModuleOption("whether to insert each batch with a single multi-row INSERT statement (PostgreSQL, Greenplum, MySQL)")
+	public void setMultiRowInsert(boolean multiRowInsert) {
+		this.multiRowInsert = multiRowInsert;
+	}
+
 	public static class JdbcSinkImportToJdbcMixin extends AbstractImportToJdbcOptionsMetadata {
 
 		/**
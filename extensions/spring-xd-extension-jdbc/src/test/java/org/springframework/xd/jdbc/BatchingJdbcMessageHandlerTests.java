@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+
+public class BatchingJdbcMessageHandlerTests {
+
+	private final EmbeddedDatabase db = new EmbeddedDatabaseBuilder().build();
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(db);
+
+	private final BatchingJdbcMessageHandler handler = new BatchingJdbcMessageHandler(db);
+
+	@Before
+	public void setUp() {
+		jdbcTemplate.execute("create table demo (name varchar(32), age integer)");
+		handler.setTableName("demo");
+		handler.setColumnNames("name, age");
+	}
+
+	@After
+	public void shutDown() throws Exception {
+		handler.destroy();
+		db.shutdown();
+	}
+
+	@Test
+	public void testWritesFullBatches() throws Exception {
+		handler.setBatchSize(3);
+		handler.afterPropertiesSet();
+		send("Sven", 22);
+		send("Anna", 31);
+		assertEquals(2, handler.getPendingCount());
+		assertEquals(0, count());
+		send("Lars", 45);
+		assertEquals(0, handler.getPendingCount());
+		assertEquals(3, count());
+		assertEquals(1, handler.getBatchCount());
+		assertEquals(3, handler.getRowCount());
+	}
+
+	@Test
+	public void testFlushIntervalWritesPartialBatch() throws Exception {
+		handler.setBatchSize(100);
+		handler.setFlushInterval(50);
+		handler.afterPropertiesSet();
+		send("Sven", 22);
+		send("Anna", 31);
+		for (int i = 0; i < 100 && count() < 2; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(2, count());
+		assertEquals(1, handler.getBatchCount());
+	}
+
+	@Test
+	public void testDestroyWritesPendingRows() throws Exception {
+		handler.setBatchSize(100);
+		handler.afterPropertiesSet();
+		send("Sven", 22);
+		handler.destroy();
+		assertEquals(1, count());
+	}
+
+	@Test
+	public void testFailedBatchRowsAreSentToErrorChannel() throws Exception {
+		QueueChannel errors = new QueueChannel();
+		handler.setBatchSize(3);
+		handler.setErrorChannel(errors);
+		handler.afterPropertiesSet();
+		send("Sven", 22);
+		send("Anna", 31);
+		try {
+			send("a name that is longer than the column allows", 45);
+			fail("Expected a MessageHandlingException");
+		}
+		catch (MessageHandlingException e) {
+			assertEquals(45, ((Map<?, ?>) e.getFailedMessage().getPayload()).get("age"));
+		}
+		assertEquals(0, count());
+		assertEquals("Sven", failedRow(errors.receive(0)).get("name"));
+		assertEquals("Anna", failedRow(errors.receive(0)).get("name"));
+		assertNull(errors.receive(0));
+	}
+
+	@Test
+	public void testFailedFlushRowsAreSentToErrorChannel() throws Exception {
+		QueueChannel errors = new QueueChannel();
+		handler.setBatchSize(100);
+		handler.setErrorChannel(errors);
+		handler.afterPropertiesSet();
+		send("Sven", 22);
+		send("a name that is longer than the column allows", 45);
+		handler.flush();
+		assertEquals(0, count());
+		assertEquals(0, handler.getPendingCount());
+		assertEquals("Sven", failedRow(errors.receive(0)).get("name"));
+		assertEquals(45, failedRow(errors.receive(0)).get("age"));
+		assertNull(errors.receive(0));
+	}
+
+	@Test
+	public void testMultiRowInsert() throws Exception {
+		handler.setBatchSize(2);
+		handler.setMultiRowInsert(true);
+		handler.afterPropertiesSet();
+		send("Sven", 22);
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("name", "Anna");
+		handler.handleMessage(MessageBuilder.withPayload(row).build());
+		List<Map<String, Object>> rows = jdbcTemplate.queryForList("select name, age from demo order by name");
+		assertEquals(2, rows.size());
+		assertEquals("Anna", rows.get(0).get("NAME"));
+		assertNull(rows.get(0).get("AGE"));
+		assertEquals("Sven", rows.get(1).get("NAME"));
+		assertEquals(22, rows.get(1).get("AGE"));
+	}
+
+	@Test
+	public void testMultiRowInsertSql() throws Exception {
+		handler.afterPropertiesSet();
+		assertEquals("insert into demo(name, age) values (?, ?), (?, ?)", handler.multiRowInsertSql(2));
+	}
+
+	private void send(String name, int age) {
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("name", name);
+		row.put("age", age);
+		handler.handleMessage(MessageBuilder.withPayload(row).build());
+	}
+
+	private Map<?, ?> failedRow(Message<?> error) {
+		assertTrue(error instanceof ErrorMessage);
+		return (Map<?, ?>) ((MessagingException) error.getPayload()).getFailedMessage().getPayload();
+	}
+
+	private int count() {
+		return jdbcTemplate.queryForObject("select count(*) from demo", Integer.class);
+	}
+
+}
@@ -18,28 +18,25 @@ package org.springframework.integration.x.kafka;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.concurrent.CountDownLatch;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import rx.Observable;
-import rx.Scheduler;
-import rx.Subscription;
-import rx.functions.Action0;
-import rx.functions.Action1;
-import rx.functions.Func1;
-import rx.functions.Func2;
-import rx.observables.GroupedObservable;
-import rx.observables.MathObservable;
-import rx.schedulers.Schedulers;
-import rx.subjects.PublishSubject;
-import rx.subjects.SerializedSubject;
-import rx.subjects.Subject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.integration.kafka.core.Partition;
 import org.springframework.integration.kafka.listener.OffsetManager;
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.jmx.support.MetricType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 
 /**
@@ -49,23 +46,28 @@ import org.springframework.util.Assert;
  *
  * Either a time window or a number of writes can be specified, but not both.
  *
+ * The highest offset written for each partition during the current window is kept in a table that is updated
+ * without locking or allocation; at the end of the window, the offsets of the partitions written to during
+ * the window are passed to the delegate. The flush statistics are exposed over JMX; the kafka source module
+ * declares it as a top level bean, so that the module's MBean exporter finds it.
+ *
  * @author Marius Bogoevici
  */
+@ManagedResource
 public class WindowingOffsetManager implements OffsetManager, InitializingBean, DisposableBean {
 
-	private final CreatePartitionAndOffsetFunction createPartitionAndOffsetFunction = new CreatePartitionAndOffsetFunction();
-
-	private final GetOffsetFunction getOffsetFunction = new GetOffsetFunction();
+	private static final Logger logger = LoggerFactory.getLogger(WindowingOffsetManager.class);
 
-	private final ComputeMaximumOffsetByPartitionFunction findHighestOffsetInPartitionGroup = new ComputeMaximumOffsetByPartitionFunction();
-
-	private final GetPartitionFunction getPartition = new GetPartitionFunction();
+	/**
+	 * Marks a partition that has not been written to since the last flush; offsets are never negative.
+	 */
+	private static final long CLEAN = -1;
 
-	private final FindHighestOffsetsByPartitionFunction findHighestOffsetsByPartition = new FindHighestOffsetsByPartitionFunction();
+	private final ConcurrentMap<Partition, AtomicLong> highestOffsets = new ConcurrentHashMap<>();
 
-	private final DelegateUpdateOffsetAction delegateUpdateOffsetAction = new DelegateUpdateOffsetAction();
+	private final AtomicLong writes = new AtomicLong();
 
-	private final NotifyObservableClosedAction notifyObservableClosed = new NotifyObservableClosedAction();
+	private final Object flushMonitor = new Object();
 
 	private OffsetManager delegate;
 
@@ -73,13 +75,19 @@ public class WindowingOffsetManager implements OffsetManager, InitializingBean,
 
 	private int count = 0;
 
-	private Subject<PartitionAndOffset, PartitionAndOffset> offsets;
+	private volatile boolean windowing;
 
-	private Subscription subscription;
+	private ScheduledExecutorService scheduler;
 
 	private int shutdownTimeout = 2000;
 
-	private CountDownLatch shutdownLatch;
+	private volatile long flushCount;
+
+	private volatile long lastFlushDuration;
+
+	private volatile long maxFlushDuration;
+
+	private volatile int lastFlushedPartitions;
 
 	public WindowingOffsetManager(OffsetManager offsetManager) {
 		this.delegate = offsetManager;
@@ -107,8 +115,8 @@ public class WindowingOffsetManager implements OffsetManager, InitializingBean,
 	}
 
 	/**
-	 * The timeout that {@link #close()} and {@link #destroy()} operations will wait for receving a confirmation that the
-	 * underlying writes have been processed.
+	 * The timeout that {@link #close()} and {@link #destroy()} operations will wait for an in-progress
+	 * windowed write to complete.
 	 *
 	 * @param shutdownTimeout duration in milliseconds
 	 */
@@ -119,19 +127,25 @@ public class WindowingOffsetManager implements OffsetManager, InitializingBean,
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		Assert.isTrue(timespan > 0 ^ count > 0, "Only one of the timespan or count must be set");
-		// create the stream if windowing is set, and count is higher than 1
-		if (timespan > 0 || count > 1) {
-			offsets = new SerializedSubject<>(PublishSubject.<PartitionAndOffset>create());
-			// window by either count or time
-			Observable<Observable<PartitionAndOffset>> window =
-					timespan > 0 ? offsets.window(timespan, TimeUnit.MILLISECONDS) : offsets.window(count);
-			Observable<PartitionAndOffset> maximumOffsetsByWindow = window
-					.flatMap(findHighestOffsetsByPartition)
-					.doOnCompleted(notifyObservableClosed);
-			subscription = maximumOffsetsByWindow.subscribe(delegateUpdateOffsetAction);
-		}
-		else {
-			offsets = null;
+		// window if the timespan is set, or count is higher than 1
+		windowing = timespan > 0 || count > 1;
+		if (timespan > 0) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("offset-window-");
+			threadFactory.setDaemon(true);
+			scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+			scheduler.scheduleAtFixedRate(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						flushWindow();
+					}
+					catch (RuntimeException e) {
+						logger.error("Failed to write windowed offsets", e);
+					}
+				}
+
+			}, timespan, timespan, TimeUnit.MILLISECONDS);
 		}
 	}
 
@@ -146,11 +160,50 @@ public class WindowingOffsetManager implements OffsetManager, InitializingBean,
 
 	@Override
 	public void updateOffset(Partition partition, long offset) {
-		if (offsets != null) {
-			offsets.onNext(new PartitionAndOffset(partition, offset));
-		}
-		else {
+		if (!windowing) {
 			delegate.updateOffset(partition, offset);
+			return;
+		}
+		AtomicLong highestOffset = highestOffsets.get(partition);
+		if (highestOffset == null) {
+			AtomicLong newOffset = new AtomicLong(CLEAN);
+			highestOffset = highestOffsets.putIfAbsent(partition, newOffset);
+			if (highestOffset == null) {
+				highestOffset = newOffset;
+			}
+		}
+		long current;
+		while (offset > (current = highestOffset.get())) {
+			if (highestOffset.compareAndSet(current, offset)) {
+				break;
+			}
+		}
+		if (count > 1 && writes.incrementAndGet() % count == 0) {
+			flushWindow();
+		}
+	}
+
+	/**
+	 * Pass the highest offset written to each partition since the last window to the delegate.
+	 */
+	private void flushWindow() {
+		synchronized (flushMonitor) {
+			long start = System.nanoTime();
+			int partitions = 0;
+			for (Map.Entry<Partition, AtomicLong> entry : highestOffsets.entrySet()) {
+				long offset = entry.getValue().getAndSet(CLEAN);
+				if (offset != CLEAN) {
+					delegate.updateOffset(entry.getKey(), offset);
+					partitions++;
+				}
+			}
+			long duration = System.nanoTime() - start;
+			flushCount++;
+			lastFlushDuration = duration;
+			if (duration > maxFlushDuration) {
+				maxFlushDuration = duration;
+			}
+			lastFlushedPartitions = partitions;
 		}
 	}
 
@@ -161,105 +214,93 @@ public class WindowingOffsetManager implements OffsetManager, InitializingBean,
 
 	@Override
 	public void deleteOffset(Partition partition) {
+		AtomicLong highestOffset = highestOffsets.get(partition);
+		if (highestOffset != null) {
+			highestOffset.set(CLEAN);
+		}
 		delegate.deleteOffset(partition);
 	}
 
 	@Override
 	public void resetOffsets(Collection<Partition> partition) {
+		for (Partition each : partition) {
+			AtomicLong highestOffset = highestOffsets.get(each);
+			if (highestOffset != null) {
+				highestOffset.set(CLEAN);
+			}
+		}
 		delegate.resetOffsets(partition);
 	}
 
 	@Override
 	public void close() throws IOException {
-		if (offsets != null) {
-			shutdownLatch = new CountDownLatch(1);
-			offsets.onCompleted();
+		if (scheduler != null) {
+			scheduler.shutdown();
 			try {
-				shutdownLatch.await(shutdownTimeout, TimeUnit.MILLISECONDS);
+				scheduler.awaitTermination(shutdownTimeout, TimeUnit.MILLISECONDS);
 			}
 			catch (InterruptedException e) {
-				// ignore
+				Thread.currentThread().interrupt();
 			}
-			subscription.unsubscribe();
+		}
+		if (windowing) {
+			flushWindow();
 		}
 		delegate.close();
 	}
 
 	@Override
 	public void flush() throws IOException {
-		delegate.flush();
-	}
-
-	class PartitionAndOffset {
-
-		private Partition partition;
-
-		private Long offset;
-
-		public PartitionAndOffset(Partition partition, Long offset) {
-			this.partition = partition;
-			this.offset = offset;
-		}
-
-		public Partition getPartition() {
-			return partition;
-		}
-
-		public Long getOffset() {
-			return offset;
-		}
-	}
-
-	private class DelegateUpdateOffsetAction implements Action1<PartitionAndOffset> {
-		@Override
-		public void call(PartitionAndOffset partitionAndOffset) {
-			delegate.updateOffset(partitionAndOffset.getPartition(), partitionAndOffset.getOffset());
+		if (windowing) {
+			flushWindow();
 		}
+		delegate.flush();
 	}
 
-	private class NotifyObservableClosedAction implements Action0 {
-		@Override
-		public void call() {
-			if (shutdownLatch != null) {
-				shutdownLatch.countDown();
+	/**
+	 * @return the number of partitions written to since the last window was flushed.
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, description = "Partitions written to since the last flush")
+	public int getDirtyPartitionCount() {
+		int dirty = 0;
+		for (AtomicLong highestOffset : highestOffsets.values()) {
+			if (highestOffset.get() != CLEAN) {
+				dirty++;
 			}
 		}
+		return dirty;
 	}
 
-	private class CreatePartitionAndOffsetFunction implements Func2<Partition, Long, PartitionAndOffset> {
-		@Override
-		public PartitionAndOffset call(Partition partition, Long offset) {
-			return new PartitionAndOffset(partition, offset);
-		}
+	/**
+	 * @return the number of partitions whose offsets were written to the delegate by the last flush.
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, description = "Partitions written by the last flush")
+	public int getLastFlushedPartitionCount() {
+		return lastFlushedPartitions;
 	}
 
-	private class GetOffsetFunction implements Func1<PartitionAndOffset, Long> {
-		@Override
-		public Long call(PartitionAndOffset partitionAndOffset) {
-			return partitionAndOffset.getOffset();
-		}
+	/**
+	 * @return the number of windows flushed to the delegate.
+	 */
+	@ManagedMetric(metricType = MetricType.COUNTER, description = "Windows flushed to the delegate")
+	public long getFlushCount() {
+		return flushCount;
 	}
 
-	private class ComputeMaximumOffsetByPartitionFunction implements Func1<GroupedObservable<Partition, PartitionAndOffset>, Observable<PartitionAndOffset>> {
-		@Override
-		public Observable<PartitionAndOffset> call(GroupedObservable<Partition, PartitionAndOffset> group) {
-			return Observable.zip(Observable.just(group.getKey()),
-					MathObservable.max(group.map(getOffsetFunction)),
-					createPartitionAndOffsetFunction);
-		}
+	/**
+	 * @return the time taken by the delegate to write the last window, in nanoseconds.
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, description = "Duration of the last flush, in nanoseconds")
+	public long getLastFlushDuration() {
+		return lastFlushDuration;
 	}
 
-	private class GetPartitionFunction implements Func1<PartitionAndOffset, Partition> {
-		@Override
-		public Partition call(PartitionAndOffset partitionAndOffset) {
-			return partitionAndOffset.getPartition();
-		}
+	/**
+	 * @return the longest time taken by the delegate to write a window, in nanoseconds.
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, description = "Longest flush, in nanoseconds")
+	public long getMaxFlushDuration() {
+		return maxFlushDuration;
 	}
 
-	private class FindHighestOffsetsByPartitionFunction implements Func1<Observable<PartitionAndOffset>, Observable<PartitionAndOffset>> {
-		@Override
-		public Observable<PartitionAndOffset> call(Observable<PartitionAndOffset> windowBuffer) {
-			return windowBuffer.groupBy(getPartition).flatMap(findHighestOffsetInPartitionGroup);
-		}
-	}
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.integration.x.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import org.springframework.integration.kafka.core.Partition;
+import org.springframework.integration.kafka.listener.OffsetManager;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+
+public class WindowingOffsetManagerTests {
+
+	private final Partition partition0 = new Partition("foo", 0);
+
+	private final Partition partition1 = new Partition("foo", 1);
+
+	@Test
+	public void testCountWindowWritesHighestOffsetPerPartition() throws Exception {
+		RecordingOffsetManager delegate = new RecordingOffsetManager();
+		WindowingOffsetManager offsetManager = new WindowingOffsetManager(delegate);
+		offsetManager.setTimespan(0);
+		offsetManager.setCount(4);
+		offsetManager.afterPropertiesSet();
+		offsetManager.updateOffset(partition0, 5);
+		offsetManager.updateOffset(partition1, 2);
+		offsetManager.updateOffset(partition0, 3);
+		assertTrue(delegate.updates.isEmpty());
+		assertEquals(2, offsetManager.getDirtyPartitionCount());
+		offsetManager.updateOffset(partition1, 7);
+		assertEquals(2, delegate.updates.size());
+		assertEquals(Long.valueOf(5), delegate.offsets.get(partition0));
+		assertEquals(Long.valueOf(7), delegate.offsets.get(partition1));
+		assertEquals(0, offsetManager.getDirtyPartitionCount());
+		assertEquals(1, offsetManager.getFlushCount());
+		assertEquals(2, offsetManager.getLastFlushedPartitionCount());
+
+		offsetManager.updateOffset(partition0, 9);
+		offsetManager.close();
+		assertEquals(3, delegate.updates.size());
+		assertEquals(Long.valueOf(9), delegate.offsets.get(partition0));
+	}
+
+	@Test
+	public void testStatisticsAreExposedOverJmx() throws Exception {
+		WindowingOffsetManager offsetManager = new WindowingOffsetManager(new RecordingOffsetManager());
+		offsetManager.setTimespan(0);
+		offsetManager.setCount(2);
+		offsetManager.afterPropertiesSet();
+		offsetManager.updateOffset(partition0, 5);
+		offsetManager.updateOffset(partition1, 2);
+		offsetManager.updateOffset(partition0, 6);
+
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		AnnotationMBeanExporter exporter = new AnnotationMBeanExporter();
+		exporter.setServer(server);
+		ObjectName objectName = new ObjectName("xd.test:type=WindowingOffsetManager,name=windowingOffsetManager");
+		exporter.registerManagedResource(offsetManager, objectName);
+		try {
+			assertEquals(1L, server.getAttribute(objectName, "FlushCount"));
+			assertEquals(2, server.getAttribute(objectName, "LastFlushedPartitionCount"));
+			assertEquals(1, server.getAttribute(objectName, "DirtyPartitionCount"));
+		}
+		finally {
+			exporter.destroy();
+			offsetManager.close();
+		}
+	}
+
+	@Test
+	public void testCountOfOneDisablesWindowing() throws Exception {
+		RecordingOffsetManager delegate = new RecordingOffsetManager();
+		WindowingOffsetManager offsetManager = new WindowingOffsetManager(delegate);
+		offsetManager.setTimespan(0);
+		offsetManager.setCount(1);
+		offsetManager.afterPropertiesSet();
+		offsetManager.updateOffset(partition0, 5);
+		offsetManager.updateOffset(partition0, 3);
+		assertEquals(2, delegate.updates.size());
+		assertEquals(Long.valueOf(3), delegate.offsets.get(partition0));
+		assertEquals(0, offsetManager.getFlushCount());
+	}
+
+	@Test
+	public void testTimeWindow() throws Exception {
+		RecordingOffsetManager delegate = new RecordingOffsetManager();
+		WindowingOffsetManager offsetManager = new WindowingOffsetManager(delegate);
+		offsetManager.setTimespan(50);
+		offsetManager.afterPropertiesSet();
+		try {
+			for (long offset = 0; offset < 1000; offset++) {
+				offsetManager.updateOffset(partition0, offset);
+				offsetManager.updateOffset(partition1, offset * 2);
+			}
+			long deadline = System.currentTimeMillis() + 10000;
+			while (offsetManager.getDirtyPartitionCount() > 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(0, offsetManager.getDirtyPartitionCount());
+			assertEquals(Long.valueOf(999), delegate.offsets.get(partition0));
+			assertEquals(Long.valueOf(1998), delegate.offsets.get(partition1));
+			assertTrue(offsetManager.getFlushCount() > 0);
+		}
+		finally {
+			offsetManager.destroy();
+		}
+		assertTrue(delegate.closed);
+	}
+
+	@Test
+	public void testResetDiscardsPendingOffsets() throws Exception {
+		RecordingOffsetManager delegate = new RecordingOffsetManager();
+		WindowingOffsetManager offsetManager = new WindowingOffsetManager(delegate);
+		offsetManager.setTimespan(0);
+		offsetManager.setCount(10);
+		offsetManager.afterPropertiesSet();
+		offsetManager.updateOffset(partition0, 5);
+		offsetManager.resetOffsets(Collections.singleton(partition0));
+		offsetManager.flush();
+		assertTrue(delegate.updates.isEmpty());
+	}
+
+
+	private static class RecordingOffsetManager implements OffsetManager {
+
+		private final List<Partition> updates = Collections.synchronizedList(new ArrayList<Partition>());
+
+		private final Map<Partition, Long> offsets = new ConcurrentHashMap<>();
+
+		private volatile boolean closed;
+
+		@Override
+		public void updateOffset(Partition partition, long offset) {
+			updates.add(partition);
+			offsets.put(partition, offset);
+		}
+
+		@Override
+		public long getOffset(Partition partition) {
+			Long offset = offsets.get(partition);
+			return offset == null ? -1 : offset;
+		}
+
+		@Override
+		public void deleteOffset(Partition partition) {
+			offsets.remove(partition);
+		}
+
+		@Override
+		public void resetOffsets(Collection<Partition> partition) {
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+
+import org.springframework.util.Assert;
+
+/**
+ * Accumulates aggregate counter increments in memory, adding up those that fall in the same minute of the same
+ * counter, and hands them to an {@link AggregateCounterRepository} as one batch. The buffer flushes itself once
+ * {@code flushSize} increments have been added; callers are expected to also {@link #flush()} it periodically,
+ * which bounds how many increments can be lost if the process dies.
+ */
+public class AggregateCounterBuffer implements MetricBuffer {
+
+	private final AggregateCounterRepository repository;
+
+	private final int flushSize;
+
+	private Map<String, Map<DateTime, Long>> increments = new HashMap<String, Map<DateTime, Long>>();
+
+	private int size;
+
+	/**
+	 * @param repository the repository the increments are written to.
+	 * @param flushSize the number of increments after which the buffer is flushed.
+	 */
+	public AggregateCounterBuffer(AggregateCounterRepository repository, int flushSize) {
+		Assert.notNull(repository, "'repository' cannot be null");
+		Assert.isTrue(flushSize > 0, "'flushSize' must be greater than 0");
+		this.repository = repository;
+		this.flushSize = flushSize;
+	}
+
+	/**
+	 * Buffer an increment, flushing the buffer if it is full.
+	 * @param name the counter name.
+	 * @param amount the amount to add.
+	 * @param dateTime the instant to add it at; only its minute is retained.
+	 */
+	public void increment(String name, long amount, DateTime dateTime) {
+		DateTime minute = dateTime.minuteOfHour().roundFloorCopy();
+		Map<String, Map<DateTime, Long>> full = null;
+		synchronized (this) {
+			Map<DateTime, Long> counter = this.increments.get(name);
+			if (counter == null) {
+				counter = new HashMap<DateTime, Long>();
+				this.increments.put(name, counter);
+			}
+			Long current = counter.get(minute);
+			counter.put(minute, current == null ? amount : current + amount);
+			if (++this.size >= this.flushSize) {
+				full = drain();
+			}
+		}
+		if (full != null) {
+			this.repository.increment(full);
+		}
+	}
+
+	@Override
+	public void flush() {
+		Map<String, Map<DateTime, Long>> pending;
+		synchronized (this) {
+			if (this.size == 0) {
+				return;
+			}
+			pending = drain();
+		}
+		this.repository.increment(pending);
+	}
+
+	private Map<String, Map<DateTime, Long>> drain() {
+		Map<String, Map<DateTime, Long>> pending = this.increments;
+		this.increments = new HashMap<String, Map<DateTime, Long>>();
+		this.size = 0;
+		return pending;
+	}
+
+}
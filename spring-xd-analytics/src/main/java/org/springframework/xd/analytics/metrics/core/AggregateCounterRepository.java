@@ -16,6 +16,8 @@
 
 package org.springframework.xd.analytics.metrics.core;
 
+import java.util.Map;
+
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 
@@ -31,6 +33,14 @@ public interface AggregateCounterRepository extends CounterRepository {
 	 */
 	long increment(String name, long amount, DateTime dateTime);
 
+	/**
+	 * Increments several counters at once, as accumulated by an {@link AggregateCounterBuffer}. Implementations
+	 * should apply the whole batch in as few operations against the underlying store as possible.
+	 *
+	 * @param increments the amounts to add, by counter name and then by instant
+	 */
+	void increment(Map<String, Map<DateTime, Long>> increments);
+
 
 	/**
 	 * Query function which returns the last 'n' points for a particular resolution.
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A map of counts that many threads can add to without locking. {@link #drain()} hands out the counts
+ * accumulated since the previous drain and evicts keys that have not been updated in between, so that
+ * the map only holds keys that are actively counted.
+ *
+ * @param <K> the key type.
+ */
+final class ConcurrentCounts<K> {
+
+	/**
+	 * Marks a count that has been evicted from the map; adders that see it retry with a fresh count.
+	 */
+	private static final long REMOVED = Long.MIN_VALUE;
+
+	private final ConcurrentMap<K, AtomicLong> counts = new ConcurrentHashMap<K, AtomicLong>();
+
+	void add(K key, long delta) {
+		while (true) {
+			AtomicLong count = this.counts.get(key);
+			if (count == null) {
+				count = this.counts.putIfAbsent(key, new AtomicLong(delta));
+				if (count == null) {
+					return;
+				}
+			}
+			long current = count.get();
+			while (current != REMOVED) {
+				if (count.compareAndSet(current, current + delta)) {
+					return;
+				}
+				current = count.get();
+			}
+			this.counts.remove(key, count);
+		}
+	}
+
+	/**
+	 * @return the non-zero counts added since the previous call.
+	 */
+	synchronized Map<K, Long> drain() {
+		Map<K, Long> drained = new HashMap<K, Long>();
+		for (Map.Entry<K, AtomicLong> entry : this.counts.entrySet()) {
+			AtomicLong count = entry.getValue();
+			long value = count.getAndSet(0);
+			if (value != 0) {
+				drained.put(entry.getKey(), value);
+			}
+			else if (count.compareAndSet(0, REMOVED)) {
+				this.counts.remove(entry.getKey(), count);
+			}
+		}
+		return drained;
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+/**
+ * Accumulates counter increments in memory, adding up those made to the same counter, and writes one
+ * increment per counter to a {@link CounterRepository} when {@link #flush() flushed}. Increments are
+ * lock-free, so concurrent producers do not contend on the buffer.
+ */
+public class CounterBuffer implements MetricBuffer {
+
+	private final CounterRepository repository;
+
+	private final ConcurrentCounts<String> counts = new ConcurrentCounts<String>();
+
+	/**
+	 * @param repository the repository the increments are written to.
+	 */
+	public CounterBuffer(CounterRepository repository) {
+		Assert.notNull(repository, "'repository' cannot be null");
+		this.repository = repository;
+	}
+
+	/**
+	 * Buffer an increment.
+	 * @param name the counter name.
+	 * @param amount the amount to add.
+	 */
+	public void increment(String name, long amount) {
+		this.counts.add(name, amount);
+	}
+
+	@Override
+	public void flush() {
+		for (Map.Entry<String, Long> entry : this.counts.drain().entrySet()) {
+			this.repository.increment(entry.getKey(), entry.getValue());
+		}
+	}
+
+}
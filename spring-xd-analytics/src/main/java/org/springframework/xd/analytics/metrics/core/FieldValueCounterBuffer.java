@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+/**
+ * Accumulates field value counter increments in memory, adding up those made to the same value of the same
+ * counter, and writes them to a {@link FieldValueCounterRepository} one counter at a time when
+ * {@link #flush() flushed}. Increments are lock-free, so concurrent producers do not contend on the buffer.
+ * <p>
+ * For fields with many distinct values, a {@code topK} limit keeps only the most frequent values seen since
+ * the previous flush and discards the others; counts for rarely seen values are then approximate.
+ */
+public class FieldValueCounterBuffer implements MetricBuffer {
+
+	private static final Comparator<Map.Entry<String, Double>> BY_COUNT_DESCENDING = new Comparator<Map.Entry<String, Double>>() {
+
+		@Override
+		public int compare(Map.Entry<String, Double> o1, Map.Entry<String, Double> o2) {
+			return o2.getValue().compareTo(o1.getValue());
+		}
+
+	};
+
+	private final FieldValueCounterRepository repository;
+
+	private final int topK;
+
+	private final ConcurrentCounts<FieldValue> counts = new ConcurrentCounts<FieldValue>();
+
+	/**
+	 * @param repository the repository the increments are written to.
+	 */
+	public FieldValueCounterBuffer(FieldValueCounterRepository repository) {
+		this(repository, 0);
+	}
+
+	/**
+	 * @param repository the repository the increments are written to.
+	 * @param topK the maximum number of values written per counter and flush; 0 means no limit.
+	 */
+	public FieldValueCounterBuffer(FieldValueCounterRepository repository, int topK) {
+		Assert.notNull(repository, "'repository' cannot be null");
+		Assert.isTrue(topK >= 0, "'topK' cannot be negative");
+		this.repository = repository;
+		this.topK = topK;
+	}
+
+	/**
+	 * Buffer an increment by one.
+	 * @param name the counter name.
+	 * @param fieldValue the field value.
+	 */
+	public void increment(String name, String fieldValue) {
+		this.counts.add(new FieldValue(name, fieldValue), 1);
+	}
+
+	@Override
+	public void flush() {
+		Map<String, Map<String, Double>> byCounter = new HashMap<String, Map<String, Double>>();
+		for (Map.Entry<FieldValue, Long> entry : this.counts.drain().entrySet()) {
+			FieldValue key = entry.getKey();
+			Map<String, Double> counter = byCounter.get(key.name);
+			if (counter == null) {
+				counter = new HashMap<String, Double>();
+				byCounter.put(key.name, counter);
+			}
+			counter.put(key.value, entry.getValue().doubleValue());
+		}
+		for (Map.Entry<String, Map<String, Double>> entry : byCounter.entrySet()) {
+			this.repository.increment(entry.getKey(), trim(entry.getValue()));
+		}
+	}
+
+	private Map<String, Double> trim(Map<String, Double> fieldValueCounts) {
+		if (this.topK == 0 || fieldValueCounts.size() <= this.topK) {
+			return fieldValueCounts;
+		}
+		List<Map.Entry<String, Double>> entries = new ArrayList<Map.Entry<String, Double>>(
+				fieldValueCounts.entrySet());
+		Collections.sort(entries, BY_COUNT_DESCENDING);
+		Map<String, Double> top = new HashMap<String, Double>();
+		for (Map.Entry<String, Double> entry : entries.subList(0, this.topK)) {
+			top.put(entry.getKey(), entry.getValue());
+		}
+		return top;
+	}
+
+
+	private static final class FieldValue {
+
+		private final String name;
+
+		private final String value;
+
+		private FieldValue(String name, String value) {
+			this.name = name;
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof FieldValue)) {
+				return false;
+			}
+			FieldValue other = (FieldValue) obj;
+			return this.name.equals(other.name) && this.value.equals(other.value);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * this.name.hashCode() + this.value.hashCode();
+		}
+
+	}
+
+}
@@ -16,6 +16,8 @@
 
 package org.springframework.xd.analytics.metrics.core;
 
+import java.util.Map;
+
 /**
  * A repository to save, delete and find FieldValueCounter instances. Uses the Spring Data Repository marker interface
  * and conventions for method names and behavior.
@@ -36,6 +38,15 @@ public interface FieldValueCounterRepository extends MetricRepository<FieldValue
 	 */
 	void increment(String name, String fieldName);
 
+	/**
+	 * Increment the FieldValueCounter for several field names at once, creating missing counters.
+	 * 
+	 * @param name the FieldValueCounter name
+	 * @param fieldValueCounts the amount to add for each field name
+	 * @throws IllegalArgumentException in case the given name is null
+	 */
+	void increment(String name, Map<String, Double> fieldValueCounts);
+
 	/**
 	 * Decrement the FieldValueCounter for a given field name by one, creating missing counters.
 	 * 
@@ -16,30 +16,49 @@
 
 package org.springframework.xd.analytics.metrics.integration;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.integration.context.IntegrationContextUtils;
 import org.springframework.messaging.Message;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.MetricBuffer;
 
 
 /**
  * Abstract support class for authoring metrics oriented handlers. Provides support for
- * dynamically choosing the name of the counter to contribute to.
+ * dynamically choosing the name of the counter to contribute to, and for periodically
+ * flushing a {@link MetricBuffer} when a {@link #setFlushInterval(long) flush interval} is set.
+ * Expressions are compiled to bytecode when a {@link #setSpelCompilerMode(SpelCompilerMode) compiler mode}
+ * is set.
  *
  * @author Eric Bottard
  */
-abstract class AbstractMetricHandler implements BeanFactoryAware, InitializingBean {
+abstract class AbstractMetricHandler implements BeanFactoryAware, BeanClassLoaderAware, InitializingBean,
+		DisposableBean {
 
-	protected final Expression nameExpression;
+	private static final Logger logger = LoggerFactory.getLogger(AbstractMetricHandler.class);
 
-	protected final SpelExpressionParser spelExpressionParser = new SpelExpressionParser();
+	protected Expression nameExpression;
+
+	protected SpelExpressionParser spelExpressionParser = new SpelExpressionParser();
 
 	protected EvaluationContext evaluationContext = new StandardEvaluationContext();
 
@@ -47,6 +66,16 @@ abstract class AbstractMetricHandler implements BeanFactoryAware, InitializingBe
 
 	private BeanFactory beanFactory;
 
+	private ClassLoader beanClassLoader;
+
+	private SpelCompilerMode spelCompilerMode = SpelCompilerMode.OFF;
+
+	private long flushInterval;
+
+	private MetricBuffer buffer;
+
+	private ScheduledExecutorService flushScheduler;
+
 	protected AbstractMetricHandler(String nameExpression) {
 		Assert.notNull(nameExpression, "Metric name expression can not be null");
 		this.nameExpression = spelExpressionParser.parseExpression(nameExpression);
@@ -62,16 +91,98 @@ abstract class AbstractMetricHandler implements BeanFactoryAware, InitializingBe
 		this.evalationContextSet = true;
 	}
 
+	/**
+	 * @param flushInterval the interval, in milliseconds, at which buffered updates are written to the
+	 * repository; 0 (the default) disables buffering.
+	 */
+	public void setFlushInterval(long flushInterval) {
+		Assert.isTrue(flushInterval >= 0, "'flushInterval' cannot be negative");
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * @param spelCompilerMode the compiler mode for this handler's expressions; {@code OFF} (the default)
+	 * keeps them interpreted.
+	 */
+	public void setSpelCompilerMode(SpelCompilerMode spelCompilerMode) {
+		Assert.notNull(spelCompilerMode, "'spelCompilerMode' cannot be null");
+		this.spelCompilerMode = spelCompilerMode;
+	}
+
+	/**
+	 * Parse the expression again with the configured {@link #setSpelCompilerMode(SpelCompilerMode) compiler
+	 * mode}. Meant to be called from {@link #afterPropertiesSet()} for expressions parsed at construction time.
+	 * @param expression the expression.
+	 * @return the expression to use.
+	 */
+	protected Expression reparseExpression(Expression expression) {
+		if (this.spelCompilerMode == SpelCompilerMode.OFF) {
+			return expression;
+		}
+		return this.spelExpressionParser.parseExpression(expression.getExpressionString());
+	}
+
+	protected boolean isBuffering() {
+		return this.flushInterval > 0;
+	}
+
+	/**
+	 * Flush the given buffer every {@link #setFlushInterval(long) flush interval}, and once more when this
+	 * handler is destroyed. Meant to be called from {@link #afterPropertiesSet()} when {@link #isBuffering()}.
+	 * @param buffer the buffer.
+	 */
+	protected void scheduleFlush(final MetricBuffer buffer) {
+		Assert.state(isBuffering(), "A flush interval must be set to schedule flushes");
+		Assert.state(this.flushScheduler == null, "Flushes are already scheduled");
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("metric-flush-");
+		threadFactory.setDaemon(true);
+		this.flushScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		this.flushScheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					buffer.flush();
+				}
+				catch (RuntimeException e) {
+					// keep the schedule going; the failed batch is lost
+					logger.error("Failed to flush buffered metric updates", e);
+				}
+			}
+
+		}, this.flushInterval, this.flushInterval, TimeUnit.MILLISECONDS);
+		this.buffer = buffer;
+	}
+
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
 		this.beanFactory = beanFactory;
 	}
 
+	@Override
+	public void setBeanClassLoader(ClassLoader classLoader) {
+		this.beanClassLoader = classLoader;
+	}
+
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		if (!this.evalationContextSet) {
 			this.evaluationContext = IntegrationContextUtils.getEvaluationContext(this.beanFactory);
 		}
+		if (this.spelCompilerMode != SpelCompilerMode.OFF) {
+			this.spelExpressionParser = new SpelExpressionParser(new SpelParserConfiguration(this.spelCompilerMode,
+					this.beanClassLoader));
+			this.nameExpression = reparseExpression(this.nameExpression);
+		}
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (this.flushScheduler != null) {
+			this.flushScheduler.shutdown();
+			this.flushScheduler.awaitTermination(this.flushInterval, TimeUnit.MILLISECONDS);
+			this.buffer.flush();
+		}
 	}
 
 }
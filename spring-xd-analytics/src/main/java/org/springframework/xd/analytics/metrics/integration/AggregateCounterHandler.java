@@ -18,6 +18,7 @@ package org.springframework.xd.analytics.metrics.integration;
 
 import java.text.ParseException;
 
+import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
@@ -25,11 +26,14 @@ import org.joda.time.format.ISODateTimeFormat;
 import org.springframework.expression.Expression;
 import org.springframework.messaging.Message;
 import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.AggregateCounterBuffer;
 import org.springframework.xd.analytics.metrics.core.AggregateCounterRepository;
 
 /**
  * Handles incoming messages for the {@code aggregate-counter} module, resolves SpEL expressions
- * as needed and delegate the heavy lifting to an {@link AggregateCounterRepository}.
+ * as needed and delegate the heavy lifting to an {@link AggregateCounterRepository}. When a
+ * {@link #setFlushInterval(long) flush interval} is set, increments are accumulated in an
+ * {@link AggregateCounterBuffer} and written in batches instead of one message at a time.
  *
  * @author Luke Taylor
  * @author Eric Bottard
@@ -40,7 +44,11 @@ public class AggregateCounterHandler extends AbstractMetricHandler {
 
 	private DateTimeFormatter dateFormat = ISODateTimeFormat.dateTime();
 
-	private final Expression incrementExpression;
+	private Expression incrementExpression;
+
+	private int flushSize = 1000;
+
+	private volatile AggregateCounterBuffer buffer;
 
 	public AggregateCounterHandler(AggregateCounterRepository aggregateCounterRepository, String nameExpression,
 			String incrementExpression) {
@@ -56,6 +64,25 @@ public class AggregateCounterHandler extends AbstractMetricHandler {
 		this.dateFormat = DateTimeFormat.forPattern(pattern);
 	}
 
+	/**
+	 * @param flushSize the number of buffered increments after which they are written to the repository,
+	 * regardless of the flush interval.
+	 */
+	public void setFlushSize(int flushSize) {
+		Assert.isTrue(flushSize > 0, "'flushSize' must be greater than 0");
+		this.flushSize = flushSize;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		super.afterPropertiesSet();
+		this.incrementExpression = reparseExpression(this.incrementExpression);
+		if (isBuffering()) {
+			this.buffer = new AggregateCounterBuffer(this.aggregateCounterRepository, this.flushSize);
+			scheduleFlush(this.buffer);
+		}
+	}
+
 	public Message<?> process(Message<?> message, String timeField) throws ParseException {
 		if (message == null) {
 			return null;
@@ -64,7 +91,12 @@ public class AggregateCounterHandler extends AbstractMetricHandler {
 		Double increment = incrementExpression.getValue(evaluationContext, message, Double.class);
 		String counterName = computeMetricName(message);
 
-		if (timeField == null) {
+		AggregateCounterBuffer buffer = this.buffer;
+		if (buffer != null) {
+			DateTime dateTime = timeField == null ? new DateTime() : dateFormat.parseDateTime(timeField);
+			buffer.increment(counterName, increment.longValue(), dateTime);
+		}
+		else if (timeField == null) {
 			this.aggregateCounterRepository.increment(counterName, increment.longValue());
 		}
 		else {
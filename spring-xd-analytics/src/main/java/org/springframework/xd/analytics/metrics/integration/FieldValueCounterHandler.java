@@ -29,13 +29,16 @@ import org.springframework.messaging.Message;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.xd.analytics.metrics.core.FieldValueCounterBuffer;
 import org.springframework.xd.analytics.metrics.core.FieldValueCounterRepository;
 import org.springframework.xd.tuple.Tuple;
 import org.springframework.xd.tuple.integration.JsonToTupleTransformer;
 
 /**
  * Counts the occurrence of values for a set of JavaBean properties or Tuple fields using a FieldValueCounterRepository.
- * Assumes a String payload is JSON and will convert it to a Tuple.
+ * Assumes a String payload is JSON and will convert it to a Tuple. When a {@link #setFlushInterval(long) flush
+ * interval} is set, counts are accumulated in a {@link FieldValueCounterBuffer} and written once per interval,
+ * optionally keeping only the {@link #setTopK(int) most frequent values}.
  *
  * @author Mark Pollack
  * @author David Turanski
@@ -49,6 +52,10 @@ public class FieldValueCounterHandler extends AbstractMetricHandler {
 
 	private final JsonToTupleTransformer jsonToTupleTransformer;
 
+	private int topK;
+
+	private volatile FieldValueCounterBuffer buffer;
+
 	public FieldValueCounterHandler(FieldValueCounterRepository fieldValueCounterRepository, String nameExpression,
 			String fieldName) {
 		super(nameExpression);
@@ -60,6 +67,24 @@ public class FieldValueCounterHandler extends AbstractMetricHandler {
 
 	}
 
+	/**
+	 * @param topK when buffering, the maximum number of distinct values written per counter and flush; the
+	 * least frequent values beyond that are dropped. 0 (the default) means no limit.
+	 */
+	public void setTopK(int topK) {
+		Assert.isTrue(topK >= 0, "'topK' cannot be negative");
+		this.topK = topK;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		super.afterPropertiesSet();
+		if (isBuffering()) {
+			this.buffer = new FieldValueCounterBuffer(this.fieldValueCounterRepository, this.topK);
+			scheduleFlush(this.buffer);
+		}
+	}
+
 	@ServiceActivator
 	public Message<?> process(Message<?> message) {
 		Object payload = message.getPayload();
@@ -127,11 +152,21 @@ public class FieldValueCounterHandler extends AbstractMetricHandler {
 					: Arrays.asList(ObjectUtils.toObjectArray(value));
 			for (Object val : c) {
 				// TODO better conversion to a string
-				fieldValueCounterRepository.increment(counterName, val.toString());
+				increment(counterName, val.toString());
 			}
 		}
 		else {
-			fieldValueCounterRepository.increment(counterName, value.toString());
+			increment(counterName, value.toString());
+		}
+	}
+
+	private void increment(String counterName, String fieldValue) {
+		FieldValueCounterBuffer buffer = this.buffer;
+		if (buffer != null) {
+			buffer.increment(counterName, fieldValue);
+		}
+		else {
+			fieldValueCounterRepository.increment(counterName, fieldValue);
 		}
 	}
 }
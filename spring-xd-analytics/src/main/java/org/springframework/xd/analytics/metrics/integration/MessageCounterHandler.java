@@ -19,26 +19,46 @@ package org.springframework.xd.analytics.metrics.integration;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.messaging.Message;
 import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.CounterBuffer;
 import org.springframework.xd.analytics.metrics.core.CounterRepository;
 
 /**
- * Counts the number of non-null messages using an underlying {@link CounterRepository}.
+ * Counts the number of non-null messages using an underlying {@link CounterRepository}. When a
+ * {@link #setFlushInterval(long) flush interval} is set, counts are accumulated in a {@link CounterBuffer}
+ * and written once per interval instead of once per message.
  *
  */
 public class MessageCounterHandler extends AbstractMetricHandler {
 
 	private final CounterRepository counterRepository;
 
+	private volatile CounterBuffer buffer;
+
 	public MessageCounterHandler(CounterRepository counterRepository, String nameExpression) {
 		super(nameExpression);
 		Assert.notNull(counterRepository, "Counter Repository can not be null");
 		this.counterRepository = counterRepository;
 	}
 
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		super.afterPropertiesSet();
+		if (isBuffering()) {
+			this.buffer = new CounterBuffer(this.counterRepository);
+			scheduleFlush(this.buffer);
+		}
+	}
+
 	@ServiceActivator
 	public Message<?> process(Message<?> message) {
 		if (message != null) {
-			this.counterRepository.increment(computeMetricName(message));
+			CounterBuffer buffer = this.buffer;
+			if (buffer != null) {
+				buffer.increment(computeMetricName(message), 1);
+			}
+			else {
+				this.counterRepository.increment(computeMetricName(message));
+			}
 		}
 		return message;
 	}
@@ -70,6 +70,15 @@ public class InMemoryAggregateCounterRepository extends AbstractInMemoryReposito
 		return counter.increment(amount, dateTime);
 	}
 
+	@Override
+	public void increment(Map<String, Map<DateTime, Long>> increments) {
+		for (Map.Entry<String, Map<DateTime, Long>> counter : increments.entrySet()) {
+			for (Map.Entry<DateTime, Long> increment : counter.getValue().entrySet()) {
+				increment(counter.getKey(), increment.getValue(), increment.getKey());
+			}
+		}
+	}
+
 	@Override
 	public AggregateCount getCounts(String name, int nCounts, AggregateCountResolution resolution) {
 		return getOrCreate(name).getCounts(nCounts, new DateTime(), resolution);
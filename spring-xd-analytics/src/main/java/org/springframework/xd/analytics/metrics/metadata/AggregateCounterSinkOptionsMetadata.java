@@ -16,6 +16,8 @@
 
 package org.springframework.xd.analytics.metrics.metadata;
 
+import javax.validation.constraints.Min;
+
 import org.springframework.xd.module.options.mixins.DateFormatMixin;
 import org.springframework.xd.module.options.spi.Mixin;
 import org.springframework.xd.module.options.spi.ModuleOption;
@@ -26,13 +28,15 @@ import org.springframework.xd.module.options.spi.ModuleOption;
  *
  * @author Eric Bottard
  */
-@Mixin({ DateFormatMixin.class, MetricNameMixin.class })
+@Mixin({ DateFormatMixin.class, MetricNameMixin.class, MetricFlushMixin.class })
 public class AggregateCounterSinkOptionsMetadata {
 
 	private String timeField = "null";
 
 	private String incrementExpression = "1";
 
+	private int flushSize = 1000;
+
 	public String getTimeField() {
 		return timeField;
 	}
@@ -51,4 +55,14 @@ public class AggregateCounterSinkOptionsMetadata {
 		this.incrementExpression = incrementExpression;
 	}
 
+	@Min(1)
+	public int getFlushSize() {
+		return flushSize;
+	}
+
+	@ModuleOption("number of buffered increments that triggers a write, regardless of the flush interval")
+	public void setFlushSize(int flushSize) {
+		this.flushSize = flushSize;
+	}
+
 }
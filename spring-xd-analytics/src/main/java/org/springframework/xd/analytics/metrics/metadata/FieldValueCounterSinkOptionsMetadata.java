@@ -16,6 +16,8 @@
 
 package org.springframework.xd.analytics.metrics.metadata;
 
+import javax.validation.constraints.Min;
+
 import org.hibernate.validator.constraints.NotBlank;
 
 import org.springframework.xd.module.options.spi.Mixin;
@@ -27,11 +29,13 @@ import org.springframework.xd.module.options.spi.ModuleOption;
  * 
  * @author Eric Bottard
  */
-@Mixin({ MetricNameMixin.class })
+@Mixin({ MetricNameMixin.class, MetricFlushMixin.class })
 public class FieldValueCounterSinkOptionsMetadata {
 
 	private String fieldName = null;
 
+	private int topK = 0;
+
 	@NotBlank
 	public String getFieldName() {
 		return fieldName;
@@ -42,5 +46,15 @@ public class FieldValueCounterSinkOptionsMetadata {
 		this.fieldName = fieldName;
 	}
 
+	@Min(0)
+	public int getTopK() {
+		return topK;
+	}
+
+	@ModuleOption("when buffering, the maximum number of distinct values written per flush; 0 means no limit")
+	public void setTopK(int topK) {
+		this.topK = topK;
+	}
+
 
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.metadata;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.xd.module.options.spi.ModuleOption;
+
+
+/**
+ * Adds a {@code flushInterval} option, for metric sinks that can buffer updates and write them periodically.
+ */
+public class MetricFlushMixin {
+
+	private long flushInterval = 0;
+
+	@Min(0)
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	@ModuleOption("interval (ms) at which buffered updates are written out; 0 writes each message immediately")
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+}
@@ -20,14 +20,18 @@ import static org.springframework.xd.module.options.spi.ModulePlaceholders.XD_ST
 
 import javax.validation.constraints.AssertFalse;
 
+import org.springframework.xd.module.options.mixins.SpelCompilerModeMixin;
+import org.springframework.xd.module.options.spi.Mixin;
 import org.springframework.xd.module.options.spi.ModuleOption;
 
 
 /**
- * Adds a {@code name} option, intended to capture the name of the metric.
+ * Adds a {@code name} option, intended to capture the name of the metric, and a {@code spelCompilerMode} option
+ * for the expression that computes it.
  *
  * @author Eric Bottard
  */
+@Mixin(SpelCompilerModeMixin.class)
 public class MetricNameMixin {
 
 	private String name = XD_STREAM_NAME;
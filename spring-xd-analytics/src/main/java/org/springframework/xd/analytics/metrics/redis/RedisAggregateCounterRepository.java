@@ -27,8 +27,12 @@ import org.joda.time.ReadableDateTime;
 import org.joda.time.Years;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.StringRedisConnection;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.SetOperations;
 import org.springframework.data.redis.serializer.GenericToStringSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -40,13 +44,16 @@ import org.springframework.xd.analytics.metrics.core.AggregateCounterRepository;
 import org.springframework.xd.analytics.metrics.core.MetricUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Redis implementation of {@link AggregateCounterRepository}. Subclasses and intercepts calls to
- * {@link RedisCounterRepository} to also track counts in various redis hashes.
+ * {@link RedisCounterRepository} to also track counts in various redis hashes. All the commands making up
+ * an increment, or a batch of increments, are sent in a single pipeline.
  *
  * @author Eric Bottard
  * @author Luke Taylor
@@ -84,17 +91,65 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 
 	@Override
 	public long increment(String name, long amount, DateTime dateTime) {
-		final AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, dateTime);
+		Map<DateTime, Long> amounts = Collections.singletonMap(dateTime, amount);
+		List<Object> results = doIncrement(Collections.singletonMap(name, amounts));
+		// the total counter is incremented last
+		return (Long) results.get(results.size() - 1);
+	}
 
-		String bookkeepingKey = bookkeepingKeyFor(name);
+	@Override
+	public void increment(Map<String, Map<DateTime, Long>> increments) {
+		if (!increments.isEmpty()) {
+			doIncrement(increments);
+		}
+	}
+
+	private List<Object> doIncrement(final Map<String, Map<DateTime, Long>> increments) {
+		return redisOperations.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				StringRedisConnection stringConnection = (StringRedisConnection) connection;
+				for (Map.Entry<String, Map<DateTime, Long>> counter : increments.entrySet()) {
+					String name = counter.getKey();
+					// instants in the same hour, day... share hash fields, so add those up first
+					Map<String, Map<String, Long>> hashes = new LinkedHashMap<String, Map<String, Long>>();
+					long total = 0;
+					for (Map.Entry<DateTime, Long> increment : counter.getValue().entrySet()) {
+						AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, increment.getKey());
+						long amount = increment.getValue();
+						addToHash(hashes, akg.getYearsKey(), akg.getYear(), amount);
+						addToHash(hashes, akg.getYearKey(), akg.getMonth(), amount);
+						addToHash(hashes, akg.getMonthKey(), akg.getDay(), amount);
+						addToHash(hashes, akg.getDayKey(), akg.getHour(), amount);
+						addToHash(hashes, akg.getHourKey(), akg.getMinute(), amount);
+						total += amount;
+					}
+					for (Map.Entry<String, Map<String, Long>> hash : hashes.entrySet()) {
+						for (Map.Entry<String, Long> field : hash.getValue().entrySet()) {
+							stringConnection.hIncrBy(hash.getKey(), field.getKey(), field.getValue());
+						}
+					}
+					// track every hash so that delete() can clean them up; adding an existing member is a no-op
+					stringConnection.sAdd(bookkeepingKeyFor(name), hashes.keySet().toArray(new String[hashes.size()]));
+					String redisKey = redisKeyFromId(name);
+					stringConnection.zAdd(getPrefix(), 0.0D, redisKey);
+					stringConnection.incrBy(redisKey, total);
+				}
+				return null;
+			}
 
-		doIncrementHash(akg.getYearsKey(), akg.getYear(), amount, bookkeepingKey);
-		doIncrementHash(akg.getYearKey(), akg.getMonth(), amount, bookkeepingKey);
-		doIncrementHash(akg.getMonthKey(), akg.getDay(), amount, bookkeepingKey);
-		doIncrementHash(akg.getDayKey(), akg.getHour(), amount, bookkeepingKey);
-		doIncrementHash(akg.getHourKey(), akg.getMinute(), amount, bookkeepingKey);
+		});
+	}
 
-		return super.increment(name, amount);
+	private static void addToHash(Map<String, Map<String, Long>> hashes, String key, String hashKey, long amount) {
+		Map<String, Long> hash = hashes.get(key);
+		if (hash == null) {
+			hash = new LinkedHashMap<String, Long>();
+			hashes.put(key, hash);
+		}
+		Long current = hash.get(hashKey);
+		hash.put(hashKey, current == null ? amount : current + amount);
 	}
 
 	/**
@@ -104,20 +159,6 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 		return "metric_meta.aggregatecounters." + counterName;
 	}
 
-	/**
-	 * Internally increments the given hash key, keeping track of created hash for a given counter, so they can be
-	 * cleaned up when needed.
-	 */
-	private void doIncrementHash(String key, String hashKey, long amount, String bookkeepingKey) {
-		long newValue = hashOperations.increment(key, hashKey, amount);
-		// TODO: the following test does not necessarily mean that the hash
-		// is new, just that the key inside that hash is new. So we end up
-		// calling add more than needed
-		if (newValue == amount) {
-			setOperations.add(bookkeepingKey, key);
-		}
-	}
-
 	@Override
 	public AggregateCount getCounts(String name, int nCounts, AggregateCountResolution resolution) {
 		return getCounts(name, nCounts, new DateTime(), resolution);
@@ -16,8 +16,12 @@
 
 package org.springframework.xd.analytics.metrics.redis;
 
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
 import org.springframework.retry.RetryOperations;
 import org.springframework.util.Assert;
@@ -174,6 +178,23 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 		redisTemplate.boundZSetOps(getMetricKey(counterName)).incrementScore(fieldName, score);
 	}
 
+	@Override
+	public void increment(String counterName, final Map<String, Double> fieldValueCounts) {
+		final String metricKey = getMetricKey(counterName);
+		redisTemplate.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				StringRedisConnection stringConnection = (StringRedisConnection) connection;
+				for (Map.Entry<String, Double> entry : fieldValueCounts.entrySet()) {
+					stringConnection.zIncrBy(metricKey, entry.getValue(), entry.getKey());
+				}
+				return null;
+			}
+
+		});
+	}
+
 	@Override
 	public void decrement(String counterName, String fieldName) {
 		redisTemplate.boundZSetOps(getMetricKey(counterName)).incrementScore(fieldName, -1.0);
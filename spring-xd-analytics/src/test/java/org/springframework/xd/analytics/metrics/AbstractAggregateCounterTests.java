@@ -18,6 +18,9 @@ package org.springframework.xd.analytics.metrics;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.joda.time.Interval;
@@ -206,4 +209,28 @@ public abstract class AbstractAggregateCounterTests {
 
 		aggregateCount = aggregateCounterRepository.getCounts(counterName, queryInterval.withStart(newStart), AggregateCountResolution.month);
 	}
+
+	@Test
+	public void testBatchIncrement() throws Exception {
+		final DateTime start = new DateTime(2013, 6, 28, 10, 0, 0, 0);
+		Map<DateTime, Long> amounts = new HashMap<DateTime, Long>();
+		amounts.put(start, 3L);
+		amounts.put(start.plusMinutes(1), 4L);
+		amounts.put(start.plusHours(1), 5L);
+		Map<String, Map<DateTime, Long>> increments = new HashMap<String, Map<DateTime, Long>>();
+		increments.put(counterName, amounts);
+		aggregateCounterRepository.increment(increments);
+		aggregateCounterRepository.increment(increments);
+
+		long[] minutes = aggregateCounterRepository.getCounts(counterName, new Interval(start, start.plusMinutes(2)),
+				AggregateCountResolution.minute).getCounts();
+		assertEquals(6, minutes[0]);
+		assertEquals(8, minutes[1]);
+		assertEquals(0, minutes[2]);
+		long[] hours = aggregateCounterRepository.getCounts(counterName, new Interval(start, start.plusHours(1)),
+				AggregateCountResolution.hour).getCounts();
+		assertEquals(14, hours[0]);
+		assertEquals(10, hours[1]);
+		assertEquals(24, aggregateCounterRepository.findOne(counterName).getValue());
+	}
 }
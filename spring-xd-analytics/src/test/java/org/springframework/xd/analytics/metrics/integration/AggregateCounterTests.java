@@ -17,6 +17,7 @@
 package org.springframework.xd.analytics.metrics.integration;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
 import java.util.Collections;
@@ -27,6 +28,7 @@ import org.junit.Test;
 
 import org.springframework.beans.factory.config.PropertyPlaceholderConfigurer;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -92,6 +94,23 @@ public class AggregateCounterTests {
 		assertThat(counts.getCounts(), equalTo(new long[] { 0, 0, 0, 0, 43 }));
 	}
 
+	@Test
+	public void testBufferedCounts() {
+		applicationContext = new AnnotationConfigApplicationContext(
+				BufferedAggregateCounterTestsConfig.class);
+		AggregateCounterRepository repository = repository();
+
+		input().send(new GenericMessage<Object>(""));
+		assertEquals(0, repository.getCounts("foo", 1, AggregateCountResolution.minute).getCounts()[0]);
+		input().send(new GenericMessage<Object>(""));
+		input().send(new GenericMessage<Object>(""));
+		assertEquals(2, repository.getCounts("foo", 1, AggregateCountResolution.minute).getCounts()[0]);
+
+		// remaining increments are flushed when the module is undeployed
+		((ConfigurableApplicationContext) applicationContext).close();
+		assertEquals(3, repository.findOne("foo").getValue());
+	}
+
 	@Configuration
 	@ImportResource("file:../modules/sink/aggregate-counter/config/aggregate-counter.xml")
 	public static class NullTimefieldAggregateCounterTestsConfig {
@@ -155,6 +174,31 @@ public class AggregateCounterTests {
 		}
 
 
+		@Bean
+		public AggregateCounterRepository aggregateCounterRepository() {
+			return new InMemoryAggregateCounterRepository();
+		}
+	}
+
+	@Configuration
+	@ImportResource("file:../modules/sink/aggregate-counter/config/aggregate-counter.xml")
+	public static class BufferedAggregateCounterTestsConfig {
+
+		@Bean
+		public PropertyPlaceholderConfigurer ppc() {
+			PropertyPlaceholderConfigurer propertyPlaceholderConfigurer = new PropertyPlaceholderConfigurer();
+			Properties props = new Properties();
+			props.put("timeField", "null");
+			props.put("dateFormat", "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+			props.put("computedNameExpression", "'foo'");
+			props.put("incrementExpression", "1");
+			props.put("flushInterval", "60000");
+			props.put("flushSize", "2");
+			propertyPlaceholderConfigurer.setProperties(props);
+			return propertyPlaceholderConfigurer;
+		}
+
+
 		@Bean
 		public AggregateCounterRepository aggregateCounterRepository() {
 			return new InMemoryAggregateCounterRepository();
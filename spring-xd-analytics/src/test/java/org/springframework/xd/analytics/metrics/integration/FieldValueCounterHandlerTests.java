@@ -17,6 +17,8 @@
 package org.springframework.xd.analytics.metrics.integration;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 import java.util.Arrays;
@@ -25,6 +27,7 @@ import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 
+import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.GenericMessage;
@@ -106,4 +109,49 @@ public class FieldValueCounterHandlerTests {
 		Map<String, Double> counts = repo.findOne("hashtags").getFieldValueCount();
 		assertThat(counts.get("hello"), equalTo(1.0));
 	}
+
+	@Test
+	public void testBufferedCounts() throws Exception {
+		FieldValueCounterHandler handler = new FieldValueCounterHandler(repo,
+				"'" + mentionsFieldValueCounterName + "'", "mentions");
+		handler.setIntegrationEvaluationContext(new StandardEvaluationContext());
+		handler.setFlushInterval(60000);
+		handler.afterPropertiesSet();
+
+		handler.process(MessageBuilder.withPayload(
+				TupleBuilder.tuple().of("mentions", Arrays.asList("markp", "markf", "jurgen"))).build());
+		handler.process(MessageBuilder.withPayload(
+				TupleBuilder.tuple().of("mentions", Arrays.asList("markp", "jon", "jurgen"))).build());
+		assertNull(repo.findOne(mentionsFieldValueCounterName));
+
+		handler.destroy();
+		Map<String, Double> counts = repo.findOne(mentionsFieldValueCounterName).getFieldValueCount();
+		assertThat(counts.get("markp"), equalTo(2.0));
+		assertThat(counts.get("markf"), equalTo(1.0));
+		assertThat(counts.get("jon"), equalTo(1.0));
+		assertThat(counts.get("jurgen"), equalTo(2.0));
+	}
+
+	@Test
+	public void testBufferedTopK() throws Exception {
+		FieldValueCounterHandler handler = new FieldValueCounterHandler(repo,
+				"'" + mentionsFieldValueCounterName + "'", "mentions");
+		handler.setIntegrationEvaluationContext(new StandardEvaluationContext());
+		handler.setFlushInterval(60000);
+		handler.setTopK(2);
+		handler.afterPropertiesSet();
+
+		handler.process(MessageBuilder.withPayload(
+				TupleBuilder.tuple().of("mentions", Arrays.asList("markp", "markf", "jurgen"))).build());
+		handler.process(MessageBuilder.withPayload(
+				TupleBuilder.tuple().of("mentions", Arrays.asList("markp", "jon", "jurgen"))).build());
+
+		handler.destroy();
+		Map<String, Double> counts = repo.findOne(mentionsFieldValueCounterName).getFieldValueCount();
+		assertThat(counts.size(), equalTo(2));
+		assertThat(counts.get("markp"), equalTo(2.0));
+		assertThat(counts.get("jurgen"), equalTo(2.0));
+		assertFalse(counts.containsKey("jon"));
+	}
+
 }
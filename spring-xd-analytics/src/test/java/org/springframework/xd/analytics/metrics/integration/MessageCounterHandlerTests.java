@@ -17,10 +17,12 @@
 package org.springframework.xd.analytics.metrics.integration;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Test;
 
+import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.xd.analytics.metrics.core.Counter;
@@ -69,4 +71,19 @@ public class MessageCounterHandlerTests {
 		assertThat(counter.getValue(), equalTo(12L));
 	}
 
+	@Test
+	public void testBufferedCounts() throws Exception {
+		MessageCounterHandler handler = new MessageCounterHandler(repo, "'tupleCounter'");
+		handler.setIntegrationEvaluationContext(new StandardEvaluationContext());
+		handler.setFlushInterval(60000);
+		handler.afterPropertiesSet();
+		Message<String> message = MessageBuilder.withPayload("Hi").build();
+		for (int i = 0; i < 5; i++) {
+			handler.process(message);
+		}
+		assertNull(repo.findOne("tupleCounter"));
+		handler.destroy();
+		assertThat(repo.findOne("tupleCounter").getValue(), equalTo(5L));
+	}
+
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.util.Properties;
+
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.integration.codec.kryo.PojoCodec;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.xd.tuple.serializer.kryo.TupleKryoRegistrar;
+
+/**
+ * A no-op {@link MessageBusSupport} that exposes the producer/consumer hot path methods to the JMH benchmarks.
+ * Binding methods do nothing; only payload (de)serialization and partitioning are exercised.
+ */
+public class BenchmarkMessageBus extends MessageBusSupport {
+
+	public BenchmarkMessageBus() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.refresh();
+		setApplicationContext(context);
+		setCodec(new PojoCodec(new TupleKryoRegistrar()));
+		setIntegrationEvaluationContext(new StandardEvaluationContext());
+	}
+
+	public MessageValues serialize(Message<?> message) {
+		return serializePayloadIfNecessary(message);
+	}
+
+	public MessageValues deserialize(Message<?> message) {
+		return deserializePayloadIfNecessary(message);
+	}
+
+	public int partition(Message<?> message, PartitioningMetadata meta) {
+		return determinePartition(message, meta);
+	}
+
+	public PartitioningMetadata partitioningMetadata(Properties properties, int partitionCount) {
+		return createPartitioningMetadata(new AbstractBusPropertiesAccessor(properties) {
+		}, partitionCount);
+	}
+
+	@Override
+	public void bindConsumer(String name, MessageChannel channel, Properties properties) {
+	}
+
+	@Override
+	public void bindPubSubConsumer(String name, MessageChannel moduleInputChannel, Properties properties) {
+	}
+
+	@Override
+	public void bindPubSubProducer(String name, MessageChannel moduleOutputChannel, Properties properties) {
+	}
+
+	@Override
+	public void bindProducer(String name, MessageChannel channel, Properties properties) {
+	}
+
+	@Override
+	public void bindRequestor(String name, MessageChannel requests, MessageChannel replies, Properties properties) {
+	}
+
+	@Override
+	public void bindReplier(String name, MessageChannel requests, MessageChannel replies, Properties properties) {
+	}
+
+}
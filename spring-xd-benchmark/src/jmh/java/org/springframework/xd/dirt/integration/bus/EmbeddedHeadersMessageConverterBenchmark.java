@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * JMH benchmarks for {@link EmbeddedHeadersMessageConverter}, embedding the
+ * {@link XdHeaders#STANDARD_HEADERS standard headers} as the Redis and Kafka buses do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EmbeddedHeadersMessageConverterBenchmark {
+
+	@Param({ "100", "10000" })
+	public int payloadSize;
+
+	@Param({ "false", "true" })
+	public boolean binaryHeaders;
+
+	private final EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
+
+	private MessageValues original;
+
+	private Message<byte[]> embedded;
+
+	@Setup
+	public void setUp() throws Exception {
+		this.converter.setBinaryHeaders(this.binaryHeaders);
+		Message<byte[]> message = MessageBuilder.withPayload(new byte[this.payloadSize])
+				.setHeader(IntegrationMessageHeaderAccessor.CORRELATION_ID, UUID.randomUUID())
+				.setHeader(IntegrationMessageHeaderAccessor.SEQUENCE_SIZE, 10)
+				.setHeader(IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER, 3)
+				.setHeader(MessageHeaders.CONTENT_TYPE, "application/octet-stream")
+				.setHeader(XdHeaders.XD_ORIGINAL_CONTENT_TYPE, "text/plain")
+				.build();
+		this.original = new MessageValues(message);
+		byte[] payload = this.converter.embedHeaders(this.original, XdHeaders.STANDARD_HEADERS);
+		this.embedded = MessageBuilder.withPayload(payload).build();
+	}
+
+	@Benchmark
+	public byte[] embedHeaders() throws Exception {
+		return this.converter.embedHeaders(this.original, XdHeaders.STANDARD_HEADERS);
+	}
+
+	@Benchmark
+	public MessageValues extractHeaders() throws Exception {
+		return this.converter.extractHeaders(this.embedded, false);
+	}
+
+}
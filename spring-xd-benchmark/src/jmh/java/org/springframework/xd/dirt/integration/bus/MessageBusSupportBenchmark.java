@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.xd.tuple.TupleBuilder;
+
+/**
+ * JMH benchmarks for the {@link MessageBusSupport} producer and consumer hot paths: payload
+ * (de)serialization and partition selection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MessageBusSupportBenchmark {
+
+	private static final int PARTITION_COUNT = 8;
+
+	private BenchmarkMessageBus messageBus;
+
+	private Message<?> tupleMessage;
+
+	private Message<?> stringMessage;
+
+	private Message<?> bytesMessage;
+
+	private Message<?> serializedTupleMessage;
+
+	private Message<?> serializedStringMessage;
+
+	private MessageBusSupport.PartitioningMetadata keyExpressionMeta;
+
+	private MessageBusSupport.PartitioningMetadata selectorExpressionMeta;
+
+	private MessageBusSupport.PartitioningMetadata extractorAndSelectorClassMeta;
+
+	@Setup
+	public void setUp() {
+		this.messageBus = new BenchmarkMessageBus();
+		this.tupleMessage = MessageBuilder.withPayload(TupleBuilder.tuple().of("foo", "bar", "val", 1234))
+				.setHeader("customer", "acme")
+				.build();
+		this.stringMessage = MessageBuilder.withPayload(StringUtils.leftPad("hello", 1000, "*")).build();
+		this.bytesMessage = MessageBuilder.withPayload(new byte[1000]).build();
+		this.serializedTupleMessage = this.messageBus.serialize(this.tupleMessage).toMessage();
+		this.serializedStringMessage = this.messageBus.serialize(this.stringMessage).toMessage();
+
+		Properties properties = new Properties();
+		properties.setProperty(BusProperties.PARTITION_KEY_EXPRESSION, "payload.getValue('foo')");
+		this.keyExpressionMeta = this.messageBus.partitioningMetadata(properties, PARTITION_COUNT);
+
+		properties = new Properties();
+		properties.setProperty(BusProperties.PARTITION_KEY_EXPRESSION, "headers['customer']");
+		properties.setProperty(BusProperties.PARTITION_SELECTOR_EXPRESSION, "hashCode()");
+		this.selectorExpressionMeta = this.messageBus.partitioningMetadata(properties, PARTITION_COUNT);
+
+		properties = new Properties();
+		properties.setProperty(BusProperties.PARTITION_KEY_EXTRACTOR_CLASS, HeaderPartitionStrategy.class.getName());
+		properties.setProperty(BusProperties.PARTITION_SELECTOR_CLASS, HeaderPartitionStrategy.class.getName());
+		this.extractorAndSelectorClassMeta = this.messageBus.partitioningMetadata(properties, PARTITION_COUNT);
+	}
+
+	@Benchmark
+	public MessageValues serializeTuple() {
+		return this.messageBus.serialize(this.tupleMessage);
+	}
+
+	@Benchmark
+	public MessageValues serializeString() {
+		return this.messageBus.serialize(this.stringMessage);
+	}
+
+	@Benchmark
+	public MessageValues serializeByteArray() {
+		return this.messageBus.serialize(this.bytesMessage);
+	}
+
+	@Benchmark
+	public MessageValues deserializeTuple() {
+		return this.messageBus.deserialize(this.serializedTupleMessage);
+	}
+
+	@Benchmark
+	public MessageValues deserializeString() {
+		return this.messageBus.deserialize(this.serializedStringMessage);
+	}
+
+	@Benchmark
+	public MessageValues roundTripTuple() {
+		return this.messageBus.deserialize(this.messageBus.serialize(this.tupleMessage).toMessage());
+	}
+
+	@Benchmark
+	public int determinePartitionKeyExpression() {
+		return this.messageBus.partition(this.tupleMessage, this.keyExpressionMeta);
+	}
+
+	@Benchmark
+	public int determinePartitionSelectorExpression() {
+		return this.messageBus.partition(this.tupleMessage, this.selectorExpressionMeta);
+	}
+
+	@Benchmark
+	public int determinePartitionExtractorAndSelectorClass() {
+		return this.messageBus.partition(this.tupleMessage, this.extractorAndSelectorClassMeta);
+	}
+
+	/**
+	 * Key extractor and partition selector used to measure the class-based partitioning path.
+	 */
+	public static class HeaderPartitionStrategy implements PartitionKeyExtractorStrategy,
+			PartitionSelectorStrategy {
+
+		@Override
+		public Object extractKey(Message<?> message) {
+			return message.getHeaders().get("customer");
+		}
+
+		@Override
+		public int selectPartition(Object key, int partitionCount) {
+			return key.hashCode() & Integer.MAX_VALUE;
+		}
+
+	}
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus.converter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleBuilder;
+
+/**
+ * JMH benchmarks for every {@link AbstractFromMessageConverter} in this package, each invoked directly through
+ * {@code fromMessage} with a message carrying the content type the converter expects, and for the
+ * {@link CompositeMessageConverter} a module channel uses to convert to a {@code text/plain} input type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MessageConverterBenchmark {
+
+	private static final String JSON = "{\"symbol\":\"VMW\",\"exchange\":\"NYSE\",\"price\":123.45,\"volume\":1000000}";
+
+	private final ByteArrayToStringMessageConverter byteArrayToString = new ByteArrayToStringMessageConverter();
+
+	private final StringToByteArrayMessageConverter stringToByteArray = new StringToByteArrayMessageConverter();
+
+	private final JavaToSerializedMessageConverter javaToSerialized = new JavaToSerializedMessageConverter();
+
+	private final SerializedToJavaMessageConverter serializedToJava = new SerializedToJavaMessageConverter();
+
+	private final JsonToPojoMessageConverter jsonToPojo = new JsonToPojoMessageConverter();
+
+	private final PojoToJsonMessageConverter pojoToJson = new PojoToJsonMessageConverter();
+
+	private final PojoToStringMessageConverter pojoToString = new PojoToStringMessageConverter();
+
+	private final JsonToTupleMessageConverter jsonToTuple = new JsonToTupleMessageConverter();
+
+	private final TupleToJsonMessageConverter tupleToJson = new TupleToJsonMessageConverter();
+
+	private final CompositeMessageConverter textConverter = new CompositeMessageConverterFactory(
+			Arrays.<AbstractFromMessageConverter> asList(this.stringToByteArray, this.javaToSerialized,
+					this.serializedToJava, this.jsonToTuple, this.tupleToJson, this.pojoToJson, this.jsonToPojo,
+					this.byteArrayToString, this.pojoToString)).newInstance(MimeTypeUtils.TEXT_PLAIN);
+
+	private Message<?> bytesMessage;
+
+	private Message<?> stringMessage;
+
+	private Message<?> pojoMessage;
+
+	private Message<?> serializedMessage;
+
+	private Message<?> jsonBytesMessage;
+
+	private Message<?> tupleMessage;
+
+	@Setup
+	public void setUp() {
+		this.bytesMessage = message(JSON.getBytes(), MimeTypeUtils.APPLICATION_OCTET_STREAM);
+		this.stringMessage = message(JSON, MimeTypeUtils.TEXT_PLAIN);
+		this.pojoMessage = message(new Quote("VMW", "NYSE", 123.45, 1000000L), MessageConverterUtils.X_JAVA_OBJECT);
+		Message<?> serialized = (Message<?>) this.javaToSerialized.fromMessage(this.pojoMessage, byte[].class);
+		this.serializedMessage = message(serialized.getPayload(), MessageConverterUtils.X_JAVA_SERIALIZED_OBJECT);
+		this.jsonBytesMessage = message(JSON.getBytes(), MimeTypeUtils.APPLICATION_JSON);
+		this.tupleMessage = message(TupleBuilder.fromString(JSON), MessageConverterUtils.X_XD_TUPLE);
+	}
+
+	private static Message<?> message(Object payload, MimeType contentType) {
+		return MessageBuilder.withPayload(payload).setHeader(MessageHeaders.CONTENT_TYPE, contentType).build();
+	}
+
+	@Benchmark
+	public Object byteArrayToString() {
+		return this.byteArrayToString.fromMessage(this.bytesMessage, String.class);
+	}
+
+	@Benchmark
+	public Object stringToByteArray() {
+		return this.stringToByteArray.fromMessage(this.stringMessage, byte[].class);
+	}
+
+	@Benchmark
+	public Object javaToSerialized() {
+		return this.javaToSerialized.fromMessage(this.pojoMessage, byte[].class);
+	}
+
+	@Benchmark
+	public Object serializedToJava() {
+		return this.serializedToJava.fromMessage(this.serializedMessage, Quote.class);
+	}
+
+	@Benchmark
+	public Object jsonToPojo() {
+		return this.jsonToPojo.fromMessage(this.jsonBytesMessage, Quote.class);
+	}
+
+	@Benchmark
+	public Object pojoToJson() {
+		return this.pojoToJson.fromMessage(this.pojoMessage, String.class);
+	}
+
+	@Benchmark
+	public Object pojoToString() {
+		return this.pojoToString.fromMessage(this.pojoMessage, String.class);
+	}
+
+	@Benchmark
+	public Object jsonToTuple() {
+		return this.jsonToTuple.fromMessage(this.jsonBytesMessage, Tuple.class);
+	}
+
+	@Benchmark
+	public Object tupleToJson() {
+		return this.tupleToJson.fromMessage(this.tupleMessage, String.class);
+	}
+
+	@Benchmark
+	public Object tupleToJsonBytes() {
+		return this.tupleToJson.fromMessage(this.tupleMessage, byte[].class);
+	}
+
+	@Benchmark
+	public Object compositeByteArrayToString() {
+		return this.textConverter.fromMessage(this.bytesMessage, String.class);
+	}
+
+	@SuppressWarnings("serial")
+	public static class Quote implements Serializable {
+
+		private String symbol;
+
+		private String exchange;
+
+		private double price;
+
+		private long volume;
+
+		public Quote() {
+		}
+
+		public Quote(String symbol, String exchange, double price, long volume) {
+			this.symbol = symbol;
+			this.exchange = exchange;
+			this.price = price;
+			this.volume = volume;
+		}
+
+		public String getSymbol() {
+			return symbol;
+		}
+
+		public void setSymbol(String symbol) {
+			this.symbol = symbol;
+		}
+
+		public String getExchange() {
+			return exchange;
+		}
+
+		public void setExchange(String exchange) {
+			this.exchange = exchange;
+		}
+
+		public double getPrice() {
+			return price;
+		}
+
+		public void setPrice(double price) {
+			this.price = price;
+		}
+
+		public long getVolume() {
+			return volume;
+		}
+
+		public void setVolume(long volume) {
+			this.volume = volume;
+		}
+
+		@Override
+		public String toString() {
+			return "Quote [symbol=" + symbol + ", exchange=" + exchange + ", price=" + price + ", volume=" + volume
+					+ "]";
+		}
+
+	}
+
+}
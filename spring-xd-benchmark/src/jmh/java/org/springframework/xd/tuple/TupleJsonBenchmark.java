@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JMH benchmarks for converting a JSON event of about 2 KB to and from a {@link Tuple}. The {@code tree}
+ * benchmark decodes the bytes to a String and parses a {@code JsonNode} tree first, which is what the JSON to
+ * tuple message converter used to do, as a baseline for the streaming converters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TupleJsonBenchmark {
+
+	private final JsonBytesToTupleConverter bytesToTuple = new JsonBytesToTupleConverter();
+
+	private final JsonStringToTupleConverter stringToTuple = new JsonStringToTupleConverter();
+
+	private final TupleToJsonBytesConverter tupleToBytes = new TupleToJsonBytesConverter();
+
+	private final TupleToJsonStringConverter tupleToString = new TupleToJsonStringConverter();
+
+	private final JsonNodeToTupleConverter nodeToTuple = new JsonNodeToTupleConverter();
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private byte[] jsonBytes;
+
+	private String json;
+
+	private Tuple tuple;
+
+	@Setup
+	public void setUp() {
+		StringBuilder builder = new StringBuilder("{\"id\":1234567,\"symbol\":\"VMW\",\"exchange\":\"NYSE\"");
+		builder.append(",\"quote\":{\"bid\":123.4,\"ask\":123.5,\"size\":100}");
+		builder.append(",\"tags\":[\"tech\",\"cloud\",\"virtualization\"]");
+		for (int i = 0; builder.length() < 2048; i++) {
+			builder.append(",\"field").append(i).append("\":");
+			switch (i % 4) {
+				case 0:
+					builder.append("\"value number ").append(i).append('"');
+					break;
+				case 1:
+					builder.append(i * 1000L);
+					break;
+				case 2:
+					builder.append(i / 3d);
+					break;
+				default:
+					builder.append(i % 2 == 0);
+			}
+		}
+		builder.append('}');
+		this.json = builder.toString();
+		this.jsonBytes = this.json.getBytes();
+		this.tuple = this.bytesToTuple.convert(this.jsonBytes);
+	}
+
+	@Benchmark
+	public Tuple bytesToTuple() {
+		return this.bytesToTuple.convert(this.jsonBytes);
+	}
+
+	@Benchmark
+	public Tuple stringToTuple() {
+		return this.stringToTuple.convert(this.json);
+	}
+
+	@Benchmark
+	public Tuple tree() throws Exception {
+		return this.nodeToTuple.convert(this.mapper.readTree(new String(this.jsonBytes)));
+	}
+
+	@Benchmark
+	public byte[] tupleToBytes() {
+		return this.tupleToBytes.convert(this.tuple);
+	}
+
+	@Benchmark
+	public String tupleToString() {
+		return this.tupleToString.convert(this.tuple);
+	}
+
+}
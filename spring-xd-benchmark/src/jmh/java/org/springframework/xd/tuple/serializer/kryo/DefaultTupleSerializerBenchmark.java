@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple.serializer.kryo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.integration.codec.kryo.PojoCodec;
+import org.springframework.xd.tuple.DefaultTuple;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleBuilder;
+
+/**
+ * JMH benchmarks for {@link DefaultTupleSerializer}, driven through the {@link PojoCodec} the message bus uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DefaultTupleSerializerBenchmark {
+
+	private final PojoCodec codec = new PojoCodec(new TupleKryoRegistrar());
+
+	private final PojoCodec compactCodec = new PojoCodec(new TupleKryoRegistrar(new InMemoryTupleSchemaRegistry()));
+
+	private Tuple primitiveTuple;
+
+	private Tuple nestedTuple;
+
+	private byte[] primitiveBytes;
+
+	private byte[] nestedBytes;
+
+	private byte[] compactPrimitiveBytes;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.primitiveTuple = TupleBuilder.tuple()
+				.put("id", 42)
+				.put("active", true)
+				.put("timestamp", System.currentTimeMillis())
+				.put("price", 123.45d)
+				.put("ratio", 0.5f)
+				.put("symbol", "VMW")
+				.put("exchange", "NYSE")
+				.put("volume", 1000000L)
+				.put("flag", 'q')
+				.put("code", (byte) 7)
+				.build();
+		this.nestedTuple = TupleBuilder.tuple()
+				.put("id", 42)
+				.put("symbol", "VMW")
+				.put("quote", TupleBuilder.tuple().of("bid", 123.4d, "ask", 123.5d, "size", 100))
+				.build();
+		this.primitiveBytes = this.codec.encode(this.primitiveTuple);
+		this.nestedBytes = this.codec.encode(this.nestedTuple);
+		this.compactPrimitiveBytes = this.compactCodec.encode(this.primitiveTuple);
+	}
+
+	@Benchmark
+	public byte[] encodePrimitives() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		this.codec.encode(this.primitiveTuple, bos);
+		return bos.toByteArray();
+	}
+
+	@Benchmark
+	public Tuple decodePrimitives() throws IOException {
+		return this.codec.decode(this.primitiveBytes, DefaultTuple.class);
+	}
+
+	@Benchmark
+	public byte[] encodeNested() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		this.codec.encode(this.nestedTuple, bos);
+		return bos.toByteArray();
+	}
+
+	@Benchmark
+	public Tuple decodeNested() throws IOException {
+		return this.codec.decode(this.nestedBytes, DefaultTuple.class);
+	}
+
+	@Benchmark
+	public byte[] encodeCompactPrimitives() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		this.compactCodec.encode(this.primitiveTuple, bos);
+		return bos.toByteArray();
+	}
+
+	@Benchmark
+	public Tuple decodeCompactPrimitives() throws IOException {
+		return this.compactCodec.decode(this.compactPrimitiveBytes, DefaultTuple.class);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,7 +15,11 @@
  */
 package org.springframework.xd.tuple;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import org.junit.Test;
@@ -24,6 +28,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.format.support.FormattingConversionService;
 import org.springframework.test.annotation.Repeat;
 import org.springframework.test.context.ContextConfiguration;
@@ -34,7 +39,8 @@ import org.springframework.util.StopWatch;
  * Illustrates the impact of creating a {@link DefaultTupleConversionService} for each
  * instance of Tuple.  The recommended approach is to either use the default instance or
  * configure a customized version that is created as a singleton within the context of
- * the module it's used.
+ * the module it's used. Also compares field lookup by name against a linear scan of the
+ * field names with every value converted through the conversion service.
  * 
  * @author Michael Minella
  * @author Gunnar Hillert
@@ -104,4 +110,38 @@ public class TupleCreationPerformanceTests {
 		watch.stop();
 		System.out.println(watch.prettyPrint());
 	}
+
+	@Test
+	@Repeat(4)
+	public void testFieldLookupByName() {
+		List<String> names = new ArrayList<String>();
+		List<Object> values = new ArrayList<Object>();
+		String[] keys = new String[20];
+		for (int i = 0; i < 20; i++) {
+			keys[i] = "field" + i;
+			names.add(keys[i]);
+			values.add(i % 2 == 0 ? (Object) i : (Object) (long) i);
+		}
+		Tuple tuple = TupleBuilder.tuple().ofNamesAndValues(names, values);
+		StopWatch watch = new StopWatch("fieldLookup");
+		long sum = 0;
+		watch.start("linear scan and conversion");
+		for (int i = 0; i < 100000; i++) {
+			for (int j = 0; j < 20; j += 2) {
+				Object value = values.get(names.indexOf(keys[j]));
+				sum += (Integer) conversionService.convert(value, TypeDescriptor.forObject(value),
+						TypeDescriptor.valueOf(Integer.class));
+			}
+		}
+		watch.stop();
+		watch.start("DefaultTuple");
+		for (int i = 0; i < 100000; i++) {
+			for (int j = 0; j < 20; j += 2) {
+				sum -= tuple.getInt(keys[j]);
+			}
+		}
+		watch.stop();
+		System.out.println(watch.prettyPrint());
+		assertEquals(0, sum);
+	}
 }
@@ -52,6 +52,31 @@ public class ContainerAttributes implements Map<String, String>, Comparable<Cont
 
 	public final static String MGMT_PORT_KEY = "managementPort";
 
+	/**
+	 * Process CPU load, between 0 and 1, as last published by the container.
+	 */
+	public final static String CPU_LOAD_KEY = "cpuLoad";
+
+	/**
+	 * Fraction of the maximum heap in use, between 0 and 1, as last published by the container.
+	 */
+	public final static String HEAP_USAGE_KEY = "heapUsage";
+
+	/**
+	 * Number of modules deployed to the container, as last published by the container.
+	 */
+	public final static String MODULE_COUNT_KEY = "moduleCount";
+
+	/**
+	 * Sum of the mean send rates (messages per second) of the deployed modules, as last published by the container.
+	 */
+	public final static String MESSAGE_RATE_KEY = "messageRate";
+
+	/**
+	 * Time (ms since the epoch) at which the load attributes were last published.
+	 */
+	public final static String LOAD_TIMESTAMP_KEY = "loadTimestamp";
+
 	private final List<String> commonAttributeKeys = Arrays.asList(CONTAINER_ID_KEY, PROCESS_ID_KEY,
 			HOST_KEY, IP_ADDRESS_KEY, GROUPS_KEY);
 
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.container.store;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Repository for the message rates of the modules deployed to each container. Containers
+ * {@link #save(String, Map) save} snapshots of their rates periodically; readers get the rates averaged
+ * over a recent time window, without contacting the containers.
+ */
+public interface ModuleMessageRateRepository {
+
+	/**
+	 * Save a snapshot of the message rates of a container's modules.
+	 *
+	 * @param containerId the container id
+	 * @param messageRates mean send rates (messages per second) by module, then by channel name
+	 */
+	void save(String containerId, Map<String, HashMap<String, Double>> messageRates);
+
+	/**
+	 * @param containerId the container id
+	 * @return the container's message rates by module, then by channel name; empty if the container
+	 * has not published any
+	 */
+	Map<String, HashMap<String, Double>> findByContainerId(String containerId);
+
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.container.store;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
+import org.apache.curator.utils.ThreadUtils;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextStoppedEvent;
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperUtils;
+
+/**
+ * ZooKeeper backed {@link ModuleMessageRateRepository}. Each container writes its snapshot to an ephemeral
+ * node under {@link Paths#MESSAGE_RATES}, as a flat map keyed by {@code <module>.<channel>}. Readers watch
+ * those nodes with a {@link PathChildrenCache} and keep the snapshots received during the last
+ * {@link #setWindow(long) window} in memory; reads average them and never go to ZooKeeper.
+ */
+public class ZooKeeperModuleMessageRateRepository implements ModuleMessageRateRepository,
+		ApplicationListener<ApplicationEvent> {
+
+	/**
+	 * Default averaging window, in milliseconds.
+	 */
+	public static final long DEFAULT_WINDOW = 60000;
+
+	/**
+	 * Logger.
+	 */
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * ZooKeeper connection.
+	 */
+	private final ZooKeeperConnection zkConnection;
+
+	/**
+	 * Snapshots received during the current window, by container id.
+	 */
+	private final ConcurrentMap<String, Deque<Snapshot>> snapshots = new ConcurrentHashMap<String, Deque<Snapshot>>();
+
+	/**
+	 * Atomic reference to the {@link PathChildrenCache} for message rates. This reference should
+	 * <em>not</em> be used directly; instead use {@link #ensureCache}.
+	 */
+	private final AtomicReference<PathChildrenCache> cacheRef = new AtomicReference<PathChildrenCache>();
+
+	private volatile long window = DEFAULT_WINDOW;
+
+	/**
+	 * Construct a {@code ZooKeeperModuleMessageRateRepository}.
+	 *
+	 * @param zkConnection the ZooKeeper connection
+	 */
+	@Autowired
+	public ZooKeeperModuleMessageRateRepository(ZooKeeperConnection zkConnection) {
+		this.zkConnection = zkConnection;
+	}
+
+	/**
+	 * @param window the time, in milliseconds, over which snapshots are averaged; the latest snapshot of a
+	 * container is always used, however old.
+	 */
+	public void setWindow(long window) {
+		Assert.isTrue(window >= 0, "'window' cannot be negative");
+		this.window = window;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		if (event instanceof ContextStoppedEvent || event instanceof ContextClosedEvent) {
+			closeCache();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void save(String containerId, Map<String, HashMap<String, Double>> messageRates) {
+		Map<String, String> data = new HashMap<String, String>();
+		for (Map.Entry<String, HashMap<String, Double>> module : messageRates.entrySet()) {
+			for (Map.Entry<String, Double> channel : module.getValue().entrySet()) {
+				data.put(module.getKey() + '.' + channel.getKey(),
+						String.format(Locale.ROOT, "%.3f", channel.getValue()));
+			}
+		}
+		CuratorFramework client = zkConnection.getClient();
+		String path = Paths.build(Paths.MESSAGE_RATES, containerId);
+		try {
+			try {
+				client.setData().forPath(path, ZooKeeperUtils.mapToBytes(data));
+			}
+			catch (KeeperException.NoNodeException e) {
+				client.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL).forPath(path,
+						ZooKeeperUtils.mapToBytes(data));
+			}
+		}
+		catch (Exception e) {
+			throw ZooKeeperUtils.wrapThrowable(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, HashMap<String, Double>> findByContainerId(String containerId) {
+		PathChildrenCache cache = ensureCache();
+		Deque<Snapshot> received = snapshots.get(containerId);
+		if (received == null) {
+			// the initial cache contents do not raise events
+			ChildData childData = cache.getCurrentData(Paths.build(Paths.MESSAGE_RATES, containerId));
+			if (childData == null || childData.getData() == null) {
+				return new HashMap<String, HashMap<String, Double>>();
+			}
+			record(containerId, childData.getData());
+			received = snapshots.get(containerId);
+			if (received == null) {
+				// the container departed meanwhile
+				return new HashMap<String, HashMap<String, Double>>();
+			}
+		}
+		return average(received);
+	}
+
+	private void record(String containerId, byte[] data) {
+		Snapshot snapshot = new Snapshot(System.currentTimeMillis(), ZooKeeperUtils.bytesToMap(data));
+		Deque<Snapshot> received = snapshots.get(containerId);
+		if (received == null) {
+			received = new ArrayDeque<Snapshot>();
+			Deque<Snapshot> existing = snapshots.putIfAbsent(containerId, received);
+			if (existing != null) {
+				received = existing;
+			}
+		}
+		synchronized (received) {
+			received.addLast(snapshot);
+			expire(received, snapshot.time);
+		}
+	}
+
+	private void expire(Deque<Snapshot> received, long now) {
+		while (received.size() > 1 && received.peekFirst().time < now - this.window) {
+			received.removeFirst();
+		}
+	}
+
+	private Map<String, HashMap<String, Double>> average(Deque<Snapshot> received) {
+		Map<String, double[]> sums = new HashMap<String, double[]>();
+		synchronized (received) {
+			expire(received, System.currentTimeMillis());
+			for (Snapshot snapshot : received) {
+				for (Map.Entry<String, String> rate : snapshot.rates.entrySet()) {
+					double[] sum = sums.get(rate.getKey());
+					if (sum == null) {
+						sum = new double[2];
+						sums.put(rate.getKey(), sum);
+					}
+					try {
+						sum[0] += Double.parseDouble(rate.getValue());
+						sum[1]++;
+					}
+					catch (NumberFormatException e) {
+						logger.debug("Ignoring invalid message rate {}", rate);
+					}
+				}
+			}
+		}
+		Map<String, HashMap<String, Double>> messageRates = new HashMap<String, HashMap<String, Double>>();
+		for (Map.Entry<String, double[]> sum : sums.entrySet()) {
+			String key = sum.getKey();
+			int i = key.lastIndexOf('.');
+			if (i <= 0 || sum.getValue()[1] == 0) {
+				continue;
+			}
+			String module = key.substring(0, i);
+			HashMap<String, Double> channels = messageRates.get(module);
+			if (channels == null) {
+				channels = new HashMap<String, Double>();
+				messageRates.put(module, channels);
+			}
+			channels.put(key.substring(i + 1), sum.getValue()[0] / sum.getValue()[1]);
+		}
+		return messageRates;
+	}
+
+	/**
+	 * Return a {@link PathChildrenCache} for message rates, creating and initializing a new instance if
+	 * necessary.
+	 *
+	 * @return a {@code PathChildrenCache} for message rates
+	 */
+	private PathChildrenCache ensureCache() {
+		if (cacheRef.get() == null) {
+			synchronized (cacheRef) {
+				if (cacheRef.get() == null) {
+					CuratorFramework client = zkConnection.getClient();
+					PathChildrenCache cache = new PathChildrenCache(client, Paths.MESSAGE_RATES,
+							true, ThreadUtils.newThreadFactory("MessageRateCache"));
+					cache.getListenable().addListener(new MessageRateListener());
+					try {
+						Paths.ensurePath(client, Paths.MESSAGE_RATES);
+						cacheRef.set(cache);
+						cache.start(PathChildrenCache.StartMode.BUILD_INITIAL_CACHE);
+					}
+					catch (Exception e) {
+						try {
+							cache.close();
+						}
+						catch (Exception ce) {
+							// ignore exception on close
+						}
+						finally {
+							cacheRef.compareAndSet(cache, null);
+						}
+						throw ZooKeeperUtils.wrapThrowable(e);
+					}
+				}
+			}
+		}
+
+		PathChildrenCache cache = cacheRef.get();
+		Assert.state(cache != null, "Message rate cache not initialized " +
+				"(likely as a result of a ZooKeeper connection error)");
+		return cache;
+	}
+
+	/**
+	 * Close the {@link PathChildrenCache message rate cache} and discard the recorded snapshots.
+	 */
+	private void closeCache() {
+		PathChildrenCache cache = cacheRef.get();
+		if (cache != null) {
+			try {
+				cache.close();
+			}
+			catch (Exception e) {
+				// ignore exception on close
+			}
+			finally {
+				cacheRef.compareAndSet(cache, null);
+				snapshots.clear();
+			}
+		}
+	}
+
+
+	/**
+	 * Records snapshots as containers write them, and forgets departed containers.
+	 */
+	private class MessageRateListener implements PathChildrenCacheListener {
+
+		@Override
+		public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) {
+			ZooKeeperUtils.logCacheEvent(logger, event);
+			switch (event.getType()) {
+				case CHILD_ADDED:
+				case CHILD_UPDATED:
+					if (event.getData().getData() != null) {
+						record(Paths.stripPath(event.getData().getPath()), event.getData().getData());
+					}
+					break;
+				case CHILD_REMOVED:
+					snapshots.remove(Paths.stripPath(event.getData().getPath()));
+					break;
+				case CONNECTION_SUSPENDED:
+				case CONNECTION_LOST:
+					// shut down the cache if ZooKeeper connection goes away
+					closeCache();
+					break;
+				default:
+					break;
+			}
+		}
+
+	}
+
+	/**
+	 * Message rates published by a container, with the time they were received.
+	 */
+	private static class Snapshot {
+
+		private final long time;
+
+		private final Map<String, String> rates;
+
+		private Snapshot(long time, Map<String, String> rates) {
+			this.time = time;
+			this.rates = rates;
+		}
+
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.zookeeper.KeeperException.NoNodeException;
+import org.apache.zookeeper.KeeperException.NodeExistsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperUtils;
+import org.springframework.xd.tuple.serializer.kryo.TupleSchema;
+import org.springframework.xd.tuple.serializer.kryo.TupleSchemaRegistry;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A {@link TupleSchemaRegistry} that shares schemas between containers through ZooKeeper. Each schema is
+ * written once, as a child of {@link Paths#TUPLE_SCHEMAS} named after its id, and is cached locally once
+ * registered or looked up; schemas are never modified, so the cache needs no invalidation.
+ */
+public class ZooKeeperTupleSchemaRegistry implements TupleSchemaRegistry {
+
+	private static final String NAMES_KEY = "names";
+
+	private static final String TYPES_KEY = "types";
+
+	private static final TypeReference<List<String>> NAMES_LIST = new TypeReference<List<String>>() {};
+
+	private static final long SYNC_TIMEOUT = 5000;
+
+	private final Logger logger = LoggerFactory.getLogger(ZooKeeperTupleSchemaRegistry.class);
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final ConcurrentMap<Integer, TupleSchema> schemas = new ConcurrentHashMap<Integer, TupleSchema>();
+
+	private final ZooKeeperConnection zkConnection;
+
+	public ZooKeeperTupleSchemaRegistry(ZooKeeperConnection zkConnection) {
+		this.zkConnection = zkConnection;
+	}
+
+	@Override
+	public void register(TupleSchema schema) {
+		if (schema.equals(this.schemas.get(schema.getId()))) {
+			return;
+		}
+		String path = path(schema.getId());
+		try {
+			Map<String, String> map = new HashMap<String, String>();
+			map.put(NAMES_KEY, this.objectMapper.writeValueAsString(schema.getNames()));
+			map.put(TYPES_KEY, this.objectMapper.writeValueAsString(schema.getTypes()));
+			this.zkConnection.getClient().create().creatingParentsIfNeeded()
+					.forPath(path, ZooKeeperUtils.mapToBytes(map));
+			logger.debug("Registered {} at {}", schema, path);
+		}
+		catch (Exception e) {
+			// NodeExistsException indicates that this schema, or one with the same id, is already registered
+			ZooKeeperUtils.wrapAndThrowIgnoring(e, NodeExistsException.class);
+			TupleSchema existing = read(path);
+			if (!schema.equals(existing)) {
+				throw new IllegalStateException("Schema id collision between " + existing + " and " + schema);
+			}
+		}
+		this.schemas.putIfAbsent(schema.getId(), schema);
+	}
+
+	@Override
+	public TupleSchema lookup(int id) {
+		TupleSchema schema = this.schemas.get(id);
+		if (schema == null) {
+			String path = path(id);
+			schema = read(path);
+			if (schema == null && sync(path)) {
+				// the writer registers a schema before sending it; this server may just not have seen it yet
+				schema = read(path);
+			}
+			if (schema != null) {
+				this.schemas.putIfAbsent(id, schema);
+			}
+		}
+		return schema;
+	}
+
+	private TupleSchema read(String path) {
+		try {
+			Map<String, String> map = ZooKeeperUtils.bytesToMap(this.zkConnection.getClient().getData().forPath(path));
+			List<String> names = this.objectMapper.readValue(map.get(NAMES_KEY), NAMES_LIST);
+			byte[] types = this.objectMapper.readValue(map.get(TYPES_KEY), byte[].class);
+			return new TupleSchema(names, types);
+		}
+		catch (Exception e) {
+			// NoNodeException - the schema is not registered
+			ZooKeeperUtils.wrapAndThrowIgnoring(e, NoNodeException.class);
+		}
+		return null;
+	}
+
+	private boolean sync(String path) {
+		final CountDownLatch latch = new CountDownLatch(1);
+		try {
+			this.zkConnection.getClient().sync().inBackground(new BackgroundCallback() {
+
+				@Override
+				public void processResult(CuratorFramework client, CuratorEvent event) {
+					latch.countDown();
+				}
+
+			}).forPath(path);
+			return latch.await(SYNC_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		catch (Exception e) {
+			throw ZooKeeperUtils.wrapThrowable(e);
+		}
+	}
+
+	private static String path(int id) {
+		return Paths.build(Paths.TUPLE_SCHEMAS, Integer.toHexString(id));
+	}
+
+}
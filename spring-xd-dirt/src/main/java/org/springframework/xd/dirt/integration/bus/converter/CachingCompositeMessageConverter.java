@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus.converter;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.jmx.support.MetricType;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * A {@link CompositeMessageConverter} that remembers which converter handled each combination of payload class,
+ * {@code contentType} header and target class, so that later messages go straight to that converter instead of
+ * offering the message to each converter in turn.
+ * <p>
+ * Should the remembered converter decline a message, all converters are tried again, in order, and the outcome
+ * is remembered instead. Combinations are only remembered up to {@code maxCacheSize}; beyond it, messages are
+ * converted as by a plain {@link CompositeMessageConverter}.
+ * <p>
+ * The cache statistics are exposed over JMX, and the converters of a module's channels are registered with the
+ * module's MBean exporter.
+ */
+@ManagedResource
+public class CachingCompositeMessageConverter extends CompositeMessageConverter {
+
+	public static final int DEFAULT_MAX_CACHE_SIZE = 64;
+
+	private final ConcurrentMap<ConversionKey, MessageConverter> resolved =
+			new ConcurrentHashMap<ConversionKey, MessageConverter>();
+
+	private final int maxCacheSize;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	public CachingCompositeMessageConverter(Collection<MessageConverter> converters) {
+		this(converters, DEFAULT_MAX_CACHE_SIZE);
+	}
+
+	/**
+	 * @param converters the converters, in the order in which they are tried.
+	 * @param maxCacheSize the maximum number of remembered combinations.
+	 */
+	public CachingCompositeMessageConverter(Collection<MessageConverter> converters, int maxCacheSize) {
+		super(converters);
+		Assert.isTrue(maxCacheSize >= 0, "'maxCacheSize' cannot be negative");
+		this.maxCacheSize = maxCacheSize;
+	}
+
+	@Override
+	public Object fromMessage(Message<?> message, Class<?> targetClass) {
+		ConversionKey key = new ConversionKey(message.getPayload().getClass(),
+				message.getHeaders().get(MessageHeaders.CONTENT_TYPE), targetClass);
+		MessageConverter converter = this.resolved.get(key);
+		if (converter != null) {
+			Object result = converter.fromMessage(message, targetClass);
+			if (result != null) {
+				this.hits.incrementAndGet();
+				return result;
+			}
+		}
+		this.misses.incrementAndGet();
+		for (MessageConverter candidate : getConverters()) {
+			if (candidate == converter) {
+				// has just declined this message
+				continue;
+			}
+			Object result = candidate.fromMessage(message, targetClass);
+			if (result != null) {
+				if (converter != null || this.resolved.size() < this.maxCacheSize) {
+					this.resolved.put(key, candidate);
+				}
+				return result;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the number of messages converted by a remembered converter.
+	 */
+	@ManagedMetric(metricType = MetricType.COUNTER, description = "Messages converted by a remembered converter")
+	public long getCacheHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the number of messages that had to be offered to all converters.
+	 */
+	@ManagedMetric(metricType = MetricType.COUNTER, description = "Messages offered to all converters")
+	public long getCacheMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * @return the number of remembered combinations.
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, description = "Remembered combinations")
+	public int getCacheSize() {
+		return this.resolved.size();
+	}
+
+	@Override
+	public String toString() {
+		return "CachingCompositeMessageConverter [converters=" + getConverters() + ", hits=" + this.hits
+				+ ", misses=" + this.misses + ", cacheSize=" + this.resolved.size() + "]";
+	}
+
+
+	private static final class ConversionKey {
+
+		private final Class<?> payloadType;
+
+		private final Object contentType;
+
+		private final Class<?> targetClass;
+
+		private final int hashCode;
+
+		private ConversionKey(Class<?> payloadType, Object contentType, Class<?> targetClass) {
+			this.payloadType = payloadType;
+			this.contentType = contentType;
+			this.targetClass = targetClass;
+			int result = payloadType.hashCode();
+			result = 31 * result + ObjectUtils.nullSafeHashCode(contentType);
+			result = 31 * result + ObjectUtils.nullSafeHashCode(targetClass);
+			this.hashCode = result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ConversionKey)) {
+				return false;
+			}
+			ConversionKey other = (ConversionKey) obj;
+			return this.payloadType == other.payloadType && this.targetClass == other.targetClass
+					&& ObjectUtils.nullSafeEquals(this.contentType, other.contentType);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+	}
+
+}
@@ -28,7 +28,9 @@ import org.springframework.util.MimeType;
 
 
 /**
- * A factory for creating an instance of {@link CompositeMessageConverter} for a given target MIME type
+ * A factory for creating an instance of {@link CompositeMessageConverter} for a given target MIME type. The
+ * instances are {@link CachingCompositeMessageConverter}s, which remember the converter that handled each kind
+ * of message.
  *
  * @author David Turanski
  */
@@ -61,6 +63,6 @@ public class CompositeMessageConverterFactory {
 			throw new ConversionException("No message converter is registered for "
 					+ targetMimeType.toString());
 		}
-		return new CompositeMessageConverter(targetMimeTypeConverters);
+		return new CachingCompositeMessageConverter(targetMimeTypeConverters);
 	}
 }
@@ -22,13 +22,15 @@ import java.util.List;
 import org.springframework.messaging.Message;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.xd.tuple.JsonBytesToTupleConverter;
+import org.springframework.xd.tuple.JsonStringToTupleConverter;
 import org.springframework.xd.tuple.Tuple;
-import org.springframework.xd.tuple.TupleBuilder;
 
 
 /**
  * A {@link org.springframework.messaging.converter.MessageConverter}
- * to convert from a JSON (byte[] or String) to a {@link Tuple}.
+ * to convert from a JSON (byte[] or String) to a {@link Tuple}. Byte arrays are parsed directly,
+ * without first being decoded to a String.
  *
  * @author David Turanski
  */
@@ -41,6 +43,10 @@ public class JsonToTupleMessageConverter extends AbstractFromMessageConverter {
 		targetMimeTypes.add(MessageConverterUtils.X_JAVA_OBJECT);
 	}
 
+	private final JsonBytesToTupleConverter bytesToTupleConverter = new JsonBytesToTupleConverter();
+
+	private final JsonStringToTupleConverter stringToTupleConverter = new JsonStringToTupleConverter();
+
 	public JsonToTupleMessageConverter() {
 		super(MimeTypeUtils.APPLICATION_JSON, targetMimeTypes);
 	}
@@ -57,14 +63,13 @@ public class JsonToTupleMessageConverter extends AbstractFromMessageConverter {
 
 	@Override
 	public Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
-		String source = null;
+		Tuple t;
 		if (message.getPayload() instanceof byte[]) {
-			source = new String((byte[]) message.getPayload());
+			t = bytesToTupleConverter.convert((byte[]) message.getPayload());
 		}
 		else {
-			source = (String) message.getPayload();
+			t = stringToTupleConverter.convert((String) message.getPayload());
 		}
-		Tuple t = TupleBuilder.fromString(source);
 		return buildConvertedMessage(t, message.getHeaders(), MessageConverterUtils.javaObjectMimeType(t.getClass()));
 	}
 }
@@ -16,20 +16,18 @@
 
 package org.springframework.xd.dirt.integration.bus.converter;
 
-import java.io.IOException;
-
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.Message;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.xd.tuple.Tuple;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.xd.tuple.TupleToJsonBytesConverter;
+import org.springframework.xd.tuple.TupleToJsonStringConverter;
 
 
 /**
  * A {@link org.springframework.messaging.converter.MessageConverter}
- * to convert a {@link Tuple} to a JSON String
+ * to convert a {@link Tuple} to a JSON String, or to UTF-8 encoded JSON bytes when the target type
+ * is {@code byte[]}. The JSON is generated directly from the tuple, without an intermediate tree.
  *
  * @author David Turanski
  */
@@ -38,6 +36,14 @@ public class TupleToJsonMessageConverter extends AbstractFromMessageConverter {
 	@Value("${typeconversion.json.prettyPrint:false}")
 	private volatile boolean prettyPrint;
 
+	private final TupleToJsonStringConverter stringConverter = new TupleToJsonStringConverter(false);
+
+	private final TupleToJsonStringConverter prettyStringConverter = new TupleToJsonStringConverter(true);
+
+	private final TupleToJsonBytesConverter bytesConverter = new TupleToJsonBytesConverter(false);
+
+	private final TupleToJsonBytesConverter prettyBytesConverter = new TupleToJsonBytesConverter(true);
+
 	public void setPrettyPrint(boolean prettyPrint) {
 		this.prettyPrint = prettyPrint;
 	}
@@ -48,7 +54,7 @@ public class TupleToJsonMessageConverter extends AbstractFromMessageConverter {
 
 	@Override
 	protected Class<?>[] supportedTargetTypes() {
-		return new Class<?>[] { String.class };
+		return new Class<?>[] { String.class, byte[].class };
 	}
 
 	@Override
@@ -59,21 +65,12 @@ public class TupleToJsonMessageConverter extends AbstractFromMessageConverter {
 	@Override
 	protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
 		Tuple t = (Tuple) message.getPayload();
-		String json;
-		if (prettyPrint) {
-			ObjectMapper mapper = new ObjectMapper();
-			mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
-			try {
-				Object tmp = mapper.readValue(t.toString(), Object.class);
-				json = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(tmp);
-			}
-			catch (IOException e) {
-				logger.error(e.getMessage(), e);
-				return null;
-			}
+		Object json;
+		if (byte[].class.equals(targetClass)) {
+			json = (prettyPrint ? prettyBytesConverter : bytesConverter).convert(t);
 		}
 		else {
-			json = t.toString();
+			json = (prettyPrint ? prettyStringConverter : stringConverter).convert(t);
 		}
 		return buildConvertedMessage(json, message.getHeaders(), MimeTypeUtils.APPLICATION_JSON);
 	}
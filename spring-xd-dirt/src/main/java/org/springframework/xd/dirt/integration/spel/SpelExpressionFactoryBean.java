@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.spel;
+
+import org.springframework.beans.factory.config.AbstractFactoryBean;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.Assert;
+
+/**
+ * Parses a SpEL {@link Expression} with a configurable {@link SpelCompilerMode}, for modules that hand an
+ * expression to an endpoint instead of using its {@code expression} attribute. Compiled expressions are loaded
+ * by the module's class loader, so that they can reference payload types defined by the module.
+ */
+public class SpelExpressionFactoryBean extends AbstractFactoryBean<Expression> {
+
+	private final String expressionString;
+
+	private SpelCompilerMode compilerMode = SpelCompilerMode.OFF;
+
+	private ClassLoader beanClassLoader;
+
+	public SpelExpressionFactoryBean(String expressionString) {
+		Assert.hasText(expressionString, "'expressionString' must not be empty");
+		this.expressionString = expressionString;
+	}
+
+	/**
+	 * @param compilerMode the compiler mode; {@code OFF} (the default) keeps the expression interpreted.
+	 */
+	public void setCompilerMode(SpelCompilerMode compilerMode) {
+		Assert.notNull(compilerMode, "'compilerMode' cannot be null");
+		this.compilerMode = compilerMode;
+	}
+
+	@Override
+	public void setBeanClassLoader(ClassLoader classLoader) {
+		super.setBeanClassLoader(classLoader);
+		this.beanClassLoader = classLoader;
+	}
+
+	@Override
+	public Class<?> getObjectType() {
+		return Expression.class;
+	}
+
+	@Override
+	protected Expression createInstance() {
+		SpelExpressionParser parser = new SpelExpressionParser(new SpelParserConfiguration(this.compilerMode,
+				this.beanClassLoader));
+		return parser.parseExpression(this.expressionString);
+	}
+
+}
@@ -16,24 +16,35 @@
 
 package org.springframework.xd.dirt.job.dao;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.sql.DataSource;
 
 import org.springframework.batch.admin.service.JdbcSearchableJobExecutionDao;
 import org.springframework.batch.admin.service.SearchableJobExecutionDao;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.repository.dao.JdbcJobExecutionDao;
 import org.springframework.batch.item.database.Order;
 import org.springframework.batch.item.database.PagingQueryProvider;
 import org.springframework.batch.item.database.support.SqlPagingQueryProviderFactoryBean;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.incrementer.AbstractDataFieldMaxValueIncrementer;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.xd.dirt.batch.tasklet.JobLaunchingTasklet;
 
 /**
@@ -47,6 +58,22 @@ public class XdJdbcSearchableJobExecutionDao extends JdbcSearchableJobExecutionD
 	private static final String FIELDS = "E.JOB_EXECUTION_ID, E.START_TIME, E.END_TIME, E.STATUS, E.EXIT_CODE, E.EXIT_MESSAGE, "
 			+ "E.CREATE_TIME, E.LAST_UPDATED, E.VERSION, I.JOB_INSTANCE_ID, I.JOB_NAME";
 
+	private static final String STEP_EXECUTIONS_FOR_JOB_EXECUTIONS = "SELECT STEP_EXECUTION_ID, STEP_NAME, START_TIME, "
+			+ "END_TIME, STATUS, COMMIT_COUNT, READ_COUNT, FILTER_COUNT, WRITE_COUNT, EXIT_CODE, EXIT_MESSAGE, "
+			+ "READ_SKIP_COUNT, WRITE_SKIP_COUNT, PROCESS_SKIP_COUNT, ROLLBACK_COUNT, LAST_UPDATED, VERSION, "
+			+ "JOB_EXECUTION_ID from %PREFIX%STEP_EXECUTION where JOB_EXECUTION_ID in (%IDS%) order by STEP_EXECUTION_ID";
+
+	private static final String PARENT_JOB_EXECUTION_IDS = "SELECT DISTINCT STRING_VAL from %PREFIX%JOB_EXECUTION_PARAMS "
+			+ "where KEY_NAME = '" + JobLaunchingTasklet.XD_PARENT_JOB_EXECUTION_ID + "' and STRING_VAL in (%IDS%)";
+
+	private static final String COMPLETED_JOB_INSTANCE_IDS = "SELECT DISTINCT JOB_INSTANCE_ID from %PREFIX%JOB_EXECUTION "
+			+ "where STATUS = '" + BatchStatus.COMPLETED.name() + "' and JOB_INSTANCE_ID in (%IDS%)";
+
+	/**
+	 * Maximum number of ids bound to a single {@code in} clause; longer lists are queried in several batches.
+	 */
+	private static final int MAX_IDS_PER_QUERY = 500;
+
 	private PagingQueryProvider allExecutionsPagingQueryProvider;
 
 	private PagingQueryProvider childJobExecutionsPagingQueryProvider;
@@ -170,4 +197,103 @@ public class XdJdbcSearchableJobExecutionDao extends JdbcSearchableJobExecutionD
 		return count > 0 ? true : false;
 	}
 
+	/**
+	 * Load the {@link StepExecution}s of all the given {@link JobExecution}s, using a single query per batch of
+	 * executions, and add them to their job execution.
+	 *
+	 * @param jobExecutions the job executions.
+	 */
+	public void addStepExecutions(Collection<JobExecution> jobExecutions) {
+		final Map<Long, JobExecution> executionsById = new HashMap<Long, JobExecution>();
+		for (JobExecution jobExecution : jobExecutions) {
+			executionsById.put(jobExecution.getId(), jobExecution);
+		}
+		for (List<Object> ids : partition(executionsById.keySet())) {
+			getJdbcTemplate().query(inQuery(STEP_EXECUTIONS_FOR_JOB_EXECUTIONS, ids.size()), new RowCallbackHandler() {
+
+				@Override
+				public void processRow(ResultSet rs) throws SQLException {
+					JobExecution jobExecution = executionsById.get(rs.getLong(18));
+					// adds itself to the job execution
+					StepExecution stepExecution = new StepExecution(rs.getString(2), jobExecution, rs.getLong(1));
+					stepExecution.setStartTime(rs.getTimestamp(3));
+					stepExecution.setEndTime(rs.getTimestamp(4));
+					stepExecution.setStatus(BatchStatus.valueOf(rs.getString(5)));
+					stepExecution.setCommitCount(rs.getInt(6));
+					stepExecution.setReadCount(rs.getInt(7));
+					stepExecution.setFilterCount(rs.getInt(8));
+					stepExecution.setWriteCount(rs.getInt(9));
+					stepExecution.setExitStatus(new ExitStatus(rs.getString(10), rs.getString(11)));
+					stepExecution.setReadSkipCount(rs.getInt(12));
+					stepExecution.setWriteSkipCount(rs.getInt(13));
+					stepExecution.setProcessSkipCount(rs.getInt(14));
+					stepExecution.setRollbackCount(rs.getInt(15));
+					stepExecution.setLastUpdated(rs.getTimestamp(16));
+					stepExecution.setVersion(rs.getInt(17));
+				}
+			}, ids.toArray());
+		}
+	}
+
+	/**
+	 * Set based version of {@link #isComposedJobExecution(long)}.
+	 *
+	 * @param jobExecutionIds the execution ids.
+	 * @return the ids, among the given ones, of the executions that represent a composed job.
+	 */
+	public Set<Long> getComposedJobExecutionIds(Collection<Long> jobExecutionIds) {
+		Set<String> values = new HashSet<String>();
+		for (Long jobExecutionId : jobExecutionIds) {
+			values.add(String.valueOf(jobExecutionId));
+		}
+		final Set<Long> result = new HashSet<Long>();
+		for (List<Object> ids : partition(values)) {
+			getJdbcTemplate().query(inQuery(PARENT_JOB_EXECUTION_IDS, ids.size()), new RowCallbackHandler() {
+
+				@Override
+				public void processRow(ResultSet rs) throws SQLException {
+					result.add(Long.valueOf(rs.getString(1)));
+				}
+			}, ids.toArray());
+		}
+		return result;
+	}
+
+	/**
+	 * @param jobInstanceIds the job instance ids.
+	 * @return the ids, among the given ones, of the job instances that have at least one
+	 * {@link BatchStatus#COMPLETED completed} execution.
+	 */
+	public Set<Long> getCompletedJobInstanceIds(Collection<Long> jobInstanceIds) {
+		final Set<Long> result = new HashSet<Long>();
+		for (List<Object> ids : partition(new HashSet<Object>(jobInstanceIds))) {
+			getJdbcTemplate().query(inQuery(COMPLETED_JOB_INSTANCE_IDS, ids.size()), new RowCallbackHandler() {
+
+				@Override
+				public void processRow(ResultSet rs) throws SQLException {
+					result.add(rs.getLong(1));
+				}
+			}, ids.toArray());
+		}
+		return result;
+	}
+
+	private String inQuery(String query, int size) {
+		String placeholders = StringUtils.collectionToCommaDelimitedString(Collections.nCopies(size, "?"));
+		return getQuery(query.replace("%IDS%", placeholders));
+	}
+
+	private static List<List<Object>> partition(Collection<?> ids) {
+		List<List<Object>> result = new ArrayList<List<Object>>();
+		List<Object> current = null;
+		for (Object id : ids) {
+			if (current == null || current.size() == MAX_IDS_PER_QUERY) {
+				current = new ArrayList<Object>(MAX_IDS_PER_QUERY);
+				result.add(current);
+			}
+			current.add(id);
+		}
+		return result;
+	}
+
 }
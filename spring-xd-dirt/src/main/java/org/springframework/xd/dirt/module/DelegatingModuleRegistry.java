@@ -17,6 +17,7 @@
 package org.springframework.xd.dirt.module;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -32,7 +33,7 @@ import org.springframework.xd.module.ModuleType;
  * @author Glenn Renfro
  * @author David Turanski
  */
-public class DelegatingModuleRegistry implements WritableModuleRegistry {
+public class DelegatingModuleRegistry implements WritableModuleRegistry, PrefetchingModuleRegistry {
 
 	private List<ModuleRegistry> delegates = new ArrayList<ModuleRegistry>();
 
@@ -112,6 +113,15 @@ public class DelegatingModuleRegistry implements WritableModuleRegistry {
 		return definitions;
 	}
 
+	@Override
+	public void prefetch(Collection<String> names) {
+		for (ModuleRegistry delegate : delegates) {
+			if (delegate instanceof PrefetchingModuleRegistry) {
+				((PrefetchingModuleRegistry) delegate).prefetch(names);
+			}
+		}
+	}
+
 	@Override
 	public boolean delete(ModuleDefinition definition) {
 		for (ModuleRegistry delegate : delegates) {
@@ -45,15 +45,19 @@ public class MD5StalenessCheck implements StalenessCheck {
 			return true;
 		}
 
-		String md5SourceLocation = sourceDefinition.getLocation() + ".md5";
-		String md5TargetLocation = targetDefinition.getLocation() + ".md5";
-
-		String md5Source = readHash(md5SourceLocation);
-		String md5Target = readHash(md5TargetLocation);
+		String md5Source = readHash(sourceDefinition);
+		String md5Target = readHash(targetDefinition);
 
 		return md5Target == null || md5Source == null || !md5Source.equals(md5Target);
 	}
 
+	/**
+	 * Return the hash stored next to the archive of the given definition, or {@code null} if there is none.
+	 */
+	public String readHash(SimpleModuleDefinition definition) {
+		return readHash(definition.getLocation() + ResourceModuleRegistry.HASH_EXTENSION);
+	}
+
 	private String readHash(String hashLocation) {
 		Resource resource = resolver.getResource(hashLocation);
 		if (resource == null || !resource.isReadable()) {
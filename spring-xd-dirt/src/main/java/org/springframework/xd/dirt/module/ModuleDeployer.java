@@ -20,8 +20,11 @@ import java.beans.Introspector;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.concurrent.GuardedBy;
 
@@ -46,6 +49,12 @@ import org.springframework.xd.module.core.Plugin;
  * Appropriate {@link Plugin} logic is applied throughout the deployment/
  * un-deployment lifecycle.
  * <p>
+ * Modules may be deployed and un-deployed concurrently. Plugins are not
+ * required to be thread safe, so they are applied one module at a time;
+ * module application contexts are initialized, started and stopped
+ * outside of that lock. The time taken by each phase is recorded, see
+ * {@link #getPhaseStatistics()}.
+ * <p>
  * In order to initialize modules with the correct application context,
  * this class maintains a reference to the global application context.
  * See <a href="http://docs.spring.io/autorepo/docs/spring-xd/current/reference/html/#XD-Spring-Application-Contexts">
@@ -59,6 +68,20 @@ import org.springframework.xd.module.core.Plugin;
  */
 public class ModuleDeployer implements ApplicationContextAware, InitializingBean {
 
+	public static final String CREATE_PHASE = "create";
+
+	public static final String PRE_PROCESS_PHASE = "preProcess";
+
+	public static final String INITIALIZE_PHASE = "initialize";
+
+	public static final String POST_PROCESS_PHASE = "postProcess";
+
+	public static final String START_PHASE = "start";
+
+	public static final String STOP_PHASE = "stop";
+
+	public static final String DESTROY_PHASE = "destroy";
+
 	/**
 	 * Logger.
 	 */
@@ -85,9 +108,19 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	/**
 	 * List of registered plugins.
 	 */
-	@GuardedBy("this")
+	@GuardedBy("pluginMonitor")
 	private final List<Plugin> plugins = new ArrayList<Plugin>();
 
+	/**
+	 * Lock held while plugins are applied to a module.
+	 */
+	private final Object pluginMonitor = new Object();
+
+	/**
+	 * Timing statistics by deployment phase.
+	 */
+	private final Map<String, PhaseStatistics> phaseStatistics;
+
 	/**
 	 * Module factory for creating new {@link Module} instances.
 	 */
@@ -100,6 +133,12 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	 */
 	public ModuleDeployer(ModuleFactory moduleFactory) {
 		this.moduleFactory = moduleFactory;
+		Map<String, PhaseStatistics> statistics = new LinkedHashMap<String, PhaseStatistics>();
+		for (String phase : new String[] { CREATE_PHASE, PRE_PROCESS_PHASE, INITIALIZE_PHASE, POST_PROCESS_PHASE,
+				START_PHASE, STOP_PHASE, DESTROY_PHASE }) {
+			statistics.put(phase, new PhaseStatistics());
+		}
+		this.phaseStatistics = Collections.unmodifiableMap(statistics);
 	}
 
 	/**
@@ -145,24 +184,27 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	}
 
 	@Override
-	public synchronized void afterPropertiesSet() {
-		if (!plugins.isEmpty()) {
-			plugins.clear();
+	public void afterPropertiesSet() {
+		synchronized (pluginMonitor) {
+			if (!plugins.isEmpty()) {
+				plugins.clear();
+			}
+			plugins.addAll(this.context.getParent().getBeansOfType(Plugin.class).values());
+			OrderComparator.sort(this.plugins);
 		}
-		plugins.addAll(this.context.getParent().getBeansOfType(Plugin.class).values());
-		OrderComparator.sort(this.plugins);
 	}
 
 	/**
-	 * Return a read-only map of deployed modules. Key is the group/deployment
-	 * unit name, value is a map of module index to module.
+	 * Return a read-only snapshot of deployed modules. Key is the group/deployment
+	 * unit name, value is a map of module index to module. The inner maps are
+	 * copied as well, so the snapshot may be iterated without holding the lock.
 	 *
 	 * @return map of deployed modules
 	 */
 	public synchronized Map<String, Map<Integer, Module>> getDeployedModules() {
 		Map<String, Map<Integer, Module>> map = new HashMap<String, Map<Integer, Module>>();
 		for (Map.Entry<String, Map<Integer, Module>> entry : this.deployedModules.entrySet()) {
-			map.put(entry.getKey(), Collections.unmodifiableMap(entry.getValue()));
+			map.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<Integer, Module>(entry.getValue())));
 		}
 		return Collections.unmodifiableMap(map);
 	}
@@ -178,7 +220,10 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	 */
 	public Module createModule(ModuleDescriptor moduleDescriptor,
 			ModuleDeploymentProperties deploymentProperties) {
-		return moduleFactory.createModule(moduleDescriptor, deploymentProperties);
+		long start = System.nanoTime();
+		Module module = moduleFactory.createModule(moduleDescriptor, deploymentProperties);
+		record(CREATE_PHASE, start);
+		return module;
 	}
 
 	/**
@@ -193,18 +238,21 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	 * @param module the module to deploy
 	 * @param descriptor descriptor for the module instance
 	 */
-	public synchronized void deploy(Module module, ModuleDescriptor descriptor) {
+	public void deploy(Module module, ModuleDescriptor descriptor) {
 		String group = descriptor.getGroup();
 
 		module.setParentContext(this.globalContext);
+		long start = System.nanoTime();
 		doDeploy(module);
-		logger.info("Deployed {}", module);
-		Map<Integer, Module> modules = this.deployedModules.get(group);
-		if (modules == null) {
-			modules = new HashMap<Integer, Module>();
-			this.deployedModules.put(group, modules);
+		logger.info("Deployed {} in {} ms", module, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		synchronized (this) {
+			Map<Integer, Module> modules = this.deployedModules.get(group);
+			if (modules == null) {
+				modules = new HashMap<Integer, Module>();
+				this.deployedModules.put(group, modules);
+			}
+			modules.put(descriptor.getIndex(), module);
 		}
-		modules.put(descriptor.getIndex(), module);
 	}
 
 	/**
@@ -213,10 +261,19 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	 * @param module module to deploy
 	 */
 	private void doDeploy(Module module) {
-		preProcessModule(module);
+		long start = System.nanoTime();
+		synchronized (pluginMonitor) {
+			preProcessModule(module);
+		}
+		start = record(PRE_PROCESS_PHASE, start);
 		module.initialize();
-		postProcessModule(module);
+		start = record(INITIALIZE_PHASE, start);
+		synchronized (pluginMonitor) {
+			postProcessModule(module);
+		}
+		start = record(POST_PROCESS_PHASE, start);
 		module.start();
+		record(START_PHASE, start);
 	}
 
 	/**
@@ -246,25 +303,29 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	 *
 	 * @param moduleDescriptor descriptor for module to be undeployed
 	 */
-	public synchronized void undeploy(ModuleDescriptor moduleDescriptor) {
+	public void undeploy(ModuleDescriptor moduleDescriptor) {
 		Introspector.flushCaches(); // This is to prevent classloader leakage
 		String group = moduleDescriptor.getGroup();
 		int index = moduleDescriptor.getIndex();
-		Map<Integer, Module> modules = deployedModules.get(group);
-		if (modules != null) {
-			Module module = modules.remove(index);
-			if (modules.isEmpty()) {
-				deployedModules.remove(group);
-			}
-			if (module != null) {
-				destroyModule(module);
+		Module module = null;
+		synchronized (this) {
+			Map<Integer, Module> modules = deployedModules.get(group);
+			if (modules != null) {
+				module = modules.remove(index);
+				if (modules.isEmpty()) {
+					deployedModules.remove(group);
+				}
+				if (module == null) {
+					logger.debug("Ignoring undeploy - module with index {} from group {} is not deployed", index,
+							group);
+				}
 			}
 			else {
-				logger.debug("Ignoring undeploy - module with index {} from group {} is not deployed", index, group);
+				logger.trace("Ignoring undeploy - group not deployed here: {}", group);
 			}
 		}
-		else {
-			logger.trace("Ignoring undeploy - group not deployed here: {}", group);
+		if (module != null) {
+			destroyModule(module);
 		}
 	}
 
@@ -275,10 +336,18 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	 */
 	private void destroyModule(Module module) {
 		logger.info("Removed {}", module);
-		beforeShutdown(module);
+		synchronized (pluginMonitor) {
+			beforeShutdown(module);
+		}
+		long start = System.nanoTime();
 		module.stop();
-		removeModule(module);
+		record(STOP_PHASE, start);
+		synchronized (pluginMonitor) {
+			removeModule(module);
+		}
+		start = System.nanoTime();
 		module.destroy();
+		record(DESTROY_PHASE, start);
 	}
 
 	/**
@@ -320,6 +389,89 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 		return Iterables.filter(this.plugins, new ModulePluginPredicate(module));
 	}
 
+	/**
+	 * Return timing statistics for each deployment phase, keyed by phase name
+	 * ({@value #CREATE_PHASE}, {@value #PRE_PROCESS_PHASE}, {@value #INITIALIZE_PHASE},
+	 * {@value #POST_PROCESS_PHASE}, {@value #START_PHASE}, {@value #STOP_PHASE}
+	 * and {@value #DESTROY_PHASE}).
+	 *
+	 * @return read-only map of phase statistics
+	 */
+	public Map<String, PhaseStatistics> getPhaseStatistics() {
+		return this.phaseStatistics;
+	}
+
+	/**
+	 * Record the time elapsed since {@code start} for the given phase.
+	 *
+	 * @param phase the phase name
+	 * @param start the {@link System#nanoTime()} at which the phase started
+	 * @return the current {@link System#nanoTime()}, for timing the next phase
+	 */
+	private long record(String phase, long start) {
+		long now = System.nanoTime();
+		this.phaseStatistics.get(phase).record(now - start);
+		return now;
+	}
+
+
+	/**
+	 * Running count, total and maximum duration of a deployment phase.
+	 */
+	public static class PhaseStatistics {
+
+		private final AtomicLong count = new AtomicLong();
+
+		private final AtomicLong totalNanos = new AtomicLong();
+
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		private void record(long nanos) {
+			count.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			long max = maxNanos.get();
+			while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+				max = maxNanos.get();
+			}
+		}
+
+		/**
+		 * @return the number of times the phase completed
+		 */
+		public long getCount() {
+			return count.get();
+		}
+
+		/**
+		 * @return the total time spent in the phase, in milliseconds
+		 */
+		public long getTotalMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(totalNanos.get());
+		}
+
+		/**
+		 * @return the mean time spent in the phase, in milliseconds
+		 */
+		public double getMeanMillis() {
+			long n = count.get();
+			return n == 0 ? 0 : totalNanos.get() / 1e6 / n;
+		}
+
+		/**
+		 * @return the longest time spent in the phase, in milliseconds
+		 */
+		public long getMaxMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+		}
+
+		@Override
+		public String toString() {
+			return "PhaseStatistics [count=" + getCount() + ", meanMillis=" + getMeanMillis() + ", maxMillis="
+					+ getMaxMillis() + "]";
+		}
+
+	}
+
 
 	/**
 	 * Predicate used to determine if a plugin supports a module.
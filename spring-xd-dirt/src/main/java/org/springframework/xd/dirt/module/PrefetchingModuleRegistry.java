@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.module;
+
+import java.util.Collection;
+
+/**
+ * Implemented by module registries that can make modules available ahead of lookup, typically by copying them from
+ * a remote location. Callers that know every module they are about to look up (<i>e.g.</i> the modules of a
+ * stream) can use this to have the registry fetch them in parallel rather than one lookup at a time.
+ */
+public interface PrefetchingModuleRegistry extends ModuleRegistry {
+
+	/**
+	 * Make the modules with the given names, of any type, available for subsequent lookups. Modules that do not
+	 * exist are ignored; failures are not reported here but will surface on lookup.
+	 *
+	 * @param names the module names
+	 */
+	void prefetch(Collection<String> names);
+
+}
@@ -21,10 +21,23 @@ package org.springframework.xd.dirt.module;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 import org.springframework.xd.dirt.core.RuntimeIOException;
 import org.springframework.xd.module.ModuleDefinition;
@@ -41,24 +54,61 @@ import org.springframework.xd.module.SimpleModuleDefinition;
  * backed by HDFS). For such a case, simply use this registry as the main registry, configuring it with the {@code hdfs://} registry as
  * its source and the {@code file://} one as its target.</p>
  *
+ * <p>The local registry is used as a cache keyed by the checksum of each archive: the checksum of every local copy is
+ * remembered, so that a lookup only reads the (small) remote hash file and copies the archive only when that checksum
+ * changes. Copies of different modules proceed concurrently, and lookups returning several modules, as well as
+ * {@link #prefetch(Collection)}, synchronize them in parallel.</p>
+ *
  * @since 1.2
  * @author Eric Bottard
  */
-public class SynchronizingModuleRegistry implements WritableModuleRegistry {
+public class SynchronizingModuleRegistry implements WritableModuleRegistry, PrefetchingModuleRegistry {
+
+	public static final int DEFAULT_SYNCHRONIZATION_THREADS = 4;
+
+	private static final Logger logger = LoggerFactory.getLogger(SynchronizingModuleRegistry.class);
 
 	private final WritableModuleRegistry remoteRegistry;
 
 	private final WritableModuleRegistry localRegistry;
 
-	private final StalenessCheck staleness = new MD5StalenessCheck();
+	private final MD5StalenessCheck staleness = new MD5StalenessCheck();
+
+	/**
+	 * The local copies known to be up to date with a given checksum, keyed by module type and name.
+	 */
+	private final ConcurrentMap<String, LocalCopy> localCopies = new ConcurrentHashMap<String, LocalCopy>();
+
+	/**
+	 * One lock per module, so that a module is never copied twice at the same time while others are copied in parallel.
+	 */
+	private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+	private final ThreadPoolExecutor executor;
 
 	private ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
 
 	public SynchronizingModuleRegistry(WritableModuleRegistry remoteRegistry, WritableModuleRegistry localRegistry) {
+		this(remoteRegistry, localRegistry, DEFAULT_SYNCHRONIZATION_THREADS);
+	}
+
+	/**
+	 * @param remoteRegistry the registry modules are read from
+	 * @param localRegistry the registry modules are copied to
+	 * @param synchronizationThreads the maximum number of modules copied in parallel
+	 */
+	public SynchronizingModuleRegistry(WritableModuleRegistry remoteRegistry, WritableModuleRegistry localRegistry,
+			int synchronizationThreads) {
 		Assert.notNull(remoteRegistry, "remoteRegistry cannot be null");
 		Assert.notNull(localRegistry, "localRegistry cannot be null");
+		Assert.isTrue(synchronizationThreads > 0, "synchronizationThreads must be greater than 0");
 		this.remoteRegistry = remoteRegistry;
 		this.localRegistry = localRegistry;
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("module-synchronization-");
+		threadFactory.setDaemon(true);
+		this.executor = new ThreadPoolExecutor(synchronizationThreads, synchronizationThreads, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), threadFactory);
+		this.executor.allowCoreThreadTimeOut(true);
 	}
 
 
@@ -69,8 +119,7 @@ public class SynchronizingModuleRegistry implements WritableModuleRegistry {
 			return remoteDefinition;
 		}
 
-		copyIfStale((SimpleModuleDefinition) remoteDefinition);
-		return currentLocalDefinition(remoteDefinition);
+		return synchronize((SimpleModuleDefinition) remoteDefinition);
 	}
 
 	@Override
@@ -91,46 +140,142 @@ public class SynchronizingModuleRegistry implements WritableModuleRegistry {
 		return refresh(remoteDefinitions);
 	}
 
+	@Override
+	public void prefetch(Collection<String> names) {
+		List<Future<List<ModuleDefinition>>> futures = new ArrayList<Future<List<ModuleDefinition>>>(names.size());
+		for (final String name : names) {
+			futures.add(executor.submit(new Callable<List<ModuleDefinition>>() {
+
+				@Override
+				public List<ModuleDefinition> call() {
+					List<ModuleDefinition> result = new ArrayList<ModuleDefinition>();
+					for (ModuleDefinition remoteDefinition : remoteRegistry.findDefinitions(name)) {
+						if (!remoteDefinition.isComposed()) {
+							result.add(synchronize((SimpleModuleDefinition) remoteDefinition));
+						}
+					}
+					return result;
+				}
+
+			}));
+		}
+		for (Future<List<ModuleDefinition>> future : futures) {
+			try {
+				await(future);
+			}
+			catch (RuntimeException e) {
+				logger.warn("Failed to prefetch module", e);
+			}
+		}
+	}
+
 	/**
 	 * Return a refreshed list of definitions from the target registry.
 	 */
 	private List<ModuleDefinition> refresh(List<ModuleDefinition> remoteDefinitions) {
+		List<Future<ModuleDefinition>> futures = new ArrayList<Future<ModuleDefinition>>(remoteDefinitions.size());
+		for (final ModuleDefinition remoteDefinition : remoteDefinitions) {
+			if (!remoteDefinition.isComposed()) {
+				futures.add(executor.submit(new Callable<ModuleDefinition>() {
+
+					@Override
+					public ModuleDefinition call() {
+						return synchronize((SimpleModuleDefinition) remoteDefinition);
+					}
+
+				}));
+			}
+		}
+
 		List<ModuleDefinition> result = new ArrayList<ModuleDefinition>(remoteDefinitions.size());
+		int i = 0;
 		for (ModuleDefinition remoteDefinition : remoteDefinitions) {
 			if (remoteDefinition.isComposed()) {
 				result.add(remoteDefinition);
 			}
 			else {
-				copyIfStale((SimpleModuleDefinition) remoteDefinition);
-				result.add(currentLocalDefinition(remoteDefinition));
+				result.add(await(futures.get(i++)));
 			}
 		}
 
 		return result;
 	}
 
+	private <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while synchronizing modules", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Error while synchronizing modules", e.getCause());
+		}
+	}
 
 	/**
-	 * Checks whether the target version of the definition is stale, and if it is, triggers an update (as a deletion then
-	 * new registration).
+	 * Makes sure the target version of the definition is up to date, triggering an update (as a deletion then
+	 * new registration) if it is stale, and returns it.
 	 */
-	private synchronized void copyIfStale(SimpleModuleDefinition remoteDefinition) {
-		ModuleDefinition currentTargetDefinition = currentLocalDefinition(remoteDefinition);
-		SimpleModuleDefinition targetDefinition = (SimpleModuleDefinition) currentTargetDefinition;
-		if (staleness.isStale(targetDefinition, remoteDefinition)) {
-			InputStream is = null;
-			try {
-				is = resolver.getResource(remoteDefinition.getLocation()).getInputStream();
+	private ModuleDefinition synchronize(SimpleModuleDefinition remoteDefinition) {
+		String key = keyFor(remoteDefinition);
+		while (true) {
+			Object lock = lockFor(key);
+			synchronized (lock) {
+				if (locks.get(key) != lock) {
+					// discarded by a concurrent delete
+					continue;
+				}
+				return synchronizeLocked(remoteDefinition, key);
 			}
-			catch (IOException e) {
-				throw new RuntimeIOException("Error while copying module", e);
-			}
-			localRegistry.delete(remoteDefinition);
-			UploadedModuleDefinition definitionToInstall = new UploadedModuleDefinition(remoteDefinition.getName(), remoteDefinition.getType(), is);
-			localRegistry.registerNew(definitionToInstall);
 		}
 	}
 
+	/**
+	 * Synchronizes the definition; the caller holds the lock for its key.
+	 */
+	private ModuleDefinition synchronizeLocked(SimpleModuleDefinition remoteDefinition, String key) {
+		String remoteHash = staleness.readHash(remoteDefinition);
+		LocalCopy localCopy = localCopies.get(key);
+		if (localCopy != null && localCopy.isCurrent(remoteHash)) {
+			return localCopy.definition;
+		}
+
+		SimpleModuleDefinition targetDefinition = (SimpleModuleDefinition) currentLocalDefinition(remoteDefinition);
+		String localHash = targetDefinition == null ? null : staleness.readHash(targetDefinition);
+		if (remoteHash == null || !remoteHash.equals(localHash)) {
+			copy(remoteDefinition);
+			targetDefinition = (SimpleModuleDefinition) currentLocalDefinition(remoteDefinition);
+			localHash = targetDefinition == null ? null : staleness.readHash(targetDefinition);
+		}
+
+		if (remoteHash != null && remoteHash.equals(localHash)) {
+			localCopies.put(key, new LocalCopy(localHash, targetDefinition));
+		}
+		else {
+			// the remote archive changed while being copied, or has no hash: don't trust this copy next time
+			localCopies.remove(key);
+		}
+		return targetDefinition;
+	}
+
+	private void copy(SimpleModuleDefinition remoteDefinition) {
+		InputStream is = null;
+		try {
+			is = resolver.getResource(remoteDefinition.getLocation()).getInputStream();
+		}
+		catch (IOException e) {
+			throw new RuntimeIOException("Error while copying module", e);
+		}
+		localRegistry.delete(remoteDefinition);
+		UploadedModuleDefinition definitionToInstall = new UploadedModuleDefinition(remoteDefinition.getName(), remoteDefinition.getType(), is);
+		localRegistry.registerNew(definitionToInstall);
+	}
+
 	/**
 	 * Returns the current version corresponding to a given module definition, as seen by the local registry.
 	 */
@@ -138,14 +283,62 @@ public class SynchronizingModuleRegistry implements WritableModuleRegistry {
 		return localRegistry.findDefinition(remoteDefinition.getName(), remoteDefinition.getType());
 	}
 
+	private Object lockFor(String key) {
+		Object lock = locks.get(key);
+		if (lock == null) {
+			Object newLock = new Object();
+			lock = locks.putIfAbsent(key, newLock);
+			if (lock == null) {
+				lock = newLock;
+			}
+		}
+		return lock;
+	}
+
+	private static String keyFor(ModuleDefinition definition) {
+		return definition.getType() + "|" + definition.getName();
+	}
+
 
 	@Override
 	public boolean delete(ModuleDefinition definition) {
-		return remoteRegistry.delete(definition);
+		String key = keyFor(definition);
+		Object lock = lockFor(key);
+		synchronized (lock) {
+			localCopies.remove(key);
+			// lookups that were waiting for this lock will take a new one
+			locks.remove(key, lock);
+			return remoteRegistry.delete(definition);
+		}
 	}
 
 	@Override
 	public boolean registerNew(ModuleDefinition definition) {
 		return remoteRegistry.registerNew(definition);
 	}
+
+
+	/**
+	 * A local archive and the checksum it was copied with.
+	 */
+	private class LocalCopy {
+
+		private final String checksum;
+
+		private final SimpleModuleDefinition definition;
+
+		private LocalCopy(String checksum, SimpleModuleDefinition definition) {
+			this.checksum = checksum;
+			this.definition = definition;
+		}
+
+		/**
+		 * Whether this copy matches the given remote checksum and is still present on disk.
+		 */
+		private boolean isCurrent(String remoteChecksum) {
+			return checksum.equals(remoteChecksum) && resolver.getResource(definition.getLocation()).exists();
+		}
+
+	}
+
 }
@@ -50,6 +50,7 @@ import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.ModuleDefinitions;
 import org.springframework.xd.module.ModuleDescriptor;
 import org.springframework.xd.module.ModuleType;
+import org.springframework.xd.module.options.DefaultModuleOptionsMetadataResolver;
 
 /**
  * A service that knows how to handle registration of new module definitions, be it through composition or
@@ -73,6 +74,8 @@ public class ModuleDefinitionService {
 
 	private final JobParser composedJobParser;
 
+	private DefaultModuleOptionsMetadataResolver moduleOptionsMetadataResolver;
+
 	@Autowired
 	public ModuleDefinitionService(WritableModuleRegistry registry, XDStreamParser parser, ModuleDependencyRepository dependencyRepository) {
 		this.registry = registry;
@@ -81,6 +84,14 @@ public class ModuleDefinitionService {
 		this.composedJobParser = new JobParser();
 	}
 
+	/**
+	 * Set the resolver whose cached options metadata should be discarded when a module is deleted or replaced.
+	 */
+	@Autowired(required = false)
+	public void setModuleOptionsMetadataResolver(DefaultModuleOptionsMetadataResolver moduleOptionsMetadataResolver) {
+		this.moduleOptionsMetadataResolver = moduleOptionsMetadataResolver;
+	}
+
 	public ModuleDefinition findDefinition(String name, ModuleType type) {
 		return registry.findDefinition(name, type);
 	}
@@ -222,6 +233,7 @@ public class ModuleDefinitionService {
 					if (!registry.delete(definition)) {
 						throw new ModuleAlreadyExistsException("There is already a module named '%s' with type '%s', and it cannot be updated", name, type);
 					}
+					evictOptionsMetadata(definition);
 				}
 			}
 		}
@@ -240,6 +252,13 @@ public class ModuleDefinitionService {
 
 		boolean result = this.registry.delete(definition);
 		Assert.isTrue(result, String.format("Could not delete module '%s:%s'", type, name));
+		evictOptionsMetadata(definition);
+	}
+
+	private void evictOptionsMetadata(ModuleDefinition definition) {
+		if (moduleOptionsMetadataResolver != null) {
+			moduleOptionsMetadataResolver.evict(definition);
+		}
 	}
 
 	private List<ModuleDefinition> createComposedModuleDefinitions(
@@ -16,14 +16,20 @@
 
 package org.springframework.xd.dirt.plugins.job;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.configuration.ListableJobLocator;
 import org.springframework.batch.core.job.SimpleJob;
 import org.springframework.batch.core.launch.NoSuchJobException;
 import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
 
 /**
@@ -39,6 +45,8 @@ public class DistributedJobLocator implements ListableJobLocator {
 
 	private static final String GET_ALL_RESTARTABLE_JOBS = "SELECT JOB_NAME FROM XD_JOB_REGISTRY WHERE IS_RESTARTABLE='true'";
 
+	private static final String GET_ALL_JOBS = "SELECT JOB_NAME, IS_RESTARTABLE FROM XD_JOB_REGISTRY";
+
 	private static final String JOB_INCREMENTABLE = "SELECT IS_INCREMENTABLE FROM XD_JOB_REGISTRY WHERE JOB_NAME = ?";
 
 	private static final String JOB_RESTARTABLE = "SELECT IS_RESTARTABLE FROM XD_JOB_REGISTRY WHERE JOB_NAME = ?";
@@ -60,8 +68,17 @@ public class DistributedJobLocator implements ListableJobLocator {
 	private static final String DELETE_ALL_STEP_NAMES = "DELETE FROM XD_JOB_REGISTRY_STEP_NAMES";
 
 
+	/**
+	 * Default number of milliseconds the cached registry contents are used for.
+	 */
+	public static final long DEFAULT_CACHE_TIME_TO_LIVE = 5000;
+
 	private JdbcOperations jdbcTemplate;
 
+	private long cacheTimeToLive = DEFAULT_CACHE_TIME_TO_LIVE;
+
+	private volatile CachedRegistry cachedRegistry;
+
 	/**
 	 * Get all the deployed job names.
 	 */
@@ -79,6 +96,57 @@ public class DistributedJobLocator implements ListableJobLocator {
 		return jdbcTemplate.queryForList(GET_ALL_RESTARTABLE_JOBS, String.class);
 	}
 
+	/**
+	 * Get all the deployed job names, as cached for up to {@link #setCacheTimeToLive(long) cacheTimeToLive}
+	 * milliseconds. Meant for read-only views, such as listings, that can tolerate slightly stale results.
+	 *
+	 * @return unmodifiable set of job names.
+	 */
+	public Set<String> getCachedJobNames() {
+		return getCachedRegistry().jobNames;
+	}
+
+	/**
+	 * Get all the deployed job names that can be restarted, as cached for up to
+	 * {@link #setCacheTimeToLive(long) cacheTimeToLive} milliseconds.
+	 *
+	 * @return unmodifiable set of job names.
+	 * @see #getCachedJobNames()
+	 */
+	public Set<String> getCachedRestartableJobs() {
+		return getCachedRegistry().restartableJobs;
+	}
+
+	/**
+	 * Discard the cached registry contents, so that the next call to {@link #getCachedJobNames()} or
+	 * {@link #getCachedRestartableJobs()} reads the registry table. Invoked whenever a job is added to or removed
+	 * from the registry.
+	 */
+	public void invalidateCache() {
+		cachedRegistry = null;
+	}
+
+	private CachedRegistry getCachedRegistry() {
+		CachedRegistry registry = cachedRegistry;
+		if (registry == null || System.currentTimeMillis() - registry.timestamp >= cacheTimeToLive) {
+			final Set<String> jobNames = new HashSet<String>();
+			final Set<String> restartableJobs = new HashSet<String>();
+			jdbcTemplate.query(GET_ALL_JOBS, new RowCallbackHandler() {
+
+				@Override
+				public void processRow(ResultSet rs) throws SQLException {
+					jobNames.add(rs.getString(1));
+					if ("true".equals(rs.getString(2))) {
+						restartableJobs.add(rs.getString(1));
+					}
+				}
+			});
+			registry = new CachedRegistry(jobNames, restartableJobs);
+			cachedRegistry = registry;
+		}
+		return registry;
+	}
+
 	/**
 	 * Get simple batch job representation for the given job name.
 	 *
@@ -139,6 +207,7 @@ public class DistributedJobLocator implements ListableJobLocator {
 		else {
 			updateJobName(name, incrementable, restartable);
 		}
+		invalidateCache();
 	}
 
 	/**
@@ -185,6 +254,7 @@ public class DistributedJobLocator implements ListableJobLocator {
 	protected void deleteJobRegistry(String jobName) {
 		jdbcTemplate.update(DELETE_JOB_REGISTRY, jobName);
 		jdbcTemplate.update(DELETE_STEP_NAMES, jobName);
+		invalidateCache();
 	}
 
 	/**
@@ -193,6 +263,7 @@ public class DistributedJobLocator implements ListableJobLocator {
 	protected void deleteAll() {
 		jdbcTemplate.update(DELETE_ALL_JOB_REGISTRY);
 		jdbcTemplate.update(DELETE_ALL_STEP_NAMES);
+		invalidateCache();
 	}
 
 	/**
@@ -218,4 +289,31 @@ public class DistributedJobLocator implements ListableJobLocator {
 	public void setJdbcTemplate(JdbcOperations jdbcTemplate) {
 		this.jdbcTemplate = jdbcTemplate;
 	}
+
+	/**
+	 * Set the number of milliseconds the results of {@link #getCachedJobNames()} and
+	 * {@link #getCachedRestartableJobs()} are reused for. Jobs added or removed through this locator invalidate them
+	 * immediately; changes made by other processes become visible once they expire.
+	 *
+	 * @param cacheTimeToLive the time to live, in milliseconds; 0 disables caching
+	 */
+	public void setCacheTimeToLive(long cacheTimeToLive) {
+		this.cacheTimeToLive = cacheTimeToLive;
+	}
+
+
+	private static class CachedRegistry {
+
+		private final long timestamp = System.currentTimeMillis();
+
+		private final Set<String> jobNames;
+
+		private final Set<String> restartableJobs;
+
+		private CachedRegistry(Set<String> jobNames, Set<String> restartableJobs) {
+			this.jobNames = Collections.unmodifiableSet(jobNames);
+			this.restartableJobs = Collections.unmodifiableSet(restartableJobs);
+		}
+
+	}
 }
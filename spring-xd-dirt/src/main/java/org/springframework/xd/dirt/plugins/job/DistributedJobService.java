@@ -18,6 +18,7 @@ package org.springframework.xd.dirt.plugins.job;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import org.springframework.batch.admin.service.SearchableJobInstanceDao;
 import org.springframework.batch.admin.service.SearchableStepExecutionDao;
@@ -132,4 +133,33 @@ public class DistributedJobService extends SimpleJobService {
 		return this.xdJdbcSearchableJobExecutionDao.isComposedJobExecution(jobExecutionId);
 	}
 
+	/**
+	 * Load the step executions of all the given {@link JobExecution}s at once.
+	 *
+	 * @param jobExecutions
+	 */
+	public void addStepExecutions(Collection<JobExecution> jobExecutions) {
+		this.xdJdbcSearchableJobExecutionDao.addStepExecutions(jobExecutions);
+	}
+
+	/**
+	 * Determines which of the Job Executions represent a composed job.
+	 *
+	 * @param jobExecutionIds
+	 * @return the ids of the Job Executions that represent a composed job.
+	 */
+	public Set<Long> getComposedJobExecutionIds(Collection<Long> jobExecutionIds) {
+		return this.xdJdbcSearchableJobExecutionDao.getComposedJobExecutionIds(jobExecutionIds);
+	}
+
+	/**
+	 * Determines which of the Job Instances have completed.
+	 *
+	 * @param jobInstanceIds
+	 * @return the ids of the Job Instances that have at least one completed Job Execution.
+	 */
+	public Set<Long> getCompletedJobInstanceIds(Collection<Long> jobInstanceIds) {
+		return this.xdJdbcSearchableJobExecutionDao.getCompletedJobInstanceIds(jobInstanceIds);
+	}
+
 }
@@ -15,17 +15,25 @@
  */
 package org.springframework.xd.dirt.plugins.stream;
 
+import java.util.Map;
+
+import javax.management.ObjectName;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.aop.framework.Advised;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.context.ApplicationContext;
 import org.springframework.integration.channel.AbstractMessageChannel;
+import org.springframework.integration.monitor.IntegrationMBeanExporter;
+import org.springframework.jmx.export.naming.ObjectNamingStrategy;
 import org.springframework.messaging.converter.CompositeMessageConverter;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.MimeType;
 import org.springframework.util.StringUtils;
+import org.springframework.xd.dirt.integration.bus.converter.CachingCompositeMessageConverter;
 import org.springframework.xd.dirt.integration.bus.converter.CompositeMessageConverterFactory;
 import org.springframework.xd.dirt.integration.bus.converter.ConversionException;
 import org.springframework.xd.dirt.integration.bus.converter.MessageConverterUtils;
@@ -113,7 +121,9 @@ public class ModuleTypeConversionSupport {
 			SimpleModule sm = (SimpleModule) module;
 			try {
 				AbstractMessageChannel channel = getChannel(module, true);
-				configureMessageConverters(channel, contentType, sm.getApplicationContext().getClassLoader());
+				CompositeMessageConverter converters = configureMessageConverters(channel, contentType,
+						sm.getApplicationContext().getClassLoader());
+				exportMessageConverters(sm.getApplicationContext(), "inputMessageConverter", converters);
 			}
 			catch (Exception e) {
 				throw new ModuleConfigurationException(e.getMessage(), e);
@@ -136,7 +146,9 @@ public class ModuleTypeConversionSupport {
 			SimpleModule sm = (SimpleModule) module;
 			try {
 				AbstractMessageChannel channel = getChannel(module, false);
-				configureMessageConverters(channel, contentType, sm.getApplicationContext().getClassLoader());
+				CompositeMessageConverter converters = configureMessageConverters(channel, contentType,
+						sm.getApplicationContext().getClassLoader());
+				exportMessageConverters(sm.getApplicationContext(), "outputMessageConverter", converters);
 			}
 			catch (Exception e) {
 				throw new ModuleConfigurationException(e.getMessage(), e);
@@ -146,13 +158,16 @@ public class ModuleTypeConversionSupport {
 
 	/**
 	 * Configure the message converters for the given message channel and content type.
-	 * Detect the data types from the provided class loader.
+	 * Detect the data types from the provided class loader. Each channel gets its own
+	 * {@link org.springframework.xd.dirt.integration.bus.converter.CachingCompositeMessageConverter}, so the
+	 * converter resolved for the channel's first message of a given kind serves all the following ones.
 	 *
 	 * @param channel the message channel to configure the message converters
 	 * @param contentType the content type to use
 	 * @param classLoader the classloader to search the dataType(s) classes
+	 * @return the message converters set on the channel
 	 */
-	public void configureMessageConverters(AbstractMessageChannel channel, MimeType contentType,
+	public CompositeMessageConverter configureMessageConverters(AbstractMessageChannel channel, MimeType contentType,
 			ClassLoader classLoader) {
 		CompositeMessageConverter converters = null;
 		try {
@@ -173,7 +188,30 @@ public class ModuleTypeConversionSupport {
 			channel.setDatatypes(dataType);
 			channel.setMessageConverter(converters);
 		}
+		return converters;
+	}
 
+	/**
+	 * Register a {@link CachingCompositeMessageConverter}, so its cache hit and miss counts are reported along
+	 * with the module's channels, when the module exports MBeans. The module's MBean exporter unregisters it when
+	 * the module is undeployed.
+	 *
+	 * @param context the module's application context
+	 * @param name the name to register the converters under
+	 * @param converters the message converters of one of the module's channels
+	 */
+	private void exportMessageConverters(ApplicationContext context, String name,
+			CompositeMessageConverter converters) throws Exception {
+		if (!(converters instanceof CachingCompositeMessageConverter)) {
+			return;
+		}
+		Map<String, IntegrationMBeanExporter> exporters = context.getBeansOfType(IntegrationMBeanExporter.class);
+		Map<String, ObjectNamingStrategy> namingStrategies = context.getBeansOfType(ObjectNamingStrategy.class);
+		if (exporters.size() != 1 || namingStrategies.size() != 1) {
+			return;
+		}
+		ObjectName objectName = namingStrategies.values().iterator().next().getObjectName(converters, name);
+		exporters.values().iterator().next().registerManagedResource(converters, objectName);
 	}
 
 	// Workaround for when the channel is proxied and can't be cast directly to AbstractMessageChannel
@@ -18,6 +18,7 @@ package org.springframework.xd.dirt.rest;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -29,9 +30,9 @@ import org.springframework.batch.core.JobInstance;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersInvalidException;
 import org.springframework.batch.core.launch.NoSuchJobException;
-import org.springframework.batch.core.repository.dao.StepExecutionDao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.hateoas.ExposesResourceFor;
 import org.springframework.hateoas.PagedResources;
@@ -72,9 +73,6 @@ public class BatchJobExecutionsController extends AbstractBatchJobsController {
 	@Autowired
 	private DistributedJobLocator jobLocator;
 
-	@Autowired
-	private StepExecutionDao stepExecutionDao;
-
 	/**
 	 * List all job executions in a given range. If no pagination is provided,
 	 * the default {@code PageRequest(0, 20)} is passed in. See {@link PageableHandlerMethodArgumentResolver}
@@ -87,22 +85,14 @@ public class BatchJobExecutionsController extends AbstractBatchJobsController {
 	@ResponseStatus(HttpStatus.OK)
 	public PagedResources<JobExecutionInfoResource> list(Pageable pageable) {
 
-		final List<JobExecutionInfoResource> resources = new ArrayList<JobExecutionInfoResource>();
-		final Set<String> restartableJobs = new HashSet<String>(jobLocator.getAllRestartableJobs());
-		final Set<String> deployedJobs = new HashSet<String>(jobLocator.getJobNames());
-		final Set<String> jobDefinitionNames = new HashSet<String>(getJobDefinitionNames());
-
-		for (JobExecution jobExecution : jobService.getTopLevelJobExecutions(pageable.getOffset(),
-				pageable.getPageSize())) {
-
-			stepExecutionDao.addStepExecutions(jobExecution);
-			final JobExecutionInfoResource jobExecutionInfoResource = getJobExecutionInfoResource(jobExecution,
-					restartableJobs, deployedJobs, jobDefinitionNames);
-			boolean isComposed = jobService.isComposedJobExecution(jobExecution.getId());
-			jobExecutionInfoResource.setComposedJob(isComposed);
+		final Set<String> restartableJobs = jobLocator.getCachedRestartableJobs();
+		final Set<String> deployedJobs = jobLocator.getCachedJobNames();
+		final Set<String> jobDefinitionNames = getJobDefinitionNames();
 
-			resources.add(jobExecutionInfoResource);
-		}
+		final List<JobExecution> jobExecutions = new ArrayList<JobExecution>(jobService.getTopLevelJobExecutions(
+				pageable.getOffset(), pageable.getPageSize()));
+		final List<JobExecutionInfoResource> resources = getJobExecutionInfoResources(jobExecutions,
+				restartableJobs, deployedJobs, jobDefinitionNames);
 
 		final PagedResources<JobExecutionInfoResource> pagedResources = new PagedResources<JobExecutionInfoResource>(
 				resources,
@@ -153,38 +143,51 @@ public class BatchJobExecutionsController extends AbstractBatchJobsController {
 	/**
 	 * Get all existing job definition names.
 	 *
-	 * @return the collection of job definition names
+	 * @return the set of job definition names
 	 */
-	private Collection<String> getJobDefinitionNames() {
-		Collection<String> jobDefinitionNames = new ArrayList<String>();
-		Iterable<JobDefinition> jobDefinitions = xdJobDefinitionRepository.findAll();
+	private Set<String> getJobDefinitionNames() {
+		Set<String> jobDefinitionNames = new HashSet<String>();
+		// sorted lookups are served from the repository's cache of definitions
+		Iterable<JobDefinition> jobDefinitions = xdJobDefinitionRepository.findAll(new Sort("name"));
 		for (JobDefinition definition : jobDefinitions) {
 			jobDefinitionNames.add(definition.getName());
 		}
 		return jobDefinitionNames;
 	}
 
+	/**
+	 * Get the ids of the {@link JobInstance}s that have a {@link JobExecution} in {@link BatchStatus#COMPLETED}
+	 * status, among the instances whose restartability depends on it.
+	 *
+	 * @param jobExecutions the jobExecutions to check for
+	 * @param restartableJobs the names of the jobs that can be restarted
+	 * @return the ids of the completed job instances
+	 */
+	private Set<Long> getCompletedJobInstanceIds(List<JobExecution> jobExecutions, Set<String> restartableJobs) {
+		Set<Long> jobInstanceIds = new HashSet<Long>();
+		for (JobExecution jobExecution : jobExecutions) {
+			JobInstance jobInstance = jobExecution.getJobInstance();
+			if (jobExecution.getStatus() != BatchStatus.COMPLETED
+					&& restartableJobs.contains(jobInstance.getJobName())) {
+				jobInstanceIds.add(jobInstance.getId());
+			}
+		}
+		return jobInstanceIds.isEmpty() ? Collections.<Long> emptySet()
+				: jobService.getCompletedJobInstanceIds(jobInstanceIds);
+	}
+
 	/**
 	 * Check if the {@link JobInstance} corresponds to the given {@link JobExecution}
 	 * has any of the JobExecutions in {@link BatchStatus.COMPLETED} status
 	 * @param jobExecution the jobExecution to check for
+	 * @param completedJobInstanceIds the ids of the job instances having a completed execution
 	 * @return boolean flag to set if this job execution can be restarted
 	 */
-	private boolean isJobExecutionRestartable(JobExecution jobExecution) {
-		JobInstance jobInstance = jobExecution.getJobInstance();
-		BatchStatus status = jobExecution.getStatus();
-		try {
-			List<JobExecution> jobExecutionsForJobInstance = (List<JobExecution>) jobService.getJobExecutionsForJobInstance(
-					jobInstance.getJobName(), jobInstance.getId());
-			for (JobExecution jobExecutionForJobInstance : jobExecutionsForJobInstance) {
-				if (jobExecutionForJobInstance.getStatus() == BatchStatus.COMPLETED) {
-					return false;
-				}
-			}
-		}
-		catch (NoSuchJobException e) {
-			throw new NoSuchBatchJobException(jobInstance.getJobName());
+	private boolean isJobExecutionRestartable(JobExecution jobExecution, Set<Long> completedJobInstanceIds) {
+		if (completedJobInstanceIds.contains(jobExecution.getJobInstance().getId())) {
+			return false;
 		}
+		BatchStatus status = jobExecution.getStatus();
 		return status.isGreaterThan(BatchStatus.STOPPING) && status.isLessThan(BatchStatus.ABANDONED);
 	}
 
@@ -206,33 +209,62 @@ public class BatchJobExecutionsController extends AbstractBatchJobsController {
 			throw new NoSuchJobExecutionException(executionId);
 		}
 
-		final Set<String> restartableJobs = new HashSet<String>(jobLocator.getAllRestartableJobs());
-		final Set<String> deployedJobs = new HashSet<String>(jobLocator.getJobNames());
-		final Set<String> jobDefinitionNames = new HashSet<String>(getJobDefinitionNames());
+		final Set<String> restartableJobs = jobLocator.getCachedRestartableJobs();
+		final Set<String> deployedJobs = jobLocator.getCachedJobNames();
+		final Set<String> jobDefinitionNames = getJobDefinitionNames();
 
 		final JobExecutionInfoResource jobExecutionInfoResource = getJobExecutionInfoResource(jobExecution,
-				restartableJobs, deployedJobs, jobDefinitionNames);
+				restartableJobs, deployedJobs, jobDefinitionNames,
+				getCompletedJobInstanceIds(Collections.singletonList(jobExecution), restartableJobs));
 
-		for (JobExecution childJobExecution : jobService.getChildJobExecutions(jobExecution.getId())) {
+		final List<JobExecution> childJobExecutions = new ArrayList<JobExecution>(
+				jobService.getChildJobExecutions(jobExecution.getId()));
+		if (!childJobExecutions.isEmpty()) {
 			jobExecutionInfoResource.setComposedJob(true);
-			stepExecutionDao.addStepExecutions(childJobExecution);
-			final JobExecutionInfoResource childJobExecutionInfoResource = getJobExecutionInfoResource(
-					childJobExecution,
-					restartableJobs, deployedJobs, jobDefinitionNames);
-			boolean isComposed = jobService.isComposedJobExecution(childJobExecution.getId());
-			childJobExecutionInfoResource.setComposedJob(isComposed);
-
-			jobExecutionInfoResource.getChildJobExecutions().add(childJobExecutionInfoResource);
+			jobExecutionInfoResource.getChildJobExecutions().addAll(getJobExecutionInfoResources(childJobExecutions,
+					restartableJobs, deployedJobs, jobDefinitionNames));
 		}
 
 		return jobExecutionInfoResource;
 	}
 
-	private JobExecutionInfoResource getJobExecutionInfoResource(JobExecution jobExecution,
+	/**
+	 * Build the resources for a list of {@link JobExecution}s, loading their step executions, composed job flags and
+	 * restartability with a fixed number of queries rather than a few per execution.
+	 */
+	private List<JobExecutionInfoResource> getJobExecutionInfoResources(List<JobExecution> jobExecutions,
 			Set<String> restartableJobs,
 			Set<String> deployedJobs,
 			Set<String> jobDefinitionNames) {
 
+		final List<JobExecutionInfoResource> resources = new ArrayList<JobExecutionInfoResource>(jobExecutions.size());
+		if (jobExecutions.isEmpty()) {
+			return resources;
+		}
+
+		jobService.addStepExecutions(jobExecutions);
+		final Set<Long> jobExecutionIds = new HashSet<Long>();
+		for (JobExecution jobExecution : jobExecutions) {
+			jobExecutionIds.add(jobExecution.getId());
+		}
+		final Set<Long> composedJobExecutionIds = jobService.getComposedJobExecutionIds(jobExecutionIds);
+		final Set<Long> completedJobInstanceIds = getCompletedJobInstanceIds(jobExecutions, restartableJobs);
+
+		for (JobExecution jobExecution : jobExecutions) {
+			final JobExecutionInfoResource jobExecutionInfoResource = getJobExecutionInfoResource(jobExecution,
+					restartableJobs, deployedJobs, jobDefinitionNames, completedJobInstanceIds);
+			jobExecutionInfoResource.setComposedJob(composedJobExecutionIds.contains(jobExecution.getId()));
+			resources.add(jobExecutionInfoResource);
+		}
+		return resources;
+	}
+
+	private JobExecutionInfoResource getJobExecutionInfoResource(JobExecution jobExecution,
+			Set<String> restartableJobs,
+			Set<String> deployedJobs,
+			Set<String> jobDefinitionNames,
+			Set<Long> completedJobInstanceIds) {
+
 		final JobExecutionInfoResource jobExecutionInfoResource = jobExecutionInfoResourceAssembler.toResource(
 				new JobExecutionInfo(
 						jobExecution,
@@ -245,7 +277,8 @@ public class BatchJobExecutionsController extends AbstractBatchJobsController {
 			// If any one of the jobExecutions for the jobInstance is complete, set the restartable flag for
 			// all the jobExecutions to false.
 			if (jobExecution.getStatus() != BatchStatus.COMPLETED) {
-				jobExecutionInfoResource.setRestartable(isJobExecutionRestartable(jobExecution));
+				jobExecutionInfoResource.setRestartable(isJobExecutionRestartable(jobExecution,
+						completedJobInstanceIds));
 			}
 		}
 		else {
@@ -16,16 +16,6 @@
 
 package org.springframework.xd.dirt.rest;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.StringTokenizer;
-
-import org.codehaus.jettison.json.JSONArray;
-import org.codehaus.jettison.json.JSONException;
-import org.codehaus.jettison.json.JSONObject;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
@@ -37,7 +27,6 @@ import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Controller;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -50,6 +39,7 @@ import org.springframework.xd.dirt.cluster.ModuleMessageRateNotFoundException;
 import org.springframework.xd.dirt.cluster.NoSuchContainerException;
 import org.springframework.xd.dirt.container.store.ContainerRepository;
 import org.springframework.xd.dirt.container.store.DetailedContainer;
+import org.springframework.xd.dirt.container.store.ModuleMessageRateRepository;
 import org.springframework.xd.rest.domain.DetailedContainerResource;
 
 /**
@@ -64,18 +54,11 @@ import org.springframework.xd.rest.domain.DetailedContainerResource;
 @ExposesResourceFor(DetailedContainerResource.class)
 public class ContainersController {
 
-	/**
-	 * Logger.
-	 */
-	private final Logger logger = LoggerFactory.getLogger(this.getClass());
-
 	@Autowired
 	private ContainerRepository containerRepository;
 
 	private ResourceAssemblerSupport<DetailedContainer, DetailedContainerResource> resourceAssembler = new RuntimeContainerResourceAssembler();
 
-	private RestTemplate restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
-
 	@Value("${management.contextPath:/management}")
 	private String managementContextPath;
 
@@ -86,15 +69,13 @@ public class ContainersController {
 
 	private final static String SHUTDOWN_ENDPOINT = "/shutdown";
 
-	private final static String JOLOKIA_XD_MODULE_MBEAN_URL = "/management/jolokia/read/xd.*:module=*,component=*,name=*";
-
-	private final static String INPUT_CHANNEL_NAME = "input";
-
-	private final static String OUTPUT_CHANNEL_NAME = "output";
+	private final ModuleMessageRateRepository messageRateRepository;
 
 	@Autowired
-	public ContainersController(ContainerRepository containerRepository) {
+	public ContainersController(ContainerRepository containerRepository,
+			ModuleMessageRateRepository messageRateRepository) {
 		this.containerRepository = containerRepository;
+		this.messageRateRepository = messageRateRepository;
 	}
 
 	/**
@@ -102,7 +83,6 @@ public class ContainersController {
 	 * each deployed modules.
 	 *
 	 * @throws ModuleMessageRateNotFoundException
-	 * @throws JSONException
 	 */
 	@RequestMapping(value = "", method = RequestMethod.GET)
 	@ResponseStatus(HttpStatus.OK)
@@ -119,56 +99,14 @@ public class ContainersController {
 	}
 
 	/**
-	 * Set the message rates of all the deployed modules in the given container.
+	 * Set the message rates of all the deployed modules in the given container, as last published by the
+	 * container.
 	 *
 	 * @param container the container to set the message rates
 	 */
 	private void setMessageRates(DetailedContainer container) {
-		String containerHost = container.getAttributes().getIp();
-		String containerManagementPort = container.getAttributes().getManagementPort();
-		if (StringUtils.hasText(containerManagementPort) && enableMessageRates.equalsIgnoreCase("true")) {
-			Map<String, HashMap<String, Double>> messageRates = new HashMap<String, HashMap<String, Double>>();
-			String request = String.format("%s%s:%s%s", CONTAINER_HOST_URI_PROTOCOL, containerHost,
-					containerManagementPort, JOLOKIA_XD_MODULE_MBEAN_URL);
-			try {
-				String response = restTemplate.getForObject(request, String.class).toString();
-				JSONObject jObject = new JSONObject(response);
-				JSONObject value = jObject.getJSONObject("value");
-				JSONArray jsonArray = value.names();
-				// iterate over each module MBean
-				for (int i = 0; i < jsonArray.length(); i++) {
-					String mbeanKey = (String) jsonArray.get(i);
-					StringTokenizer tokenizer = new StringTokenizer(mbeanKey, ",");
-					if (mbeanKey.contains("component=MessageChannel")
-							&& (mbeanKey.contains("name=" + INPUT_CHANNEL_NAME)
-									|| mbeanKey.contains("name=" + OUTPUT_CHANNEL_NAME))) {
-						while (tokenizer.hasMoreElements()) {
-							String element = (String) tokenizer.nextElement();
-							if (element.startsWith("module=")) {
-								String key = String.format("%s", element.substring(element.indexOf("=") + 1));
-								HashMap<String, Double> rate = (messageRates.get(key) != null) ? messageRates.get(key)
-										: new HashMap<String, Double>();
-								Double rateValue = (Double) value.getJSONObject((String) jsonArray.get(i)).get(
-										"MeanSendRate");
-								if (mbeanKey.contains("name=" + INPUT_CHANNEL_NAME)) {
-									rate.put(INPUT_CHANNEL_NAME, rateValue);
-								}
-								else if (mbeanKey.contains("name=" + OUTPUT_CHANNEL_NAME)) {
-									rate.put(OUTPUT_CHANNEL_NAME, rateValue);
-								}
-								messageRates.put(key, rate);
-							}
-						}
-					}
-				}
-				container.setMessageRates(messageRates);
-			}
-			catch (RestClientException e) {
-				logger.warn(String.format("Error getting message rate metrics for %s", container.getName()), e);
-			}
-			catch (JSONException jse) {
-				logger.warn(String.format("Error getting message rate metrics for %s", container.getName()), jse);
-			}
+		if (enableMessageRates.equalsIgnoreCase("true")) {
+			container.setMessageRates(messageRateRepository.findByContainerId(container.getName()));
 		}
 	}
 
@@ -25,11 +25,16 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.ImportResource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.integration.codec.Codec;
 import org.springframework.integration.codec.kryo.FileKryoRegistrar;
 import org.springframework.integration.codec.kryo.KryoRegistrar;
 import org.springframework.integration.codec.kryo.PojoCodec;
+import org.springframework.xd.dirt.integration.bus.ZooKeeperTupleSchemaRegistry;
 import org.springframework.xd.dirt.util.ConfigLocations;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+import org.springframework.xd.tuple.serializer.kryo.InMemoryTupleSchemaRegistry;
 import org.springframework.xd.tuple.serializer.kryo.TupleKryoRegistrar;
 
 /**
@@ -44,9 +49,15 @@ public class MessageBusExtensionsConfiguration {
 	@Autowired
 	ApplicationContext applicationContext;
 
+	@Autowired(required = false)
+	private ZooKeeperConnection zkConnection;
+
 	@Value("${xd.codec.kryo.references}")
 	private boolean useReferences;
 
+	@Value("${xd.codec.kryo.tupleSchemas:false}")
+	private boolean useTupleSchemas;
+
 	@Bean
 	@ConditionalOnMissingBean(name = "codec")
 	public Codec codec() {
@@ -60,8 +71,19 @@ public class MessageBusExtensionsConfiguration {
 		return new FileKryoRegistrar();
 	}
 
+	/**
+	 * The schema registry is always installed so that compact tuples can be read whatever the value of
+	 * {@code xd.codec.kryo.tupleSchemas}, which only controls whether tuples are written compactly. Schemas are
+	 * registered in ZooKeeper on a separate thread so that encoding never waits for ZooKeeper.
+	 */
 	@Bean
 	public KryoRegistrar tupleRegistrar() {
-		return new TupleKryoRegistrar();
+		if (zkConnection == null) {
+			return new TupleKryoRegistrar(new InMemoryTupleSchemaRegistry(), useTupleSchemas, new SyncTaskExecutor());
+		}
+		SimpleAsyncTaskExecutor registrationExecutor = new SimpleAsyncTaskExecutor("tuple-schema-registration-");
+		registrationExecutor.setDaemon(true);
+		return new TupleKryoRegistrar(new ZooKeeperTupleSchemaRegistry(zkConnection), useTupleSchemas,
+				registrationExecutor);
 	}
 }
@@ -16,6 +16,7 @@
 
 package org.springframework.xd.dirt.server;
 
+import java.util.Collections;
 import java.util.Properties;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,7 +33,11 @@ import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.PropertiesPropertySource;
 import org.springframework.integration.config.EnableIntegration;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
 import org.springframework.util.StringUtils;
+import org.springframework.xd.dirt.integration.bus.MessageBus;
+import org.springframework.xd.dirt.integration.bus.MessageBusSupport;
 import org.springframework.xd.dirt.util.ConfigLocations;
 import org.springframework.xd.dirt.util.XdProfiles;
 import org.springframework.xd.dirt.zookeeper.EmbeddedZooKeeper;
@@ -63,6 +68,25 @@ public class SharedServerContextConfiguration {
 
 	public static final String ZK_PROPERTIES_SOURCE = "zk-properties";
 
+	public static final String SERIALIZATION_BUFFER_POOL_OBJECT_NAME =
+			"xd.messagebus:type=SerializationBufferPool,name=serializationBufferPool";
+
+	/**
+	 * Export the statistics of the message bus' serialization buffers when JMX is enabled. Only the pool is
+	 * exported; other beans of this context are left alone.
+	 */
+	@Bean
+	@ConditionalOnExpression("${XD_JMX_ENABLED:false}")
+	public MBeanExporter messageBusMBeanExporter(MessageBus messageBus) {
+		AnnotationMBeanExporter exporter = new AnnotationMBeanExporter();
+		exporter.setAutodetect(false);
+		if (messageBus instanceof MessageBusSupport) {
+			exporter.setBeans(Collections.<String, Object> singletonMap(SERIALIZATION_BUFFER_POOL_OBJECT_NAME,
+					((MessageBusSupport) messageBus).getSerializationBufferPool()));
+		}
+		return exporter;
+	}
+
 	@Configuration
 	@Profile(XdProfiles.SINGLENODE_PROFILE)
 	static class SingleNodeZooKeeperConfig extends ZookeeperConnectionConfig {
@@ -52,8 +52,9 @@ import org.springframework.xd.module.ModuleDescriptor;
  * count of 0 indicates that all containers for which the criteria evaluates to {@code true} should deploy the module.
  * If no criteria expression is specified, all containers will deploy the module.
  * <p/>
- * In cases where all containers are not deploying a module, an attempt at container round robin distribution for module
- * deployments will be made (but not guaranteed).
+ * In cases where all containers are not deploying a module, the containers are chosen by a
+ * {@link ContainerPlacementStrategy}; by default, a {@link LeastLoadedPlacementStrategy} that favors the containers
+ * reporting the lowest load.
  *
  * @author Patrick Peralta
  * @author Mark Fisher
@@ -67,11 +68,6 @@ public class ContainerMatcher {
 	 */
 	private static final Logger logger = LoggerFactory.getLogger(ContainerMatcher.class);
 
-	/**
-	 * Current index for iterating over containers.
-	 */
-	private int index;
-
 	/**
 	 * Parser for criteria expressions.
 	 */
@@ -87,6 +83,11 @@ public class ContainerMatcher {
 	 */
 	private final Collection<ContainerFilter> containerFilters;
 
+	/**
+	 * Strategy used to select containers when fewer module instances than candidates are requested.
+	 */
+	private volatile ContainerPlacementStrategy placementStrategy = new LeastLoadedPlacementStrategy();
+
 
 	/**
 	 * Creates a container matcher instance and prepares the SpEL evaluation context to support Map properties directly.
@@ -106,6 +107,16 @@ public class ContainerMatcher {
 		evaluationContext.addPropertyAccessor(new MapAccessor());
 	}
 
+	/**
+	 * Set the strategy used to select containers when fewer module instances than candidates are requested.
+	 *
+	 * @param placementStrategy the placement strategy
+	 */
+	public void setPlacementStrategy(ContainerPlacementStrategy placementStrategy) {
+		Assert.notNull(placementStrategy, "'placementStrategy' cannot be null.");
+		this.placementStrategy = placementStrategy;
+	}
+
 
 	/**
 	 * Matches the provided module against one of the candidate containers.
@@ -132,7 +143,7 @@ public class ContainerMatcher {
 			logger.warn("No currently available containers match deployment criteria '{}' for module '{}'.", criteria,
 					moduleDescriptor.getModuleName());
 		}
-		return distributeForRequestedCount(results, deploymentProperties.getCount());
+		return distributeForRequestedCount(moduleDescriptor, results, deploymentProperties.getCount());
 	}
 
 	/**
@@ -150,15 +161,17 @@ public class ContainerMatcher {
 	}
 
 	/**
-	 * Select a subset of containers to satisfy the requested number of module instances using a round robin
-	 * distribution for successive calls. A count of 0 means all members that matched the criteria expression. count >=
-	 * candidates means each of the candidates should host a module.
+	 * Select a subset of containers to satisfy the requested number of module instances using the
+	 * {@link ContainerPlacementStrategy}. A count of 0 means all members that matched the criteria expression.
+	 * count >= candidates means each of the candidates should host a module.
 	 *
+	 * @param moduleDescriptor the module descriptor for the module
 	 * @param candidates the list of available containers that match the selection criteria
 	 * @param count the requested number of module instances to deploy
 	 * @return a subset of candidates <= count
 	 */
-	private Collection<Container> distributeForRequestedCount(List<Container> candidates, int count) {
+	private Collection<Container> distributeForRequestedCount(ModuleDescriptor moduleDescriptor,
+			List<Container> candidates, int count) {
 		int candidateCount = candidates.size();
 		if (candidateCount == 0) {
 			return candidates;
@@ -168,17 +181,8 @@ public class ContainerMatcher {
 
 			return candidates;
 		}
-		else if (count == 1) {
-			return Collections.singleton(candidates.get(getAndRotateIndex(candidateCount)));
-		}
 		else {
-			// create a new list with the specific number of targeted containers;
-			List<Container> targets = new ArrayList<Container>();
-			while (targets.size() < count) {
-				targets.add(candidates.get(getAndRotateIndex(candidateCount)));
-
-			}
-			return targets;
+			return placementStrategy.select(moduleDescriptor, candidates, count);
 		}
 	}
 
@@ -232,19 +236,4 @@ public class ContainerMatcher {
 		}
 	}
 
-	/**
-	 * Rotate the cached index over the number of available containers.
-	 *
-	 * @param availableContainerCount the number of available containers
-	 * @return the current count before rotating
-	 */
-	private synchronized int getAndRotateIndex(int availableContainerCount) {
-		if (availableContainerCount <= 0) {
-			return 0;
-		}
-		int i = index % availableContainerCount;
-		index = i + 1;
-		return i;
-	}
-
 }
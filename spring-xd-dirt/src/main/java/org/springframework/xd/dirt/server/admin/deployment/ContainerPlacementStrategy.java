@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server.admin.deployment;
+
+import java.util.List;
+
+import org.springframework.xd.dirt.cluster.Container;
+import org.springframework.xd.module.ModuleDescriptor;
+
+/**
+ * Strategy used by {@link ContainerMatcher} to choose which of the containers that satisfy a module's
+ * deployment criteria should host its instances, when fewer instances than candidates are requested.
+ * Implementations should be deterministic for a given sequence of calls so that they can be unit tested.
+ */
+public interface ContainerPlacementStrategy {
+
+	/**
+	 * Select the containers to deploy a module to.
+	 *
+	 * @param moduleDescriptor the module to deploy
+	 * @param candidates       the containers that may host the module; never empty
+	 * @param count            the number of containers to select; greater than 0 and less than the
+	 *                         number of candidates
+	 * @return the selected containers, in order of preference
+	 */
+	List<Container> select(ModuleDescriptor moduleDescriptor, List<Container> candidates, int count);
+
+}
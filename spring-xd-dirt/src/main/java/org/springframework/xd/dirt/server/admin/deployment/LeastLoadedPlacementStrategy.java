@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server.admin.deployment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.cluster.Container;
+import org.springframework.xd.dirt.cluster.ContainerAttributes;
+import org.springframework.xd.module.ModuleDescriptor;
+
+/**
+ * {@link ContainerPlacementStrategy} that selects the least loaded candidates, based on the load attributes
+ * that containers publish into their {@link ContainerAttributes}:
+ * <ul>
+ * <li>{@value ContainerAttributes#CPU_LOAD_KEY} and {@value ContainerAttributes#HEAP_USAGE_KEY}, already
+ * between 0 and 1;</li>
+ * <li>{@value ContainerAttributes#MODULE_COUNT_KEY} and {@value ContainerAttributes#MESSAGE_RATE_KEY},
+ * divided by the largest value among the candidates.</li>
+ * </ul>
+ * The weighted sum of these terms is the container's score, and the candidates with the lowest scores are
+ * selected. Ties are broken by the order of the candidates.
+ * <p/>
+ * Published attributes lag behind deployments, so this strategy also counts the modules it has placed on
+ * each container since that container last published its load, and adds them to its module count. When no
+ * container publishes load attributes, this makes placement equivalent to round robin.
+ */
+public class LeastLoadedPlacementStrategy implements ContainerPlacementStrategy {
+
+	/**
+	 * Upper bound on the number of containers for which placements are remembered; the least recently used
+	 * entries (typically departed containers) are dropped first.
+	 */
+	private static final int MAX_TRACKED_CONTAINERS = 1024;
+
+	private double cpuLoadWeight = 1.0;
+
+	private double heapUsageWeight = 0.5;
+
+	private double moduleCountWeight = 1.0;
+
+	private double messageRateWeight = 1.0;
+
+	/**
+	 * Placements made since each container last published its load, by container name.
+	 */
+	@SuppressWarnings("serial")
+	private final Map<String, Placements> placements = new LinkedHashMap<String, Placements>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Placements> eldest) {
+			return size() > MAX_TRACKED_CONTAINERS;
+		}
+
+	};
+
+	public void setCpuLoadWeight(double cpuLoadWeight) {
+		Assert.isTrue(cpuLoadWeight >= 0, "'cpuLoadWeight' cannot be negative");
+		this.cpuLoadWeight = cpuLoadWeight;
+	}
+
+	public void setHeapUsageWeight(double heapUsageWeight) {
+		Assert.isTrue(heapUsageWeight >= 0, "'heapUsageWeight' cannot be negative");
+		this.heapUsageWeight = heapUsageWeight;
+	}
+
+	public void setModuleCountWeight(double moduleCountWeight) {
+		Assert.isTrue(moduleCountWeight >= 0, "'moduleCountWeight' cannot be negative");
+		this.moduleCountWeight = moduleCountWeight;
+	}
+
+	public void setMessageRateWeight(double messageRateWeight) {
+		Assert.isTrue(messageRateWeight >= 0, "'messageRateWeight' cannot be negative");
+		this.messageRateWeight = messageRateWeight;
+	}
+
+	@Override
+	public synchronized List<Container> select(ModuleDescriptor moduleDescriptor, List<Container> candidates,
+			int count) {
+		List<ScoredContainer> scored = score(candidates);
+		// stable, so equally loaded containers keep the candidates' order
+		Collections.sort(scored);
+		List<Container> selected = new ArrayList<Container>(count);
+		for (int i = 0; i < count; i++) {
+			ScoredContainer target = scored.get(i);
+			target.placements.count++;
+			selected.add(target.container);
+		}
+		return selected;
+	}
+
+	/**
+	 * Compute the score of each candidate; lower is better.
+	 *
+	 * @param candidates the candidate containers
+	 * @return the scored candidates, in the same order
+	 */
+	private List<ScoredContainer> score(List<Container> candidates) {
+		List<ScoredContainer> scored = new ArrayList<ScoredContainer>(candidates.size());
+		double maxModuleCount = 0;
+		double maxMessageRate = 0;
+		for (Container container : candidates) {
+			ScoredContainer candidate = new ScoredContainer(container, placementsFor(container));
+			maxModuleCount = Math.max(maxModuleCount, candidate.moduleCount());
+			maxMessageRate = Math.max(maxMessageRate, candidate.messageRate);
+			scored.add(candidate);
+		}
+		for (ScoredContainer candidate : scored) {
+			double score = cpuLoadWeight * candidate.cpuLoad + heapUsageWeight * candidate.heapUsage;
+			if (maxModuleCount > 0) {
+				score += moduleCountWeight * candidate.moduleCount() / maxModuleCount;
+			}
+			if (maxMessageRate > 0) {
+				score += messageRateWeight * candidate.messageRate / maxMessageRate;
+			}
+			candidate.score = score;
+		}
+		return scored;
+	}
+
+	/**
+	 * Return the placements tracked for the container, discarding them if the container has published its
+	 * load since they were made.
+	 */
+	private Placements placementsFor(Container container) {
+		String loadTimestamp = container.getAttributes().get(ContainerAttributes.LOAD_TIMESTAMP_KEY);
+		Placements tracked = placements.get(container.getName());
+		if (tracked == null) {
+			tracked = new Placements();
+			placements.put(container.getName(), tracked);
+		}
+		else if (loadTimestamp != null && !loadTimestamp.equals(tracked.loadTimestamp)) {
+			tracked.count = 0;
+		}
+		tracked.loadTimestamp = loadTimestamp;
+		return tracked;
+	}
+
+	private static double attribute(Container container, String key, double max) {
+		String value = container.getAttributes().get(key);
+		if (value == null) {
+			return 0;
+		}
+		try {
+			double parsed = Double.parseDouble(value);
+			return Double.isNaN(parsed) ? 0 : Math.min(Math.max(parsed, 0), max);
+		}
+		catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+
+	/**
+	 * Modules placed on a container since it last published its load.
+	 */
+	private static class Placements {
+
+		private String loadTimestamp;
+
+		private int count;
+
+	}
+
+	/**
+	 * A candidate container with its load and score.
+	 */
+	private static class ScoredContainer implements Comparable<ScoredContainer> {
+
+		final Container container;
+
+		final double cpuLoad;
+
+		final double heapUsage;
+
+		final double publishedModuleCount;
+
+		final double messageRate;
+
+		private final Placements placements;
+
+		double score;
+
+		private ScoredContainer(Container container, Placements placements) {
+			this.container = container;
+			this.placements = placements;
+			this.cpuLoad = attribute(container, ContainerAttributes.CPU_LOAD_KEY, 1);
+			this.heapUsage = attribute(container, ContainerAttributes.HEAP_USAGE_KEY, 1);
+			this.publishedModuleCount = attribute(container, ContainerAttributes.MODULE_COUNT_KEY,
+					Double.MAX_VALUE);
+			this.messageRate = attribute(container, ContainerAttributes.MESSAGE_RATE_KEY, Double.MAX_VALUE);
+		}
+
+		double moduleCount() {
+			return publishedModuleCount + placements.count;
+		}
+
+		@Override
+		public int compareTo(ScoredContainer other) {
+			return Double.compare(this.score, other.score);
+		}
+
+		@Override
+		public String toString() {
+			return container.getName() + "=" + score;
+		}
+
+	}
+
+}
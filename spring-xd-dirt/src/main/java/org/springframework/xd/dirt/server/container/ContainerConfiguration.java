@@ -17,6 +17,7 @@
 package org.springframework.xd.dirt.server.container;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.autoconfigure.AuditAutoConfiguration;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.batch.BatchAutoConfiguration;
@@ -31,6 +32,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.event.SourceFilteringListener;
 import org.springframework.xd.dirt.cluster.ContainerAttributes;
 import org.springframework.xd.dirt.container.store.ContainerRepository;
+import org.springframework.xd.dirt.container.store.ModuleMessageRateRepository;
 import org.springframework.xd.dirt.job.JobFactory;
 import org.springframework.xd.dirt.module.ModuleDeployer;
 import org.springframework.xd.dirt.module.ModuleRegistry;
@@ -88,6 +90,18 @@ public class ContainerConfiguration {
 	@Autowired
 	private ZooKeeperConnection zooKeeperConnection;
 
+	@Autowired
+	private ModuleMessageRateRepository moduleMessageRateRepository;
+
+	@Value("${xd.containerLoad.publishInterval:10000}")
+	private long containerLoadPublishInterval;
+
+	@Value("${xd.messageRateMonitoring.enabled:false}")
+	private boolean messageRateMonitoringEnabled;
+
+	@Value("${xd.moduleDeployment.threads:4}")
+	private int moduleDeploymentThreads;
+
 	@Bean
 	public ApplicationListener<?> xdInitializer(ApplicationContext context) {
 		XdConfigLoggingInitializer delegate = new XdConfigLoggingInitializer(true);
@@ -114,16 +128,28 @@ public class ContainerConfiguration {
 				containerRepository, deploymentListener());
 	}
 
+	@Bean
+	public ContainerLoadPublisher containerLoadPublisher() {
+		ContainerLoadPublisher publisher = new ContainerLoadPublisher(zooKeeperConnection, containerAttributes,
+				containerRepository, moduleDeployer, containerLoadPublishInterval);
+		if (messageRateMonitoringEnabled) {
+			publisher.setMessageRateRepository(moduleMessageRateRepository);
+		}
+		return publisher;
+	}
+
 	@Bean
 	public DeploymentListener deploymentListener() {
 		initializeZooKeeperConnection();
 		StreamFactory streamFactory = new StreamFactory(streamDefinitionRepository, moduleRegistry,
 				moduleOptionsMetadataResolver);
+		// the container is about to load the module archives, so fetch them all at once
+		streamFactory.setPrefetchModules(true);
 
 		JobFactory jobFactory = new JobFactory(jobDefinitionRepository, moduleRegistry,
 				moduleOptionsMetadataResolver);
 		return new DeploymentListener(zooKeeperConnection, moduleDeployer, containerAttributes, jobFactory,
-				streamFactory);
+				streamFactory, moduleDeploymentThreads);
 	}
 
 	private void initializeZooKeeperConnection() {
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server.container;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.integration.support.management.MessageChannelMetrics;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.cluster.Container;
+import org.springframework.xd.dirt.cluster.ContainerAttributes;
+import org.springframework.xd.dirt.container.store.ContainerRepository;
+import org.springframework.xd.dirt.container.store.ModuleMessageRateRepository;
+import org.springframework.xd.dirt.module.ModuleDeployer;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+import org.springframework.xd.module.ModuleDescriptor;
+import org.springframework.xd.module.RuntimeModuleDeploymentProperties;
+import org.springframework.xd.module.core.Module;
+
+/**
+ * Periodically samples the load of this container and publishes it in the container's
+ * {@link ContainerAttributes}, where the admin's
+ * {@link org.springframework.xd.dirt.server.admin.deployment.LeastLoadedPlacementStrategy} reads it when
+ * placing modules. The published attributes are the process CPU load, the heap usage, the number of deployed
+ * modules and the sum of their mean message rates. When a {@link ModuleMessageRateRepository} is set, the
+ * rates of the input and output channels of each module are also saved there, for the admin to serve.
+ * <p/>
+ * Message rates are only available when channel statistics are enabled, which is the case when JMX is
+ * enabled for the container.
+ */
+public class ContainerLoadPublisher implements InitializingBean, DisposableBean {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(ContainerLoadPublisher.class);
+
+	private static final String INPUT_CHANNEL_NAME = "input";
+
+	private static final String OUTPUT_CHANNEL_NAME = "output";
+
+	private final ZooKeeperConnection zkConnection;
+
+	private final ContainerAttributes containerAttributes;
+
+	private final ContainerRepository containerRepository;
+
+	private final ModuleDeployer moduleDeployer;
+
+	private final OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+
+	private final long publishInterval;
+
+	private volatile ModuleMessageRateRepository messageRateRepository;
+
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * @param zkConnection        ZooKeeper connection
+	 * @param containerAttributes runtime and configured attributes for the container
+	 * @param containerRepository repository for the containers
+	 * @param moduleDeployer      module deployer, for the deployed modules
+	 * @param publishInterval     interval, in milliseconds, between publications; 0 disables publishing
+	 */
+	public ContainerLoadPublisher(ZooKeeperConnection zkConnection, ContainerAttributes containerAttributes,
+			ContainerRepository containerRepository, ModuleDeployer moduleDeployer, long publishInterval) {
+		Assert.isTrue(publishInterval >= 0, "'publishInterval' cannot be negative");
+		this.zkConnection = zkConnection;
+		this.containerAttributes = containerAttributes;
+		this.containerRepository = containerRepository;
+		this.moduleDeployer = moduleDeployer;
+		this.publishInterval = publishInterval;
+	}
+
+	/**
+	 * @param messageRateRepository the repository to save the message rates of each module to; if not set,
+	 * only the container's total rate is published
+	 */
+	public void setMessageRateRepository(ModuleMessageRateRepository messageRateRepository) {
+		this.messageRateRepository = messageRateRepository;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.publishInterval == 0) {
+			return;
+		}
+		// sample once so the initial registration already carries the load attributes
+		synchronized (containerAttributes) {
+			sample();
+		}
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("container-load-");
+		threadFactory.setDaemon(true);
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		this.scheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					publish();
+				}
+				catch (RuntimeException e) {
+					logger.warn("Failed to publish container load", e);
+				}
+			}
+
+		}, this.publishInterval, this.publishInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Sample the container load and, if the container is registered, write it to ZooKeeper.
+	 */
+	void publish() {
+		Map<String, HashMap<String, Double>> moduleRates;
+		String containerId;
+		boolean registered;
+		synchronized (containerAttributes) {
+			// as in ContainerRegistrar, reading the attributes and writing
+			// the container node must be atomic
+			moduleRates = sample();
+			containerId = containerAttributes.getId();
+			registered = zkConnection.isConnected() && containerRepository.exists(containerId);
+			if (registered) {
+				containerRepository.update(new Container(containerId, containerAttributes));
+			}
+		}
+		ModuleMessageRateRepository messageRateRepository = this.messageRateRepository;
+		if (registered && messageRateRepository != null) {
+			messageRateRepository.save(containerId, moduleRates);
+		}
+	}
+
+	/**
+	 * Update the load attributes.
+	 *
+	 * @return the message rates of each module, by channel name
+	 */
+	private Map<String, HashMap<String, Double>> sample() {
+		Map<String, Map<Integer, Module>> deployedModules = moduleDeployer.getDeployedModules();
+		Map<String, HashMap<String, Double>> moduleRates = new HashMap<String, HashMap<String, Double>>();
+		int moduleCount = 0;
+		double messageRate = 0;
+		for (Map<Integer, Module> modules : deployedModules.values()) {
+			moduleCount += modules.size();
+			for (Module module : modules.values()) {
+				HashMap<String, Double> channelRates = channelRates(module);
+				if (!channelRates.isEmpty()) {
+					moduleRates.put(moduleKey(module), channelRates);
+					// count each message once, where it enters the module (or leaves a source)
+					Double rate = channelRates.containsKey(INPUT_CHANNEL_NAME) ? channelRates.get(INPUT_CHANNEL_NAME)
+							: channelRates.get(OUTPUT_CHANNEL_NAME);
+					messageRate += rate;
+				}
+			}
+		}
+		containerAttributes.put(ContainerAttributes.CPU_LOAD_KEY, format(cpuLoad()));
+		containerAttributes.put(ContainerAttributes.HEAP_USAGE_KEY, format(heapUsage()));
+		containerAttributes.put(ContainerAttributes.MODULE_COUNT_KEY, String.valueOf(moduleCount));
+		containerAttributes.put(ContainerAttributes.MESSAGE_RATE_KEY, format(messageRate));
+		containerAttributes.put(ContainerAttributes.LOAD_TIMESTAMP_KEY, String.valueOf(System.currentTimeMillis()));
+		return moduleRates;
+	}
+
+	/**
+	 * @return the process CPU load if the JVM reports it, otherwise the system load average per processor;
+	 * between 0 and 1.
+	 */
+	private double cpuLoad() {
+		double load = -1;
+		if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean) {
+			load = ((com.sun.management.OperatingSystemMXBean) operatingSystem).getProcessCpuLoad();
+		}
+		if (load < 0) {
+			load = operatingSystem.getSystemLoadAverage() / operatingSystem.getAvailableProcessors();
+		}
+		return Math.min(Math.max(load, 0), 1);
+	}
+
+	private double heapUsage() {
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		long max = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+		return max > 0 ? (double) heap.getUsed() / max : 0;
+	}
+
+	/**
+	 * @return the mean send rates of the module's input and output channels, by channel name.
+	 */
+	private HashMap<String, Double> channelRates(Module module) {
+		HashMap<String, Double> rates = new HashMap<String, Double>();
+		for (String channelName : new String[] { INPUT_CHANNEL_NAME, OUTPUT_CHANNEL_NAME }) {
+			try {
+				MessageChannelMetrics channel = module.getComponent(channelName, MessageChannelMetrics.class);
+				if (channel != null) {
+					rates.put(channelName, channel.getMeanSendRate());
+				}
+			}
+			catch (BeansException e) {
+				logger.debug("Could not read the message rate of channel {} in module {}", channelName, module, e);
+			}
+		}
+		return rates;
+	}
+
+	/**
+	 * @return the key for the module's rates; the same as the {@code module} key of its MBean names.
+	 */
+	private String moduleKey(Module module) {
+		ModuleDescriptor descriptor = module.getDescriptor();
+		return descriptor.getGroup() + "." + descriptor.getType() + "." + descriptor.getModuleLabel() + "."
+				+ module.getDeploymentProperties().get(RuntimeModuleDeploymentProperties.SEQUENCE_KEY);
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+
+	@Override
+	public void destroy() {
+		if (this.scheduler != null) {
+			this.scheduler.shutdownNow();
+		}
+	}
+
+}
@@ -16,11 +16,20 @@
 
 package org.springframework.xd.dirt.server.container;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.CuratorWatcher;
@@ -28,6 +37,7 @@ import org.apache.curator.framework.imps.CuratorFrameworkState;
 import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
+import org.apache.curator.utils.ThreadUtils;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.WatchedEvent;
@@ -35,6 +45,7 @@ import org.apache.zookeeper.Watcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.util.CollectionUtils;
 import org.springframework.xd.dirt.cluster.ContainerAttributes;
 import org.springframework.xd.dirt.core.Job;
@@ -60,9 +71,10 @@ import org.springframework.xd.module.core.Module;
  * @author Mark Fisher
  * @author David Turanski
  * @author Ilayaperumal Gopinathan Listener for deployment requests for a container instance under {@link
- *         org.springframework.xd.dirt.zookeeper.Paths#DEPLOYMENTS}.
+ *         org.springframework.xd.dirt.zookeeper.Paths#DEPLOYMENTS}. Requests are handled on a bounded pool of
+ *         threads; those for the same stream or job are handled one at a time, in the order they arrive.
  */
-class DeploymentListener implements PathChildrenCacheListener {
+class DeploymentListener implements PathChildrenCacheListener, DisposableBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(DeploymentListener.class);
 
@@ -106,12 +118,27 @@ class DeploymentListener implements PathChildrenCacheListener {
 	 */
 	private static final String TAP_CHANNEL_PREFIX = "tap:";
 
+	/**
+	 * How long {@link #undeployAllModules()} waits for all modules to be undeployed, in milliseconds.
+	 */
+	private static final long UNDEPLOY_ALL_TIMEOUT = 30000;
+
+	/**
+	 * Executor for deployment requests and undeployments.
+	 */
+	private final DeploymentUnitExecutor executor;
+
 	/**
 	 * Map of deployed modules.
 	 */
 	private final Map<ModuleDescriptor.Key, ModuleDescriptor> mapDeployedModules =
 			new ConcurrentHashMap<ModuleDescriptor.Key, ModuleDescriptor>();
 
+	/**
+	 * Incremented by {@link #undeployAllModules()}; deployment requests queued before that are discarded.
+	 */
+	private final AtomicLong generation = new AtomicLong();
+
 	/**
 	 * Create an instance that will register the provided {@link ContainerAttributes} whenever the underlying {@link
 	 * ZooKeeperConnection} is established. If that connection is already established at the time this instance receives
@@ -124,10 +151,13 @@ class DeploymentListener implements PathChildrenCacheListener {
 	 * @param jobFactory factory to construct {@link Job}
 	 * @param moduleDeployer module deployer
 	 * @param zkConnection ZooKeeper connection
+	 * @param deploymentThreads the maximum number of modules to deploy concurrently
 	 */
 	public DeploymentListener(ZooKeeperConnection zkConnection, ModuleDeployer moduleDeployer,
-			ContainerAttributes containerAttributes, JobFactory jobFactory, StreamFactory streamFactory) {
+			ContainerAttributes containerAttributes, JobFactory jobFactory, StreamFactory streamFactory,
+			int deploymentThreads) {
 		this.zkConnection = zkConnection;
+		this.executor = new DeploymentUnitExecutor(deploymentThreads, ThreadUtils.newThreadFactory("ModuleDeployment"));
 		this.jobModuleWatcher = new JobModuleWatcher();
 		this.streamModuleWatcher = new StreamModuleWatcher();
 		this.moduleDeployer = moduleDeployer;
@@ -146,16 +176,60 @@ class DeploymentListener implements PathChildrenCacheListener {
 			case INITIALIZED:
 				break;
 			case CHILD_ADDED:
-				onChildAdded(client, event.getData());
-				break;
 			case CHILD_REMOVED:
-				onChildRemoved(client, event.getData());
+				submit(client, event.getType(), event.getData());
 				break;
 			default:
 				break;
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void destroy() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Queue the handling of a deployment request or removal behind any others for the same deployment unit.
+	 *
+	 * @param client curator client
+	 * @param type {@link PathChildrenCacheEvent.Type#CHILD_ADDED} or {@link PathChildrenCacheEvent.Type#CHILD_REMOVED}
+	 * @param data module data
+	 */
+	private void submit(final CuratorFramework client, final PathChildrenCacheEvent.Type type, final ChildData data) {
+		String unitName = new ModuleDeploymentsPath(data.getPath()).getDeploymentUnitName();
+		final long submitted = System.nanoTime();
+		final long submittedGeneration = generation.get();
+		executor.submit(unitName, new Runnable() {
+
+			@Override
+			public void run() {
+				if (type == PathChildrenCacheEvent.Type.CHILD_ADDED && submittedGeneration != generation.get()) {
+					logger.info("Discarding deployment request for {} queued before the container disconnected",
+							data.getPath());
+					return;
+				}
+				logger.debug("Handling {} for {} after {} ms in queue", type, data.getPath(),
+						TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitted));
+				try {
+					if (type == PathChildrenCacheEvent.Type.CHILD_ADDED) {
+						onChildAdded(client, data);
+					}
+					else {
+						onChildRemoved(client, data);
+					}
+				}
+				catch (Exception e) {
+					logger.error("Exception handling " + type + " for " + data.getPath(), e);
+				}
+			}
+
+		});
+	}
+
 	/**
 	 * Event handler for new module deployments.
 	 *
@@ -464,16 +538,58 @@ class DeploymentListener implements PathChildrenCacheListener {
 				sourceChannelName.substring(TAP_CHANNEL_PREFIX.length()) : null;
 	}
 
+	/**
+	 * Undeploy all modules. Deployment requests that are still queued are discarded; a request that is being
+	 * handled is allowed to finish, and the module it deployed is undeployed after it. Waits at most
+	 * {@link #UNDEPLOY_ALL_TIMEOUT} in total.
+	 */
 	void undeployAllModules() {
-		for (Iterator<ModuleDescriptor.Key> iterator = mapDeployedModules.keySet().iterator(); iterator.hasNext(); ) {
-			ModuleDescriptor.Key key = iterator.next();
+		generation.incrementAndGet();
+		// every unit with a task in flight, so that modules deployed by a running request are also undeployed
+		Set<String> unitNames = new HashSet<String>(executor.getUnitNames());
+		for (ModuleDescriptor.Key key : mapDeployedModules.keySet()) {
+			unitNames.add(key.getGroup());
+		}
+		List<Future<?>> undeployments = new ArrayList<Future<?>>();
+		for (final String unitName : unitNames) {
+			undeployments.add(executor.submit(unitName, new Runnable() {
+
+				@Override
+				public void run() {
+					for (ModuleDescriptor.Key key : mapDeployedModules.keySet()) {
+						if (key.getGroup().equals(unitName)) {
+							try {
+								undeployModule(key.getGroup(), key.getType().name(), key.getLabel());
+							}
+							catch (Exception e) {
+								logger.warn("Exception while undeploying " + key, e);
+							}
+							mapDeployedModules.remove(key);
+						}
+					}
+				}
+
+			}));
+		}
+		long deadline = System.currentTimeMillis() + UNDEPLOY_ALL_TIMEOUT;
+		for (Future<?> undeployment : undeployments) {
 			try {
-				undeployModule(key.getGroup(), key.getType().name(), key.getLabel());
+				undeployment.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
 			}
-			catch (Exception e) {
-				logger.warn("Exception while undeploying " + key, e);
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch (CancellationException e) {
+				logger.warn("Undeployment was cancelled because the deployment executor is shut down");
+			}
+			catch (ExecutionException e) {
+				logger.warn("Exception while undeploying modules", e.getCause());
+			}
+			catch (TimeoutException e) {
+				logger.warn("Timed out after {} ms waiting for modules to be undeployed", UNDEPLOY_ALL_TIMEOUT);
+				return;
 			}
-			iterator.remove();
 		}
 	}
 
@@ -491,32 +607,20 @@ class DeploymentListener implements PathChildrenCacheListener {
 			CuratorFramework client = zkConnection.getClient();
 
 			if (event.getType() == Watcher.Event.EventType.NodeDeleted) {
-				JobDeploymentsPath jobDeploymentsPath = new JobDeploymentsPath(event.getPath());
-				String jobName = jobDeploymentsPath.getJobName();
-				String moduleLabel = jobDeploymentsPath.getModuleLabel();
-				String moduleSequence = jobDeploymentsPath.getModuleSequenceAsString();
-
-				undeployModule(jobName, ModuleType.job.toString(), moduleLabel);
-
-				String deploymentPath = new ModuleDeploymentsPath().setContainer(containerAttributes.getId())
-						.setDeploymentUnitName(jobName).setModuleType(ModuleType.job.toString())
-						.setModuleLabel(moduleLabel).setModuleSequence(moduleSequence).build();
+				final JobDeploymentsPath jobDeploymentsPath = new JobDeploymentsPath(event.getPath());
+				executor.submit(jobDeploymentsPath.getJobName(), new Runnable() {
 
-				try {
-					if (client.checkExists().forPath(deploymentPath) != null) {
-						logger.trace("Deleting path: {}", deploymentPath);
-						client.delete().deletingChildrenIfNeeded().forPath(deploymentPath);
-					}
-				}
-				catch (Exception e) {
-					// it is common for a process shutdown to trigger this
-					// event; therefore any exception thrown while attempting
-					// to delete a deployment path will only be rethrown
-					// if the client is in a connected/started state
-					if (client.getState() == CuratorFrameworkState.STARTED) {
-						throw ZooKeeperUtils.wrapThrowable(e);
+					@Override
+					public void run() {
+						try {
+							onNodeDeleted(jobDeploymentsPath);
+						}
+						catch (RuntimeException e) {
+							logger.error("Exception undeploying module for " + jobDeploymentsPath, e);
+						}
 					}
-				}
+
+				});
 			}
 			else {
 				logger.debug("Unexpected event {}, ZooKeeper state: {}", event.getType(), event.getState());
@@ -542,6 +646,40 @@ class DeploymentListener implements PathChildrenCacheListener {
 				}
 			}
 		}
+
+		/**
+		 * Undeploy the module whose job deployment node was deleted.
+		 *
+		 * @param jobDeploymentsPath path of the deleted node
+		 */
+		private void onNodeDeleted(JobDeploymentsPath jobDeploymentsPath) {
+			CuratorFramework client = zkConnection.getClient();
+			String jobName = jobDeploymentsPath.getJobName();
+			String moduleLabel = jobDeploymentsPath.getModuleLabel();
+			String moduleSequence = jobDeploymentsPath.getModuleSequenceAsString();
+
+			undeployModule(jobName, ModuleType.job.toString(), moduleLabel);
+
+			String deploymentPath = new ModuleDeploymentsPath().setContainer(containerAttributes.getId())
+					.setDeploymentUnitName(jobName).setModuleType(ModuleType.job.toString())
+					.setModuleLabel(moduleLabel).setModuleSequence(moduleSequence).build();
+
+			try {
+				if (client.checkExists().forPath(deploymentPath) != null) {
+					logger.trace("Deleting path: {}", deploymentPath);
+					client.delete().deletingChildrenIfNeeded().forPath(deploymentPath);
+				}
+			}
+			catch (Exception e) {
+				// it is common for a process shutdown to trigger this
+				// event; therefore any exception thrown while attempting
+				// to delete a deployment path will only be rethrown
+				// if the client is in a connected/started state
+				if (client.getState() == CuratorFrameworkState.STARTED) {
+					throw ZooKeeperUtils.wrapThrowable(e);
+				}
+			}
+		}
 	}
 
 	/**
@@ -557,34 +695,20 @@ class DeploymentListener implements PathChildrenCacheListener {
 			CuratorFramework client = zkConnection.getClient();
 
 			if (event.getType() == Watcher.Event.EventType.NodeDeleted) {
-				StreamDeploymentsPath streamDeploymentsPath = new StreamDeploymentsPath(event.getPath());
-
-				String streamName = streamDeploymentsPath.getStreamName();
-				String moduleType = streamDeploymentsPath.getModuleType();
-				String moduleLabel = streamDeploymentsPath.getModuleLabel();
-				String moduleSequence = streamDeploymentsPath.getModuleSequenceAsString();
-
-				undeployModule(streamName, moduleType, moduleLabel);
-
-				String deploymentPath = new ModuleDeploymentsPath().setContainer(containerAttributes.getId())
-						.setDeploymentUnitName(streamName).setModuleType(moduleType).setModuleLabel(moduleLabel)
-						.setModuleSequence(moduleSequence).build();
+				final StreamDeploymentsPath streamDeploymentsPath = new StreamDeploymentsPath(event.getPath());
+				executor.submit(streamDeploymentsPath.getStreamName(), new Runnable() {
 
-				try {
-					if (client.checkExists().forPath(deploymentPath) != null) {
-						logger.trace("Deleting path: {}", deploymentPath);
-						client.delete().deletingChildrenIfNeeded().forPath(deploymentPath);
-					}
-				}
-				catch (Exception e) {
-					// it is common for a process shutdown to trigger this
-					// event; therefore any exception thrown while attempting
-					// to delete a deployment path will only be rethrown
-					// if the client is in a connected/started state
-					if (client.getState() == CuratorFrameworkState.STARTED) {
-						throw ZooKeeperUtils.wrapThrowable(e);
+					@Override
+					public void run() {
+						try {
+							onNodeDeleted(streamDeploymentsPath);
+						}
+						catch (RuntimeException e) {
+							logger.error("Exception undeploying module for " + streamDeploymentsPath, e);
+						}
 					}
-				}
+
+				});
 			}
 			else {
 				logger.debug("Unexpected event {}, ZooKeeper state: {}", event.getType(), event.getState());
@@ -609,5 +733,40 @@ class DeploymentListener implements PathChildrenCacheListener {
 				}
 			}
 		}
+
+		/**
+		 * Undeploy the module whose stream deployment node was deleted.
+		 *
+		 * @param streamDeploymentsPath path of the deleted node
+		 */
+		private void onNodeDeleted(StreamDeploymentsPath streamDeploymentsPath) {
+			CuratorFramework client = zkConnection.getClient();
+			String streamName = streamDeploymentsPath.getStreamName();
+			String moduleType = streamDeploymentsPath.getModuleType();
+			String moduleLabel = streamDeploymentsPath.getModuleLabel();
+			String moduleSequence = streamDeploymentsPath.getModuleSequenceAsString();
+
+			undeployModule(streamName, moduleType, moduleLabel);
+
+			String deploymentPath = new ModuleDeploymentsPath().setContainer(containerAttributes.getId())
+					.setDeploymentUnitName(streamName).setModuleType(moduleType).setModuleLabel(moduleLabel)
+					.setModuleSequence(moduleSequence).build();
+
+			try {
+				if (client.checkExists().forPath(deploymentPath) != null) {
+					logger.trace("Deleting path: {}", deploymentPath);
+					client.delete().deletingChildrenIfNeeded().forPath(deploymentPath);
+				}
+			}
+			catch (Exception e) {
+				// it is common for a process shutdown to trigger this
+				// event; therefore any exception thrown while attempting
+				// to delete a deployment path will only be rethrown
+				// if the client is in a connected/started state
+				if (client.getState() == CuratorFrameworkState.STARTED) {
+					throw ZooKeeperUtils.wrapThrowable(e);
+				}
+			}
+		}
 	}
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server.container;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.util.Assert;
+
+/**
+ * Runs deployment tasks on a bounded pool of threads. Tasks for the same deployment unit (stream or job) run one
+ * at a time in the order they were submitted, so that the order in which the admin requests the modules of a
+ * stream (sink first, source last) is kept; tasks for different units run concurrently.
+ */
+class DeploymentUnitExecutor {
+
+	private static final Logger logger = LoggerFactory.getLogger(DeploymentUnitExecutor.class);
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Pending tasks by deployment unit name; a unit is present while it has a task queued or running.
+	 */
+	@GuardedBy("lanes")
+	private final Map<String, Lane> lanes = new HashMap<String, Lane>();
+
+	/**
+	 * @param threads the maximum number of tasks to run concurrently
+	 * @param threadFactory the factory for the pool's threads
+	 */
+	DeploymentUnitExecutor(int threads, ThreadFactory threadFactory) {
+		Assert.isTrue(threads > 0, "'threads' must be greater than 0");
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), threadFactory);
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Submit a task for the given deployment unit. It runs after all tasks previously submitted for the unit have
+	 * completed.
+	 *
+	 * @param unitName the deployment unit name
+	 * @param task the task
+	 * @return a future that completes when the task has run
+	 */
+	Future<?> submit(String unitName, Runnable task) {
+		FutureTask<Void> future = new FutureTask<Void>(task, null);
+		synchronized (lanes) {
+			Lane lane = lanes.get(unitName);
+			if (lane == null) {
+				lane = new Lane(unitName);
+				lanes.put(unitName, lane);
+			}
+			lane.tasks.add(future);
+			if (!lane.scheduled) {
+				schedule(lane);
+			}
+		}
+		return future;
+	}
+
+	@GuardedBy("lanes")
+	private void schedule(Lane lane) {
+		try {
+			executor.execute(lane);
+			lane.scheduled = true;
+		}
+		catch (RejectedExecutionException e) {
+			logger.warn("Deployment executor is shut down; discarding {} task(s) for {}", lane.tasks.size(),
+					lane.unitName);
+			for (FutureTask<?> task : lane.tasks) {
+				task.cancel(false);
+			}
+			lanes.remove(lane.unitName);
+		}
+	}
+
+	/**
+	 * @return the names of the deployment units that have a task queued or running
+	 */
+	Set<String> getUnitNames() {
+		synchronized (lanes) {
+			return new HashSet<String>(lanes.keySet());
+		}
+	}
+
+	/**
+	 * Stop accepting tasks and interrupt those that are running.
+	 */
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+
+	/**
+	 * The queue of tasks for one deployment unit. It runs one task per turn on the pool and then reschedules
+	 * itself, so that a unit with many tasks does not hold a thread while others wait.
+	 */
+	private class Lane implements Runnable {
+
+		private final String unitName;
+
+		private final Queue<FutureTask<?>> tasks = new ArrayDeque<FutureTask<?>>();
+
+		private boolean scheduled;
+
+		private Lane(String unitName) {
+			this.unitName = unitName;
+		}
+
+		@Override
+		public void run() {
+			FutureTask<?> task;
+			synchronized (lanes) {
+				task = tasks.poll();
+			}
+			if (task != null) {
+				// exceptions are captured by the future
+				task.run();
+			}
+			synchronized (lanes) {
+				scheduled = false;
+				if (tasks.isEmpty()) {
+					lanes.remove(unitName);
+				}
+				else {
+					schedule(this);
+				}
+			}
+		}
+
+	}
+
+}
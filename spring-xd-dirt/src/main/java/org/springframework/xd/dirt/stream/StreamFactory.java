@@ -54,6 +54,16 @@ public class StreamFactory {
 				moduleOptionsMetadataResolver);
 	}
 
+	/**
+	 * Set whether the modules of a stream are fetched from the module registry in parallel before they are
+	 * resolved; see {@link XDStreamParser#setPrefetchModules(boolean)}.
+	 *
+	 * @param prefetchModules whether to prefetch modules
+	 */
+	public void setPrefetchModules(boolean prefetchModules) {
+		parser.setPrefetchModules(prefetchModules);
+	}
+
 	/**
 	 * Create a new instance of {@link Stream} for the given name and
 	 * properties. The properties should at minimum contain the following
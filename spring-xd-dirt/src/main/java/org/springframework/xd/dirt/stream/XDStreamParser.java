@@ -22,9 +22,11 @@ import static org.springframework.xd.dirt.stream.dsl.XDDSLMessages.NAMED_CHANNEL
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.util.Assert;
@@ -32,6 +34,7 @@ import org.springframework.validation.BindException;
 import org.springframework.xd.dirt.core.BaseDefinition;
 import org.springframework.xd.dirt.module.ModuleRegistry;
 import org.springframework.xd.dirt.module.NoSuchModuleException;
+import org.springframework.xd.dirt.module.PrefetchingModuleRegistry;
 import org.springframework.xd.dirt.plugins.ModuleConfigurationException;
 import org.springframework.xd.dirt.stream.ParsingContext.Position;
 import org.springframework.xd.dirt.stream.dsl.ArgumentNode;
@@ -85,6 +88,10 @@ public class XDStreamParser implements XDParser {
 	 */
 	private CrudRepository<? extends BaseDefinition, String> repository;
 
+	/**
+	 * Whether to ask a {@link PrefetchingModuleRegistry} for all the modules of a definition at once.
+	 */
+	private volatile boolean prefetchModules;
 
 	/**
 	 * Construct an {@code XDStreamParser}.
@@ -114,6 +121,17 @@ public class XDStreamParser implements XDParser {
 		this(null, moduleRegistry, moduleOptionsMetadataResolver);
 	}
 
+	/**
+	 * Set whether a {@link PrefetchingModuleRegistry} is asked to fetch all the modules of a multi-module
+	 * definition in parallel before they are resolved. Only worth it where the module archives are about to be
+	 * used, <i>e.g.</i> when a container deploys a stream; defaults to {@code false}.
+	 *
+	 * @param prefetchModules whether to prefetch modules
+	 */
+	public void setPrefetchModules(boolean prefetchModules) {
+		this.prefetchModules = prefetchModules;
+	}
+
 	@Override
 	public List<ModuleDescriptor> parse(String name, String config, ParsingContext parsingContext) {
 
@@ -176,6 +194,15 @@ public class XDStreamParser implements XDParser {
 			}
 		}
 
+		// Fetch all the modules at once rather than one lookup at a time below
+		if (prefetchModules && moduleRegistry instanceof PrefetchingModuleRegistry && builders.size() > 1) {
+			Set<String> moduleNames = new LinkedHashSet<String>();
+			for (ModuleDescriptor.Builder builder : builders) {
+				moduleNames.add(builder.getModuleName());
+			}
+			((PrefetchingModuleRegistry) moduleRegistry).prefetch(moduleNames);
+		}
+
 		// Now that we know about source and sink channel names,
 		// do a second pass to determine type. Also convert to composites.
 		// And while we're at it (and type is known), validate module name and options
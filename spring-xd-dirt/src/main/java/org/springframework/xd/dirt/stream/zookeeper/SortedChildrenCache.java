@@ -0,0 +1,407 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.stream.zookeeper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.base.Function;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
+import org.apache.curator.utils.ThreadUtils;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.util.PageNotFoundException;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperUtils;
+
+/**
+ * An in-memory index of the children of a ZooKeeper path, sorted by name and kept current by a
+ * {@link PathChildrenCache}, so that the repositories can page, sort and select ranges of definitions and
+ * deployments without going to ZooKeeper. If status tracking is enabled, the {@link Paths#STATUS} node under each
+ * child is also read and watched.
+ * <p>
+ * The cache is created on first use and closed if the ZooKeeper connection is suspended or lost; the next read
+ * rebuilds it. Reads reflect changes made through other ZooKeeper clients as soon as their events arrive;
+ * repositories call {@link #put} and {@link #remove} so that their own writes are visible immediately.
+ *
+ * @see org.springframework.xd.dirt.container.store.ZooKeeperContainerRepository
+ */
+class SortedChildrenCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(SortedChildrenCache.class);
+
+	private static final String NAME_PROPERTY = "name";
+
+	private final ZooKeeperConnection zkConnection;
+
+	private final String path;
+
+	private final boolean trackStatus;
+
+	private final AtomicReference<PathChildrenCache> cacheRef = new AtomicReference<PathChildrenCache>();
+
+	private final ConcurrentNavigableMap<String, Child> children = new ConcurrentSkipListMap<String, Child>();
+
+	private final CuratorWatcher statusWatcher = new StatusWatcher();
+
+	/**
+	 * @param zkConnection the ZooKeeper connection
+	 * @param path the path whose children are indexed
+	 * @param trackStatus whether to read and watch the status node of each child
+	 */
+	SortedChildrenCache(ZooKeeperConnection zkConnection, String path, boolean trackStatus) {
+		this.zkConnection = zkConnection;
+		this.path = path;
+		this.trackStatus = trackStatus;
+	}
+
+	/**
+	 * Return the children in the order requested by the {@code name} property of the given sort; ascending if the
+	 * sort is {@code null} or does not mention {@code name}.
+	 *
+	 * @param sort the sort; may be {@code null}
+	 * @return a live, sorted view of the children, by name
+	 */
+	NavigableMap<String, Child> sorted(Sort sort) {
+		ensureCache();
+		Sort.Order order = (sort == null) ? null : sort.getOrderFor(NAME_PROPERTY);
+		return (order != null && !order.isAscending()) ? children.descendingMap() : children;
+	}
+
+	/**
+	 * Return the children whose names are between {@code from} and {@code to}; if {@code from} sorts after
+	 * {@code to}, the range is returned in descending order, matching a page sorted in that order.
+	 *
+	 * @return a live, sorted view of the children in the range, by name
+	 */
+	NavigableMap<String, Child> range(String from, boolean fromInclusive, String to, boolean toInclusive) {
+		ensureCache();
+		return (from.compareTo(to) <= 0) ? children.subMap(from, fromInclusive, to, toInclusive)
+				: children.descendingMap().subMap(from, fromInclusive, to, toInclusive);
+	}
+
+	/**
+	 * @param name the child name
+	 * @return the child, or {@code null} if there is none
+	 */
+	Child get(String name) {
+		ensureCache();
+		return children.get(name);
+	}
+
+	/**
+	 * Return the requested page of children, converted with the given function; children for which it returns
+	 * {@code null} are skipped.
+	 *
+	 * @param pageable the paging information, must not be null
+	 * @param converter function converting a child to a page element
+	 * @return the page
+	 * @throws PageNotFoundException in case an invalid page is requested
+	 */
+	<T> Page<T> findPage(Pageable pageable, Function<Child, T> converter) {
+		Assert.notNull(pageable, "Pagination info can't be null.");
+		NavigableMap<String, Child> sorted = sorted(pageable.getSort());
+		int total = sorted.size();
+		int offset = pageable.getOffset();
+		if (offset > total) {
+			throw new PageNotFoundException(String.format("Page %s does not exist.", pageable.getPageNumber()));
+		}
+		if (total == 0) {
+			return new PageImpl<T>(Collections.<T> emptyList());
+		}
+		List<T> content = new ArrayList<T>(Math.min(pageable.getPageSize(), total - offset));
+		Iterator<Child> iterator = sorted.values().iterator();
+		for (int i = 0; i < offset && iterator.hasNext(); i++) {
+			iterator.next();
+		}
+		while (iterator.hasNext() && content.size() < pageable.getPageSize()) {
+			T element = converter.apply(iterator.next());
+			if (element != null) {
+				content.add(element);
+			}
+		}
+		return new PageImpl<T>(content, pageable, total);
+	}
+
+	/**
+	 * Convert the given children, skipping those for which the converter returns {@code null}.
+	 *
+	 * @param children the children
+	 * @param converter function converting a child to a list element
+	 * @return the converted children, in iteration order
+	 */
+	static <T> List<T> convert(Iterable<Child> children, Function<Child, T> converter) {
+		List<T> results = new ArrayList<T>();
+		for (Child child : children) {
+			T element = converter.apply(child);
+			if (element != null) {
+				results.add(element);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Record a write made by this process, if the cache is in use.
+	 *
+	 * @param name the child name
+	 * @param data the data written
+	 */
+	void put(String name, byte[] data) {
+		if (cacheRef.get() != null) {
+			Child existing = children.get(name);
+			children.put(name, existing == null
+					? new Child(name, data, System.currentTimeMillis(), null)
+					: new Child(name, data, existing.ctime, existing.status));
+		}
+	}
+
+	/**
+	 * Record a deletion made by this process.
+	 *
+	 * @param name the child name
+	 */
+	void remove(String name) {
+		children.remove(name);
+	}
+
+	/**
+	 * Close the cache and clear the index; the next read rebuilds them.
+	 */
+	void close() {
+		PathChildrenCache cache = cacheRef.get();
+		if (cache != null) {
+			try {
+				cache.close();
+			}
+			catch (Exception e) {
+				// ignore exception on close
+			}
+			finally {
+				if (cacheRef.compareAndSet(cache, null)) {
+					children.clear();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create and start the {@link PathChildrenCache} if necessary, and populate the index from its initial contents.
+	 *
+	 * @throws java.lang.IllegalStateException if the cache could not be initialized (likely due to a ZooKeeper
+	 *         connection error)
+	 */
+	private void ensureCache() {
+		if (cacheRef.get() == null) {
+			synchronized (cacheRef) {
+				if (cacheRef.get() == null) {
+					CuratorFramework client = zkConnection.getClient();
+					PathChildrenCache cache = new PathChildrenCache(client, path, true,
+							ThreadUtils.newThreadFactory("SortedChildrenCache"));
+					cache.getListenable().addListener(new ChildListener());
+					try {
+						Paths.ensurePath(client, path);
+						children.clear();
+						cacheRef.set(cache);
+						cache.start(PathChildrenCache.StartMode.BUILD_INITIAL_CACHE);
+						// the initial contents do not raise events
+						for (ChildData data : cache.getCurrentData()) {
+							update(data, true);
+						}
+						for (String name : children.keySet()) {
+							if (cache.getCurrentData(Paths.build(path, name)) == null) {
+								// removed while the index was being populated
+								children.remove(name);
+							}
+						}
+					}
+					catch (Exception e) {
+						close();
+						throw ZooKeeperUtils.wrapThrowable(e);
+					}
+				}
+			}
+		}
+		Assert.state(cacheRef.get() != null, "Cache for " + path + " not initialized " +
+				"(likely as a result of a ZooKeeper connection error)");
+	}
+
+	private void update(ChildData data, boolean added) {
+		String name = Paths.stripPath(data.getPath());
+		Child existing = children.get(name);
+		children.put(name, new Child(name, data.getData(), data.getStat().getCtime(),
+				existing == null ? null : existing.status));
+		if (trackStatus && added) {
+			loadStatus(name);
+		}
+	}
+
+	/**
+	 * Read the status node of a child and leave a watch on it; if it does not exist yet, watch for its creation.
+	 *
+	 * @param name the child name
+	 */
+	private void loadStatus(String name) {
+		CuratorFramework client = zkConnection.getClient();
+		String statusPath = Paths.build(path, name, Paths.STATUS);
+		try {
+			byte[] data = null;
+			try {
+				data = client.getData().usingWatcher(statusWatcher).forPath(statusPath);
+			}
+			catch (KeeperException.NoNodeException e) {
+				if (client.checkExists().usingWatcher(statusWatcher).forPath(statusPath) != null) {
+					// created in the meantime
+					data = client.getData().usingWatcher(statusWatcher).forPath(statusPath);
+				}
+			}
+			setStatus(name, (data == null || data.length == 0) ? null : ZooKeeperUtils.bytesToMap(data));
+		}
+		catch (KeeperException.NoNodeException e) {
+			setStatus(name, null);
+		}
+		catch (Exception e) {
+			logger.warn("Could not read deployment status for {}", name, e);
+		}
+	}
+
+	private void setStatus(String name, Map<String, String> status) {
+		Child child;
+		do {
+			child = children.get(name);
+		}
+		while (child != null && !children.replace(name, child, new Child(name, child.data, child.ctime, status)));
+	}
+
+
+	/**
+	 * A child of the indexed path.
+	 */
+	static final class Child {
+
+		private final String name;
+
+		private final byte[] data;
+
+		private final long ctime;
+
+		private final Map<String, String> status;
+
+		private Child(String name, byte[] data, long ctime, Map<String, String> status) {
+			this.name = name;
+			this.data = data;
+			this.ctime = ctime;
+			this.status = status;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the data of the child node; may be {@code null}
+		 */
+		byte[] getData() {
+			return data;
+		}
+
+		/**
+		 * @return the time the child node was created
+		 */
+		long getCtime() {
+			return ctime;
+		}
+
+		/**
+		 * @return the contents of the child's status node, or {@code null} if it has none or status is not tracked
+		 */
+		Map<String, String> getStatus() {
+			return status;
+		}
+
+	}
+
+	private class ChildListener implements PathChildrenCacheListener {
+
+		@Override
+		public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) {
+			ZooKeeperUtils.logCacheEvent(logger, event);
+			switch (event.getType()) {
+				case CHILD_ADDED:
+					update(event.getData(), true);
+					break;
+				case CHILD_UPDATED:
+					update(event.getData(), false);
+					break;
+				case CHILD_REMOVED:
+					children.remove(Paths.stripPath(event.getData().getPath()));
+					break;
+				case CONNECTION_SUSPENDED:
+				case CONNECTION_LOST:
+					// shut down the cache if ZooKeeper connection goes away
+					close();
+					break;
+				default:
+					break;
+			}
+		}
+
+	}
+
+	/**
+	 * Reloads the status of a child when its status node is created, changed or deleted.
+	 */
+	private class StatusWatcher implements CuratorWatcher {
+
+		@Override
+		public void process(WatchedEvent event) {
+			if (event.getType() == Watcher.Event.EventType.None || event.getPath() == null
+					|| cacheRef.get() == null) {
+				return;
+			}
+			String statusPath = event.getPath();
+			String name = Paths.stripPath(statusPath.substring(0, statusPath.lastIndexOf('/')));
+			if (children.containsKey(name)) {
+				loadStatus(name);
+			}
+		}
+
+	}
+
+}
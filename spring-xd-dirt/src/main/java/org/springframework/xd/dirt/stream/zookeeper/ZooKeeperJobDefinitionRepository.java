@@ -17,12 +17,11 @@
 package org.springframework.xd.dirt.stream.zookeeper;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.collections.CollectionUtils;
+import com.google.common.base.Function;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.BackgroundPathAndBytesable;
 import org.apache.zookeeper.KeeperException.NoNodeException;
@@ -31,6 +30,7 @@ import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -38,32 +38,43 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.xd.dirt.stream.JobDefinition;
 import org.springframework.xd.dirt.stream.JobDefinitionRepository;
-import org.springframework.xd.dirt.util.PagingUtility;
+import org.springframework.xd.dirt.stream.zookeeper.SortedChildrenCache.Child;
 import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperUtils;
 
 /**
- * A Zookeeper backed repository for persisting {@link JobDefinition}s.
- * 
+ * A Zookeeper backed repository for persisting {@link JobDefinition}s. Paged, sorted and range queries are served
+ * from a {@link SortedChildrenCache}.
+ *
  * @author Mark Fisher
  * @author David Turanski
  */
 // todo: the JobDefinitionRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository, InitializingBean {
+public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository, InitializingBean, DisposableBean {
 
 	private final Logger logger = LoggerFactory.getLogger(ZooKeeperJobDefinitionRepository.class);
 
 	private final ZooKeeperConnection zkConnection;
 
-	private final PagingUtility<JobDefinition> pagingUtility = new PagingUtility<JobDefinition>();
+	private final SortedChildrenCache definitions;
+
+	private final Function<Child, JobDefinition> converter = new Function<Child, JobDefinition>() {
+
+		@Override
+		public JobDefinition apply(Child child) {
+			return toDefinition(child.getName(), child.getData());
+		}
+
+	};
 
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
 	@Autowired
 	public ZooKeeperJobDefinitionRepository(ZooKeeperConnection zkConnection) {
 		this.zkConnection = zkConnection;
+		this.definitions = new SortedChildrenCache(zkConnection, Paths.JOBS, false);
 	}
 
 	@Override
@@ -75,17 +86,19 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 		}
 	}
 
+	@Override
+	public void destroy() {
+		definitions.close();
+	}
+
 	@Override
 	public Iterable<JobDefinition> findAll(Sort sort) {
-		// todo: this ignores the Sort
-		List<JobDefinition> all = findAll();
-		Collections.sort(all);
-		return all;
+		return SortedChildrenCache.convert(definitions.sorted(sort).values(), converter);
 	}
 
 	@Override
 	public Page<JobDefinition> findAll(Pageable pageable) {
-		return pagingUtility.getPagedData(pageable, findAll());
+		return definitions.findPage(pageable, converter);
 	}
 
 	@Override
@@ -111,6 +124,7 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 					? client.create() : client.setData();
 
 			op.forPath(path, binary);
+			definitions.put(entity.getName(), binary);
 
 			logger.info("Saved job {} with properties {}", path, map);
 		}
@@ -127,11 +141,7 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 	public JobDefinition findOne(String id) {
 		try {
 			byte[] bytes = zkConnection.getClient().getData().forPath(Paths.build(Paths.JOBS, id));
-			if (bytes == null) {
-				return null;
-			}
-			Map<String, String> map = ZooKeeperUtils.bytesToMap(bytes);
-			return new JobDefinition(id, map.get("definition"));
+			return toDefinition(id, bytes);
 		}
 		catch (Exception e) {
 			ZooKeeperUtils.wrapAndThrowIgnoring(e, NoNodeException.class);
@@ -139,6 +149,14 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 		return null;
 	}
 
+	private JobDefinition toDefinition(String id, byte[] bytes) {
+		if (bytes == null) {
+			return null;
+		}
+		Map<String, String> map = ZooKeeperUtils.bytesToMap(bytes);
+		return new JobDefinition(id, map.get("definition"));
+	}
+
 	@Override
 	public boolean exists(String id) {
 		try {
@@ -183,6 +201,7 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 	public void delete(String id) {
 		try {
 			zkConnection.getClient().delete().deletingChildrenIfNeeded().forPath(Paths.build(Paths.JOBS, id));
+			definitions.remove(id);
 		}
 		catch (Exception e) {
 			//NoNodeException - nothing to delete
@@ -215,23 +234,8 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	@Override
 	public Iterable<JobDefinition> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
-		List<JobDefinition> all = findAll();
-		if (CollectionUtils.isEmpty(all)) {
-			return Collections.emptyList();
-		}
-		Collections.sort(all);
-
-		List<JobDefinition> results = new ArrayList<JobDefinition>();
-		for (JobDefinition definition : all) {
-			if (definition.getName().compareTo(to) > 1) {
-				break;
-			}
-			if (definition.getName().compareTo(from) < 0) {
-				continue;
-			}
-			results.add(definition);
-		}
-		return results;
+		return SortedChildrenCache.convert(
+				definitions.range(from, fromInclusive, to, toInclusive).values(), converter);
 	}
 
 }
@@ -17,18 +17,18 @@
 package org.springframework.xd.dirt.stream.zookeeper;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.collections.CollectionUtils;
+import com.google.common.base.Function;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -38,13 +38,14 @@ import org.springframework.xd.dirt.core.DeploymentUnitStatus;
 import org.springframework.xd.dirt.stream.Job;
 import org.springframework.xd.dirt.stream.JobDefinition;
 import org.springframework.xd.dirt.stream.JobRepository;
-import org.springframework.xd.dirt.util.PagingUtility;
+import org.springframework.xd.dirt.stream.zookeeper.SortedChildrenCache.Child;
 import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperUtils;
 
 /**
- * Job instance repository. It should only return values for Jobs that are deployed.
+ * Job instance repository. It should only return values for Jobs that are deployed. Paged, sorted and range queries
+ * are served from {@link SortedChildrenCache}s of the definitions and deployments.
  *
  * @author Mark Fisher
  * @author David Turanski
@@ -52,19 +53,42 @@ import org.springframework.xd.dirt.zookeeper.ZooKeeperUtils;
  */
 // todo: the JobRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
+public class ZooKeeperJobRepository implements JobRepository, InitializingBean, DisposableBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(ZooKeeperJobRepository.class);
 
 	private final ZooKeeperConnection zkConnection;
 
-	private final PagingUtility<Job> pagingUtility = new PagingUtility<Job>();
+	private final SortedChildrenCache definitions;
+
+	private final SortedChildrenCache deployments;
+
+	private final Function<Child, Job> converter = new Function<Child, Job>() {
+
+		@Override
+		public Job apply(Child deployment) {
+			Child definition = definitions.get(deployment.getName());
+			if (definition == null || definition.getData() == null) {
+				return null;
+			}
+			Map<String, String> map = ZooKeeperUtils.bytesToMap(definition.getData());
+			Job job = new Job(new JobDefinition(deployment.getName(), map.get("definition")));
+			job.setStartedAt(new Date(deployment.getCtime()));
+			job.setStatus(deployment.getStatus() == null
+					? new DeploymentUnitStatus(DeploymentUnitStatus.State.undeployed)
+					: new DeploymentUnitStatus(deployment.getStatus()));
+			return job;
+		}
+
+	};
 
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
 	@Autowired
 	public ZooKeeperJobRepository(ZooKeeperConnection zkConnection) {
 		this.zkConnection = zkConnection;
+		this.definitions = new SortedChildrenCache(zkConnection, Paths.JOBS, false);
+		this.deployments = new SortedChildrenCache(zkConnection, Paths.JOB_DEPLOYMENTS, true);
 	}
 
 	@Override
@@ -76,15 +100,20 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 		}
 	}
 
+	@Override
+	public void destroy() {
+		definitions.close();
+		deployments.close();
+	}
+
 	@Override
 	public Iterable<Job> findAll(Sort sort) {
-		// todo: implement sort support
-		return findAll();
+		return SortedChildrenCache.convert(deployments.sorted(sort).values(), converter);
 	}
 
 	@Override
 	public Page<Job> findAll(Pageable pageable) {
-		return pagingUtility.getPagedData(pageable, findAll());
+		return deployments.findPage(pageable, converter);
 	}
 
 	@Override
@@ -184,6 +213,7 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 		try {
 			client.delete().deletingChildrenIfNeeded().forPath(Paths.build(Paths.JOB_DEPLOYMENTS, id));
+			deployments.remove(id);
 		}
 		catch (Exception e) {
 			//NoNodeException - nothing to delete
@@ -219,23 +249,8 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 	@Override
 	public Iterable<Job> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
-		List<Job> all = findAll();
-		if (CollectionUtils.isEmpty(all)) {
-			return Collections.emptyList();
-		}
-		Collections.sort(all);
-
-		List<Job> results = new ArrayList<Job>();
-		for (Job job : all) {
-			if (job.getDefinition().getName().compareTo(to) > 0) {
-				break;
-			}
-			if (job.getDefinition().getName().compareTo(from) < 0) {
-				continue;
-			}
-			results.add(job);
-		}
-		return results;
+		return SortedChildrenCache.convert(
+				deployments.range(from, fromInclusive, to, toInclusive).values(), converter);
 	}
 
 	@Override
@@ -29,6 +29,7 @@ import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -38,23 +39,28 @@ import org.springframework.xd.dirt.module.ModuleDependencyRepository;
 import org.springframework.xd.dirt.stream.StreamDefinition;
 import org.springframework.xd.dirt.stream.StreamDefinitionRepository;
 import org.springframework.xd.dirt.stream.StreamDefinitionRepositoryUtils;
-import org.springframework.xd.dirt.util.PagingUtility;
+import org.springframework.xd.dirt.stream.zookeeper.SortedChildrenCache.Child;
 import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperUtils;
 import org.springframework.xd.module.ModuleDefinition;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.base.Function;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 
 /**
+ * A Zookeeper backed repository for persisting {@link StreamDefinition}s. Paged, sorted and range queries are served
+ * from a {@link SortedChildrenCache}.
+ *
  * @author Mark Fisher
  */
 // todo: the StreamDefinitionRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepository, InitializingBean {
+public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepository, InitializingBean,
+		DisposableBean {
 
 	/**
 	 * The key used in serialized properties to hold the raw definition of a stream.
@@ -74,7 +80,16 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	private final ModuleDependencyRepository moduleDependencyRepository;
 
-	private final PagingUtility<StreamDefinition> pagingUtility = new PagingUtility<StreamDefinition>();
+	private final SortedChildrenCache definitions;
+
+	private final Function<Child, StreamDefinition> converter = new Function<Child, StreamDefinition>() {
+
+		@Override
+		public StreamDefinition apply(Child child) {
+			return toDefinition(child.getName(), child.getData());
+		}
+
+	};
 
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
@@ -87,6 +102,7 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 			ModuleDependencyRepository moduleDependencyRepository) {
 		this.zkConnection = zkConnection;
 		this.moduleDependencyRepository = moduleDependencyRepository;
+		this.definitions = new SortedChildrenCache(zkConnection, Paths.STREAMS, false);
 	}
 
 	@Override
@@ -98,14 +114,19 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 		}
 	}
 
+	@Override
+	public void destroy() {
+		definitions.close();
+	}
+
 	@Override
 	public Iterable<StreamDefinition> findAll(Sort sort) {
-		throw new UnsupportedOperationException("Auto-generated method stub");
+		return SortedChildrenCache.convert(definitions.sorted(sort).values(), converter);
 	}
 
 	@Override
 	public Page<StreamDefinition> findAll(Pageable pageable) {
-		return pagingUtility.getPagedData(pageable, findAll());
+		return definitions.findPage(pageable, converter);
 	}
 
 	@Override
@@ -133,6 +154,7 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 					? client.create() : client.setData();
 
 			op.forPath(path, binary);
+			definitions.put(entity.getName(), binary);
 
 			logger.trace("Saved stream {} with properties {}", path, map);
 
@@ -150,16 +172,7 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 	public StreamDefinition findOne(String id) {
 		try {
 			byte[] bytes = zkConnection.getClient().getData().forPath(Paths.build(Paths.STREAMS, id));
-			if (bytes == null) {
-				return null;
-			}
-			Map<String, String> map = ZooKeeperUtils.bytesToMap(bytes);
-			StreamDefinition streamDefinition = new StreamDefinition(id, map.get(DEFINITION_KEY));
-			if (map.get(MODULE_DEFINITIONS_KEY) != null) {
-				List<ModuleDefinition> moduleDefinitions = objectReader.readValue(map.get(MODULE_DEFINITIONS_KEY));
-				streamDefinition.setModuleDefinitions(moduleDefinitions);
-			}
-			return streamDefinition;
+			return toDefinition(id, bytes);
 		}
 		catch (Exception e) {
 			//NoNodeException - the definition does not exist
@@ -168,6 +181,31 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 		return null;
 	}
 
+	/**
+	 * Create a stream definition from the data of its node.
+	 *
+	 * @param id the stream name
+	 * @param bytes the node data; may be null
+	 * @return the definition, or null if there is no data
+	 */
+	private StreamDefinition toDefinition(String id, byte[] bytes) {
+		if (bytes == null) {
+			return null;
+		}
+		Map<String, String> map = ZooKeeperUtils.bytesToMap(bytes);
+		StreamDefinition streamDefinition = new StreamDefinition(id, map.get(DEFINITION_KEY));
+		if (map.get(MODULE_DEFINITIONS_KEY) != null) {
+			try {
+				List<ModuleDefinition> moduleDefinitions = objectReader.readValue(map.get(MODULE_DEFINITIONS_KEY));
+				streamDefinition.setModuleDefinitions(moduleDefinitions);
+			}
+			catch (Exception e) {
+				throw ZooKeeperUtils.wrapThrowable(e);
+			}
+		}
+		return streamDefinition;
+	}
+
 	@Override
 	public boolean exists(String id) {
 		try {
@@ -217,6 +255,7 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 		String path = Paths.build(Paths.STREAMS, id);
 		try {
 			zkConnection.getClient().delete().deletingChildrenIfNeeded().forPath(path);
+			definitions.remove(id);
 		}
 		catch (Exception e) {
 			//NoNodeException - nothing to delete
@@ -250,7 +289,8 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	@Override
 	public Iterable<StreamDefinition> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
-		throw new UnsupportedOperationException("Auto-generated method stub");
+		return SortedChildrenCache.convert(
+				definitions.range(from, fromInclusive, to, toInclusive).values(), converter);
 	}
 
 }
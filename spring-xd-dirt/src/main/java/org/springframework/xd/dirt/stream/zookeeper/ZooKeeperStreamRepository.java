@@ -18,7 +18,6 @@ package org.springframework.xd.dirt.stream.zookeeper;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Deque;
 import java.util.Iterator;
@@ -26,13 +25,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
-import org.apache.commons.collections.CollectionUtils;
+import com.google.common.base.Function;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -44,32 +44,56 @@ import org.springframework.xd.dirt.core.StreamDeploymentsPath;
 import org.springframework.xd.dirt.stream.Stream;
 import org.springframework.xd.dirt.stream.StreamDefinition;
 import org.springframework.xd.dirt.stream.StreamRepository;
-import org.springframework.xd.dirt.util.PagingUtility;
+import org.springframework.xd.dirt.stream.zookeeper.SortedChildrenCache.Child;
 import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperUtils;
 
 /**
- * Stream instance repository. It should only return values for Streams that are deployed.
+ * Stream instance repository. It should only return values for Streams that are deployed. Paged, sorted and range
+ * queries are served from {@link SortedChildrenCache}s of the definitions and deployments.
  *
  * @author Mark Fisher
  * @author Gunnar Hillert
  */
 // todo: the StreamRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperStreamRepository implements StreamRepository, InitializingBean {
+public class ZooKeeperStreamRepository implements StreamRepository, InitializingBean, DisposableBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(ZooKeeperStreamRepository.class);
 
 	private final ZooKeeperConnection zkConnection;
 
-	private final PagingUtility<Stream> pagingUtility = new PagingUtility<Stream>();
+	private final SortedChildrenCache definitions;
+
+	private final SortedChildrenCache deployments;
+
+	private final Function<Child, Stream> converter = new Function<Child, Stream>() {
+
+		@Override
+		public Stream apply(Child deployment) {
+			Child definition = definitions.get(deployment.getName());
+			if (definition == null || definition.getData() == null) {
+				return null;
+			}
+			Map<String, String> map = ZooKeeperUtils.bytesToMap(definition.getData());
+			Stream stream = new Stream(new StreamDefinition(deployment.getName(), map.get("definition")));
+			stream.setStartedAt(new Date(deployment.getCtime()));
+			stream.setStatus(deployment.getStatus() == null
+					? new DeploymentUnitStatus(DeploymentUnitStatus.State.undeployed)
+					: new DeploymentUnitStatus(deployment.getStatus()));
+			return stream;
+		}
+
+	};
 
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
 	@Autowired
 	public ZooKeeperStreamRepository(ZooKeeperConnection zkConnection) {
 		this.zkConnection = zkConnection;
+		this.definitions = new SortedChildrenCache(zkConnection, Paths.STREAMS, false);
+		this.deployments = new SortedChildrenCache(zkConnection, Paths.STREAM_DEPLOYMENTS, true);
 	}
 
 	@Override
@@ -81,15 +105,20 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 		}
 	}
 
+	@Override
+	public void destroy() {
+		definitions.close();
+		deployments.close();
+	}
+
 	@Override
 	public Iterable<Stream> findAll(Sort sort) {
-		// todo: implement sort support
-		return findAll();
+		return SortedChildrenCache.convert(deployments.sorted(sort).values(), converter);
 	}
 
 	@Override
 	public Page<Stream> findAll(Pageable pageable) {
-		return pagingUtility.getPagedData(pageable, findAll());
+		return deployments.findPage(pageable, converter);
 	}
 
 	@Override
@@ -229,6 +258,7 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 		try {
 			client.delete().deletingChildrenIfNeeded().forPath(streamDeploymentPath);
+			deployments.remove(id);
 		}
 		catch (KeeperException.NotEmptyException e) {
 			List<String> children = new ArrayList<String>();
@@ -275,23 +305,8 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 	@Override
 	public Iterable<Stream> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
-		List<Stream> all = findAll();
-		if (CollectionUtils.isEmpty(all)) {
-			return Collections.emptyList();
-		}
-		Collections.sort(all);
-
-		List<Stream> results = new ArrayList<Stream>();
-		for (Stream stream : all) {
-			if (stream.getDefinition().getName().compareTo(to) > 0) {
-				break;
-			}
-			if (stream.getDefinition().getName().compareTo(from) < 0) {
-				continue;
-			}
-			results.add(stream);
-		}
-		return results;
+		return SortedChildrenCache.convert(
+				deployments.range(from, fromInclusive, to, toInclusive).values(), converter);
 	}
 
 	@Override
@@ -117,6 +117,18 @@ public class Paths {
 	 */
 	public static final String RESPONSES = "responses";
 
+	/**
+	 * Name of tuple schemas node. Schemas of tuples written in the compact format are written as
+	 * children of this node.
+	 */
+	public static final String TUPLE_SCHEMAS = "tupleschemas";
+
+	/**
+	 * Name of message rates node. Each container writes the message rates of its deployed
+	 * modules to an ephemeral child of this node named after the container.
+	 */
+	public static final String MESSAGE_RATES = "messagerates";
+
 	/**
 	 * Name of module deployments node. Module deployment requests for
 	 * individual containers are written as children of this node.
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.container.store;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.xd.dirt.container.store.ZooKeeperModuleMessageRateRepositoryTests.ZooKeeperModuleMessageRateRepositoryTestsConfig;
+import org.springframework.xd.dirt.zookeeper.EmbeddedZooKeeper;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+
+/**
+ * Tests for {@link ZooKeeperModuleMessageRateRepository}.
+ */
+@ContextConfiguration(classes = ZooKeeperModuleMessageRateRepositoryTestsConfig.class)
+@RunWith(SpringJUnit4ClassRunner.class)
+public class ZooKeeperModuleMessageRateRepositoryTests {
+
+	private static final String MODULE = "ticktock.source.time.0";
+
+	@Autowired
+	private ModuleMessageRateRepository messageRateRepository;
+
+	@Autowired
+	private ZooKeeperConnection zooKeeperConnection;
+
+	private final String id = "test" + UUID.randomUUID().toString();
+
+	@Test
+	public void averageOverWindow() {
+		assertTrue(messageRateRepository.findByContainerId(id).isEmpty());
+
+		messageRateRepository.save(id, rates(10));
+		assertOutputRate(10);
+
+		messageRateRepository.save(id, rates(20));
+		assertOutputRate(15);
+	}
+
+	@Test
+	public void ratesRemovedWithNode() throws Exception {
+		messageRateRepository.findByContainerId(id);
+		messageRateRepository.save(id, rates(10));
+		assertOutputRate(10);
+
+		zooKeeperConnection.getClient().delete().forPath(Paths.build(Paths.MESSAGE_RATES, id));
+		long timeout = System.currentTimeMillis() + 15000;
+		while (!messageRateRepository.findByContainerId(id).isEmpty() && System.currentTimeMillis() < timeout) {
+			Thread.sleep(200);
+		}
+		assertTrue(messageRateRepository.findByContainerId(id).isEmpty());
+	}
+
+	private Map<String, HashMap<String, Double>> rates(double rate) {
+		HashMap<String, Double> channelRates = new HashMap<String, Double>();
+		channelRates.put("output", rate);
+		return Collections.singletonMap(MODULE, channelRates);
+	}
+
+	/**
+	 * Wait for the repository to report the expected output rate of the module.
+	 *
+	 * @param expected the expected rate
+	 */
+	private void assertOutputRate(double expected) {
+		long timeout = System.currentTimeMillis() + 15000;
+		Double rate = null;
+		while (System.currentTimeMillis() < timeout) {
+			HashMap<String, Double> channelRates = messageRateRepository.findByContainerId(id).get(MODULE);
+			rate = channelRates == null ? null : channelRates.get("output");
+			if (rate != null && Math.abs(rate - expected) < 0.001) {
+				return;
+			}
+			try {
+				Thread.sleep(200);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		fail("Expected rate " + expected + " but was " + rate);
+	}
+
+	@Configuration
+	public static class ZooKeeperModuleMessageRateRepositoryTestsConfig {
+
+		@Bean
+		public EmbeddedZooKeeper embeddedZooKeeper() {
+			return new EmbeddedZooKeeper();
+		}
+
+		@Bean
+		public ZooKeeperConnection zooKeeperConnection() {
+			return new ZooKeeperConnection("localhost:" + embeddedZooKeeper().getClientPort());
+		}
+
+		@Bean
+		public ModuleMessageRateRepository messageRateRepository() {
+			return new ZooKeeperModuleMessageRateRepository(zooKeeperConnection());
+		}
+
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		CuratorFramework client = zooKeeperConnection.getClient();
+		for (String path : client.getChildren().forPath(Paths.MESSAGE_RATES)) {
+			client.delete().deletingChildrenIfNeeded().forPath(Paths.build(Paths.MESSAGE_RATES, path));
+		}
+	}
+
+}
@@ -34,7 +34,6 @@ import org.springframework.xd.tuple.serializer.kryo.TupleKryoRegistrar;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.List;
 import java.util.Properties;
 
 import static org.junit.Assert.*;
@@ -298,7 +297,7 @@ public abstract class AbstractMessageBusTests {
 
 	private Collection<?> getBindingsFromMsgBus(MessageBus messageBus) {
 		DirectFieldAccessor accessor = new DirectFieldAccessor(messageBus);
-		return (List<?>) accessor.getPropertyValue("bindings");
+		return ((BindingRegistry) accessor.getPropertyValue("bindings")).getBindings();
 	}
 
 	@SuppressWarnings({"unchecked", "rawtypes"})
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.endpoint.EventDrivenConsumer;
+import org.springframework.integration.handler.BridgeHandler;
+
+public class BindingRegistryTests {
+
+	private final BindingRegistry registry = new BindingRegistry();
+
+	@Test
+	public void testFindAndRemove() {
+		Binding producer = Binding.forProducer("foo.0", new DirectChannel(), endpoint("outbound.foo.0"),
+				new AbstractBusPropertiesAccessor(new Properties()) {
+				});
+		Binding consumer = Binding.forConsumer("foo.0", endpoint("inbound.foo.0"), new DirectChannel(),
+				new AbstractBusPropertiesAccessor(new Properties()) {
+				});
+		registry.add(producer);
+		registry.add(consumer);
+
+		assertEquals(Arrays.asList(producer, consumer), registry.getBindings());
+		assertSame(producer, registry.find("foo.0", Binding.PRODUCER));
+		assertSame(consumer, registry.find("foo.0", Binding.CONSUMER));
+		assertNull(registry.find("foo.0", Binding.DIRECT));
+		assertEquals(Arrays.asList(consumer), registry.findByComponentName("inbound.foo.0"));
+
+		assertTrue(registry.remove(producer));
+		assertFalse(registry.remove(producer));
+		assertNull(registry.find("foo.0", Binding.PRODUCER));
+		assertTrue(registry.findByComponentName("outbound.foo.0").isEmpty());
+		assertEquals(Arrays.asList(consumer), registry.getBindings());
+
+		assertTrue(registry.remove(consumer));
+		assertTrue(registry.isEmpty());
+	}
+
+	private EventDrivenConsumer endpoint(String name) {
+		EventDrivenConsumer endpoint = new EventDrivenConsumer(new DirectChannel(), new BridgeHandler());
+		endpoint.setBeanName(name);
+		return endpoint;
+	}
+
+}
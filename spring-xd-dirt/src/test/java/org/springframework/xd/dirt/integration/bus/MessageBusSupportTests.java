@@ -16,19 +16,41 @@
 
 package org.springframework.xd.dirt.integration.bus;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.integration.codec.kryo.PojoCodec;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.test.util.TestUtils;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHeaders;
@@ -37,6 +59,8 @@ import org.springframework.messaging.support.GenericMessage;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.xd.dirt.integration.bus.MessageBusSupport.JavaClassMimeTypeConversion;
+import org.springframework.xd.dirt.integration.bus.MessageBusSupport.PartitioningMetadata;
+import org.springframework.xd.dirt.server.SharedServerContextConfiguration;
 import org.springframework.xd.tuple.DefaultTuple;
 import org.springframework.xd.tuple.Tuple;
 import org.springframework.xd.tuple.TupleBuilder;
@@ -191,6 +215,156 @@ public class MessageBusSupportTests {
 		assertNull(reconstructed.get(MessageHeaders.CONTENT_TYPE));
 	}
 
+	@Test
+	public void testSerializationBuffersReused() {
+		SerializationBufferPool pool = new SerializationBufferPool(256, 1024);
+		messageBus.setSerializationBufferPool(pool);
+		Tuple payload = TupleBuilder.tuple().of("foo", "bar");
+		byte[] first = (byte[]) messageBus.serializePayloadIfNecessary(new GenericMessage<Tuple>(payload))
+				.getPayload();
+		byte[] second = (byte[]) messageBus.serializePayloadIfNecessary(new GenericMessage<Tuple>(payload))
+				.getPayload();
+		assertNotSame(first, second);
+		assertArrayEquals(first, second);
+		assertEquals(2, pool.getAcquisitions());
+		assertEquals(1, pool.getHits());
+		assertEquals(0.5, pool.getHitRate(), 0.0);
+
+		Tuple large = TupleBuilder.tuple().of("foo", new String(new char[2048]).replace('\0', 'x'));
+		MessageValues converted = messageBus.serializePayloadIfNecessary(new GenericMessage<Tuple>(large), true);
+		assertTrue(converted.getPayload() instanceof ByteBuffer);
+		assertEquals(1, pool.getGrowths());
+		assertEquals(1, pool.getDiscards());
+		MessageValues reconstructed = messageBus.deserializePayloadIfNecessary(converted);
+		assertEquals(large, reconstructed.getPayload());
+	}
+
+	@Test
+	public void testSerializationBufferStatisticsSurviveTheirThread() throws Exception {
+		final SerializationBufferPool pool = new SerializationBufferPool(256, 1024);
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				pool.release(pool.acquire());
+				pool.release(pool.acquire());
+			}
+
+		});
+		thread.start();
+		thread.join(10000);
+		pool.release(pool.acquire());
+		assertEquals(3, pool.getAcquisitions());
+		assertEquals(1, pool.getHits());
+	}
+
+	@Test
+	public void testSerializationBufferStatisticsAreExposedOverJmx() throws Exception {
+		SerializationBufferPool pool = new SerializationBufferPool(256, 1024);
+		pool.release(pool.acquire());
+		pool.release(pool.acquire());
+
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		AnnotationMBeanExporter exporter = new AnnotationMBeanExporter();
+		exporter.setServer(server);
+		ObjectName objectName = new ObjectName(SharedServerContextConfiguration.SERIALIZATION_BUFFER_POOL_OBJECT_NAME);
+		exporter.registerManagedResource(pool, objectName);
+		try {
+			assertEquals(2L, server.getAttribute(objectName, "Acquisitions"));
+			assertEquals(1L, server.getAttribute(objectName, "Hits"));
+			assertEquals(0.5, (Double) server.getAttribute(objectName, "HitRate"), 0.0);
+			assertEquals(0L, server.getAttribute(objectName, "Discards"));
+		}
+		finally {
+			exporter.destroy();
+		}
+	}
+
+	@Test
+	public void testTupleDeserializationFromPayloadView() throws Exception {
+		Tuple payload = TupleBuilder.tuple().of("foo", "bar");
+		MessageValues convertedValues = messageBus.serializePayloadIfNecessary(new GenericMessage<Tuple>(payload));
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
+		byte[] embedded = converter.embedHeaders(convertedValues, MessageHeaders.CONTENT_TYPE);
+
+		MessageValues extracted = converter.extractHeaders(MessageBuilder.withPayload(embedded).build(), false, true);
+		assertTrue(extracted.getPayload() instanceof ByteBuffer);
+		MessageValues reconstructed = messageBus.deserializePayloadIfNecessary(extracted);
+		assertEquals("bar", ((Tuple) reconstructed.getPayload()).getString("foo"));
+	}
+
+	@Test
+	public void testStringAndBytesDeserializationFromPayloadView() throws Exception {
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
+		MessageValues convertedValues = messageBus.serializePayloadIfNecessary(new GenericMessage<String>("foo"));
+		byte[] embedded = converter.embedHeaders(convertedValues, MessageHeaders.CONTENT_TYPE);
+		MessageValues reconstructed = messageBus.deserializePayloadIfNecessary(
+				converter.extractHeaders(MessageBuilder.withPayload(embedded).build(), false, true));
+		assertEquals("foo", reconstructed.getPayload());
+
+		convertedValues = messageBus.serializePayloadIfNecessary(new GenericMessage<byte[]>("bar".getBytes()));
+		embedded = converter.embedHeaders(convertedValues, MessageHeaders.CONTENT_TYPE);
+		reconstructed = messageBus.deserializePayloadIfNecessary(
+				converter.extractHeaders(MessageBuilder.withPayload(embedded).build(), false, true));
+		assertEquals("bar", new String((byte[]) reconstructed.getPayload()));
+	}
+
+	@Test
+	public void testDynamicProducerIsOnlyReturnedOnceBound() throws Exception {
+		final CountDownLatch binding = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger binds = new AtomicInteger();
+		final TestMessageBus bus = new TestMessageBus() {
+
+			@Override
+			public void bindProducer(String name, MessageChannel channel, Properties properties) {
+				binds.incrementAndGet();
+				binding.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+		};
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.refresh();
+		bus.setApplicationContext(context);
+		Callable<MessageChannel> bind = new Callable<MessageChannel>() {
+
+			@Override
+			public MessageChannel call() throws Exception {
+				return bus.bindDynamicProducer("queue:foo", new Properties());
+			}
+
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<MessageChannel> first = executor.submit(bind);
+			assertTrue(binding.await(10, TimeUnit.SECONDS));
+			Future<MessageChannel> second = executor.submit(bind);
+			try {
+				second.get(200, TimeUnit.MILLISECONDS);
+				fail("the channel must not be returned before its producer is bound");
+			}
+			catch (TimeoutException e) {
+				// expected
+			}
+			release.countDown();
+			assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+			assertSame(first.get(), bus.bindDynamicProducer("queue:foo", new Properties()));
+			assertEquals(1, binds.get());
+			// no bindings were registered, so no lock is retained for the name
+			assertTrue(TestUtils.getPropertyValue(bus, "bindingLocks", Map.class).isEmpty());
+		}
+		finally {
+			executor.shutdownNow();
+			context.close();
+		}
+	}
+
 	@Test
 	public void mimeTypeIsSimpleObject() throws ClassNotFoundException {
 		MimeType mt = JavaClassMimeTypeConversion.mimeTypeFromObject(new Object());
@@ -226,6 +400,75 @@ public class MessageBusSupportTests {
 		assertEquals(int[][][].class, Class.forName(className));
 	}
 
+	@Test
+	public void testPartitionSelectorClassResolvedOnce() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.refresh();
+		messageBus.setApplicationContext(context);
+		messageBus.setIntegrationEvaluationContext(new StandardEvaluationContext());
+		Properties properties = new Properties();
+		properties.setProperty(BusProperties.PARTITION_KEY_EXPRESSION, "payload");
+		properties.setProperty(BusProperties.PARTITION_SELECTOR_CLASS, FirstPartitionSelector.class.getName());
+		PartitioningMetadata meta = messageBus.createPartitioningMetadata(new AbstractBusPropertiesAccessor(properties) {
+		}, 3);
+		int instances = FirstPartitionSelector.instances.get();
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, messageBus.determinePartition(new GenericMessage<String>("foo" + i), meta));
+		}
+		assertEquals(instances + 1, FirstPartitionSelector.instances.get());
+		context.close();
+	}
+
+	@Test
+	public void testHeaderPartitionKey() {
+		messageBus.setIntegrationEvaluationContext(new StandardEvaluationContext());
+		Properties properties = new Properties();
+		properties.setProperty(BusProperties.PARTITION_KEY_EXPRESSION, "headers['customer']");
+		properties.setProperty(BusProperties.PARTITION_SELECTOR_EXPRESSION, "length()");
+		PartitioningMetadata meta = messageBus.createPartitioningMetadata(new AbstractBusPropertiesAccessor(properties) {
+		}, 10);
+		assertTrue(meta.isPartitionedModule());
+		Message<?> message = MessageBuilder.withPayload("foo").setHeader("customer", "acme").build();
+		assertEquals(4, messageBus.determinePartition(message, meta));
+	}
+
+	@Test
+	public void testCompiledPartitionKeyExpressionRevertsToInterpreted() {
+		messageBus.setIntegrationEvaluationContext(new StandardEvaluationContext());
+		Properties properties = new Properties();
+		properties.setProperty(BusProperties.PARTITION_KEY_EXPRESSION, "payload.length()");
+		properties.setProperty(BusProperties.PARTITION_SELECTOR_EXPRESSION, "#root");
+		PartitioningMetadata meta = messageBus.createPartitioningMetadata(new AbstractBusPropertiesAccessor(properties) {
+		}, 10);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(3, messageBus.determinePartition(new GenericMessage<String>("foo"), meta));
+		}
+		assertEquals(5, messageBus.determinePartition(
+				new GenericMessage<StringBuilder>(new StringBuilder("hello")), meta));
+	}
+
+	@Test
+	public void testPartitionExpressionsCompiledAgainstBeanClassLoader() {
+		ClassLoader classLoader = new ClassLoader(getClass().getClassLoader()) {
+		};
+		messageBus.setBeanClassLoader(classLoader);
+		messageBus.setIntegrationEvaluationContext(new StandardEvaluationContext());
+		Properties properties = new Properties();
+		properties.setProperty(BusProperties.PARTITION_KEY_EXPRESSION, "payload.length()");
+		PartitioningMetadata meta = messageBus.createPartitioningMetadata(new AbstractBusPropertiesAccessor(properties) {
+		}, 10);
+		assertSame(classLoader, TestUtils.getPropertyValue(meta,
+				"partitionKeyExpression.parsers.compiling.configuration.compilerClassLoader"));
+		assertEquals(3, messageBus.determinePartition(new GenericMessage<String>("foo"), meta));
+
+		TestMessageBus otherBus = new TestMessageBus();
+		PartitioningMetadata otherMeta = otherBus.createPartitioningMetadata(
+				new AbstractBusPropertiesAccessor(properties) {
+				}, 10);
+		assertNotSame(TestUtils.getPropertyValue(meta, "partitionKeyExpression.parsers"),
+				TestUtils.getPropertyValue(otherMeta, "partitionKeyExpression.parsers"));
+	}
+
 	public static class Foo {
 
 		private String bar;
@@ -268,6 +511,21 @@ public class MessageBusSupportTests {
 
 	}
 
+	public static class FirstPartitionSelector implements PartitionSelectorStrategy {
+
+		private static final AtomicInteger instances = new AtomicInteger();
+
+		public FirstPartitionSelector() {
+			instances.incrementAndGet();
+		}
+
+		@Override
+		public int selectPartition(Object key, int partitionCount) {
+			return 0;
+		}
+
+	}
+
 	public class TestMessageBus extends MessageBusSupport {
 
 		@Override
@@ -94,7 +94,7 @@ abstract public class PartitionCapableBusTests extends BrokerBusTests {
 		output.setBeanName("test.output");
 		bus.bindProducer("part.0", output, properties);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 		assertEquals(1, bindings.size());
 		try {
 			AbstractEndpoint endpoint = bindings.get(0).getEndpoint();
@@ -195,7 +195,7 @@ abstract public class PartitionCapableBusTests extends BrokerBusTests {
 		output.setBeanName("test.output");
 		bus.bindProducer("partJ.0", output, properties);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 		assertEquals(1, bindings.size());
 		if (usesExplicitRouting()) {
 			AbstractEndpoint endpoint = bindings.get(0).getEndpoint();
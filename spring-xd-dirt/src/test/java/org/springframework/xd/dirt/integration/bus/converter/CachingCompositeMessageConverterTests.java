@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.xd.dirt.module.jmx.ModuleObjectNamingStrategy;
+
+/**
+ * Tests for {@link CachingCompositeMessageConverter}.
+ */
+public class CachingCompositeMessageConverterTests {
+
+	private final AtomicInteger declined = new AtomicInteger();
+
+	private final MessageConverter decliningConverter = new MessageConverter() {
+
+		@Override
+		public Object fromMessage(Message<?> message, Class<?> targetClass) {
+			declined.incrementAndGet();
+			return null;
+		}
+
+		@Override
+		public Message<?> toMessage(Object payload, MessageHeaders headers) {
+			return null;
+		}
+
+	};
+
+	@Test
+	public void resolvedConverterServesLaterMessages() {
+		CachingCompositeMessageConverter converter = new CachingCompositeMessageConverter(Arrays.asList(
+				this.decliningConverter, new ByteArrayToStringMessageConverter(), new PojoToStringMessageConverter()));
+
+		assertEquals("foo", payloadOf(converter.fromMessage(new GenericMessage<byte[]>("foo".getBytes()),
+				String.class)));
+		assertEquals("bar", payloadOf(converter.fromMessage(new GenericMessage<byte[]>("bar".getBytes()),
+				String.class)));
+		assertEquals(1, this.declined.get());
+		assertEquals(1, converter.getCacheMisses());
+		assertEquals(1, converter.getCacheHits());
+
+		assertEquals("42", payloadOf(converter.fromMessage(new GenericMessage<Integer>(42), String.class)));
+		assertEquals(2, this.declined.get());
+		assertEquals(2, converter.getCacheMisses());
+		assertEquals(2, converter.getCacheSize());
+	}
+
+	@Test
+	public void decliningRememberedConverterIsNotAskedAgain() {
+		final AtomicInteger offered = new AtomicInteger();
+		MessageConverter acceptsOnce = new MessageConverter() {
+
+			@Override
+			public Object fromMessage(Message<?> message, Class<?> targetClass) {
+				return offered.incrementAndGet() == 1 ? message : null;
+			}
+
+			@Override
+			public Message<?> toMessage(Object payload, MessageHeaders headers) {
+				return null;
+			}
+
+		};
+		CachingCompositeMessageConverter converter = new CachingCompositeMessageConverter(Arrays.asList(
+				acceptsOnce, new ByteArrayToStringMessageConverter()));
+
+		assertEquals("foo", new String((byte[]) payloadOf(converter.fromMessage(
+				new GenericMessage<byte[]>("foo".getBytes()), String.class))));
+		assertEquals("bar", payloadOf(converter.fromMessage(new GenericMessage<byte[]>("bar".getBytes()),
+				String.class)));
+		assertEquals(2, offered.get());
+		assertEquals(2, converter.getCacheMisses());
+
+		assertEquals("baz", payloadOf(converter.fromMessage(new GenericMessage<byte[]>("baz".getBytes()),
+				String.class)));
+		assertEquals(2, offered.get());
+		assertEquals(1, converter.getCacheHits());
+	}
+
+	@Test
+	public void cacheStatisticsAreExposedOverJmx() throws Exception {
+		CachingCompositeMessageConverter converter = new CachingCompositeMessageConverter(Arrays.asList(
+				this.decliningConverter, new ByteArrayToStringMessageConverter()));
+		converter.fromMessage(new GenericMessage<byte[]>("foo".getBytes()), String.class);
+		converter.fromMessage(new GenericMessage<byte[]>("bar".getBytes()), String.class);
+
+		Properties objectNameProperties = new Properties();
+		objectNameProperties.setProperty("group", "test");
+		objectNameProperties.setProperty("type", "sink");
+		objectNameProperties.setProperty("label", "log");
+		objectNameProperties.setProperty("sequence", "1");
+		ObjectName objectName = new ModuleObjectNamingStrategy("xd.test", objectNameProperties).getObjectName(
+				converter, "inputMessageConverter");
+		assertEquals("xd.test:module=test.sink.log.1,component=CachingCompositeMessageConverter,"
+				+ "name=inputMessageConverter", objectName.toString());
+
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		AnnotationMBeanExporter exporter = new AnnotationMBeanExporter();
+		exporter.setServer(server);
+		exporter.registerManagedResource(converter, objectName);
+		try {
+			assertEquals(1L, server.getAttribute(objectName, "CacheHits"));
+			assertEquals(1L, server.getAttribute(objectName, "CacheMisses"));
+			assertEquals(1, server.getAttribute(objectName, "CacheSize"));
+		}
+		finally {
+			exporter.destroy();
+		}
+	}
+
+	@Test
+	public void unconvertibleMessagesAreNotRemembered() {
+		CachingCompositeMessageConverter converter = new CachingCompositeMessageConverter(Arrays.asList(
+				this.decliningConverter, new ByteArrayToStringMessageConverter()));
+
+		assertNull(converter.fromMessage(new GenericMessage<Integer>(42), String.class));
+		assertNull(converter.fromMessage(new GenericMessage<Integer>(42), String.class));
+		assertEquals(2, converter.getCacheMisses());
+		assertEquals(0, converter.getCacheSize());
+	}
+
+	@Test
+	public void cacheSizeIsBounded() {
+		CachingCompositeMessageConverter converter = new CachingCompositeMessageConverter(Arrays.asList(
+				this.decliningConverter, new ByteArrayToStringMessageConverter(), new PojoToStringMessageConverter()),
+				1);
+
+		assertEquals("foo", payloadOf(converter.fromMessage(new GenericMessage<byte[]>("foo".getBytes()),
+				String.class)));
+		assertEquals("42", payloadOf(converter.fromMessage(new GenericMessage<Integer>(42), String.class)));
+		assertEquals("43", payloadOf(converter.fromMessage(new GenericMessage<Integer>(43), String.class)));
+		assertEquals(1, converter.getCacheSize());
+		assertEquals(3, converter.getCacheMisses());
+	}
+
+	private static Object payloadOf(Object converted) {
+		return ((Message<?>) converted).getPayload();
+	}
+
+}
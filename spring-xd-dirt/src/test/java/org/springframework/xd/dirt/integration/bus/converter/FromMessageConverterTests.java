@@ -222,6 +222,26 @@ public class FromMessageConverterTests {
 				result.getHeaders().get(MessageHeaders.CONTENT_TYPE));
 	}
 
+	@Test
+	public void testTupleToJsonBytes() {
+		Tuple t = TupleBuilder.fromString("{\"foo\":\"bar\"}");
+		Message<?> msg = MessageBuilder.withPayload(t).build();
+		TupleToJsonMessageConverter messageConverter = new TupleToJsonMessageConverter();
+		Message<?> result = (Message<?>) messageConverter.fromMessage(msg, byte[].class);
+		assertEquals("{\"foo\":\"bar\"}", new String((byte[]) result.getPayload()));
+		assertEquals(MimeTypeUtils.APPLICATION_JSON,
+				result.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testJsonBytesToTuple() {
+		Message<?> msg = MessageBuilder.withPayload("{\"foo\":\"bar\"}".getBytes()).build();
+		CompositeMessageConverter converter = converterFactory.newInstance(MimeType.valueOf("application/x-xd-tuple"));
+		Message<Tuple> result = (Message<Tuple>) converter.fromMessage(msg, DefaultTuple.class);
+		assertEquals("bar", result.getPayload().getString("foo"));
+	}
+
 	@Test
 	public void testJavaSerialization() {
 		Foo foo = new Foo();
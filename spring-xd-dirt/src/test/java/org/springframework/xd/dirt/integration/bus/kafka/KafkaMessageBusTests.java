@@ -69,6 +69,7 @@ import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.xd.dirt.integration.bus.Binding;
+import org.springframework.xd.dirt.integration.bus.BindingRegistry;
 import org.springframework.xd.dirt.integration.bus.BusProperties;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.integration.bus.PartitionCapableBusTests;
@@ -422,8 +423,7 @@ public class KafkaMessageBusTests extends PartitionCapableBusTests {
 		DirectChannel inputChannel = new DirectChannel();
 		messageBus.bindConsumer("foo" + uniqueBindingId, inputChannel, consumerProperties);
 		DirectFieldAccessor accessor = new DirectFieldAccessor(messageBus.getCoreMessageBus());
-		@SuppressWarnings("unchecked")
-		List<Binding> bindings = (List<Binding>) accessor.getPropertyValue("bindings");
+		List<Binding> bindings = ((BindingRegistry) accessor.getPropertyValue("bindings")).getBindings();
 		assertThat(bindings, hasSize(1));
 		Binding consumerBinding = bindings.get(0);
 		AbstractEndpoint bindingEndpoint = consumerBinding.getEndpoint();
@@ -445,8 +445,7 @@ public class KafkaMessageBusTests extends PartitionCapableBusTests {
 		DirectChannel inputChannel = new DirectChannel();
 		messageBus.bindProducer("foo" + uniqueBindingId, inputChannel, producerProperties);
 		DirectFieldAccessor accessor = new DirectFieldAccessor(messageBus.getCoreMessageBus());
-		@SuppressWarnings("unchecked")
-		List<Binding> bindings = (List<Binding>) accessor.getPropertyValue("bindings");
+		List<Binding> bindings = ((BindingRegistry) accessor.getPropertyValue("bindings")).getBindings();
 		assertThat(bindings, hasSize(1));
 		Binding producerBinding = bindings.get(0);
 		AbstractEndpoint bindingEndpoint = producerBinding.getEndpoint();
@@ -49,6 +49,7 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.xd.dirt.integration.bus.Binding;
+import org.springframework.xd.dirt.integration.bus.BindingRegistry;
 import org.springframework.xd.dirt.integration.bus.BusProperties;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.integration.bus.XdHeaders;
@@ -80,7 +81,7 @@ public class RawModeKafkaMessageBusTests extends KafkaMessageBusTests {
 		output.setBeanName("test.output");
 		bus.bindProducer("partJ.0", output, properties);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 		assertEquals(1, bindings.size());
 
 		properties.clear();
@@ -134,7 +135,7 @@ public class RawModeKafkaMessageBusTests extends KafkaMessageBusTests {
 		output.setBeanName("test.output");
 		bus.bindProducer("part.0", output, properties);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 		assertEquals(1, bindings.size());
 		try {
 			AbstractEndpoint endpoint = bindings.get(0).getEndpoint();
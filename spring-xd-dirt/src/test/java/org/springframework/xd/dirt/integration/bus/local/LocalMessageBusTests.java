@@ -17,6 +17,7 @@
 package org.springframework.xd.dirt.integration.bus.local;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
@@ -80,6 +81,88 @@ public class LocalMessageBusTests extends AbstractMessageBusTests {
 		assertEquals(Integer.MAX_VALUE - 1, TestUtils.getPropertyValue(exec, "queueCapacity"));
 	}
 
+	@Test
+	public void testRingBufferNamedChannel() throws Exception {
+		LocalMessageBus bus = (LocalMessageBus) getMessageBus();
+		bus.setRingBuffer(true);
+		bus.setRingBufferSize(16);
+		bus.setRingBufferBatchSize(4);
+		DirectChannel moduleOutputChannel = new DirectChannel();
+		bus.bindProducer("queue:ring", moduleOutputChannel, null);
+		final CountDownLatch latch = new CountDownLatch(3);
+		final AtomicReference<Thread> consumerThread = new AtomicReference<Thread>();
+		DirectChannel moduleInputChannel = new DirectChannel();
+		moduleInputChannel.subscribe(new MessageHandler() {
+
+			@Override
+			public void handleMessage(Message<?> message) throws MessagingException {
+				consumerThread.set(Thread.currentThread());
+				latch.countDown();
+			}
+		});
+		bus.bindConsumer("queue:ring", moduleInputChannel, null);
+		RingBufferChannel ring = bus.getBean("queue:ring", RingBufferChannel.class);
+		assertEquals(16, ring.getCapacity());
+		assertEquals(4, ring.getBatchSize());
+		for (int i = 0; i < 3; i++) {
+			moduleOutputChannel.send(new GenericMessage<Integer>(i));
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertNotSame(Thread.currentThread(), consumerThread.get());
+		assertTrue(ring.getDrainCount() > 0);
+		bus.unbindConsumers("queue:ring");
+		bus.unbindProducers("queue:ring");
+		ring.destroy();
+	}
+
+	@Test
+	public void testRingBufferConsumerStopsWhenUnbound() throws Exception {
+		LocalMessageBus bus = (LocalMessageBus) getMessageBus();
+		bus.setRingBuffer(true);
+		DirectChannel moduleOutputChannel = new DirectChannel();
+		bus.bindProducer("queue:ringUnbind", moduleOutputChannel, null);
+		Thread consumerThread = bindRingBufferConsumer(bus, "queue:ringUnbind", moduleOutputChannel);
+		bus.unbindConsumers("queue:ringUnbind");
+		assertTrue(consumerThread.isAlive());
+		bus.unbindProducers("queue:ringUnbind");
+		consumerThread.join(10000);
+		assertFalse(consumerThread.isAlive());
+		assertFalse(TestUtils.getPropertyValue(bus, "applicationContext", GenericApplicationContext.class)
+				.containsBean("queue:ringUnbind"));
+	}
+
+	@Test
+	public void testRingBufferConsumerStopsWhenBusIsDestroyed() throws Exception {
+		LocalMessageBus bus = (LocalMessageBus) getMessageBus();
+		bus.setRingBuffer(true);
+		DirectChannel moduleOutputChannel = new DirectChannel();
+		bus.bindProducer("queue:ringDestroy", moduleOutputChannel, null);
+		Thread consumerThread = bindRingBufferConsumer(bus, "queue:ringDestroy", moduleOutputChannel);
+		bus.destroy();
+		consumerThread.join(10000);
+		assertFalse(consumerThread.isAlive());
+	}
+
+	private Thread bindRingBufferConsumer(LocalMessageBus bus, String name, DirectChannel moduleOutputChannel)
+			throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicReference<Thread> consumerThread = new AtomicReference<Thread>();
+		DirectChannel moduleInputChannel = new DirectChannel();
+		moduleInputChannel.subscribe(new MessageHandler() {
+
+			@Override
+			public void handleMessage(Message<?> message) throws MessagingException {
+				consumerThread.set(Thread.currentThread());
+				latch.countDown();
+			}
+		});
+		bus.bindConsumer(name, moduleInputChannel, null);
+		moduleOutputChannel.send(new GenericMessage<String>("foo"));
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertTrue(consumerThread.get().getName().startsWith("xd.localbus.ring."));
+		return consumerThread.get();
+	}
+
 	@Test
 	public void testPayloadConversionNotNeededExplicitType() throws Exception {
 		LocalMessageBus bus = (LocalMessageBus) getMessageBus();
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.integration.bus.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.util.ErrorHandler;
+import org.springframework.xd.dirt.integration.bus.local.RingBufferChannel.WaitStrategy;
+
+public class RingBufferChannelTests {
+
+	@Test
+	public void testCapacityRoundedToPowerOfTwo() {
+		assertEquals(1, new RingBufferChannel(1, 1, WaitStrategy.PARK).getCapacity());
+		assertEquals(8, new RingBufferChannel(5, 1, WaitStrategy.PARK).getCapacity());
+		assertEquals(16, new RingBufferChannel(16, 64, WaitStrategy.PARK).getCapacity());
+		assertEquals(16, new RingBufferChannel(16, 64, WaitStrategy.PARK).getBatchSize());
+	}
+
+	@Test
+	public void testBuffersUntilSubscribedThenDrainsInBatches() throws Exception {
+		RingBufferChannel channel = new RingBufferChannel(8, 4, WaitStrategy.PARK);
+		for (int i = 0; i < 8; i++) {
+			assertTrue(channel.send(new GenericMessage<Integer>(i), 0));
+		}
+		assertFalse(channel.send(new GenericMessage<Integer>(8), 0));
+		assertFalse(channel.send(new GenericMessage<Integer>(8), 10));
+		assertEquals(8, channel.getQueueSize());
+		assertEquals(0, channel.getRemainingCapacity());
+
+		final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+		final CountDownLatch latch = new CountDownLatch(8);
+		channel.subscribe(new MessageHandler() {
+
+			@Override
+			public void handleMessage(Message<?> message) throws MessagingException {
+				received.add(message.getPayload());
+				latch.countDown();
+			}
+
+		});
+		try {
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+			assertEquals(Arrays.<Object> asList(0, 1, 2, 3, 4, 5, 6, 7), received);
+			assertEquals(0, channel.getQueueSize());
+			assertEquals(2, channel.getDrainCount());
+			assertEquals(4, channel.getMaxDrainBatchSize());
+			assertEquals(4.0, channel.getMeanDrainBatchSize(), 0.0001);
+		}
+		finally {
+			channel.destroy();
+		}
+	}
+
+	@Test
+	public void testBlockedSenderFailsWhenChannelIsDestroyed() throws Exception {
+		final RingBufferChannel channel = new RingBufferChannel(2, 1, WaitStrategy.PARK);
+		assertTrue(channel.send(new GenericMessage<Integer>(0), 0));
+		assertTrue(channel.send(new GenericMessage<Integer>(1), 0));
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		Thread sender = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					channel.send(new GenericMessage<Integer>(2));
+				}
+				catch (Exception e) {
+					failure.set(e);
+				}
+			}
+
+		});
+		sender.start();
+		// let the sender find the buffer full and start waiting
+		sender.join(200);
+		assertTrue(sender.isAlive());
+		channel.destroy();
+		sender.join(10000);
+		assertFalse(sender.isAlive());
+		assertTrue(failure.get() instanceof MessageDeliveryException);
+	}
+
+	@Test
+	public void testConcurrentProducers() throws Exception {
+		for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+			final RingBufferChannel channel = new RingBufferChannel(16, 8, waitStrategy);
+			final int producers = 4;
+			final int perProducer = 2500;
+			final AtomicInteger sum = new AtomicInteger();
+			final CountDownLatch latch = new CountDownLatch(producers * perProducer);
+			channel.subscribe(new MessageHandler() {
+
+				@Override
+				public void handleMessage(Message<?> message) throws MessagingException {
+					sum.addAndGet((Integer) message.getPayload());
+					latch.countDown();
+				}
+
+			});
+			try {
+				for (int p = 0; p < producers; p++) {
+					new Thread(new Runnable() {
+
+						@Override
+						public void run() {
+							for (int i = 1; i <= perProducer; i++) {
+								channel.send(new GenericMessage<Integer>(i));
+							}
+						}
+
+					}).start();
+				}
+				assertTrue(waitStrategy.toString(), latch.await(30, TimeUnit.SECONDS));
+				assertEquals(producers * (perProducer * (perProducer + 1) / 2), sum.get());
+				assertTrue(channel.getMaxDrainBatchSize() <= 8);
+			}
+			finally {
+				channel.destroy();
+			}
+		}
+	}
+
+	@Test
+	public void testHandlerExceptionGoesToErrorHandler() throws Exception {
+		RingBufferChannel channel = new RingBufferChannel(4, 4, WaitStrategy.YIELD);
+		final CountDownLatch errors = new CountDownLatch(1);
+		final CountDownLatch handled = new CountDownLatch(2);
+		channel.setErrorHandler(new ErrorHandler() {
+
+			@Override
+			public void handleError(Throwable t) {
+				errors.countDown();
+			}
+
+		});
+		channel.subscribe(new MessageHandler() {
+
+			@Override
+			public void handleMessage(Message<?> message) throws MessagingException {
+				handled.countDown();
+				if ("bad".equals(message.getPayload())) {
+					throw new RuntimeException("bad");
+				}
+			}
+
+		});
+		try {
+			channel.send(new GenericMessage<String>("bad"));
+			channel.send(new GenericMessage<String>("good"));
+			assertTrue(errors.await(10, TimeUnit.SECONDS));
+			assertTrue(handled.await(10, TimeUnit.SECONDS));
+		}
+		finally {
+			channel.destroy();
+		}
+	}
+
+}
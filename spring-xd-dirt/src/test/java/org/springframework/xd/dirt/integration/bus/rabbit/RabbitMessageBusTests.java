@@ -69,6 +69,7 @@ import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.xd.dirt.integration.bus.Binding;
+import org.springframework.xd.dirt.integration.bus.BindingRegistry;
 import org.springframework.xd.dirt.integration.bus.BusProperties;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.integration.bus.PartitionCapableBusTests;
@@ -126,7 +127,7 @@ public class RabbitMessageBusTests extends PartitionCapableBusTests {
 		properties.put("transacted", "true"); // test transacted with defaults; not allowed with ackmode NONE
 		bus.bindConsumer("props.0", new DirectChannel(), properties);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 		assertEquals(1, bindings.size());
 		AbstractEndpoint endpoint = bindings.get(0).getEndpoint();
 		SimpleMessageListenerContainer container = TestUtils.getPropertyValue(endpoint, "messageListenerContainer",
@@ -164,7 +165,7 @@ public class RabbitMessageBusTests extends PartitionCapableBusTests {
 		bus.bindConsumer("props.0", new DirectChannel(), properties);
 
 		@SuppressWarnings("unchecked")
-		List<Binding> bindingsNow = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindingsNow = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 		assertEquals(1, bindingsNow.size());
 		endpoint = bindingsNow.get(0).getEndpoint();
 		container = verifyContainer(endpoint);
@@ -199,7 +200,7 @@ public class RabbitMessageBusTests extends PartitionCapableBusTests {
 		MessageBus bus = getMessageBus();
 		bus.bindProducer("props.0", new DirectChannel(), null);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 		assertEquals(1, bindings.size());
 		AbstractEndpoint endpoint = bindings.get(0).getEndpoint();
 		assertEquals("xdbus.props.0", TestUtils.getPropertyValue(endpoint, "handler.delegate.routingKey"));
@@ -288,7 +289,7 @@ public class RabbitMessageBusTests extends PartitionCapableBusTests {
 
 		bus.bindRequestor("props.0", new DirectChannel(), new DirectChannel(), properties);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 
 		assertEquals(2, bindings.size());
 		AbstractEndpoint endpoint = bindings.get(0).getEndpoint(); // producer
@@ -354,7 +355,7 @@ public class RabbitMessageBusTests extends PartitionCapableBusTests {
 
 		bus.bindReplier("props.0", new DirectChannel(), new DirectChannel(), properties);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 
 		assertEquals(2, bindings.size());
 		AbstractEndpoint endpoint = bindings.get(1).getEndpoint(); // producer
@@ -444,7 +445,7 @@ public class RabbitMessageBusTests extends PartitionCapableBusTests {
 		assertNotSame(threads.get(0), threads.get(1));
 
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 		assertEquals(1, bindings.size());
 		assertEquals(2,
 				TestUtils.getPropertyValue(bindings.get(0), "endpoint.messageListenerContainer.concurrentConsumers"));
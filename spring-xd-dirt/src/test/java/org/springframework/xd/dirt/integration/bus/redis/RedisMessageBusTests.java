@@ -48,6 +48,7 @@ import org.springframework.integration.test.util.TestUtils;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.xd.dirt.integration.bus.Binding;
+import org.springframework.xd.dirt.integration.bus.BindingRegistry;
 import org.springframework.xd.dirt.integration.bus.BusProperties;
 import org.springframework.xd.dirt.integration.bus.EmbeddedHeadersMessageConverter;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
@@ -101,7 +102,7 @@ public class RedisMessageBusTests extends PartitionCapableBusTests {
 		properties.put("maxAttempts", "1"); // disable retry
 		bus.bindConsumer("props.0", new DirectChannel(), properties);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 		assertEquals(1, bindings.size());
 		AbstractEndpoint endpoint = bindings.get(0).getEndpoint();
 		assertThat(endpoint, instanceOf(RedisQueueMessageDrivenEndpoint.class));
@@ -150,7 +151,7 @@ public class RedisMessageBusTests extends PartitionCapableBusTests {
 		MessageBus bus = getMessageBus();
 		bus.bindProducer("props.0", new DirectChannel(), null);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 		assertEquals(1, bindings.size());
 		AbstractEndpoint endpoint = bindings.get(0).getEndpoint();
 		assertEquals(
@@ -217,7 +218,7 @@ public class RedisMessageBusTests extends PartitionCapableBusTests {
 
 		bus.bindRequestor("props.0", new DirectChannel(), new DirectChannel(), properties);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 
 		assertEquals(2, bindings.size());
 		AbstractEndpoint endpoint = bindings.get(0).getEndpoint(); // producer
@@ -265,7 +266,7 @@ public class RedisMessageBusTests extends PartitionCapableBusTests {
 
 		bus.bindReplier("props.0", new DirectChannel(), new DirectChannel(), properties);
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 
 		assertEquals(2, bindings.size());
 		AbstractEndpoint endpoint = bindings.get(1).getEndpoint(); // producer
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.job.dao;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.xd.dirt.batch.tasklet.JobLaunchingTasklet;
+
+/**
+ * Tests for the set based queries of {@link XdJdbcSearchableJobExecutionDao}, run against an embedded HSQL job
+ * repository.
+ */
+public class XdJdbcSearchableJobExecutionDaoTests {
+
+	/**
+	 * More ids than fit in two {@code in} clauses.
+	 */
+	private static final int MANY = 1200;
+
+	private final EmbeddedDatabase db = new EmbeddedDatabaseBuilder()
+			.setName("XdJdbcSearchableJobExecutionDaoTests")
+			.addScript("classpath:org/springframework/batch/core/schema-drop-hsqldb.sql")
+			.addScript("classpath:org/springframework/batch/core/schema-hsqldb.sql")
+			.build();
+
+	private final XdJdbcSearchableJobExecutionDao dao = new XdJdbcSearchableJobExecutionDao();
+
+	private JobRepository jobRepository;
+
+	private long run;
+
+	@Before
+	public void setUp() throws Exception {
+		JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+		factory.setDataSource(db);
+		factory.setTransactionManager(new DataSourceTransactionManager(db));
+		factory.afterPropertiesSet();
+		jobRepository = factory.getObject();
+		dao.setDataSource(db);
+		dao.afterPropertiesSet();
+	}
+
+	@After
+	public void shutDown() {
+		db.shutdown();
+	}
+
+	@Test
+	public void addStepExecutionsToSeveralExecutions() throws Exception {
+		JobExecution first = createJobExecution("job", "step1", "step2");
+		JobExecution second = createJobExecution("job", "step3");
+		JobExecution withoutSteps = createJobExecution("job");
+
+		List<JobExecution> page = reload(first, second, withoutSteps);
+		dao.addStepExecutions(page);
+
+		assertEquals(Arrays.asList("step1", "step2"), stepNames(page.get(0)));
+		assertEquals(Arrays.asList("step3"), stepNames(page.get(1)));
+		assertEquals(0, page.get(2).getStepExecutions().size());
+		StepExecution stepExecution = page.get(1).getStepExecutions().iterator().next();
+		assertEquals(second.getStepExecutions().iterator().next().getId(), stepExecution.getId());
+		assertEquals(BatchStatus.STARTING, stepExecution.getStatus());
+	}
+
+	@Test
+	public void addStepExecutionsToMoreExecutionsThanOneQueryTakes() throws Exception {
+		List<JobExecution> jobExecutions = new ArrayList<JobExecution>();
+		for (int i = 0; i < 510; i++) {
+			jobExecutions.add(createJobExecution("job", "step" + i));
+		}
+
+		List<JobExecution> page = reload(jobExecutions.toArray(new JobExecution[jobExecutions.size()]));
+		dao.addStepExecutions(page);
+
+		for (int i = 0; i < page.size(); i++) {
+			assertEquals(Arrays.asList("step" + i), stepNames(page.get(i)));
+		}
+	}
+
+	@Test
+	public void getComposedJobExecutionIds() throws Exception {
+		JobExecution parent = createJobExecution("composed");
+		JobExecution child = createJobExecution("child", parent.getId());
+		JobExecution standalone = createJobExecution("job");
+
+		assertEquals(Collections.singleton(parent.getId()), dao.getComposedJobExecutionIds(
+				Arrays.asList(parent.getId(), child.getId(), standalone.getId())));
+		assertEquals(Collections.<Long> emptySet(), dao.getComposedJobExecutionIds(
+				Arrays.asList(child.getId(), standalone.getId())));
+	}
+
+	@Test
+	public void getComposedJobExecutionIdsAmongMoreIdsThanOneQueryTakes() throws Exception {
+		JobExecution parent = createJobExecution("composed");
+		createJobExecution("child", parent.getId());
+
+		assertEquals(Collections.singleton(parent.getId()), dao.getComposedJobExecutionIds(
+				manyIdsIncluding(parent.getId())));
+	}
+
+	@Test
+	public void getCompletedJobInstanceIds() throws Exception {
+		JobParameters parameters = nextParameters();
+		JobExecution failed = createJobExecution("job", parameters, BatchStatus.FAILED);
+		createJobExecution("job", parameters, BatchStatus.COMPLETED);
+		JobExecution uncompleted = createJobExecution("job", nextParameters(), BatchStatus.FAILED);
+		JobExecution running = createJobExecution("job");
+
+		Long completedInstanceId = failed.getJobInstance().getId();
+		assertEquals(Collections.singleton(completedInstanceId), dao.getCompletedJobInstanceIds(
+				Arrays.asList(completedInstanceId, uncompleted.getJobInstance().getId(),
+						running.getJobInstance().getId())));
+	}
+
+	@Test
+	public void getCompletedJobInstanceIdsAmongMoreIdsThanOneQueryTakes() throws Exception {
+		JobExecution completed = createJobExecution("job", nextParameters(), BatchStatus.COMPLETED);
+		JobExecution uncompleted = createJobExecution("job", nextParameters(), BatchStatus.FAILED);
+
+		Set<Long> ids = manyIdsIncluding(completed.getJobInstance().getId());
+		ids.add(uncompleted.getJobInstance().getId());
+		assertEquals(Collections.singleton(completed.getJobInstance().getId()), dao.getCompletedJobInstanceIds(ids));
+	}
+
+	private JobExecution createJobExecution(String jobName, String... stepNames) throws Exception {
+		JobExecution jobExecution = jobRepository.createJobExecution(jobName, nextParameters());
+		for (String stepName : stepNames) {
+			jobRepository.add(new StepExecution(stepName, jobExecution));
+		}
+		return jobExecution;
+	}
+
+	private JobExecution createJobExecution(String jobName, long parentJobExecutionId) throws Exception {
+		return jobRepository.createJobExecution(jobName, new JobParametersBuilder(nextParameters())
+				.addString(JobLaunchingTasklet.XD_PARENT_JOB_EXECUTION_ID, String.valueOf(parentJobExecutionId))
+				.toJobParameters());
+	}
+
+	private JobExecution createJobExecution(String jobName, JobParameters parameters, BatchStatus status)
+			throws Exception {
+		JobExecution jobExecution = jobRepository.createJobExecution(jobName, parameters);
+		jobExecution.setStartTime(new Date());
+		jobExecution.setStatus(status);
+		jobExecution.setEndTime(new Date());
+		jobRepository.update(jobExecution);
+		return jobExecution;
+	}
+
+	private JobParameters nextParameters() {
+		return new JobParametersBuilder().addLong("run", run++).toJobParameters();
+	}
+
+	/**
+	 * Read the given executions back from the repository, without their step executions.
+	 */
+	private List<JobExecution> reload(JobExecution... jobExecutions) {
+		List<JobExecution> result = new ArrayList<JobExecution>();
+		for (JobExecution jobExecution : jobExecutions) {
+			JobExecution reloaded = dao.getJobExecution(jobExecution.getId());
+			assertEquals(0, reloaded.getStepExecutions().size());
+			result.add(reloaded);
+		}
+		return result;
+	}
+
+	private Set<Long> manyIdsIncluding(long id) {
+		Set<Long> ids = new HashSet<Long>();
+		for (long i = 0; ids.size() < MANY; i++) {
+			ids.add(id + 1000 + i);
+		}
+		ids.add(id);
+		return ids;
+	}
+
+	private static List<String> stepNames(JobExecution jobExecution) {
+		List<String> stepNames = new ArrayList<String>();
+		for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			stepNames.add(stepExecution.getStepName());
+		}
+		return stepNames;
+	}
+
+}
@@ -24,11 +24,14 @@ import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.springframework.xd.module.ModuleType.processor;
+import static org.springframework.xd.module.ModuleType.sink;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.hamcrest.Description;
 import org.hamcrest.DiagnosingMatcher;
@@ -41,6 +44,7 @@ import org.junit.rules.TemporaryFolder;
 
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.integration.test.util.TestUtils;
 import org.springframework.util.FileCopyUtils;
 import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.SimpleModuleDefinition;
@@ -148,6 +152,45 @@ public class SynchronizingModuleRegistryTests {
 
 	}
 
+	@Test
+	public void upToDateLocalCopyIsNotCopiedAgain() throws Exception {
+		synch1.registerNew(new UploadedModuleDefinition("fizz", processor, "bonjour".getBytes()));
+		SimpleModuleDefinition local = (SimpleModuleDefinition) synch2.findDefinition("fizz", processor);
+
+		// Alter the local copy without touching its hash: only a remote change should trigger a copy
+		FileCopyUtils.copy("tampered".getBytes(), resolver.getResource(local.getLocation()).getFile());
+		assertThat(synch2.findDefinition("fizz", processor), pointsToContentsThat(equalTo("tampered")));
+
+		UploadedModuleDefinition def = new UploadedModuleDefinition("fizz", processor, "hello".getBytes());
+		synch1.delete(def);
+		synch1.registerNew(def);
+		assertThat(synch2.findDefinition("fizz", processor), pointsToContentsThat(equalTo("hello")));
+	}
+
+	@Test
+	public void deletionDiscardsModuleLock() {
+		UploadedModuleDefinition def = new UploadedModuleDefinition("fizz", processor, "bonjour".getBytes());
+		synch1.registerNew(def);
+		assertThat(synch1.findDefinition("fizz", processor), pointsToContentsThat(equalTo("bonjour")));
+		assertThat(TestUtils.getPropertyValue(synch1, "locks", Map.class).size(), is(1));
+		synch1.delete(def);
+		assertThat(TestUtils.getPropertyValue(synch1, "locks", Map.class).isEmpty(), is(true));
+	}
+
+	@Test
+	public void prefetchCopiesModulesOfAllTypes() {
+		synch1.registerNew(new UploadedModuleDefinition("foo", processor, "hello".getBytes()));
+		synch1.registerNew(new UploadedModuleDefinition("foo", sink, "world".getBytes()));
+		synch1.registerNew(new UploadedModuleDefinition("bar", processor, "bonjour".getBytes()));
+
+		synch2.prefetch(Arrays.asList("foo", "bar", "idontexist"));
+
+		assertThat(targetRegistry2.findDefinition("foo", processor), pointsToContentsThat(equalTo("hello")));
+		assertThat(targetRegistry2.findDefinition("foo", sink), pointsToContentsThat(equalTo("world")));
+		assertThat(targetRegistry2.findDefinition("bar", processor), pointsToContentsThat(equalTo("bonjour")));
+		assertThat(targetRegistry2.findDefinition("idontexist", processor), is(nullValue()));
+	}
+
 	private Matcher<ModuleDefinition> pointsToContentsThat(final Matcher<String> delegate) {
 		return new DiagnosingMatcher<ModuleDefinition>() {
 			@Override
@@ -17,6 +17,7 @@
 package org.springframework.xd.dirt.plugins.job;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -117,6 +118,16 @@ public class JobRepoTests extends RandomConfigurationSupport {
 		assertEquals("The number of step names returned from hsqldb did not match.", 2, count);
 	}
 
+	@Test
+	public void checkThatCachedJobNamesReflectRegistryUpdates() throws Exception {
+		jobLocator.addJob("cachedJob", false, true);
+		assertTrue(jobLocator.getCachedJobNames().contains("cachedJob"));
+		assertTrue(jobLocator.getCachedRestartableJobs().contains("cachedJob"));
+		jobLocator.deleteJobRegistry("cachedJob");
+		assertFalse(jobLocator.getCachedJobNames().contains("cachedJob"));
+		assertFalse(jobLocator.getCachedRestartableJobs().contains("cachedJob"));
+	}
+
 	@Test
 	public void checkThatContainerHasRepo() throws Exception {
 		Job job = new SimpleJob(SIMPLE_JOB_NAME);
@@ -18,13 +18,12 @@ package org.springframework.xd.dirt.plugins.job;
 
 import static org.junit.Assert.assertEquals;
 
-import java.util.Collection;
-
 import org.junit.Rule;
 
 import org.springframework.integration.codec.Codec;
 import org.springframework.integration.codec.kryo.PojoCodec;
 import org.springframework.integration.test.util.TestUtils;
+import org.springframework.xd.dirt.integration.bus.BindingRegistry;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.integration.bus.rabbit.RabbitTestMessageBus;
 import org.springframework.xd.test.rabbit.RabbitTestSupport;
@@ -52,7 +51,7 @@ public class RabbitJobPluginTests extends JobPluginTests {
 	protected void checkBusBound(MessageBus bus) {
 		if (bus instanceof RabbitTestMessageBus) {
 			MessageBus msgBus = ((RabbitTestMessageBus) bus).getCoreMessageBus();
-			assertEquals(4, TestUtils.getPropertyValue(msgBus, "bindings", Collection.class).size());
+			assertEquals(4, TestUtils.getPropertyValue(msgBus, "bindings", BindingRegistry.class).size());
 		}
 	}
 
@@ -60,7 +59,7 @@ public class RabbitJobPluginTests extends JobPluginTests {
 	protected void checkBusUnbound(MessageBus bus) {
 		if (bus instanceof RabbitTestMessageBus) {
 			MessageBus msgBus = ((RabbitTestMessageBus) bus).getCoreMessageBus();
-			assertEquals(0, TestUtils.getPropertyValue(msgBus, "bindings", Collection.class).size());
+			assertEquals(0, TestUtils.getPropertyValue(msgBus, "bindings", BindingRegistry.class).size());
 		}
 	}
 
@@ -18,14 +18,13 @@ package org.springframework.xd.dirt.plugins.job;
 
 import static org.junit.Assert.assertEquals;
 
-import java.util.Collection;
-
 import org.junit.Rule;
 
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.integration.codec.Codec;
 import org.springframework.integration.codec.kryo.PojoCodec;
 import org.springframework.integration.test.util.TestUtils;
+import org.springframework.xd.dirt.integration.bus.BindingRegistry;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.integration.bus.redis.RedisTestMessageBus;
 import org.springframework.xd.dirt.integration.redis.RedisMessageBus;
@@ -56,7 +55,7 @@ public class RedisJobPluginTests extends JobPluginTests {
 	protected void checkBusBound(MessageBus bus) {
 		if (bus instanceof RedisTestMessageBus) {
 			MessageBus msgBus = ((RedisTestMessageBus) bus).getCoreMessageBus();
-			assertEquals(4, TestUtils.getPropertyValue(msgBus, "bindings", Collection.class).size());
+			assertEquals(4, TestUtils.getPropertyValue(msgBus, "bindings", BindingRegistry.class).size());
 		}
 	}
 
@@ -64,7 +63,7 @@ public class RedisJobPluginTests extends JobPluginTests {
 	protected void checkBusUnbound(MessageBus bus) {
 		if (bus instanceof RedisTestMessageBus) {
 			MessageBus msgBus = ((RedisTestMessageBus) bus).getCoreMessageBus();
-			assertEquals(0, TestUtils.getPropertyValue(msgBus, "bindings", Collection.class).size());
+			assertEquals(0, TestUtils.getPropertyValue(msgBus, "bindings", BindingRegistry.class).size());
 		}
 	}
 
@@ -23,10 +23,12 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -134,6 +136,7 @@ public class BatchJobExecutionsControllerIntegrationTests extends AbstractContro
 		JobExecution jobExecution5 = new JobExecution(jobInstance5, 5l, jobParameters5, null);
 
 		BatchStatus status = BatchStatus.COMPLETED;
+		jobExecution1.setStatus(BatchStatus.FAILED);
 		jobExecution3.setStatus(status);
 
 		jobExecution2.setEndTime(new Date());
@@ -158,8 +161,9 @@ public class BatchJobExecutionsControllerIntegrationTests extends AbstractContro
 		jobExecutions1.add(jobExecution1);
 		jobExecutions1.add(jobExecution2);
 		jobExecutions2.add(jobExecution2);
-		// all the jobs are undeployed/deleted.
-		when(jobLocator.getJobNames()).thenReturn(Collections.<String>emptyList());
+		// all the job definitions are deleted, only job1 is still deployed.
+		when(jobLocator.getCachedJobNames()).thenReturn(Collections.singleton(job1.getName()));
+		when(jobLocator.getCachedRestartableJobs()).thenReturn(Collections.singleton(job1.getName()));
 		when(jobLocator.isRestartable("job1")).thenReturn(true);
 		when(jobService.listJobs(0, 20)).thenReturn(jobNames);
 		when(jobService.countJobExecutionsForJob(job1.getName())).thenReturn(2);
@@ -168,6 +172,12 @@ public class BatchJobExecutionsControllerIntegrationTests extends AbstractContro
 		when(jobService.isIncrementable(job1.getName())).thenReturn(false);
 		when(jobService.isIncrementable(job2.getName())).thenReturn(true);
 
+		when(jobService.getComposedJobExecutionIds(new HashSet<Long>(Arrays.asList(jobExecution1.getId(),
+				jobExecution2.getId())))).thenReturn(Collections.singleton(jobExecution2.getId()));
+		// only the failed execution of the restartable job needs its instance checked
+		when(jobService.getCompletedJobInstanceIds(Collections.singleton(jobInstance1.getId()))).thenReturn(
+				Collections.<Long> emptySet());
+
 		when(jobService.getTopLevelJobExecutions(5, 5)).thenReturn(jobExecutions1);
 		when(jobService.getTopLevelJobExecutions(0, 20)).thenReturn(jobExecutions1);
 		when(jobService.listJobExecutionsForJob(job2.getName(), 0, 20)).thenReturn(jobExecutions2);
@@ -223,7 +233,9 @@ public class BatchJobExecutionsControllerIntegrationTests extends AbstractContro
 						jsonPath("$.content", Matchers.hasSize(2))).andExpect(jsonPath("$.content[*].executionId", contains(0, 3))).andExpect(
 				jsonPath("$.content[*].jobExecution.stepExecutions[*]", Matchers.hasSize(3))).andExpect(
 				jsonPath("$.content[*].jobId", contains(0, 2))).andExpect(jsonPath("$.content[*].deleted", contains(true, true))).andExpect(
-				jsonPath("$.content[*].deployed", contains(false, false))).andExpect(
+				jsonPath("$.content[*].deployed", contains(true, false))).andExpect(
+				jsonPath("$.content[*].restartable", contains(true, false))).andExpect(
+				jsonPath("$.content[*].composedJob", contains(false, true))).andExpect(
 				jsonPath("$.content[*].jobExecution.id", contains(0, 3))).andExpect(
 				jsonPath("$.content[*].jobExecution.jobParameters.parameters.param1.value", contains("test", "test"))).andExpect(
 				jsonPath("$.content[*].jobExecution.jobParameters.parameters.param1.type", contains("STRING", "STRING"))).andExpect(
@@ -255,7 +267,22 @@ public class BatchJobExecutionsControllerIntegrationTests extends AbstractContro
 				.andExpect(jsonPath("$.jobExecution.jobParameters.parameters.param2.value", Matchers.is(123)))
 				.andExpect(jsonPath("$.jobExecution.stepExecutions", Matchers.hasSize(2)))
 				.andExpect(jsonPath("$.stepExecutionCount", Matchers.is(2)))
-				.andExpect(jsonPath("$.name", Matchers.is("job1")));
+				.andExpect(jsonPath("$.name", Matchers.is("job1")))
+				.andExpect(jsonPath("$.deployed", Matchers.is(true)))
+				.andExpect(jsonPath("$.restartable", Matchers.is(true)))
+				.andExpect(jsonPath("$.composedJob", Matchers.is(false)));
+	}
+
+	@Test
+	public void testJobExecutionOfCompletedInstanceIsNotRestartable() throws Exception {
+		when(jobService.getCompletedJobInstanceIds(Collections.singleton(0L))).thenReturn(Collections.singleton(0L));
+		mockMvc.perform(
+				get("/jobs/executions").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[*].executionId", contains(0, 3)))
+				.andExpect(jsonPath("$.content[*].restartable", contains(false, false)));
+		mockMvc.perform(
+				get("/jobs/executions/0").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.restartable", Matchers.is(false)));
 	}
 
 	@Test
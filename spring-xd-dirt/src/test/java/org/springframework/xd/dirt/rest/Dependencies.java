@@ -40,6 +40,7 @@ import org.springframework.xd.analytics.metrics.core.FieldValueCounterRepository
 import org.springframework.xd.analytics.metrics.core.GaugeRepository;
 import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
 import org.springframework.xd.dirt.container.store.ContainerRepository;
+import org.springframework.xd.dirt.container.store.ModuleMessageRateRepository;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.integration.bus.local.LocalMessageBus;
 import org.springframework.xd.dirt.job.dao.XdJdbcSearchableJobExecutionDao;
@@ -203,6 +204,11 @@ public class Dependencies {
 		return mock(ContainerRepository.class);
 	}
 
+	@Bean
+	public ModuleMessageRateRepository moduleMessageRateRepository() {
+		return mock(ModuleMessageRateRepository.class);
+	}
+
 	@Bean
 	public ModuleMetadataRepository modulesRepository() {
 		return mock(ModuleMetadataRepository.class);
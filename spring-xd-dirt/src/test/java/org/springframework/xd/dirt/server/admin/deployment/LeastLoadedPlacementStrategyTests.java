@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server.admin.deployment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.xd.dirt.cluster.Container;
+import org.springframework.xd.dirt.cluster.ContainerAttributes;
+import org.springframework.xd.module.ModuleDescriptor;
+import org.springframework.xd.module.ModuleType;
+import org.springframework.xd.module.TestModuleDefinitions;
+
+/**
+ * Tests for {@link LeastLoadedPlacementStrategy}.
+ */
+public class LeastLoadedPlacementStrategyTests {
+
+	private final LeastLoadedPlacementStrategy strategy = new LeastLoadedPlacementStrategy();
+
+	private ModuleDescriptor moduleDescriptor;
+
+	@Before
+	public void setUp() {
+		moduleDescriptor = new ModuleDescriptor.Builder()
+				.setModuleDefinition(TestModuleDefinitions.dummy("foo", ModuleType.processor))
+				.setGroup("test1")
+				.setModuleLabel("amodule")
+				.setIndex(0)
+				.build();
+	}
+
+	@Test
+	public void selectsLowestCpuLoad() {
+		Container busy = container("busy", "0.9", "0.2", "1", "0", "1");
+		Container idle = container("idle", "0.1", "0.2", "1", "0", "1");
+		List<Container> selected = strategy.select(moduleDescriptor, Arrays.asList(busy, idle), 1);
+		assertEquals(1, selected.size());
+		assertSame(idle, selected.get(0));
+	}
+
+	@Test
+	public void selectsFewestModulesAndLowestRate() {
+		Container crowded = container("crowded", "0.2", "0.2", "10", "0", "1");
+		Container empty = container("empty", "0.2", "0.2", "0", "0", "1");
+		assertSame(empty, strategy.select(moduleDescriptor, Arrays.asList(crowded, empty), 1).get(0));
+
+		Container hot = container("hot", "0.2", "0.2", "2", "5000", "1");
+		Container cold = container("cold", "0.2", "0.2", "2", "10", "1");
+		assertSame(cold, strategy.select(moduleDescriptor, Arrays.asList(hot, cold), 1).get(0));
+	}
+
+	@Test
+	public void weightsAreApplied() {
+		strategy.setCpuLoadWeight(0);
+		Container busyButEmpty = container("busyButEmpty", "0.9", "0.2", "0", "0", "1");
+		Container idleButCrowded = container("idleButCrowded", "0.1", "0.2", "10", "0", "1");
+		List<Container> candidates = Arrays.asList(idleButCrowded, busyButEmpty);
+		assertSame(busyButEmpty, strategy.select(moduleDescriptor, candidates, 1).get(0));
+	}
+
+	@Test
+	public void selectsInOrderOfLoad() {
+		Container c1 = container("c1", "0.5", "0", "0", "0", "1");
+		Container c2 = container("c2", "0.1", "0", "0", "0", "1");
+		Container c3 = container("c3", "0.3", "0", "0", "0", "1");
+		List<Container> selected = strategy.select(moduleDescriptor, Arrays.asList(c1, c2, c3), 2);
+		assertEquals(Arrays.asList(c2, c3), selected);
+	}
+
+	@Test
+	public void spreadsEvenlyWithoutLoadAttributes() {
+		Container c1 = new Container("c1", new HashMap<String, String>());
+		Container c2 = new Container("c2", new HashMap<String, String>());
+		List<Container> candidates = Arrays.asList(c1, c2);
+		assertSame(c1, strategy.select(moduleDescriptor, candidates, 1).get(0));
+		assertSame(c2, strategy.select(moduleDescriptor, candidates, 1).get(0));
+		assertSame(c1, strategy.select(moduleDescriptor, candidates, 1).get(0));
+	}
+
+	@Test
+	public void countsPlacementsUntilLoadIsPublished() {
+		Container c1 = container("c1", "0.2", "0.2", "1", "0", "1");
+		Container c2 = container("c2", "0.2", "0.2", "1", "0", "1");
+		List<Container> candidates = Arrays.asList(c1, c2);
+		assertSame(c1, strategy.select(moduleDescriptor, candidates, 1).get(0));
+		// c1 has not published since, so the placement above still counts against it
+		assertSame(c2, strategy.select(moduleDescriptor, candidates, 1).get(0));
+		assertSame(c1, strategy.select(moduleDescriptor, candidates, 1).get(0));
+
+		// c1 now reports both of its new modules, c2 has not published its new module yet
+		Container c1Published = container("c1", "0.2", "0.2", "3", "0", "2");
+		candidates = Arrays.asList(c1Published, c2);
+		assertSame(c2, strategy.select(moduleDescriptor, candidates, 1).get(0));
+		assertSame(c1Published, strategy.select(moduleDescriptor, candidates, 1).get(0));
+	}
+
+	private Container container(String name, String cpuLoad, String heapUsage, String moduleCount,
+			String messageRate, String loadTimestamp) {
+		Map<String, String> attributes = new HashMap<String, String>();
+		attributes.put(ContainerAttributes.CPU_LOAD_KEY, cpuLoad);
+		attributes.put(ContainerAttributes.HEAP_USAGE_KEY, heapUsage);
+		attributes.put(ContainerAttributes.MODULE_COUNT_KEY, moduleCount);
+		attributes.put(ContainerAttributes.MESSAGE_RATE_KEY, messageRate);
+		attributes.put(ContainerAttributes.LOAD_TIMESTAMP_KEY, loadTimestamp);
+		return new Container(name, attributes);
+	}
+
+}
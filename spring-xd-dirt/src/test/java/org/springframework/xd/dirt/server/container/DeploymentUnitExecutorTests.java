@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server.container;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Tests for {@link DeploymentUnitExecutor}.
+ */
+public class DeploymentUnitExecutorTests {
+
+	private final DeploymentUnitExecutor executor = new DeploymentUnitExecutor(4,
+			new CustomizableThreadFactory("deployment-test-"));
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void tasksForSameUnitRunInOrder() throws Exception {
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		Future<?> last = null;
+		for (int i = 0; i < 20; i++) {
+			final int n = i;
+			last = executor.submit("ticktock", new Runnable() {
+
+				@Override
+				public void run() {
+					int now = running.incrementAndGet();
+					maxRunning.set(Math.max(maxRunning.get(), now));
+					order.add(n);
+					running.decrementAndGet();
+				}
+
+			});
+		}
+		last.get(10, TimeUnit.SECONDS);
+		assertEquals(20, order.size());
+		for (int i = 0; i < 20; i++) {
+			assertEquals(Integer.valueOf(i), order.get(i));
+		}
+		assertEquals(1, maxRunning.get());
+	}
+
+	@Test
+	public void tasksForDifferentUnitsRunConcurrently() throws Exception {
+		final CountDownLatch started = new CountDownLatch(2);
+		final CountDownLatch release = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (String unit : new String[] { "foo", "bar" }) {
+			futures.add(executor.submit(unit, new Runnable() {
+
+				@Override
+				public void run() {
+					started.countDown();
+					try {
+						release.await(10, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+
+			}));
+		}
+		assertTrue("Tasks for different units did not run concurrently", started.await(10, TimeUnit.SECONDS));
+		release.countDown();
+		for (Future<?> future : futures) {
+			future.get(10, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void failedTaskDoesNotBlockUnit() throws Exception {
+		Future<?> failed = executor.submit("ticktock", new Runnable() {
+
+			@Override
+			public void run() {
+				throw new IllegalStateException("test");
+			}
+
+		});
+		final CountDownLatch ran = new CountDownLatch(1);
+		executor.submit("ticktock", new Runnable() {
+
+			@Override
+			public void run() {
+				ran.countDown();
+			}
+
+		});
+		assertTrue(ran.await(10, TimeUnit.SECONDS));
+		assertTrue(failed.isDone());
+	}
+
+	@Test
+	public void unitNamesIncludeRunningAndQueuedUnits() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Future<?> running = executor.submit("ticktock", new Runnable() {
+
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+		});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		assertEquals(Collections.singleton("ticktock"), executor.getUnitNames());
+		release.countDown();
+		running.get(10, TimeUnit.SECONDS);
+		for (int i = 0; i < 100 && !executor.getUnitNames().isEmpty(); i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(executor.getUnitNames().isEmpty());
+	}
+
+}
@@ -58,6 +58,7 @@ import org.springframework.xd.dirt.core.DeploymentUnitStatus;
 import org.springframework.xd.dirt.core.ModuleDeploymentsPath;
 import org.springframework.xd.dirt.integration.bus.AbstractTestMessageBus;
 import org.springframework.xd.dirt.integration.bus.Binding;
+import org.springframework.xd.dirt.integration.bus.BindingRegistry;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.integration.bus.XdHeaders;
 import org.springframework.xd.dirt.integration.bus.local.LocalMessageBus;
@@ -244,7 +245,7 @@ public abstract class AbstractSingleNodeStreamDeploymentIntegrationTests {
 	private List<Binding> getMessageBusBindings() {
 		MessageBus bus = testMessageBus != null ? testMessageBus.getMessageBus() : integrationSupport.messageBus();
 		DirectFieldAccessor accessor = new DirectFieldAccessor(bus);
-		return ((List<Binding>) accessor.getPropertyValue("bindings"));
+		return ((BindingRegistry) accessor.getPropertyValue("bindings")).getBindings();
 	}
 
 	@Test
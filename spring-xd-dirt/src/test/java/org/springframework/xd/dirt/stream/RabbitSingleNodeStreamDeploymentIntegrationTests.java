@@ -30,6 +30,7 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.utils.test.TestUtils;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.xd.dirt.integration.bus.Binding;
+import org.springframework.xd.dirt.integration.bus.BindingRegistry;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.integration.bus.rabbit.RabbitTestMessageBus;
 import org.springframework.xd.dirt.test.sink.NamedChannelSink;
@@ -126,7 +127,7 @@ public class RabbitSingleNodeStreamDeploymentIntegrationTests extends
 	@Override
 	protected void verifyDynamicProperties(MessageBus bus, String type) {
 		@SuppressWarnings("unchecked")
-		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", BindingRegistry.class).getBindings();
 		for (Binding binding : bindings) {
 			if (binding.getEndpoint().getComponentName().equals("outbound." + type + ":x")) {
 				assertEquals(MessageDeliveryMode.PERSISTENT, TestUtils.getPropertyValue(binding.getEndpoint(),
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -33,6 +34,7 @@ import org.junit.Test;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.xd.dirt.module.store.ZooKeeperModuleDependencyRepository;
 import org.springframework.xd.dirt.stream.StreamDefinition;
 import org.springframework.xd.dirt.stream.zookeeper.ZooKeeperStreamDefinitionRepository;
@@ -77,6 +79,7 @@ public class ZooKeeperStreamDefinitionRepositoryTests {
 	public void shutdownRepository() {
 		if (repository != null) {
 			repository.deleteAll();
+			repository.destroy();
 		}
 
 	}
@@ -233,4 +236,57 @@ public class ZooKeeperStreamDefinitionRepositoryTests {
 
 	}
 
+	@Test
+	public void descendingSort() {
+		repository.save(Arrays.asList(new StreamDefinition("one", "http | hdfs"),
+				new StreamDefinition("two", "tcp | file"), new StreamDefinition("three", "http | file")));
+
+		Page<StreamDefinition> page = repository.findAll(new PageRequest(0, 2, Sort.Direction.DESC, "name"));
+		Assert.assertEquals(3, page.getTotalElements());
+		Assert.assertEquals("two", page.getContent().get(0).getName());
+		Assert.assertEquals("three", page.getContent().get(1).getName());
+
+		Assert.assertEquals(Arrays.asList("two", "three", "one"),
+				names(repository.findAll(new Sort(Sort.Direction.DESC, "name"))));
+	}
+
+	@Test
+	public void range() {
+		repository.save(Arrays.asList(new StreamDefinition("a", "http | hdfs"),
+				new StreamDefinition("b", "tcp | file"), new StreamDefinition("c", "http | file"),
+				new StreamDefinition("d", "http | file")));
+
+		Assert.assertEquals(Arrays.asList("b", "c"), names(repository.findAllInRange("b", true, "c", true)));
+		Assert.assertEquals(Arrays.asList("c"), names(repository.findAllInRange("b", false, "d", false)));
+	}
+
+	@Test
+	public void pagingReflectsChangesFromOtherClients() throws Exception {
+		repository.save(new StreamDefinition("one", "http | hdfs"));
+		Assert.assertEquals(1, repository.findAll(new PageRequest(0, 10)).getTotalElements());
+
+		ZooKeeperStreamDefinitionRepository other = new ZooKeeperStreamDefinitionRepository(zkConnection,
+				new ZooKeeperModuleDependencyRepository(zkConnection));
+		other.save(new StreamDefinition("two", "tcp | file"));
+		other.delete("one");
+
+		List<String> names = null;
+		for (int i = 0; i < 100; i++) {
+			names = names(repository.findAll(new PageRequest(0, 10)));
+			if (names.equals(Arrays.asList("two"))) {
+				break;
+			}
+			Thread.sleep(100);
+		}
+		Assert.assertEquals(Arrays.asList("two"), names);
+	}
+
+	private static List<String> names(Iterable<StreamDefinition> definitions) {
+		List<String> names = new ArrayList<String>();
+		for (StreamDefinition definition : definitions) {
+			names.add(definition.getName());
+		}
+		return names;
+	}
+
 }
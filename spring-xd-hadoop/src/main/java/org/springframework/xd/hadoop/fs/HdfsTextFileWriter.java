@@ -16,20 +16,40 @@
 
 package org.springframework.xd.hadoop.fs;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.concurrent.ScheduledFuture;
 
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandlingException;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
 /**
- * 
+ * Writes message payloads to a sequence of text files. The current file is kept open between writes and is only
+ * rolled over when the locally counted number of bytes written, or the time since it was opened, exceeds the
+ * configured threshold; the file system is only consulted when a new file is opened.
+ * <p>
+ * Payloads are collected in an in-memory buffer of {@link #setBufferSize(int) bufferSize} bytes before they are
+ * written to the file; files may optionally be compressed with a Hadoop {@link CompressionCodec}, such as
+ * {@code gzip} or {@code snappy}, in which case the codec's extension is appended to the file name.
+ * <p>
+ * Without a {@link #setTaskScheduler(TaskScheduler) taskScheduler}, the rollover interval is only checked on the
+ * next write, and buffered payloads stay in memory until the buffer fills or the file is closed. With one, the open
+ * file is also closed once the rollover interval has elapsed, and buffered payloads are flushed once no payload has
+ * been written for {@link #setFlushTimeoutInMillis(long) flushTimeoutInMillis}, even if no further message arrives.
+ *
  * @author Mark Pollack
  */
 public class HdfsTextFileWriter extends AbstractHdfsWriter implements HdfsWriter {
@@ -38,48 +58,188 @@ public class HdfsTextFileWriter extends AbstractHdfsWriter implements HdfsWriter
 
 	private FSDataOutputStream fsDataOutputStream;
 
+	private OutputStream outputStream;
+
 	private volatile String charset = "UTF-8";
 
+	private int bufferSize = HdfsTextFileWriterFactory.DEFAULT_BUFFER_SIZE;
+
+	private long rolloverIntervalInMillis;
+
+	private String codecName;
+
+	private CompressionCodec codec;
+
+	private long openedAt;
+
+	private long flushTimeoutInMillis;
+
+	private long lastWrittenAt;
+
+	private boolean unflushed;
+
+	private TaskScheduler taskScheduler;
+
+	private ScheduledFuture<?> timeoutCheck;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
 	public HdfsTextFileWriter(FileSystem fileSystem) {
 		Assert.notNull(fileSystem, "Hadoop FileSystem must not be null.");
 		this.fileSystem = fileSystem;
 	}
 
+	/**
+	 * Set the size of the buffer that payloads are collected in before they are written to the file; 0 writes
+	 * each payload directly.
+	 *
+	 * @param bufferSize the buffer size in bytes
+	 */
+	public void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize >= 0, "bufferSize must not be negative");
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Set the maximum time a file is written to before rolling over to a new one; 0 (the default) only rolls over
+	 * on size.
+	 *
+	 * @param rolloverIntervalInMillis the interval in milliseconds
+	 */
+	public void setRolloverIntervalInMillis(long rolloverIntervalInMillis) {
+		Assert.isTrue(rolloverIntervalInMillis >= 0, "rolloverIntervalInMillis must not be negative");
+		this.rolloverIntervalInMillis = rolloverIntervalInMillis;
+	}
+
+	/**
+	 * Set the time after the last write at which buffered payloads are flushed to the file; 0 (the default) only
+	 * flushes when the buffer fills or the file is closed. Requires a {@link #setTaskScheduler(TaskScheduler)
+	 * taskScheduler}.
+	 *
+	 * @param flushTimeoutInMillis the timeout in milliseconds
+	 */
+	public void setFlushTimeoutInMillis(long flushTimeoutInMillis) {
+		Assert.isTrue(flushTimeoutInMillis >= 0, "flushTimeoutInMillis must not be negative");
+		this.flushTimeoutInMillis = flushTimeoutInMillis;
+	}
+
+	/**
+	 * Set the scheduler used to apply the rollover interval and the flush timeout while no messages arrive.
+	 *
+	 * @param taskScheduler the task scheduler
+	 */
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
+	/**
+	 * Set the compression codec, by name or class name, e.g. {@code gzip} or {@code snappy}. Files are not
+	 * compressed by default. The rollover threshold applies to the uncompressed bytes written.
+	 *
+	 * @param codec the codec name
+	 */
+	public void setCodec(String codec) {
+		this.codecName = StringUtils.hasText(codec) ? codec.trim() : null;
+		this.codec = null;
+	}
 
 	@Override
-	public void write(Message<?> message) throws IOException {
+	public synchronized void write(Message<?> message) throws IOException {
+		byte[] bytes = getPayloadAsBytes(message);
 		initializeCounterIfNecessary();
-		prepareOutputStream();
-		copy(getPayloadAsBytes(message), this.fsDataOutputStream);
+		if (this.outputStream != null && shouldRollover()) {
+			closeOutputStream();
+			incrementCounter();
+		}
+		if (this.outputStream == null) {
+			openOutputStream();
+		}
+		copy(bytes, this.outputStream);
 	}
 
+	private boolean shouldRollover() {
+		return getBytesWritten() >= getRolloverThresholdInBytes() || rolloverIntervalElapsed();
+	}
 
-	private void prepareOutputStream() throws IOException {
-		boolean found = false;
-		Path name = null;
+	private boolean rolloverIntervalElapsed() {
+		return this.rolloverIntervalInMillis > 0
+				&& System.currentTimeMillis() - this.openedAt >= this.rolloverIntervalInMillis;
+	}
 
-		// TODO improve algorithm
-		while (!found) {
-			name = new Path(getFileName());
-			// If it doesn't exist, create it. If it exists, return false
-			if (getFileSystem().createNewFile(name)) {
-				found = true;
-				this.resetBytesWritten();
-				// this.fsDataOutputStream = this.getFileSystem().append(name);
-				this.fsDataOutputStream = this.getFileSystem().create(name);
+	/**
+	 * Close the file if its rollover interval has elapsed, or flush it if nothing was written for the flush
+	 * timeout; run periodically by the task scheduler while a file is open.
+	 */
+	private synchronized void checkTimeouts() {
+		if (this.outputStream == null) {
+			return;
+		}
+		if (rolloverIntervalElapsed()) {
+			close();
+			incrementCounter();
+		}
+		else if (this.unflushed && this.flushTimeoutInMillis > 0
+				&& System.currentTimeMillis() - this.lastWrittenAt >= this.flushTimeoutInMillis) {
+			try {
+				flush();
 			}
-			else {
-				if (this.getBytesWritten() >= getRolloverThresholdInBytes()) {
-					close();
-					incrementCounter();
-				}
-				else {
-					found = true;
-				}
+			catch (IOException e) {
+				logger.warn("Failed to flush " + getFileName(), e);
 			}
 		}
 	}
 
+	private void scheduleTimeoutCheck() {
+		long period = this.rolloverIntervalInMillis;
+		if (this.flushTimeoutInMillis > 0 && (period == 0 || this.flushTimeoutInMillis < period)) {
+			period = this.flushTimeoutInMillis;
+		}
+		if (this.taskScheduler != null && period > 0) {
+			this.timeoutCheck = this.taskScheduler.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					checkTimeouts();
+				}
+			}, period);
+		}
+	}
+
+	private void openOutputStream() throws IOException {
+		CompressionCodec codec = getCodec();
+		Path name = new Path(getFileName(codec));
+		// skip files left by an earlier writer
+		while (getFileSystem().exists(name)) {
+			incrementCounter();
+			name = new Path(getFileName(codec));
+		}
+		this.fsDataOutputStream = getFileSystem().create(name, false);
+		OutputStream out = this.fsDataOutputStream;
+		if (codec != null) {
+			out = codec.createOutputStream(out);
+		}
+		if (this.bufferSize > 0) {
+			out = new BufferedOutputStream(out, this.bufferSize);
+		}
+		this.outputStream = out;
+		this.openedAt = System.currentTimeMillis();
+		resetBytesWritten();
+		scheduleTimeoutCheck();
+	}
+
+	private String getFileName(CompressionCodec codec) {
+		return codec == null ? getFileName() : getFileName() + codec.getDefaultExtension();
+	}
+
+	private CompressionCodec getCodec() {
+		if (this.codec == null && this.codecName != null) {
+			CompressionCodecFactory codecFactory = new CompressionCodecFactory(getFileSystem().getConf());
+			this.codec = codecFactory.getCodecByName(this.codecName);
+			Assert.notNull(this.codec, "Unknown compression codec: " + this.codecName);
+		}
+		return this.codec;
+	}
+
 	@Override
 	public FileSystem getFileSystem() {
 		return this.fileSystem;
@@ -89,10 +249,16 @@ public class HdfsTextFileWriter extends AbstractHdfsWriter implements HdfsWriter
 	 * Simple not optimized copy
 	 */
 	public void copy(byte[] in, FSDataOutputStream out) throws IOException {
+		copy(in, (OutputStream) out);
+	}
+
+	private void copy(byte[] in, OutputStream out) throws IOException {
 		Assert.notNull(in, "No input byte array specified");
 		Assert.notNull(out, "No OutputStream specified");
 		out.write(in);
 		incrementBytesWritten(in.length);
+		this.lastWrittenAt = System.currentTimeMillis();
+		this.unflushed = true;
 	}
 
 	// TODO note, taken from TcpMessageMapper
@@ -124,10 +290,46 @@ public class HdfsTextFileWriter extends AbstractHdfsWriter implements HdfsWriter
 		return bytes;
 	}
 
+	/**
+	 * Write any buffered payloads to the file and flush it to the data nodes. Data held by a compression codec is
+	 * only written out once it completes a block, or when the file is closed. Called by the task scheduler after the
+	 * {@link #setFlushTimeoutInMillis(long) flush timeout}.
+	 *
+	 * @throws IOException if the data cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		if (this.outputStream != null) {
+			this.outputStream.flush();
+			this.fsDataOutputStream.hflush();
+			this.unflushed = false;
+		}
+	}
+
 	@Override
-	public void close() {
-		if (fsDataOutputStream != null) {
-			IOUtils.closeStream(fsDataOutputStream);
+	public synchronized void close() {
+		try {
+			closeOutputStream();
+		}
+		catch (IOException e) {
+			logger.error("Failed to close " + getFileName() + "; data written since the last flush may be lost", e);
+		}
+	}
+
+	private void closeOutputStream() throws IOException {
+		if (this.timeoutCheck != null) {
+			this.timeoutCheck.cancel(false);
+			this.timeoutCheck = null;
+		}
+		if (this.outputStream != null) {
+			try {
+				// closes the codec and buffer streams too, writing out whatever they hold
+				this.outputStream.close();
+			}
+			finally {
+				this.outputStream = null;
+				this.fsDataOutputStream = null;
+				this.unflushed = false;
+			}
 		}
 	}
 
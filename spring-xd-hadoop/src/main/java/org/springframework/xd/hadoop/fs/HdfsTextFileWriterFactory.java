@@ -18,6 +18,7 @@ package org.springframework.xd.hadoop.fs;
 
 import org.apache.hadoop.fs.FileSystem;
 
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
 
 /**
@@ -36,6 +37,8 @@ public class HdfsTextFileWriterFactory implements HdfsWriterFactory {
 
 	public static long DEFAULT_ROLLOVER_THRESHOLD_IN_BYTES = 10 * 1024 * 1024; // 10MB
 
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
 	private long rolloverThresholdInBytes = DEFAULT_ROLLOVER_THRESHOLD_IN_BYTES;
 
 	private String baseFilename = DEFAULT_BASE_FILENAME;
@@ -44,6 +47,16 @@ public class HdfsTextFileWriterFactory implements HdfsWriterFactory {
 
 	private String fileSuffix = DEFAULT_FILE_SUFFIX;
 
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+	private long rolloverIntervalInMillis;
+
+	private String codec;
+
+	private long flushTimeoutInMillis;
+
+	private TaskScheduler taskScheduler;
+
 	public HdfsTextFileWriterFactory(FileSystem fileSystem) {
 		Assert.notNull(fileSystem, "Hadoop FileSystem must not be null.");
 		this.fileSystem = fileSystem;
@@ -81,6 +94,45 @@ public class HdfsTextFileWriterFactory implements HdfsWriterFactory {
 		this.rolloverThresholdInBytes = rolloverThresholdInBytes;
 	}
 
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public long getRolloverIntervalInMillis() {
+		return rolloverIntervalInMillis;
+	}
+
+	public void setRolloverIntervalInMillis(long rolloverIntervalInMillis) {
+		this.rolloverIntervalInMillis = rolloverIntervalInMillis;
+	}
+
+	public String getCodec() {
+		return codec;
+	}
+
+	public void setCodec(String codec) {
+		this.codec = codec;
+	}
+
+	public long getFlushTimeoutInMillis() {
+		return flushTimeoutInMillis;
+	}
+
+	public void setFlushTimeoutInMillis(long flushTimeoutInMillis) {
+		this.flushTimeoutInMillis = flushTimeoutInMillis;
+	}
+
+	public TaskScheduler getTaskScheduler() {
+		return taskScheduler;
+	}
+
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
 
 	@Override
 	public HdfsWriter createWriter() {
@@ -89,6 +141,11 @@ public class HdfsTextFileWriterFactory implements HdfsWriterFactory {
 		textFileWriter.setBaseFilename(baseFilename);
 		textFileWriter.setFileSuffix(fileSuffix);
 		textFileWriter.setRolloverThresholdInBytes(rolloverThresholdInBytes);
+		textFileWriter.setRolloverIntervalInMillis(rolloverIntervalInMillis);
+		textFileWriter.setBufferSize(bufferSize);
+		textFileWriter.setCodec(codec);
+		textFileWriter.setFlushTimeoutInMillis(flushTimeoutInMillis);
+		textFileWriter.setTaskScheduler(taskScheduler);
 		return textFileWriter;
 	}
 
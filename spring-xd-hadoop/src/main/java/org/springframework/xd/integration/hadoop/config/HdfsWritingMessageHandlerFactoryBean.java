@@ -19,6 +19,7 @@ package org.springframework.xd.integration.hadoop.config;
 import org.apache.hadoop.fs.FileSystem;
 
 import org.springframework.beans.factory.FactoryBean;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
 import org.springframework.xd.hadoop.fs.HdfsTextFileWriterFactory;
 import org.springframework.xd.integration.hadoop.outbound.HdfsWritingMessageHandler;
@@ -40,6 +41,16 @@ public class HdfsWritingMessageHandlerFactoryBean implements FactoryBean<HdfsWri
 
 	private volatile long rolloverThresholdInBytes;
 
+	private volatile long rolloverIntervalInMillis;
+
+	private volatile int bufferSize = HdfsTextFileWriterFactory.DEFAULT_BUFFER_SIZE;
+
+	private volatile String codec;
+
+	private volatile long flushTimeoutInMillis;
+
+	private volatile TaskScheduler taskScheduler;
+
 	private volatile Boolean autoStartup;
 
 	private volatile HdfsWritingMessageHandler handler;
@@ -65,6 +76,26 @@ public class HdfsWritingMessageHandlerFactoryBean implements FactoryBean<HdfsWri
 		this.rolloverThresholdInBytes = rolloverThresholdInBytes;
 	}
 
+	public void setRolloverIntervalInMillis(long rolloverIntervalInMillis) {
+		this.rolloverIntervalInMillis = rolloverIntervalInMillis;
+	}
+
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public void setCodec(String codec) {
+		this.codec = codec;
+	}
+
+	public void setFlushTimeoutInMillis(long flushTimeoutInMillis) {
+		this.flushTimeoutInMillis = flushTimeoutInMillis;
+	}
+
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
 	public void setAutoStartup(boolean autoStartup) {
 		this.autoStartup = autoStartup;
 	}
@@ -87,6 +118,11 @@ public class HdfsWritingMessageHandlerFactoryBean implements FactoryBean<HdfsWri
 			writerFactory.setBaseFilename(this.baseFilename);
 			writerFactory.setFileSuffix(fileSuffix);
 			writerFactory.setRolloverThresholdInBytes(rolloverThresholdInBytes);
+			writerFactory.setRolloverIntervalInMillis(rolloverIntervalInMillis);
+			writerFactory.setBufferSize(bufferSize);
+			writerFactory.setCodec(codec);
+			writerFactory.setFlushTimeoutInMillis(flushTimeoutInMillis);
+			writerFactory.setTaskScheduler(taskScheduler);
 			this.handler = new HdfsWritingMessageHandler(writerFactory);
 			if (this.autoStartup != null) {
 				this.handler.setAutoStartup(this.autoStartup);
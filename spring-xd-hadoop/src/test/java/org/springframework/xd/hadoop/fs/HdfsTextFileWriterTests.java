@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.hadoop.fs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+public class HdfsTextFileWriterTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystem fileSystem;
+
+	private String basePath;
+
+	@Before
+	public void setUp() throws Exception {
+		//This test disabled for Windows. Getting NPE in ProcessBuilder.start() called from org.apache.util.Shell
+		org.junit.Assume.assumeFalse(System.getProperty("os.name").toLowerCase().startsWith("windows"));
+		this.fileSystem = FileSystem.getLocal(new Configuration());
+		this.basePath = this.folder.getRoot().getAbsolutePath() + "/out";
+	}
+
+	@Test
+	public void testKeepsFileOpenUntilRollover() throws Exception {
+		HdfsTextFileWriter writer = new HdfsTextFileWriter(this.fileSystem);
+		writer.setBasePath(this.basePath);
+		writer.setRolloverThresholdInBytes(6);
+		writer.write(new GenericMessage<String>("foo\n"));
+		writer.write(new GenericMessage<String>("bar\n"));
+		writer.write(new GenericMessage<String>("baz\n"));
+		writer.close();
+		assertEquals("foo\nbar\n", read(new Path(this.basePath, "data-0.log"), false));
+		assertEquals("baz\n", read(new Path(this.basePath, "data-1.log"), false));
+		assertFalse(this.fileSystem.exists(new Path(this.basePath, "data-2.log")));
+	}
+
+	@Test
+	public void testSkipsExistingFiles() throws Exception {
+		HdfsTextFileWriter writer = new HdfsTextFileWriter(this.fileSystem);
+		writer.setBasePath(this.basePath);
+		writer.write(new GenericMessage<String>("foo\n"));
+		writer.close();
+		writer.write(new GenericMessage<String>("bar\n"));
+		writer.close();
+		assertEquals("foo\n", read(new Path(this.basePath, "data-0.log"), false));
+		assertEquals("bar\n", read(new Path(this.basePath, "data-1.log"), false));
+	}
+
+	@Test
+	public void testBufferedWritesAreFlushed() throws Exception {
+		HdfsTextFileWriter writer = new HdfsTextFileWriter(this.fileSystem);
+		writer.setBasePath(this.basePath);
+		writer.setBufferSize(1024);
+		writer.write(new GenericMessage<byte[]>("foo\n".getBytes("UTF-8")));
+		writer.flush();
+		writer.write(new GenericMessage<String>("bar\n"));
+		writer.close();
+		assertEquals("foo\nbar\n", read(new Path(this.basePath, "data-0.log"), false));
+	}
+
+	@Test
+	public void testBufferIsFlushedAfterFlushTimeout() throws Exception {
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.afterPropertiesSet();
+		HdfsTextFileWriter writer = new HdfsTextFileWriter(this.fileSystem);
+		writer.setBasePath(this.basePath);
+		writer.setFlushTimeoutInMillis(50);
+		writer.setTaskScheduler(scheduler);
+		try {
+			writer.write(new GenericMessage<String>("foo\n"));
+			File file = new File(this.basePath, "data-0.log");
+			for (int i = 0; i < 200 && file.length() < 4; i++) {
+				Thread.sleep(50);
+			}
+			assertEquals(4, file.length());
+		}
+		finally {
+			writer.close();
+			scheduler.destroy();
+		}
+	}
+
+	@Test
+	public void testFileIsClosedAfterRolloverIntervalWithoutWrites() throws Exception {
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.afterPropertiesSet();
+		HdfsTextFileWriter writer = new HdfsTextFileWriter(this.fileSystem);
+		writer.setBasePath(this.basePath);
+		writer.setRolloverIntervalInMillis(50);
+		writer.setTaskScheduler(scheduler);
+		try {
+			writer.write(new GenericMessage<String>("foo\n"));
+			// the buffered payload only reaches the file when the timer closes it
+			File file = new File(this.basePath, "data-0.log");
+			for (int i = 0; i < 200 && file.length() < 4; i++) {
+				Thread.sleep(50);
+			}
+			writer.write(new GenericMessage<String>("bar\n"));
+			writer.close();
+			assertEquals("foo\n", read(new Path(this.basePath, "data-0.log"), false));
+			assertEquals("bar\n", read(new Path(this.basePath, "data-1.log"), false));
+		}
+		finally {
+			writer.close();
+			scheduler.destroy();
+		}
+	}
+
+	@Test
+	public void testGzipCodec() throws Exception {
+		HdfsTextFileWriter writer = new HdfsTextFileWriter(this.fileSystem);
+		writer.setBasePath(this.basePath);
+		writer.setCodec("gzip");
+		writer.write(new GenericMessage<String>("foo\n"));
+		writer.write(new GenericMessage<String>("bar\n"));
+		writer.close();
+		Path path = new Path(this.basePath, "data-0.log.gz");
+		assertTrue(this.fileSystem.exists(path));
+		assertEquals("foo\nbar\n", read(path, true));
+	}
+
+	private String read(Path path, boolean gzip) throws Exception {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(gzip
+				? new GZIPInputStream(this.fileSystem.open(path)) : this.fileSystem.open(path), "UTF-8"));
+		try {
+			StringBuilder builder = new StringBuilder();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				builder.append(line).append('\n');
+			}
+			return builder.toString();
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+}
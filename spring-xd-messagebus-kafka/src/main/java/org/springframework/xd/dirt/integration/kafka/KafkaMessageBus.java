@@ -349,6 +349,16 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 
 	}
 
+	/**
+	 * Set to true to embed headers in the binary format; only enable this once every
+	 * container has been upgraded to a version that can decode it.
+	 * @param binaryHeaders true to use the binary format.
+	 * @see EmbeddedHeadersMessageConverter#setBinaryHeaders(boolean)
+	 */
+	public void setBinaryHeaders(boolean binaryHeaders) {
+		this.embeddedHeadersMessageConverter.setBinaryHeaders(binaryHeaders);
+	}
+
 	public void setOffsetStoreTopic(String offsetStoreTopic) {
 		this.offsetStoreTopic = offsetStoreTopic;
 	}
@@ -993,7 +1003,7 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 				MessageValues messageValues;
 				try {
 					messageValues = embeddedHeadersMessageConverter.extractHeaders((Message<byte[]>) requestMessage,
-							true);
+							true, true);
 				}
 				catch (Exception e) {
 					logger.error(EmbeddedHeadersMessageConverter.decodeExceptionMessage(requestMessage), e);
@@ -1041,7 +1051,7 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 				ProducerConfiguration<byte[], byte[]> producerConfiguration) {
 			this.topicName = topicName;
 			this.numberOfKafkaPartitions = numberOfPartitions;
-			this.partitioningMetadata = new PartitioningMetadata(properties, numberOfPartitions);
+			this.partitioningMetadata = createPartitioningMetadata(properties, numberOfPartitions);
 			this.setBeanFactory(KafkaMessageBus.this.getBeanFactory());
 			this.producerConfiguration = producerConfiguration;
 		}
@@ -1057,7 +1067,7 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 			}
 
 			if (Mode.embeddedHeaders.equals(mode)) {
-				MessageValues transformed = serializePayloadIfNecessary(message);
+				MessageValues transformed = serializePayloadIfNecessary(message, true);
 				byte[] messageToSend = embeddedHeadersMessageConverter.embedHeaders(transformed,
 						KafkaMessageBus.this.headersToMap);
 				producerConfiguration.send(topicName, targetPartition, null, messageToSend);
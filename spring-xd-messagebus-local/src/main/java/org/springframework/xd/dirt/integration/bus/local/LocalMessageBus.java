@@ -19,7 +19,11 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.channel.ExecutorChannel;
 import org.springframework.integration.channel.PublishSubscribeChannel;
@@ -46,7 +50,9 @@ import org.springframework.xd.dirt.integration.bus.MessageBusSupport;
  * A simple implementation of {@link org.springframework.xd.dirt.integration.bus.MessageBus} for in-process use. For inbound and outbound, creates a
  * {@link DirectChannel} or a {@link QueueChannel} depending on whether the binding is aliased or not then bridges the
  * passed {@link MessageChannel} to the channel which is registered in the given application context. If that channel
- * does not yet exist, it will be created.
+ * does not yet exist, it will be created. When {@link #setRingBuffer(boolean) ringBuffer} is enabled, aliased
+ * bindings use a {@link RingBufferChannel} with a dedicated consumer thread instead of a polled queue channel; the
+ * channel and its thread are destroyed when the last binding with its name is deleted, or when the bus is destroyed.
  *
  * @author David Turanski
  * @author Mark Fisher
@@ -55,7 +61,7 @@ import org.springframework.xd.dirt.integration.bus.MessageBusSupport;
  * @author Ilayaperumal Gopinathan
  * @since 1.0
  */
-public class LocalMessageBus extends MessageBusSupport {
+public class LocalMessageBus extends MessageBusSupport implements DisposableBean {
 
 	private static final int DEFAULT_EXECUTOR_CORE_POOL_SIZE = 0;
 
@@ -88,8 +94,23 @@ public class LocalMessageBus extends MessageBusSupport {
 
 	private volatile int queueSize = Integer.MAX_VALUE;
 
+	private volatile boolean ringBuffer;
+
+	private volatile int ringBufferSize = RingBufferChannel.DEFAULT_CAPACITY;
+
+	private volatile int ringBufferBatchSize = RingBufferChannel.DEFAULT_BATCH_SIZE;
+
+	private volatile RingBufferChannel.WaitStrategy ringBufferWaitStrategy = RingBufferChannel.WaitStrategy.PARK;
+
 	private final Map<String, ThreadPoolTaskExecutor> reqRepExecutors = new ConcurrentHashMap<>();
 
+	/**
+	 * The {@link RingBufferChannel}s created by this bus; also the monitor that keeps their creation, binding and
+	 * release atomic.
+	 */
+	private final ConcurrentMap<String, RingBufferChannel> ringBufferChannels =
+			new ConcurrentHashMap<String, RingBufferChannel>();
+
 	/**
 	 * Used to create and customize {@link QueueChannel}s when the binding operation involves aliased names.
 	 */
@@ -103,6 +124,21 @@ public class LocalMessageBus extends MessageBusSupport {
 		}
 	};
 
+	/**
+	 * Used instead of the {@link #queueChannelProvider} when {@link #setRingBuffer(boolean) ringBuffer} is enabled.
+	 */
+	private final SharedChannelProvider<RingBufferChannel> ringBufferChannelProvider = new SharedChannelProvider<RingBufferChannel>(
+			RingBufferChannel.class) {
+
+		@Override
+		protected RingBufferChannel createSharedChannel(String name) {
+			RingBufferChannel channel = new RingBufferChannel(ringBufferSize, ringBufferBatchSize,
+					ringBufferWaitStrategy);
+			ringBufferChannels.put(name, channel);
+			return channel;
+		}
+	};
+
 	private final SharedChannelProvider<PublishSubscribeChannel> pubsubChannelProvider = new SharedChannelProvider<PublishSubscribeChannel>(
 			PublishSubscribeChannel.class) {
 
@@ -128,6 +164,43 @@ public class LocalMessageBus extends MessageBusSupport {
 		this.queueSize = queueSize;
 	}
 
+	/**
+	 * Use a {@link RingBufferChannel}, drained in batches by a dedicated thread per channel, rather than a polled
+	 * {@link QueueChannel} for aliased (point-to-point and job) bindings.
+	 * Default: false.
+	 * @param ringBuffer true to use ring buffer channels.
+	 */
+	public void setRingBuffer(boolean ringBuffer) {
+		this.ringBuffer = ringBuffer;
+	}
+
+	/**
+	 * Set the capacity of each {@link RingBufferChannel}; rounded up to a power of two.
+	 * Default: 1024.
+	 * @param ringBufferSize the capacity.
+	 */
+	public void setRingBufferSize(int ringBufferSize) {
+		this.ringBufferSize = ringBufferSize;
+	}
+
+	/**
+	 * Set the maximum number of messages a {@link RingBufferChannel} consumer drains at a time.
+	 * Default: 64.
+	 * @param ringBufferBatchSize the batch size.
+	 */
+	public void setRingBufferBatchSize(int ringBufferBatchSize) {
+		this.ringBufferBatchSize = ringBufferBatchSize;
+	}
+
+	/**
+	 * Set how {@link RingBufferChannel} consumers wait for messages and producers wait for space.
+	 * Default: {@code PARK}.
+	 * @param ringBufferWaitStrategy the wait strategy.
+	 */
+	public void setRingBufferWaitStrategy(RingBufferChannel.WaitStrategy ringBufferWaitStrategy) {
+		this.ringBufferWaitStrategy = ringBufferWaitStrategy;
+	}
+
 	/**
 	 * Set the {@link ThreadPoolTaskExecutor}} core pool size to limit the number of concurrent
 	 * threads. The executor is used for PubSub operations.
@@ -202,7 +275,7 @@ public class LocalMessageBus extends MessageBusSupport {
 		// Use queue channel provider in case of named channels:
 		// point-to-point type syntax (queue:) and job input channel syntax (job:)
 		if (name.startsWith(P2P_NAMED_CHANNEL_TYPE_PREFIX) || name.startsWith(JOB_CHANNEL_TYPE_PREFIX)) {
-			channelProvider = queueChannelProvider;
+			channelProvider = this.ringBuffer ? this.ringBufferChannelProvider : this.queueChannelProvider;
 		}
 		return channelProvider;
 	}
@@ -227,6 +300,18 @@ public class LocalMessageBus extends MessageBusSupport {
 			SharedChannelProvider<?> channelProvider, Properties properties) {
 		Assert.hasText(name, "a valid name is required to register an inbound channel");
 		Assert.notNull(moduleInputChannel, "channel must not be null");
+		if (channelProvider == this.ringBufferChannelProvider) {
+			synchronized (this.ringBufferChannels) {
+				bridgeConsumer(name, moduleInputChannel, channelProvider, properties);
+			}
+		}
+		else {
+			bridgeConsumer(name, moduleInputChannel, channelProvider, properties);
+		}
+	}
+
+	private void bridgeConsumer(String name, MessageChannel moduleInputChannel,
+			SharedChannelProvider<?> channelProvider, Properties properties) {
 		MessageChannel registeredChannel = channelProvider.lookupOrCreateSharedChannel(name);
 		bridge(name, registeredChannel, moduleInputChannel,
 				"inbound." + ((NamedComponent) registeredChannel).getComponentName(),
@@ -254,6 +339,18 @@ public class LocalMessageBus extends MessageBusSupport {
 			SharedChannelProvider<?> channelProvider, Properties properties) {
 		Assert.hasText(name, "a valid name is required to register an outbound channel");
 		Assert.notNull(moduleOutputChannel, "channel must not be null");
+		if (channelProvider == this.ringBufferChannelProvider) {
+			synchronized (this.ringBufferChannels) {
+				bridgeProducer(name, moduleOutputChannel, channelProvider, properties);
+			}
+		}
+		else {
+			bridgeProducer(name, moduleOutputChannel, channelProvider, properties);
+		}
+	}
+
+	private void bridgeProducer(String name, MessageChannel moduleOutputChannel,
+			SharedChannelProvider<?> channelProvider, Properties properties) {
 		MessageChannel registeredChannel = channelProvider.lookupOrCreateSharedChannel(name);
 		bridge(name, moduleOutputChannel, registeredChannel,
 				"outbound." + ((NamedComponent) registeredChannel).getComponentName(),
@@ -332,12 +429,31 @@ public class LocalMessageBus extends MessageBusSupport {
 		return executor;
 	}
 
+	@Override
+	public void unbindConsumers(String name) {
+		super.unbindConsumers(name);
+		releaseRingBufferChannelIfUnbound(name);
+	}
+
+	@Override
+	public void unbindProducers(String name) {
+		super.unbindProducers(name);
+		releaseRingBufferChannelIfUnbound(name);
+	}
+
+	@Override
+	public void unbindConsumer(String name, MessageChannel channel) {
+		super.unbindConsumer(name, channel);
+		releaseRingBufferChannelIfUnbound(name);
+	}
+
 	@Override
 	public void unbindProducer(String name, MessageChannel channel) {
 		this.requestReplyChannels.remove("replier." + name);
 		MessageChannel requestChannel = this.requestReplyChannels.remove("requestor." + name);
 		if (requestChannel == null) {
 			super.unbindProducer(name, channel);
+			releaseRingBufferChannelIfUnbound(name);
 		}
 		ThreadPoolTaskExecutor executor = this.reqRepExecutors.remove(name);
 		if (executor != null) {
@@ -345,6 +461,49 @@ public class LocalMessageBus extends MessageBusSupport {
 		}
 	}
 
+	/**
+	 * Destroy the {@link RingBufferChannel} with this name, stopping its consumer thread, once no producer or
+	 * consumer is bound to it; the channel was registered as a singleton, so the context never destroys it.
+	 */
+	private void releaseRingBufferChannelIfUnbound(String name) {
+		if (!this.ringBufferChannels.containsKey(name)) {
+			return;
+		}
+		synchronized (this.ringBufferChannels) {
+			if (hasBindings(name)) {
+				return;
+			}
+			RingBufferChannel channel = this.ringBufferChannels.remove(name);
+			if (channel != null) {
+				destroyRingBufferChannel(name, channel);
+			}
+		}
+	}
+
+	private void destroyRingBufferChannel(String name, RingBufferChannel channel) {
+		channel.destroy();
+		ConfigurableListableBeanFactory beanFactory = getBeanFactory();
+		if (beanFactory instanceof DefaultListableBeanFactory && beanFactory.containsSingleton(name)) {
+			((DefaultListableBeanFactory) beanFactory).destroySingleton(name);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Destroyed ring buffer channel:" + name);
+		}
+	}
+
+	/**
+	 * Stop the consumer threads of all {@link RingBufferChannel}s that are still bound.
+	 */
+	@Override
+	public void destroy() {
+		synchronized (this.ringBufferChannels) {
+			for (Map.Entry<String, RingBufferChannel> entry : this.ringBufferChannels.entrySet()) {
+				destroyRingBufferChannel(entry.getKey(), entry.getValue());
+			}
+			this.ringBufferChannels.clear();
+		}
+	}
+
 	protected BridgeHandler bridge(String name, MessageChannel from, MessageChannel to, String bridgeName,
 			LocalBusPropertiesAccessor properties) {
 		return bridge(name, from, to, bridgeName, null, properties);
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.integration.bus.local;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.channel.AbstractMessageChannel;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
+import org.springframework.integration.dispatcher.RoundRobinLoadBalancingStrategy;
+import org.springframework.integration.dispatcher.UnicastingDispatcher;
+import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.util.Assert;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * A bounded, lock-free channel for point-to-point local bus bindings. Producers claim slots in a ring buffer
+ * with a CAS on the tail sequence; a single dedicated consumer thread drains up to {@code batchSize} messages
+ * at a time and dispatches them, round robin, to the subscribers. Compared to a polled
+ * {@link org.springframework.integration.channel.QueueChannel} there is no lock on either side and no poller
+ * latency.
+ * <p>
+ * When the buffer is empty the consumer waits according to its {@link WaitStrategy}; when it is full, senders
+ * back off the same way until the send timeout expires. The consumer thread is started when the first handler
+ * subscribes; messages sent before that are buffered.
+ */
+public class RingBufferChannel extends AbstractMessageChannel implements SubscribableChannel, DisposableBean {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private static final long MAX_CONSUMER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * How an idle consumer waits for messages, and how a sender waits for free slots.
+	 */
+	public enum WaitStrategy {
+
+		/**
+		 * Spin without yielding the CPU; the lowest latency at the cost of a fully busy core per channel.
+		 */
+		BUSY_SPIN,
+
+		/**
+		 * Call {@link Thread#yield()} between attempts.
+		 */
+		YIELD,
+
+		/**
+		 * Park the thread; senders wake a parked consumer. The least CPU when idle.
+		 */
+		PARK
+	}
+
+	private final int capacity;
+
+	private final int mask;
+
+	private final AtomicReferenceArray<Message<?>> slots;
+
+	/**
+	 * For each slot, the sequence a producer may claim it at; a consumer may read it once it is one more than
+	 * that.
+	 */
+	private final AtomicLongArray sequences;
+
+	private final AtomicLong tail = new AtomicLong();
+
+	private volatile long head;
+
+	private final int batchSize;
+
+	private final WaitStrategy waitStrategy;
+
+	private final UnicastingDispatcher dispatcher = new UnicastingDispatcher();
+
+	private final AtomicInteger subscriberCount = new AtomicInteger();
+
+	private final Object lifecycleMonitor = new Object();
+
+	private volatile Thread consumer;
+
+	private volatile boolean consumerParked;
+
+	private volatile boolean destroyed;
+
+	private volatile ErrorHandler errorHandler;
+
+	private volatile long drainCount;
+
+	private volatile long drainedCount;
+
+	private volatile int lastDrainBatchSize;
+
+	private volatile int maxDrainBatchSize;
+
+	public RingBufferChannel() {
+		this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, WaitStrategy.PARK);
+	}
+
+	/**
+	 * @param capacity the number of slots; rounded up to a power of two.
+	 * @param batchSize the maximum number of messages drained before they are dispatched.
+	 * @param waitStrategy the wait strategy.
+	 */
+	public RingBufferChannel(int capacity, int batchSize, WaitStrategy waitStrategy) {
+		Assert.isTrue(capacity > 0 && capacity <= MAX_CAPACITY, "'capacity' must be between 1 and " + MAX_CAPACITY);
+		Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+		Assert.notNull(waitStrategy, "'waitStrategy' cannot be null");
+		this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		this.mask = this.capacity - 1;
+		this.slots = new AtomicReferenceArray<Message<?>>(this.capacity);
+		this.sequences = new AtomicLongArray(this.capacity);
+		for (int i = 0; i < this.capacity; i++) {
+			this.sequences.set(i, i);
+		}
+		this.batchSize = Math.min(batchSize, this.capacity);
+		this.waitStrategy = waitStrategy;
+		this.dispatcher.setLoadBalancingStrategy(new RoundRobinLoadBalancingStrategy());
+	}
+
+	/**
+	 * Set the handler for exceptions thrown by subscribers. Defaults to publishing to the
+	 * {@code errorChannel}, as a poller does for a queue channel.
+	 * @param errorHandler the error handler.
+	 */
+	public void setErrorHandler(ErrorHandler errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "ring-buffer-channel";
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		super.onInit();
+		BeanFactory beanFactory = getBeanFactory();
+		if (this.errorHandler == null && beanFactory != null) {
+			this.errorHandler = new MessagePublishingErrorHandler(new BeanFactoryChannelResolver(beanFactory));
+		}
+	}
+
+	@Override
+	public boolean subscribe(MessageHandler handler) {
+		boolean added = this.dispatcher.addHandler(handler);
+		if (added) {
+			this.subscriberCount.incrementAndGet();
+			startConsumerIfNecessary();
+			LockSupport.unpark(this.consumer);
+		}
+		return added;
+	}
+
+	@Override
+	public boolean unsubscribe(MessageHandler handler) {
+		boolean removed = this.dispatcher.removeHandler(handler);
+		if (removed) {
+			this.subscriberCount.decrementAndGet();
+		}
+		return removed;
+	}
+
+	@Override
+	protected boolean doSend(Message<?> message, long timeout) {
+		Assert.state(!this.destroyed, "channel has been destroyed");
+		if (!offer(message)) {
+			if (timeout == 0) {
+				return false;
+			}
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+			do {
+				if ((timeout > 0 && System.nanoTime() - deadline >= 0) || Thread.currentThread().isInterrupted()) {
+					return false;
+				}
+				if (this.destroyed) {
+					// nothing will drain the buffer any more
+					throw new MessageDeliveryException(message, "channel has been destroyed");
+				}
+				backOff(PRODUCER_PARK_NANOS);
+			}
+			while (!offer(message));
+		}
+		if (this.consumerParked) {
+			LockSupport.unpark(this.consumer);
+		}
+		return true;
+	}
+
+	private boolean offer(Message<?> message) {
+		long sequence = this.tail.get();
+		while (true) {
+			int index = (int) (sequence & this.mask);
+			long difference = this.sequences.get(index) - sequence;
+			if (difference == 0) {
+				if (this.tail.compareAndSet(sequence, sequence + 1)) {
+					this.slots.lazySet(index, message);
+					this.sequences.lazySet(index, sequence + 1);
+					return true;
+				}
+			}
+			else if (difference < 0) {
+				return false;
+			}
+			sequence = this.tail.get();
+		}
+	}
+
+	/**
+	 * Move up to {@code batch.length} published messages into {@code batch}, releasing their slots.
+	 * Only called from the consumer thread.
+	 */
+	private int drainTo(Message<?>[] batch) {
+		long sequence = this.head;
+		int count = 0;
+		while (count < batch.length) {
+			int index = (int) (sequence & this.mask);
+			if (this.sequences.get(index) != sequence + 1) {
+				break;
+			}
+			batch[count++] = this.slots.get(index);
+			this.slots.lazySet(index, null);
+			this.sequences.lazySet(index, sequence + this.capacity);
+			sequence++;
+		}
+		this.head = sequence;
+		return count;
+	}
+
+	private void backOff(long parkNanos) {
+		switch (this.waitStrategy) {
+			case BUSY_SPIN:
+				break;
+			case YIELD:
+				Thread.yield();
+				break;
+			default:
+				LockSupport.parkNanos(this, parkNanos);
+		}
+	}
+
+	private void awaitMessages() {
+		if (this.waitStrategy != WaitStrategy.PARK) {
+			backOff(0);
+			return;
+		}
+		this.consumerParked = true;
+		// re-check after publishing the flag so that a concurrent sender either sees it or we see the message
+		if (this.subscriberCount.get() == 0 || this.tail.get() == this.head) {
+			LockSupport.parkNanos(this, MAX_CONSUMER_PARK_NANOS);
+		}
+		this.consumerParked = false;
+	}
+
+	private void startConsumerIfNecessary() {
+		synchronized (this.lifecycleMonitor) {
+			if (this.consumer == null && !this.destroyed) {
+				String name = getComponentName();
+				Thread thread = new Thread(new Consumer(), "xd.localbus.ring." + (name == null ? "" : name));
+				thread.setDaemon(true);
+				this.consumer = thread;
+				thread.start();
+			}
+		}
+	}
+
+	/**
+	 * Stop the consumer thread; messages still in the buffer are discarded.
+	 */
+	@Override
+	public void destroy() {
+		synchronized (this.lifecycleMonitor) {
+			this.destroyed = true;
+			LockSupport.unpark(this.consumer);
+		}
+	}
+
+	/**
+	 * @return the number of messages waiting in the buffer.
+	 */
+	@ManagedAttribute
+	public int getQueueSize() {
+		long size = this.tail.get() - this.head;
+		return (int) Math.max(0, Math.min(size, this.capacity));
+	}
+
+	@ManagedAttribute
+	public int getRemainingCapacity() {
+		return this.capacity - getQueueSize();
+	}
+
+	@ManagedAttribute
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	@ManagedAttribute
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	public WaitStrategy getWaitStrategy() {
+		return this.waitStrategy;
+	}
+
+	/**
+	 * @return the number of non-empty batches drained by the consumer.
+	 */
+	@ManagedAttribute
+	public long getDrainCount() {
+		return this.drainCount;
+	}
+
+	/**
+	 * @return the size of the most recently drained batch.
+	 */
+	@ManagedAttribute
+	public int getLastDrainBatchSize() {
+		return this.lastDrainBatchSize;
+	}
+
+	@ManagedAttribute
+	public int getMaxDrainBatchSize() {
+		return this.maxDrainBatchSize;
+	}
+
+	/**
+	 * @return the average number of messages per drained batch, or 0 if none were drained.
+	 */
+	@ManagedAttribute
+	public double getMeanDrainBatchSize() {
+		long drains = this.drainCount;
+		return drains == 0 ? 0 : (double) this.drainedCount / drains;
+	}
+
+
+	private class Consumer implements Runnable {
+
+		@Override
+		public void run() {
+			Message<?>[] batch = new Message<?>[batchSize];
+			while (!destroyed) {
+				int count = subscriberCount.get() > 0 ? drainTo(batch) : 0;
+				if (count == 0) {
+					awaitMessages();
+					continue;
+				}
+				// single writer: plain read-modify-write of the volatile counters is safe
+				drainCount++;
+				drainedCount += count;
+				lastDrainBatchSize = count;
+				if (count > maxDrainBatchSize) {
+					maxDrainBatchSize = count;
+				}
+				for (int i = 0; i < count; i++) {
+					Message<?> message = batch[i];
+					batch[i] = null;
+					dispatch(message);
+				}
+			}
+		}
+
+		private void dispatch(Message<?> message) {
+			try {
+				dispatcher.dispatch(message);
+			}
+			catch (Exception e) {
+				MessagingException exception = e instanceof MessagingException ? (MessagingException) e
+						: new MessageHandlingException(message, "failed to handle message", e);
+				ErrorHandler handler = errorHandler;
+				if (handler != null) {
+					handler.handleError(exception);
+				}
+				else {
+					logger.error("Failed to dispatch message from " + getComponentName(), exception);
+				}
+			}
+		}
+
+	}
+
+}
@@ -929,7 +929,7 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 		private SendingHandler(MessageHandler delegate, String replyTo, RabbitPropertiesAccessor properties) {
 			this.delegate = delegate;
 			this.replyTo = replyTo;
-			this.partitioningMetadata = new PartitioningMetadata(properties, properties.getNextModuleCount());
+			this.partitioningMetadata = createPartitioningMetadata(properties, properties.getNextModuleCount());
 			this.setBeanFactory(RabbitMessageBus.this.getBeanFactory());
 		}
 
@@ -166,6 +166,16 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		}
 	}
 
+	/**
+	 * Set to true to embed headers in the binary format; only enable this once every
+	 * container has been upgraded to a version that can decode it.
+	 * @param binaryHeaders true to use the binary format.
+	 * @see EmbeddedHeadersMessageConverter#setBinaryHeaders(boolean)
+	 */
+	public void setBinaryHeaders(boolean binaryHeaders) {
+		this.embeddedHeadersMessageConverter.setBinaryHeaders(binaryHeaders);
+	}
+
 	@Override
 	protected void onInit() {
 		this.errorAdapter.setIntegrationEvaluationContext(this.evaluationContext);
@@ -413,13 +423,13 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		private SendingHandler(MessageHandler delegate, String replyTo, RedisPropertiesAccessor properties) {
 			this.delegate = delegate;
 			this.replyTo = replyTo;
-			this.partitioningMetadata = new PartitioningMetadata(properties, properties.getNextModuleCount());
+			this.partitioningMetadata = createPartitioningMetadata(properties, properties.getNextModuleCount());
 			this.setBeanFactory(RedisMessageBus.this.getBeanFactory());
 		}
 
 		@Override
 		protected void handleMessageInternal(Message<?> message) throws Exception {
-			MessageValues transformed = serializePayloadIfNecessary(message);
+			MessageValues transformed = serializePayloadIfNecessary(message, true);
 
 			if (replyTo != null) {
 				transformed.put(XdHeaders.REPLY_TO, this.replyTo);
@@ -448,7 +458,8 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		protected Object handleRequestMessage(Message<?> requestMessage) {
 			MessageValues theRequestMessage;
 			try {
-				theRequestMessage = embeddedHeadersMessageConverter.extractHeaders((Message<byte[]>) requestMessage, true);
+				theRequestMessage = embeddedHeadersMessageConverter.extractHeaders((Message<byte[]>) requestMessage, true,
+						true);
 			}
 			catch (Exception e) {
 				logger.error(EmbeddedHeadersMessageConverter.decodeExceptionMessage(requestMessage), e);
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link Binding}s of a {@link MessageBusSupport}, indexed by binding name and by endpoint component name.
+ * All operations are lock-free; the per-name entries are small immutable lists that are replaced atomically, so
+ * lookups and removals by name do not depend on the total number of bindings.
+ * <p>
+ * {@link #remove(Binding)} reports whether the caller removed the binding, which lets concurrent unbinds agree
+ * on which of them stops it.
+ */
+public class BindingRegistry {
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final ConcurrentNavigableMap<Long, Binding> bindings = new ConcurrentSkipListMap<Long, Binding>();
+
+	private final ConcurrentMap<Binding, Long> sequences = new ConcurrentHashMap<Binding, Long>();
+
+	private final ConcurrentMap<String, List<Binding>> byName = new ConcurrentHashMap<String, List<Binding>>();
+
+	private final ConcurrentMap<String, List<Binding>> byComponentName =
+			new ConcurrentHashMap<String, List<Binding>>();
+
+	void add(Binding binding) {
+		Long seq = this.sequence.incrementAndGet();
+		if (this.sequences.putIfAbsent(binding, seq) != null) {
+			return;
+		}
+		this.bindings.put(seq, binding);
+		addToIndex(this.byName, binding.getName(), binding);
+		addToIndex(this.byComponentName, binding.getEndpoint().getComponentName(), binding);
+	}
+
+	/**
+	 * @param binding the binding.
+	 * @return true if the binding was registered and has been removed by this call.
+	 */
+	boolean remove(Binding binding) {
+		Long seq = this.sequences.remove(binding);
+		if (seq == null) {
+			return false;
+		}
+		removeFromIndex(this.byComponentName, binding.getEndpoint().getComponentName(), binding);
+		removeFromIndex(this.byName, binding.getName(), binding);
+		this.bindings.remove(seq);
+		return true;
+	}
+
+	/**
+	 * @param name the binding name.
+	 * @param type the binding type, e.g. {@link Binding#PRODUCER}.
+	 * @return the first registered binding with this name and type, or null.
+	 */
+	Binding find(String name, String type) {
+		List<Binding> named = this.byName.get(name);
+		if (named != null) {
+			for (Binding binding : named) {
+				if (binding.getType().equals(type)) {
+					return binding;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param name the binding name.
+	 * @return true if any binding with this name is registered.
+	 */
+	boolean contains(String name) {
+		return this.byName.containsKey(name);
+	}
+
+	/**
+	 * @param componentName the component name of the binding endpoint.
+	 * @return the bindings whose endpoint has this name.
+	 */
+	List<Binding> findByComponentName(String componentName) {
+		List<Binding> named = this.byComponentName.get(componentName);
+		return named == null ? Collections.<Binding> emptyList() : named;
+	}
+
+	/**
+	 * @return a snapshot of the bindings, in the order they were registered.
+	 */
+	public List<Binding> getBindings() {
+		return new ArrayList<Binding>(this.bindings.values());
+	}
+
+	public boolean isEmpty() {
+		return this.bindings.isEmpty();
+	}
+
+	public int size() {
+		return this.bindings.size();
+	}
+
+	private static void addToIndex(ConcurrentMap<String, List<Binding>> index, String key, Binding binding) {
+		if (key == null) {
+			return;
+		}
+		while (true) {
+			List<Binding> current = index.get(key);
+			if (current == null) {
+				if (index.putIfAbsent(key, Collections.singletonList(binding)) == null) {
+					return;
+				}
+			}
+			else {
+				Binding[] updated = current.toArray(new Binding[current.size() + 1]);
+				updated[current.size()] = binding;
+				if (index.replace(key, current, Collections.unmodifiableList(Arrays.asList(updated)))) {
+					return;
+				}
+			}
+		}
+	}
+
+	private static void removeFromIndex(ConcurrentMap<String, List<Binding>> index, String key, Binding binding) {
+		if (key == null) {
+			return;
+		}
+		while (true) {
+			List<Binding> current = index.get(key);
+			if (current == null || !current.contains(binding)) {
+				return;
+			}
+			if (current.size() == 1) {
+				if (index.remove(key, current)) {
+					return;
+				}
+			}
+			else {
+				List<Binding> updated = new ArrayList<Binding>(current);
+				updated.remove(binding);
+				if (index.replace(key, current, Collections.unmodifiableList(updated))) {
+					return;
+				}
+			}
+		}
+	}
+
+}
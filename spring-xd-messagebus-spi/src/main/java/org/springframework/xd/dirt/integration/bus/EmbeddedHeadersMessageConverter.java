@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2015 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,8 +18,12 @@ package org.springframework.xd.dirt.integration.bus;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.bind.DatatypeConverter;
 
@@ -29,31 +33,126 @@ import org.springframework.messaging.Message;
 
 /**
  * Encodes requested headers into payload with format
- * {@code 0xff, n(1), [ [lenHdr(1), hdr, lenValue(4), value] ... ]}.
- * The 0xff indicates this new format; n is number of headers (max 255); for
+ * {@code 0xfe, n(1), [ [lenHdr(1), hdr, type(1), value] ... ]}.
+ * The 0xfe indicates the binary format; n is number of headers (max 255); for
  * each header, the name length (1 byte) is followed by the name, followed by
- * the value length (int) followed by the value (json).
+ * a type tag and the value. {@link String} (length-prefixed UTF-8), {@link Integer},
+ * {@link Long}, {@link Short}, {@link Byte}, {@link Double}, {@link Float},
+ * {@link Boolean} and {@link UUID} values are written in their binary form;
+ * any other value is written as length-prefixed JSON.
  * <p>
- * Previously, there was no leading 0xff; the value length was 1 byte and only
- * String header values were supported (no JSON conversion).
+ * The binary format is only written when {@link #setBinaryHeaders(boolean) binaryHeaders}
+ * is true; by default, headers are written in the format understood by earlier versions:
+ * {@code 0xff, n(1), [ [lenHdr(1), hdr, lenValue(4), value] ... ]} where each value is
+ * JSON. Before that, there was no leading 0xff; the value length was 1 byte and only
+ * String header values were supported (no JSON conversion). All three formats can be
+ * decoded, so every consumer must be upgraded before any producer is switched to the
+ * binary format.
+ * <p>
+ * In the oldest format the first byte is the header count, so that format is limited
+ * to 253 headers; a count of 254 or 255 is read as the marker of a newer format, and
+ * a payload that does not then parse as the binary format is rejected.
  *
  * @author Eric Bottard
  * @author Gary Russell
  */
 public class EmbeddedHeadersMessageConverter {
 
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final int BINARY_FORMAT = 0xfe;
+
+	private static final int JSON_FORMAT = 0xff;
+
+	private static final byte TYPE_JSON = 0;
+
+	private static final byte TYPE_STRING = 1;
+
+	private static final byte TYPE_INTEGER = 2;
+
+	private static final byte TYPE_LONG = 3;
+
+	private static final byte TYPE_SHORT = 4;
+
+	private static final byte TYPE_BYTE = 5;
+
+	private static final byte TYPE_DOUBLE = 6;
+
+	private static final byte TYPE_FLOAT = 7;
+
+	private static final byte TYPE_BOOLEAN = 8;
+
+	private static final byte TYPE_UUID = 9;
+
 	private final Jackson2JsonObjectMapper objectMapper = new Jackson2JsonObjectMapper();
 
+	private final ConcurrentMap<String, byte[]> headerNames = new ConcurrentHashMap<String, byte[]>();
+
+	private volatile boolean binaryHeaders;
+
 	public static String decodeExceptionMessage(Message<?> requestMessage) {
 		return "Could not convert message: " + DatatypeConverter.printHexBinary((byte[]) requestMessage.getPayload());
 	}
 
+	/**
+	 * Set to true to embed headers using the binary (0xfe) format. Earlier versions
+	 * cannot decode that format, so only enable it once every consumer has been
+	 * upgraded. Default false (the JSON (0xff) format).
+	 * @param binaryHeaders true to use the binary format.
+	 */
+	public void setBinaryHeaders(boolean binaryHeaders) {
+		this.binaryHeaders = binaryHeaders;
+	}
 
 	/**
 	 * Return a new message where some of the original headers of {@code original}
 	 * have been embedded into the new message payload.
 	 */
 	public byte[] embedHeaders(MessageValues original, String... headers) throws Exception {
+		if (!this.binaryHeaders) {
+			return embedJsonHeaders(original, headers);
+		}
+		ByteBuffer payload = payloadBuffer(original.getPayload());
+		byte[][] names = new byte[headers.length][];
+		Object[] values = new Object[headers.length];
+		byte[] types = new byte[headers.length];
+		byte[][] encodedValues = new byte[headers.length][];
+		int headerCount = 0;
+		int length = payload.remaining() + 2;
+		for (int i = 0; i < headers.length; i++) {
+			Object value = original.get(headers[i]);
+			if (value != null) {
+				byte type = typeOf(value);
+				names[i] = headerNameBytes(headers[i]);
+				values[i] = value;
+				types[i] = type;
+				if (type == TYPE_STRING) {
+					encodedValues[i] = ((String) value).getBytes(UTF_8);
+				}
+				else if (type == TYPE_JSON) {
+					encodedValues[i] = this.objectMapper.toJson(value).getBytes(UTF_8);
+				}
+				length += names[i].length + 2 + valueLength(type, encodedValues[i]);
+				headerCount++;
+			}
+		}
+		// 0xfe, n(1), [ [lenHdr(1), hdr, type(1), value] ... ]
+		ByteBuffer byteBuffer = ByteBuffer.wrap(new byte[length]);
+		byteBuffer.put((byte) BINARY_FORMAT);
+		byteBuffer.put((byte) headerCount);
+		for (int i = 0; i < headers.length; i++) {
+			if (values[i] != null) {
+				byteBuffer.put((byte) names[i].length);
+				byteBuffer.put(names[i]);
+				byteBuffer.put(types[i]);
+				writeValue(byteBuffer, types[i], values[i], encodedValues[i]);
+			}
+		}
+		byteBuffer.put(payload);
+		return byteBuffer.array();
+	}
+
+	private byte[] embedJsonHeaders(MessageValues original, String... headers) throws Exception {
 		byte[][] headerValues = new byte[headers.length][];
 		int n = 0;
 		int headerCount = 0;
@@ -72,9 +171,10 @@ public class EmbeddedHeadersMessageConverter {
 			}
 		}
 		// 0xff, n(1), [ [lenHdr(1), hdr, lenValue(4), value] ... ]
-		byte[] newPayload = new byte[((byte[])original.getPayload()).length + headersLength + headerCount * 5 + 2];
+		ByteBuffer payload = payloadBuffer(original.getPayload());
+		byte[] newPayload = new byte[payload.remaining() + headersLength + headerCount * 5 + 2];
 		ByteBuffer byteBuffer = ByteBuffer.wrap(newPayload);
-		byteBuffer.put((byte) 0xff); // signal new format
+		byteBuffer.put((byte) JSON_FORMAT); // signal new format
 		byteBuffer.put((byte) headerCount);
 		for (int i = 0; i < headers.length; i++) {
 			if (headerValues[i] != null) {
@@ -85,10 +185,20 @@ public class EmbeddedHeadersMessageConverter {
 			}
 		}
 
-		byteBuffer.put((byte[])original.getPayload());
+		byteBuffer.put(payload);
 		return byteBuffer.array();
 	}
 
+	/**
+	 * The payload is a {@code byte[]} or, when serialized with a payload view, a {@link ByteBuffer}.
+	 */
+	private static ByteBuffer payloadBuffer(Object payload) {
+		if (payload instanceof ByteBuffer) {
+			return ((ByteBuffer) payload).duplicate();
+		}
+		return ByteBuffer.wrap((byte[]) payload);
+	}
+
 	/**
 	 * Return a message where headers, that were originally embedded into the payload, have been promoted
 	 * back to actual headers. The new payload is now the original payload.
@@ -97,11 +207,35 @@ public class EmbeddedHeadersMessageConverter {
 	 * @param copyRequestHeaders boolean value to specify if original headers should be copied
 	 */
 	public MessageValues extractHeaders(Message<byte[]> message, boolean copyRequestHeaders) throws Exception {
+		return extractHeaders(message, copyRequestHeaders, false);
+	}
+
+	/**
+	 * Return a message where headers, that were originally embedded into the payload, have been promoted
+	 * back to actual headers. When {@code payloadView} is true, the payload is a {@link ByteBuffer} view
+	 * over the original payload bytes instead of a copy; it must be passed on to
+	 * {@link MessageBusSupport#deserializePayloadIfNecessary(MessageValues)}, which decodes it in place.
+	 *
+	 * @param message the message to extract headers
+	 * @param copyRequestHeaders boolean value to specify if original headers should be copied
+	 * @param payloadView true to return a view of the payload rather than a copy
+	 */
+	public MessageValues extractHeaders(Message<byte[]> message, boolean copyRequestHeaders, boolean payloadView)
+			throws Exception {
 		byte[] bytes = message.getPayload();
 		ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
 		int headerCount = byteBuffer.get() & 0xff;
-		if (headerCount < 255) {
-			return oldExtractHeaders(byteBuffer, bytes, headerCount, message, copyRequestHeaders);
+		if (headerCount == BINARY_FORMAT) {
+			try {
+				return extractBinaryHeaders(byteBuffer, bytes, message, copyRequestHeaders, payloadView);
+			}
+			catch (RuntimeException e) {
+				throw new IllegalArgumentException("Payload is neither in the binary embedded headers format nor "
+						+ "a supported earlier format (the oldest format is limited to 253 headers)", e);
+			}
+		}
+		else if (headerCount < JSON_FORMAT) {
+			return oldExtractHeaders(byteBuffer, bytes, headerCount, message, copyRequestHeaders, payloadView);
 		}
 		else {
 			headerCount = byteBuffer.get() & 0xff;
@@ -116,14 +250,25 @@ public class EmbeddedHeadersMessageConverter {
 				headers.put(headerName, headerContent);
 				byteBuffer.position(byteBuffer.position() + len);
 			}
-			byte[] newPayload = new byte[byteBuffer.remaining()];
-			byteBuffer.get(newPayload);
-			return buildMessageValues(message, newPayload, headers, copyRequestHeaders);
+			return buildMessageValues(message, payload(byteBuffer, payloadView), headers, copyRequestHeaders);
+		}
+	}
+
+	private MessageValues extractBinaryHeaders(ByteBuffer byteBuffer, byte[] bytes, Message<byte[]> message,
+			boolean copyRequestHeaders, boolean payloadView) throws Exception {
+		int headerCount = byteBuffer.get() & 0xff;
+		Map<String, Object> headers = new HashMap<String, Object>();
+		for (int i = 0; i < headerCount; i++) {
+			int len = byteBuffer.get() & 0xff;
+			String headerName = new String(bytes, byteBuffer.position(), len, UTF_8);
+			byteBuffer.position(byteBuffer.position() + len);
+			headers.put(headerName, readValue(byteBuffer, bytes, byteBuffer.get()));
 		}
+		return buildMessageValues(message, payload(byteBuffer, payloadView), headers, copyRequestHeaders);
 	}
 
 	private MessageValues oldExtractHeaders(ByteBuffer byteBuffer, byte[] bytes, int headerCount,
-			Message<byte[]> message, boolean copyRequestHeaders)
+			Message<byte[]> message, boolean copyRequestHeaders, boolean payloadView)
 			throws UnsupportedEncodingException {
 		Map<String, Object> headers = new HashMap<String, Object>();
 		for (int i = 0; i < headerCount; i++) {
@@ -141,12 +286,19 @@ public class EmbeddedHeadersMessageConverter {
 				headers.put(headerName, headerValue);
 			}
 		}
+		return buildMessageValues(message, payload(byteBuffer, payloadView), headers, copyRequestHeaders);
+	}
+
+	private Object payload(ByteBuffer byteBuffer, boolean payloadView) {
+		if (payloadView) {
+			return byteBuffer.slice();
+		}
 		byte[] newPayload = new byte[byteBuffer.remaining()];
 		byteBuffer.get(newPayload);
-		return buildMessageValues(message, newPayload, headers, copyRequestHeaders);
+		return newPayload;
 	}
 
-	private MessageValues buildMessageValues(Message<byte[]> message, byte[] payload, Map<String, Object> headers,
+	private MessageValues buildMessageValues(Message<byte[]> message, Object payload, Map<String, Object> headers,
 			boolean copyRequestHeaders) {
 		MessageValues messageValues = new MessageValues(payload, headers);
 		if (copyRequestHeaders) {
@@ -155,4 +307,139 @@ public class EmbeddedHeadersMessageConverter {
 		return messageValues;
 	}
 
+	private byte[] headerNameBytes(String header) {
+		byte[] name = this.headerNames.get(header);
+		if (name == null) {
+			name = header.getBytes(UTF_8);
+			this.headerNames.putIfAbsent(header, name);
+		}
+		return name;
+	}
+
+	private static byte typeOf(Object value) {
+		if (value instanceof String) {
+			return TYPE_STRING;
+		}
+		else if (value instanceof Integer) {
+			return TYPE_INTEGER;
+		}
+		else if (value instanceof Long) {
+			return TYPE_LONG;
+		}
+		else if (value instanceof Short) {
+			return TYPE_SHORT;
+		}
+		else if (value instanceof Byte) {
+			return TYPE_BYTE;
+		}
+		else if (value instanceof Double) {
+			return TYPE_DOUBLE;
+		}
+		else if (value instanceof Float) {
+			return TYPE_FLOAT;
+		}
+		else if (value instanceof Boolean) {
+			return TYPE_BOOLEAN;
+		}
+		else if (value instanceof UUID) {
+			return TYPE_UUID;
+		}
+		return TYPE_JSON;
+	}
+
+	private static int valueLength(byte type, byte[] encodedValue) {
+		switch (type) {
+			case TYPE_STRING:
+			case TYPE_JSON:
+				return 4 + encodedValue.length;
+			case TYPE_INTEGER:
+			case TYPE_FLOAT:
+				return 4;
+			case TYPE_LONG:
+			case TYPE_DOUBLE:
+				return 8;
+			case TYPE_SHORT:
+				return 2;
+			case TYPE_BYTE:
+			case TYPE_BOOLEAN:
+				return 1;
+			case TYPE_UUID:
+				return 16;
+			default:
+				throw new IllegalArgumentException("Unknown header type: " + type);
+		}
+	}
+
+	private static void writeValue(ByteBuffer byteBuffer, byte type, Object value, byte[] encodedValue) {
+		switch (type) {
+			case TYPE_STRING:
+			case TYPE_JSON:
+				byteBuffer.putInt(encodedValue.length);
+				byteBuffer.put(encodedValue);
+				break;
+			case TYPE_INTEGER:
+				byteBuffer.putInt((Integer) value);
+				break;
+			case TYPE_LONG:
+				byteBuffer.putLong((Long) value);
+				break;
+			case TYPE_SHORT:
+				byteBuffer.putShort((Short) value);
+				break;
+			case TYPE_BYTE:
+				byteBuffer.put((Byte) value);
+				break;
+			case TYPE_DOUBLE:
+				byteBuffer.putDouble((Double) value);
+				break;
+			case TYPE_FLOAT:
+				byteBuffer.putFloat((Float) value);
+				break;
+			case TYPE_BOOLEAN:
+				byteBuffer.put((byte) ((Boolean) value ? 1 : 0));
+				break;
+			case TYPE_UUID:
+				byteBuffer.putLong(((UUID) value).getMostSignificantBits());
+				byteBuffer.putLong(((UUID) value).getLeastSignificantBits());
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown header type: " + type);
+		}
+	}
+
+	private Object readValue(ByteBuffer byteBuffer, byte[] bytes, byte type) throws Exception {
+		switch (type) {
+			case TYPE_STRING: {
+				int len = byteBuffer.getInt();
+				String value = new String(bytes, byteBuffer.position(), len, UTF_8);
+				byteBuffer.position(byteBuffer.position() + len);
+				return value;
+			}
+			case TYPE_JSON: {
+				int len = byteBuffer.getInt();
+				String json = new String(bytes, byteBuffer.position(), len, UTF_8);
+				byteBuffer.position(byteBuffer.position() + len);
+				return this.objectMapper.fromJson(json, Object.class);
+			}
+			case TYPE_INTEGER:
+				return byteBuffer.getInt();
+			case TYPE_LONG:
+				return byteBuffer.getLong();
+			case TYPE_SHORT:
+				return byteBuffer.getShort();
+			case TYPE_BYTE:
+				return byteBuffer.get();
+			case TYPE_DOUBLE:
+				return byteBuffer.getDouble();
+			case TYPE_FLOAT:
+				return byteBuffer.getFloat();
+			case TYPE_BOOLEAN:
+				return byteBuffer.get() != 0;
+			case TYPE_UUID:
+				return new UUID(byteBuffer.getLong(), byteBuffer.getLong());
+			default:
+				throw new IllegalArgumentException("Unknown header type: " + type);
+		}
+	}
+
 }
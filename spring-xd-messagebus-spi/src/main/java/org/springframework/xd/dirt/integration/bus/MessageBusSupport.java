@@ -19,14 +19,12 @@ import static org.springframework.util.MimeTypeUtils.APPLICATION_OCTET_STREAM_VA
 import static org.springframework.util.MimeTypeUtils.TEXT_PLAIN;
 import static org.springframework.util.MimeTypeUtils.TEXT_PLAIN_VALUE;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -35,11 +33,16 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import com.esotericsoftware.kryo.io.Input;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
@@ -50,6 +53,11 @@ import org.springframework.context.Lifecycle;
 import org.springframework.context.support.AbstractApplicationContext;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.codec.Codec;
 import org.springframework.integration.context.IntegrationContextUtils;
@@ -76,7 +84,7 @@ import org.springframework.util.StringUtils;
  * @author Ilayaperumal Gopinathan
  */
 public abstract class MessageBusSupport
-		implements MessageBus, ApplicationContextAware, InitializingBean {
+		implements MessageBus, ApplicationContextAware, BeanClassLoaderAware, InitializingBean {
 
 	protected static final String P2P_NAMED_CHANNEL_TYPE_PREFIX = "queue:";
 
@@ -94,6 +102,10 @@ public abstract class MessageBusSupport
 
 	private volatile Codec codec;
 
+	private volatile SerializationBufferPool serializationBufferPool = new SerializationBufferPool();
+
+	private volatile ExpressionParsers expressionParsers = new ExpressionParsers(ClassUtils.getDefaultClassLoader());
+
 	private final StringConvertingContentTypeResolver contentTypeResolver = new StringConvertingContentTypeResolver();
 
 	private final ThreadLocal<Boolean> revertingDirectBinding = new ThreadLocal<Boolean>();
@@ -158,7 +170,18 @@ public abstract class MessageBusSupport
 				BusProperties.BATCH_BUFFER_LIMIT,
 			}));
 
-	private final List<Binding> bindings = Collections.synchronizedList(new ArrayList<Binding>());
+	private final BindingRegistry bindings = new BindingRegistry();
+
+	/**
+	 * Locks serializing the creation, direct binding and deletion of the bindings with a given name; an entry is
+	 * removed once the name has no bindings left.
+	 */
+	private final ConcurrentMap<String, ReentrantLock> bindingLocks = new ConcurrentHashMap<String, ReentrantLock>();
+
+	/**
+	 * Dynamic producer channels, by channel name; a channel is only added once its producer is bound.
+	 */
+	private final ConcurrentMap<String, MessageChannel> dynamicChannels = new ConcurrentHashMap<String, MessageChannel>();
 
 	private final IdGenerator idGenerator = new AlternativeJdkIdGenerator();
 
@@ -166,6 +189,8 @@ public abstract class MessageBusSupport
 
 	private volatile PartitionSelectorStrategy partitionSelector = new DefaultPartitionSelector();
 
+	private final Object partitionStrategyMonitor = new Object();
+
 	/**
 	 * Used in the canonical case, when the binding does not involve an alias name.
 	 */
@@ -249,6 +274,15 @@ public abstract class MessageBusSupport
 		this.applicationContext = (AbstractApplicationContext) applicationContext;
 	}
 
+	/**
+	 * Partition expressions are compiled against the bus' class loader, rather than the thread context class
+	 * loader current when they are first evaluated.
+	 */
+	@Override
+	public void setBeanClassLoader(ClassLoader classLoader) {
+		this.expressionParsers = new ExpressionParsers(classLoader);
+	}
+
 	protected AbstractApplicationContext getApplicationContext() {
 		return this.applicationContext;
 	}
@@ -261,6 +295,23 @@ public abstract class MessageBusSupport
 		this.codec = codec;
 	}
 
+	/**
+	 * Set the pool of per-thread buffers used when encoding payloads with the codec.
+	 * @param serializationBufferPool the pool.
+	 */
+	public void setSerializationBufferPool(SerializationBufferPool serializationBufferPool) {
+		Assert.notNull(serializationBufferPool, "'serializationBufferPool' cannot be null");
+		this.serializationBufferPool = serializationBufferPool;
+	}
+
+	/**
+	 * Return the pool of serialization buffers; exposes hit rate and growth statistics.
+	 * @return the pool.
+	 */
+	public SerializationBufferPool getSerializationBufferPool() {
+		return this.serializationBufferPool;
+	}
+
 	protected IdGenerator getIdGenerator() {
 		return idGenerator;
 	}
@@ -396,68 +447,110 @@ public abstract class MessageBusSupport
 	}
 
 	/**
-	 * Create a producer for the named channel and bind it to the bus. Synchronized to avoid creating multiple
-	 * instances.
+	 * Dynamically create a producer for the named channel. Note: even though it's pub/sub, we still use a direct
+	 * channel. It will be bridged to a pub/sub channel in the local bus and bound to an appropriate element for other
+	 * buses.
 	 * @param name The name.
-	 * @param channelName The name of the channel to be created, and registered as bean.
 	 * @param properties The properties.
 	 * @return The channel.
 	 */
-	protected synchronized MessageChannel doBindDynamicProducer(String name, String channelName,
-			Properties properties) {
-		MessageChannel channel = this.directChannelProvider.lookupSharedChannel(channelName);
-		if (channel == null) {
-			try {
-				channel = this.directChannelProvider.createAndRegisterChannel(channelName);
-				bindProducer(name, channel, properties);
-			}
-			catch (RuntimeException e) {
-				destroyCreatedChannel(channelName, channel);
-				throw new MessageBusException(
-						"Failed to bind dynamic channel '" + name + "' with properties " + properties, e);
-			}
-		}
-		return channel;
+	@Override
+	public MessageChannel bindDynamicPubSubProducer(String name, Properties properties) {
+		return doBindDynamicPubSubProducer(name, name, properties);
 	}
 
 	/**
-	 * Dynamically create a producer for the named channel. Note: even though it's pub/sub, we still use a direct
-	 * channel. It will be bridged to a pub/sub channel in the local bus and bound to an appropriate element for other
-	 * buses.
+	 * Create a producer for the named channel and bind it to the bus. Creation is serialized per binding name to
+	 * avoid creating multiple instances; a channel is returned without locking once its producer is bound.
 	 * @param name The name.
+	 * @param channelName The name of the channel to be created, and registered as bean.
 	 * @param properties The properties.
 	 * @return The channel.
 	 */
-	@Override
-	public MessageChannel bindDynamicPubSubProducer(String name, Properties properties) {
-		return doBindDynamicPubSubProducer(name, name, properties);
+	protected MessageChannel doBindDynamicProducer(String name, String channelName,
+			Properties properties) {
+		return doBindDynamicProducer(name, channelName, properties, false);
 	}
 
 	/**
-	 * Create a producer for the named channel and bind it to the bus. Synchronized to avoid creating multiple
-	 * instances.
+	 * Create a producer for the named channel and bind it to the bus. Creation is serialized per binding name to
+	 * avoid creating multiple instances; a channel is returned without locking once its producer is bound.
 	 * @param name The name.
 	 * @param channelName The name of the channel to be created, and registered as bean.
 	 * @param properties The properties.
 	 * @return The channel.
 	 */
-	protected synchronized MessageChannel doBindDynamicPubSubProducer(String name, String channelName,
+	protected MessageChannel doBindDynamicPubSubProducer(String name, String channelName,
 			Properties properties) {
-		MessageChannel channel = this.directChannelProvider.lookupSharedChannel(channelName);
-		if (channel == null) {
-			try {
-				channel = this.directChannelProvider.createAndRegisterChannel(channelName);
-				bindPubSubProducer(name, channel, properties);
-			}
-			catch (RuntimeException e) {
-				destroyCreatedChannel(channelName, channel);
-				throw new MessageBusException(
-						"Failed to bind dynamic channel '" + name + "' with properties " + properties, e);
+		return doBindDynamicProducer(name, channelName, properties, true);
+	}
+
+	private MessageChannel doBindDynamicProducer(String name, String channelName, Properties properties,
+			boolean pubSub) {
+		MessageChannel channel = this.dynamicChannels.get(channelName);
+		if (channel != null) {
+			return channel;
+		}
+		ReentrantLock lock = lockBindingName(name);
+		try {
+			channel = this.dynamicChannels.get(channelName);
+			if (channel == null) {
+				channel = this.directChannelProvider.lookupSharedChannel(channelName);
+				if (channel == null) {
+					try {
+						channel = this.directChannelProvider.createAndRegisterChannel(channelName);
+						if (pubSub) {
+							bindPubSubProducer(name, channel, properties);
+						}
+						else {
+							bindProducer(name, channel, properties);
+						}
+					}
+					catch (RuntimeException e) {
+						destroyCreatedChannel(channelName, channel);
+						throw new MessageBusException(
+								"Failed to bind dynamic channel '" + name + "' with properties " + properties, e);
+					}
+				}
+				this.dynamicChannels.put(channelName, channel);
 			}
 		}
+		finally {
+			unlockBindingName(name, lock);
+		}
 		return channel;
 	}
 
+	/**
+	 * Lock the bindings with this name; the lock must be released with
+	 * {@link #unlockBindingName(String, ReentrantLock)}.
+	 */
+	private ReentrantLock lockBindingName(String name) {
+		while (true) {
+			ReentrantLock lock = this.bindingLocks.get(name);
+			if (lock == null) {
+				ReentrantLock newLock = new ReentrantLock();
+				lock = this.bindingLocks.putIfAbsent(name, newLock);
+				if (lock == null) {
+					lock = newLock;
+				}
+			}
+			lock.lock();
+			if (this.bindingLocks.get(name) == lock) {
+				return lock;
+			}
+			// the lock was discarded while this thread waited for it
+			lock.unlock();
+		}
+	}
+
+	private void unlockBindingName(String name, ReentrantLock lock) {
+		if (lock.getHoldCount() == 1 && !this.bindings.contains(name)) {
+			this.bindingLocks.remove(name, lock);
+		}
+		lock.unlock();
+	}
+
 	private void destroyCreatedChannel(String name, MessageChannel channel) {
 		BeanFactory beanFactory = this.applicationContext.getBeanFactory();
 		if (beanFactory.containsBean(name)) {
@@ -496,58 +589,58 @@ public abstract class MessageBusSupport
 		this.bindings.add(binding);
 	}
 
+	/**
+	 * @param name the binding name.
+	 * @return true if any producer or consumer binding with this name is registered.
+	 */
+	protected boolean hasBindings(String name) {
+		return this.bindings.contains(name);
+	}
+
 	protected void deleteBindings(String name) {
 		Assert.hasText(name, "a valid name is required to remove bindings");
-		List<Binding> bindingsToRemove = new ArrayList<Binding>();
-		synchronized (this.bindings) {
-			Iterator<Binding> iterator = this.bindings.iterator();
-			while (iterator.hasNext()) {
-				Binding binding = iterator.next();
-				if (binding.getEndpoint().getComponentName().equals(name)) {
-					bindingsToRemove.add(binding);
-				}
-			}
-			for (Binding binding : bindingsToRemove) {
-				doDeleteBinding(binding);
-			}
+		for (Binding binding : this.bindings.findByComponentName(name)) {
+			doDeleteBinding(binding);
 		}
 	}
 
 	protected void deleteBinding(String name, MessageChannel channel) {
 		Assert.hasText(name, "a valid name is required to remove a binding");
 		Assert.notNull(channel, "a valid channel is required to remove a binding");
-		Binding bindingToRemove = null;
-		synchronized (this.bindings) {
-			Iterator<Binding> iterator = this.bindings.iterator();
-			while (iterator.hasNext()) {
-				Binding binding = iterator.next();
-				if (binding.getChannel().equals(channel) &&
-						binding.getEndpoint().getComponentName().equals(name)) {
-					bindingToRemove = binding;
-					break;
-				}
-			}
-			if (bindingToRemove != null) {
-				doDeleteBinding(bindingToRemove);
+		for (Binding binding : this.bindings.findByComponentName(name)) {
+			if (binding.getChannel().equals(channel)) {
+				doDeleteBinding(binding);
+				break;
 			}
 		}
-
 	}
 
 	private void doDeleteBinding(Binding binding) {
-		if (Binding.CONSUMER.equals(binding.getType())) {
-			/*
-			 * Revert the direct binding before stopping the consumer; the module
-			 * outputChannel will temporarily have 2 subscribers.
-			 */
-			revertDirectBindingIfNecessary(binding);
+		ReentrantLock lock = lockBindingName(binding.getName());
+		try {
+			if (!this.bindings.remove(binding)) {
+				// already deleted by a concurrent unbind
+				return;
+			}
+			if (Binding.CONSUMER.equals(binding.getType())) {
+				/*
+				 * Revert the direct binding before stopping the consumer; the module
+				 * outputChannel will temporarily have 2 subscribers.
+				 */
+				revertDirectBindingIfNecessary(binding);
+			}
+			else {
+				this.dynamicChannels.values().remove(binding.getChannel());
+			}
+			binding.stop();
+		}
+		finally {
+			unlockBindingName(binding.getName(), lock);
 		}
-		binding.stop();
-		this.bindings.remove(binding);
 	}
 
 	protected void stopBindings() {
-		for (Lifecycle bean : this.bindings) {
+		for (Lifecycle bean : this.bindings.getBindings()) {
 			try {
 				bean.stop();
 			}
@@ -560,12 +653,25 @@ public abstract class MessageBusSupport
 	}
 
 	protected final MessageValues serializePayloadIfNecessary(Message<?> message) {
+		return serializePayloadIfNecessary(message, false);
+	}
+
+	/**
+	 * Serialize the payload if necessary. When {@code payloadView} is true, a payload that is encoded
+	 * by the codec is returned as a {@link ByteBuffer} view over this thread's serialization buffer,
+	 * avoiding a copy; the view is only valid until the next serialization on the same thread so it
+	 * must be consumed immediately, e.g. by {@link EmbeddedHeadersMessageConverter#embedHeaders}.
+	 * @param message the message.
+	 * @param payloadView true to allow a {@link ByteBuffer} payload.
+	 * @return the message values.
+	 */
+	protected final MessageValues serializePayloadIfNecessary(Message<?> message, boolean payloadView) {
 		Object originalPayload = message.getPayload();
 		Object originalContentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
 
 		//Pass content type as String since some transport adapters will exclude CONTENT_TYPE Header otherwise
 		Object contentType = JavaClassMimeTypeConversion.mimeTypeFromObject(originalPayload).toString();
-		Object payload = serializePayloadIfNecessary(originalPayload);
+		Object payload = serializePayloadIfNecessary(originalPayload, payloadView);
 		MessageValues messageValues = new MessageValues(message);
 		messageValues.setPayload(payload);
 		messageValues.put(MessageHeaders.CONTENT_TYPE, contentType);
@@ -575,18 +681,23 @@ public abstract class MessageBusSupport
 		return messageValues;
 	}
 
-	private byte[] serializePayloadIfNecessary(Object originalPayload) {
+	private Object serializePayloadIfNecessary(Object originalPayload, boolean payloadView) {
 		if (originalPayload instanceof byte[]) {
-			return (byte[]) originalPayload;
+			return originalPayload;
 		}
 		else {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
 			try {
 				if (originalPayload instanceof String) {
 					return ((String) originalPayload).getBytes("UTF-8");
 				}
-				this.codec.encode(originalPayload, bos);
-				return bos.toByteArray();
+				SerializationBufferPool.SerializationBuffer buffer = this.serializationBufferPool.acquire();
+				try {
+					this.codec.encode(originalPayload, buffer);
+					return payloadView ? buffer.toByteBuffer() : buffer.toBytes();
+				}
+				finally {
+					this.serializationBufferPool.release(buffer);
+				}
 			}
 			catch (IOException e) {
 				throw new SerializationException("unable to serialize payload ["
@@ -620,16 +731,30 @@ public abstract class MessageBusSupport
 				return payload;
 			}
 			else {
-				return deserializePayload((byte[]) payload, contentType);
+				byte[] bytes = (byte[]) payload;
+				return deserializePayload(bytes, 0, bytes.length, contentType);
+			}
+		}
+		else if (payload instanceof ByteBuffer) {
+			// a view over a transport buffer (e.g. after extracting embedded headers); decode in place
+			ByteBuffer buffer = (ByteBuffer) payload;
+			if (contentType == null || APPLICATION_OCTET_STREAM.equals(contentType)) {
+				byte[] bytes = new byte[buffer.remaining()];
+				buffer.duplicate().get(bytes);
+				return bytes;
+			}
+			else {
+				return deserializePayload(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(),
+						contentType);
 			}
 		}
 		return payload;
 	}
 
-	private Object deserializePayload(byte[] bytes, MimeType contentType) {
+	private Object deserializePayload(byte[] bytes, int offset, int length, MimeType contentType) {
 		if (TEXT_PLAIN.equals(contentType)) {
 			try {
-				return new String(bytes, "UTF-8");
+				return new String(bytes, offset, length, "UTF-8");
 			}
 			catch (UnsupportedEncodingException e) {
 				throw new SerializationException("unable to deserialize [java.lang.String]. Encoding not supported.", e);
@@ -644,7 +769,11 @@ public abstract class MessageBusSupport
 					targetType = ClassUtils.forName(className, null);
 					payloadTypeCache.put(className, targetType);
 				}
-				return codec.decode(bytes, targetType);
+				if (offset == 0 && length == bytes.length) {
+					return codec.decode(bytes, targetType);
+				}
+				// a kryo Input reads directly from the backing array; it's also a plain InputStream for other codecs
+				return codec.decode(new Input(bytes, offset, length), targetType);
 			} catch (ClassNotFoundException e) {
 				throw new SerializationException("unable to deserialize [" + className + "]. Class not found.", e);//NOSONAR
 			} catch (IOException e) {
@@ -668,15 +797,30 @@ public abstract class MessageBusSupport
 	protected int determinePartition(Message<?> message, PartitioningMetadata meta) {
 		Object key = null;
 		if (StringUtils.hasText(meta.partitionKeyExtractorClass)) {
-			key = invokeExtractor(meta.partitionKeyExtractorClass, message);
+			PartitionKeyExtractorStrategy extractor = meta.partitionKeyExtractor;
+			if (extractor == null) {
+				extractor = resolvePartitionStrategy(meta.partitionKeyExtractorClass,
+						PartitionKeyExtractorStrategy.class, "key extractor");
+				meta.partitionKeyExtractor = extractor;
+			}
+			key = extractor.extractKey(message);
+		}
+		else if (meta.partitionKeyHeader != null) {
+			key = message.getHeaders().get(meta.partitionKeyHeader);
 		}
 		else if (meta.partitionKeyExpression != null) {
-			key = meta.partitionKeyExpression.getValue(this.evaluationContext, message);
+			key = meta.partitionKeyExpression.getValue(this.evaluationContext, message, Object.class);
 		}
 		Assert.notNull(key, "Partition key cannot be null");
 		int partition;
 		if (StringUtils.hasText(meta.partitionSelectorClass)) {
-			partition = invokePartitionSelector(meta.partitionSelectorClass, key, meta.partitionCount);
+			PartitionSelectorStrategy selector = meta.partitionSelector;
+			if (selector == null) {
+				selector = resolvePartitionStrategy(meta.partitionSelectorClass, PartitionSelectorStrategy.class,
+						"partition selector");
+				meta.partitionSelector = selector;
+			}
+			partition = selector.selectPartition(key, meta.partitionCount);
 		}
 		else if (meta.partitionSelectorExpression != null) {
 			partition = meta.partitionSelectorExpression.getValue(this.evaluationContext, key, Integer.class);
@@ -691,56 +835,34 @@ public abstract class MessageBusSupport
 		return partition;
 	}
 
-	private Object invokeExtractor(String partitionKeyExtractorClassName, Message<?> message) {
-		if (this.applicationContext.containsBean(partitionKeyExtractorClassName)) {
-			return this.applicationContext.getBean(partitionKeyExtractorClassName, PartitionKeyExtractorStrategy.class)
-					.extractKey(message);
-		}
-		Class<?> clazz;
-		try {
-			clazz = ClassUtils.forName(partitionKeyExtractorClassName, this.applicationContext.getClassLoader());
-		}
-		catch (Exception e) {
-			logger.error("Failed to load key extractor", e);
-			throw new MessageBusException("Failed to load key extractor: " + partitionKeyExtractorClassName, e);
-		}
-		try {
-			Object extractor = clazz.newInstance();
-			Assert.isInstanceOf(PartitionKeyExtractorStrategy.class, extractor);
-			this.applicationContext.getBeanFactory().registerSingleton(partitionKeyExtractorClassName, extractor);
-			this.applicationContext.getBeanFactory().initializeBean(extractor, partitionKeyExtractorClassName);
-			return ((PartitionKeyExtractorStrategy) extractor).extractKey(message);
-		}
-		catch (Exception e) {
-			logger.error("Failed to instantiate key extractor", e);
-			throw new MessageBusException("Failed to instantiate key extractor: " + partitionKeyExtractorClassName, e);
-		}
-	}
-
-	private int invokePartitionSelector(String partitionSelectorClassName, Object key, int partitionCount) {
-		if (this.applicationContext.containsBean(partitionSelectorClassName)) {
-			return this.applicationContext.getBean(partitionSelectorClassName, PartitionSelectorStrategy.class)
-					.selectPartition(key, partitionCount);
-		}
-		Class<?> clazz;
-		try {
-			clazz = ClassUtils.forName(partitionSelectorClassName, this.applicationContext.getClassLoader());
-		}
-		catch (Exception e) {
-			logger.error("Failed to load partition selector", e);
-			throw new MessageBusException("Failed to load partition selector: " + partitionSelectorClassName, e);
-		}
-		try {
-			Object extractor = clazz.newInstance();
-			Assert.isInstanceOf(PartitionKeyExtractorStrategy.class, extractor);
-			this.applicationContext.getBeanFactory().registerSingleton(partitionSelectorClassName, extractor);
-			this.applicationContext.getBeanFactory().initializeBean(extractor, partitionSelectorClassName);
-			return ((PartitionSelectorStrategy) extractor).selectPartition(key, partitionCount);
-		}
-		catch (Exception e) {
-			logger.error("Failed to instantiate partition selector", e);
-			throw new MessageBusException("Failed to instantiate partition selector: " + partitionSelectorClassName,
-					e);
+	/**
+	 * Obtain the key extractor or partition selector with the given name, either a bean or a class that is
+	 * instantiated and registered as a singleton the first time it is needed.
+	 */
+	private <T> T resolvePartitionStrategy(String className, Class<T> type, String description) {
+		synchronized (this.partitionStrategyMonitor) {
+			if (this.applicationContext.containsBean(className)) {
+				return this.applicationContext.getBean(className, type);
+			}
+			Class<?> clazz;
+			try {
+				clazz = ClassUtils.forName(className, this.applicationContext.getClassLoader());
+			}
+			catch (Exception e) {
+				logger.error("Failed to load " + description, e);
+				throw new MessageBusException("Failed to load " + description + ": " + className, e);
+			}
+			try {
+				Object strategy = clazz.newInstance();
+				Assert.isInstanceOf(type, strategy);
+				this.applicationContext.getBeanFactory().registerSingleton(className, strategy);
+				this.applicationContext.getBeanFactory().initializeBean(strategy, className);
+				return type.cast(strategy);
+			}
+			catch (Exception e) {
+				logger.error("Failed to instantiate " + description, e);
+				throw new MessageBusException("Failed to instantiate " + description + ": " + className, e);
+			}
 		}
 	}
 
@@ -868,15 +990,7 @@ public abstract class MessageBusSupport
 			return false;
 		}
 		else {
-			Binding consumerBinding = null;
-			synchronized (this.bindings) {
-				for (Binding binding : this.bindings) {
-					if (binding.getName().equals(name) && Binding.CONSUMER.equals(binding.getType())) {
-						consumerBinding = binding;
-						break;
-					}
-				}
-			}
+			Binding consumerBinding = this.bindings.find(name, Binding.CONSUMER);
 			if (consumerBinding == null) {
 				return false;
 			}
@@ -910,54 +1024,44 @@ public abstract class MessageBusSupport
 	 */
 	protected void bindExistingProducerDirectlyIfPossible(String name, MessageChannel consumerChannel) {
 		if (!isNamedChannel(name)) {
-			Binding producerBinding = null;
-			synchronized (this.bindings) {
-				for (Binding binding : this.bindings) {
-					if (binding.getName().equals(name) && Binding.PRODUCER.equals(binding.getType())) {
-						producerBinding = binding;
-						break;
-					}
-				}
+			ReentrantLock lock = lockBindingName(name);
+			try {
+				Binding producerBinding = this.bindings.find(name, Binding.PRODUCER);
 				if (producerBinding != null && producerBinding.getChannel() instanceof SubscribableChannel) {
 					AbstractBusPropertiesAccessor properties = producerBinding.getPropertiesAccessor();
-					if (properties.isDirectBindingAllowed()) {
-						bindProducerDirectly(name, (SubscribableChannel) producerBinding.getChannel(), consumerChannel,
-								properties);
+					if (properties.isDirectBindingAllowed() && this.bindings.remove(producerBinding)) {
+						bindProducerDirectly(name, (SubscribableChannel) producerBinding.getChannel(),
+								consumerChannel, properties);
 						producerBinding.stop();
-						this.bindings.remove(producerBinding);
 					}
 				}
 			}
+			finally {
+				unlockBindingName(name, lock);
+			}
 		}
 	}
 
 	private void revertDirectBindingIfNecessary(Binding binding) {
+		ReentrantLock lock = lockBindingName(binding.getName());
 		try {
-			synchronized (this.bindings) { // Not necessary, called while synchronized, but just in case...
-				Binding directBinding = null;
-				Iterator<Binding> iterator = this.bindings.iterator();
-				while (iterator.hasNext()) {
-					Binding producer = iterator.next();
-					if (Binding.DIRECT.equals(producer.getType()) && binding.getName().equals(producer.getName())) {
-						this.revertingDirectBinding.set(Boolean.TRUE);
-						bindProducer(producer.getName(), producer.getChannel(),
-								producer.getPropertiesAccessor().getProperties());
-						directBinding = producer;
-						break;
-					}
-				}
-				if (directBinding != null) {
-					directBinding.stop();
-					this.bindings.remove(directBinding);
-					if (logger.isInfoEnabled()) {
-						logger.info("direct binding reverted: " + directBinding);
-					}
+			Binding directBinding = this.bindings.find(binding.getName(), Binding.DIRECT);
+			if (directBinding != null && this.bindings.remove(directBinding)) {
+				this.revertingDirectBinding.set(Boolean.TRUE);
+				bindProducer(directBinding.getName(), directBinding.getChannel(),
+						directBinding.getPropertiesAccessor().getProperties());
+				directBinding.stop();
+				if (logger.isInfoEnabled()) {
+					logger.info("direct binding reverted: " + directBinding);
 				}
 			}
 		}
 		catch (Exception e) {
 			logger.error("Could not revert direct binding: " + binding, e);
 		}
+		finally {
+			unlockBindingName(binding.getName(), lock);
+		}
 	}
 
 	/**
@@ -977,28 +1081,78 @@ public abstract class MessageBusSupport
 
 	}
 
+	/**
+	 * Create the partitioning metadata of a producer; its expressions are parsed with this bus' parsers.
+	 * @param properties the producer properties.
+	 * @param partitionCount the number of partitions.
+	 * @return the metadata.
+	 */
+	protected PartitioningMetadata createPartitioningMetadata(AbstractBusPropertiesAccessor properties,
+			int partitionCount) {
+		return new PartitioningMetadata(properties, partitionCount, this.expressionParsers);
+	}
+
+	/**
+	 * How a producer partitions its messages. SpEL expressions are compiled to bytecode on first use; the key
+	 * extractor and partition selector, when configured by class name, are resolved once and then reused.
+	 */
 	protected static class PartitioningMetadata {
 
+		private static final Pattern HEADER_KEY_EXPRESSION = Pattern.compile(
+				"\\s*headers(?:\\['([^']+)'\\]|\\[\"([^\"]+)\"\\])\\s*");
+
 		private final String partitionKeyExtractorClass;
 
-		private final Expression partitionKeyExpression;
+		private final String partitionKeyHeader;
+
+		private final CompiledExpression partitionKeyExpression;
 
 		private final String partitionSelectorClass;
 
-		private final Expression partitionSelectorExpression;
+		private final CompiledExpression partitionSelectorExpression;
 
 		private final int partitionCount;
 
+		private volatile PartitionKeyExtractorStrategy partitionKeyExtractor;
+
+		private volatile PartitionSelectorStrategy partitionSelector;
+
+		/**
+		 * Create metadata whose expressions are compiled against the class loader of this class; prefer
+		 * {@link MessageBusSupport#createPartitioningMetadata(AbstractBusPropertiesAccessor, int)}, which uses
+		 * the bus' class loader.
+		 * @param properties the producer properties.
+		 * @param partitionCount the number of partitions.
+		 */
 		public PartitioningMetadata(AbstractBusPropertiesAccessor properties, int partitionCount) {
+			this(properties, partitionCount, new ExpressionParsers(PartitioningMetadata.class.getClassLoader()));
+		}
+
+		private PartitioningMetadata(AbstractBusPropertiesAccessor properties, int partitionCount,
+				ExpressionParsers parsers) {
 			this.partitionCount = partitionCount;
 			this.partitionKeyExtractorClass = properties.getPartitionKeyExtractorClass();
-			this.partitionKeyExpression = properties.getPartitionKeyExpression();
+			String keyExpression = properties.getProperty(BusProperties.PARTITION_KEY_EXPRESSION);
+			Matcher headerKey = keyExpression == null ? null : HEADER_KEY_EXPRESSION.matcher(keyExpression);
+			if (headerKey != null && headerKey.matches()) {
+				// a plain header lookup needs no expression at all
+				this.partitionKeyHeader = headerKey.group(1) != null ? headerKey.group(1) : headerKey.group(2);
+				this.partitionKeyExpression = null;
+			}
+			else {
+				this.partitionKeyHeader = null;
+				this.partitionKeyExpression = keyExpression == null ? null
+						: new CompiledExpression(keyExpression, parsers);
+			}
 			this.partitionSelectorClass = properties.getPartitionSelectorClass();
-			this.partitionSelectorExpression = properties.getPartitionSelectorExpression();
+			String selectorExpression = properties.getProperty(BusProperties.PARTITION_SELECTOR_EXPRESSION);
+			this.partitionSelectorExpression = selectorExpression == null ? null
+					: new CompiledExpression(selectorExpression, parsers);
 		}
 
 		public boolean isPartitionedModule() {
-			return StringUtils.hasText(this.partitionKeyExtractorClass) || this.partitionKeyExpression != null;
+			return StringUtils.hasText(this.partitionKeyExtractorClass) || this.partitionKeyHeader != null
+					|| this.partitionKeyExpression != null;
 		}
 
 		public int getPartitionCount() {
@@ -1006,6 +1160,68 @@ public abstract class MessageBusSupport
 		}
 	}
 
+	/**
+	 * A SpEL expression compiled as soon as it has been evaluated once. Should the compiled form fail, for
+	 * instance because a later message carries a payload of a different type, the expression reverts to
+	 * interpreted mode for good.
+	 */
+	private static class CompiledExpression {
+
+		private static final Logger logger = LoggerFactory.getLogger(CompiledExpression.class);
+
+		private final String expressionString;
+
+		private final ExpressionParsers parsers;
+
+		private volatile Expression expression;
+
+		private volatile boolean interpreted;
+
+		private CompiledExpression(String expressionString, ExpressionParsers parsers) {
+			this.expressionString = expressionString;
+			this.parsers = parsers;
+			this.expression = parsers.compiling.parseExpression(expressionString);
+		}
+
+		private <T> T getValue(EvaluationContext context, Object rootObject, Class<T> desiredResultType) {
+			if (!this.interpreted) {
+				try {
+					return this.expression.getValue(context, rootObject, desiredResultType);
+				}
+				catch (SpelEvaluationException e) {
+					if (e.getMessageCode() != SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION) {
+						throw e;
+					}
+					if (logger.isDebugEnabled()) {
+						logger.debug("Compiled expression '" + this.expressionString
+								+ "' failed; reverting to interpreted mode", e);
+					}
+					this.expression = this.parsers.interpreting.parseExpression(this.expressionString);
+					this.interpreted = true;
+				}
+			}
+			return this.expression.getValue(context, rootObject, desiredResultType);
+		}
+
+	}
+
+	/**
+	 * The parsers for partition expressions, bound to the class loader compiled expressions are generated in.
+	 */
+	private static final class ExpressionParsers {
+
+		private final SpelExpressionParser compiling;
+
+		private final SpelExpressionParser interpreting;
+
+		private ExpressionParsers(ClassLoader classLoader) {
+			this.compiling = new SpelExpressionParser(
+					new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, classLoader));
+			this.interpreting = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.OFF, classLoader));
+		}
+
+	}
+
 	/**
 	 * Looks up or optionally creates a new channel to use.
 	 * @author Eric Bottard
@@ -1018,10 +1234,15 @@ public abstract class MessageBusSupport
 			this.requiredType = clazz;
 		}
 
-		public synchronized final T lookupOrCreateSharedChannel(String name) {
+		public final T lookupOrCreateSharedChannel(String name) {
 			T channel = lookupSharedChannel(name);
 			if (channel == null) {
-				channel = createAndRegisterChannel(name);
+				synchronized (this) {
+					channel = lookupSharedChannel(name);
+					if (channel == null) {
+						channel = createAndRegisterChannel(name);
+					}
+				}
 			}
 			return channel;
 		}
@@ -1030,8 +1251,9 @@ public abstract class MessageBusSupport
 		public T createAndRegisterChannel(String name) {
 			T channel = createSharedChannel(name);
 			ConfigurableListableBeanFactory beanFactory = applicationContext.getBeanFactory();
-			beanFactory.registerSingleton(name, channel);
+			// initialize before registering, so that a concurrent lookup never sees an uninitialized channel
 			channel = (T) beanFactory.initializeBean(channel, name);
+			beanFactory.registerSingleton(name, channel);
 			if (logger.isDebugEnabled()) {
 				logger.debug("Registered channel:" + name);
 			}
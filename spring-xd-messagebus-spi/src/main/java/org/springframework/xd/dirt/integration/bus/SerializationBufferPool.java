@@ -0,0 +1,283 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.esotericsoftware.kryo.io.Output;
+
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.jmx.support.MetricType;
+import org.springframework.util.Assert;
+
+/**
+ * Per-thread, reusable buffers for encoding payloads with a
+ * {@link org.springframework.integration.codec.Codec}. Each thread keeps one buffer
+ * which grows as needed; a buffer that grows beyond {@code maxRetainedCapacity} is
+ * dropped after use, and one that stays well below its capacity for a sampling window
+ * is shrunk to the observed high-water mark.
+ * <p>
+ * The buffer is a kryo {@link Output} so that kryo based codecs write to it directly;
+ * other codecs see it as a plain {@link java.io.OutputStream}.
+ * <p>
+ * Usage statistics are kept per thread, so that acquiring and releasing a buffer never
+ * writes to memory shared with other threads; the getters sum them on demand. Values
+ * read from a thread other than the one using the buffers may be slightly stale. They
+ * are exported over JMX when JMX is enabled.
+ */
+@ManagedResource
+public class SerializationBufferPool {
+
+	public static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+	public static final int DEFAULT_MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+	private static final int SAMPLE_WINDOW = 1000;
+
+	private final ThreadLocal<Slot> slots = new ThreadLocal<Slot>() {
+
+		@Override
+		protected Slot initialValue() {
+			return register(new Slot(Thread.currentThread()));
+		}
+
+	};
+
+	private final Queue<Slot> liveSlots = new ConcurrentLinkedQueue<Slot>();
+
+	/**
+	 * Totals of the slots of threads that have terminated, indexed as {@link Slot#counts()}.
+	 */
+	private final AtomicLong[] retired = { new AtomicLong(), new AtomicLong(), new AtomicLong(),
+		new AtomicLong(), new AtomicLong() };
+
+	private final int initialCapacity;
+
+	private final int maxRetainedCapacity;
+
+	public SerializationBufferPool() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_RETAINED_CAPACITY);
+	}
+
+	/**
+	 * @param initialCapacity the initial (and minimum) capacity of each thread's buffer.
+	 * @param maxRetainedCapacity buffers that grow beyond this capacity are not retained.
+	 */
+	public SerializationBufferPool(int initialCapacity, int maxRetainedCapacity) {
+		Assert.isTrue(initialCapacity > 0, "'initialCapacity' must be greater than 0");
+		Assert.isTrue(maxRetainedCapacity >= initialCapacity,
+				"'maxRetainedCapacity' must not be less than 'initialCapacity'");
+		this.initialCapacity = initialCapacity;
+		this.maxRetainedCapacity = maxRetainedCapacity;
+	}
+
+	/**
+	 * Obtain the calling thread's buffer, positioned at 0. It must be {@link #release(SerializationBuffer)
+	 * released} by the same thread.
+	 * @return the buffer.
+	 */
+	SerializationBuffer acquire() {
+		Slot slot = this.slots.get();
+		slot.acquisitions++;
+		SerializationBuffer buffer = slot.buffer;
+		if (buffer == null) {
+			buffer = new SerializationBuffer(slot, this.initialCapacity);
+			slot.buffer = buffer;
+		}
+		else {
+			slot.hits++;
+		}
+		buffer.clear();
+		buffer.acquiredCapacity = buffer.getBuffer().length;
+		return buffer;
+	}
+
+	/**
+	 * Return the buffer to the pool. The contents remain valid until the next {@link #acquire()}
+	 * on the same thread.
+	 * @param buffer the buffer.
+	 */
+	void release(SerializationBuffer buffer) {
+		Slot slot = buffer.slot;
+		int capacity = buffer.getBuffer().length;
+		if (capacity > buffer.acquiredCapacity) {
+			slot.growths++;
+		}
+		if (capacity > this.maxRetainedCapacity) {
+			slot.buffer = null;
+			slot.discards++;
+			return;
+		}
+		buffer.highWaterMark = Math.max(buffer.highWaterMark, buffer.position());
+		if (++buffer.uses >= SAMPLE_WINDOW) {
+			if (capacity > this.initialCapacity && buffer.highWaterMark < capacity / 2) {
+				slot.buffer = new SerializationBuffer(slot, Math.max(this.initialCapacity, buffer.highWaterMark));
+				slot.shrinks++;
+			}
+			buffer.highWaterMark = 0;
+			buffer.uses = 0;
+		}
+	}
+
+	private Slot register(Slot slot) {
+		retireTerminatedThreads();
+		this.liveSlots.add(slot);
+		return slot;
+	}
+
+	/**
+	 * Fold the statistics of threads that have terminated into the retired totals so
+	 * that their slots can be collected.
+	 */
+	private void retireTerminatedThreads() {
+		for (Slot slot : this.liveSlots) {
+			Thread thread = slot.thread.get();
+			if ((thread == null || !thread.isAlive()) && this.liveSlots.remove(slot)) {
+				slot.buffer = null;
+				long[] counts = slot.counts();
+				for (int i = 0; i < counts.length; i++) {
+					this.retired[i].addAndGet(counts[i]);
+				}
+			}
+		}
+	}
+
+	private long sum(int index) {
+		retireTerminatedThreads();
+		long total = this.retired[index].get();
+		for (Slot slot : this.liveSlots) {
+			total += slot.counts()[index];
+		}
+		return total;
+	}
+
+	/**
+	 * @return the number of buffer acquisitions.
+	 */
+	@ManagedMetric(metricType = MetricType.COUNTER, description = "Buffer acquisitions")
+	public long getAcquisitions() {
+		return sum(0);
+	}
+
+	/**
+	 * @return the number of acquisitions satisfied by an existing buffer.
+	 */
+	@ManagedMetric(metricType = MetricType.COUNTER, description = "Acquisitions satisfied by an existing buffer")
+	public long getHits() {
+		return sum(1);
+	}
+
+	/**
+	 * @return the ratio of hits to acquisitions, or 0 if there were none.
+	 */
+	@ManagedMetric(metricType = MetricType.GAUGE, description = "Ratio of hits to acquisitions")
+	public double getHitRate() {
+		long acquired = getAcquisitions();
+		return acquired == 0 ? 0 : (double) getHits() / acquired;
+	}
+
+	/**
+	 * @return the number of times a buffer had to grow to hold an encoded payload.
+	 */
+	@ManagedMetric(metricType = MetricType.COUNTER, description = "Buffers grown to hold a payload")
+	public long getGrowths() {
+		return sum(2);
+	}
+
+	/**
+	 * @return the number of buffers dropped because they exceeded the maximum retained capacity.
+	 */
+	@ManagedMetric(metricType = MetricType.COUNTER, description = "Oversized buffers dropped after use")
+	public long getDiscards() {
+		return sum(3);
+	}
+
+	/**
+	 * @return the number of buffers shrunk to their high-water mark.
+	 */
+	@ManagedMetric(metricType = MetricType.COUNTER, description = "Buffers shrunk to their high-water mark")
+	public long getShrinks() {
+		return sum(4);
+	}
+
+	@Override
+	public String toString() {
+		return "SerializationBufferPool [acquisitions=" + getAcquisitions() + ", hits=" + getHits()
+				+ ", growths=" + getGrowths() + ", discards=" + getDiscards() + ", shrinks=" + getShrinks() + "]";
+	}
+
+
+	/**
+	 * A thread's buffer and usage statistics; the fields are only written by that thread.
+	 */
+	private static final class Slot {
+
+		private final WeakReference<Thread> thread;
+
+		private SerializationBuffer buffer;
+
+		private long acquisitions;
+
+		private long hits;
+
+		private long growths;
+
+		private long discards;
+
+		private long shrinks;
+
+		private Slot(Thread thread) {
+			this.thread = new WeakReference<Thread>(thread);
+		}
+
+		private long[] counts() {
+			return new long[] { this.acquisitions, this.hits, this.growths, this.discards, this.shrinks };
+		}
+
+	}
+
+
+	static final class SerializationBuffer extends Output {
+
+		private final Slot slot;
+
+		private int acquiredCapacity;
+
+		private int highWaterMark;
+
+		private int uses;
+
+		private SerializationBuffer(Slot slot, int capacity) {
+			super(capacity, -1);
+			this.slot = slot;
+		}
+
+		/**
+		 * @return a view over the encoded bytes; valid until the buffer is next acquired.
+		 */
+		ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(getBuffer(), 0, position());
+		}
+
+	}
+
+}
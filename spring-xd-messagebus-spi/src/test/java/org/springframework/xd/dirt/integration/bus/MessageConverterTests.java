@@ -19,8 +19,14 @@ package org.springframework.xd.dirt.integration.bus;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.UUID;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -84,6 +90,96 @@ public class MessageConverterTests {
 				new String(embedded).substring(1));
 	}
 
+	@Test
+	public void testBinaryHeaderEmbedding() throws Exception {
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
+		converter.setBinaryHeaders(true);
+		UUID uuid = UUID.randomUUID();
+		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("string", "\u00d8\u00d8")
+				.setHeader("int", 42)
+				.setHeader("long", 43L)
+				.setHeader("short", (short) 44)
+				.setHeader("byte", (byte) 45)
+				.setHeader("double", 46.5d)
+				.setHeader("float", 47.5f)
+				.setHeader("boolean", true)
+				.setHeader("uuid", uuid)
+				.setHeader("map", Collections.singletonMap("foo", "bar"))
+				.build();
+		String[] headers = new String[] { "string", "int", "long", "short", "byte", "double", "float", "boolean",
+			"uuid", "map", "missing" };
+		byte[] embedded = converter.embedHeaders(new MessageValues(message), headers);
+		assertEquals(0xfe, embedded[0] & 0xff);
+		assertEquals(10, embedded[1]);
+
+		MessageValues extracted = converter.extractHeaders(MessageBuilder.withPayload(embedded).build(), false);
+		assertEquals("Hello", new String((byte[]) extracted.getPayload()));
+		assertEquals("\u00d8\u00d8", extracted.get("string"));
+		assertEquals(42, extracted.get("int"));
+		assertEquals(43L, extracted.get("long"));
+		assertEquals((short) 44, extracted.get("short"));
+		assertEquals((byte) 45, extracted.get("byte"));
+		assertEquals(46.5d, extracted.get("double"));
+		assertEquals(47.5f, extracted.get("float"));
+		assertEquals(Boolean.TRUE, extracted.get("boolean"));
+		assertEquals(uuid, extracted.get("uuid"));
+		assertEquals(Collections.singletonMap("foo", "bar"), extracted.get("map"));
+		assertFalse(extracted.containsKey("missing"));
+	}
+
+	@Test
+	public void testJsonFormatIsTheDefault() throws Exception {
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
+		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("foo", "bar")
+				.build();
+		byte[] embedded = converter.embedHeaders(new MessageValues(message), "foo");
+		assertEquals(0xff, embedded[0] & 0xff);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOldFormatWithMarkerHeaderCountIsRejected() throws Exception {
+		// an old format payload with 254 headers (truncated here) does not parse as the binary format
+		byte[] bytes = "\u00fe\u0003foo\u0003barHello".getBytes("ISO-8859-1");
+		new EmbeddedHeadersMessageConverter().extractHeaders(new GenericMessage<byte[]>(bytes), false);
+	}
+
+	@Test
+	public void testPayloadView() throws Exception {
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
+		converter.setBinaryHeaders(true);
+		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("foo", "bar")
+				.build();
+		byte[] embedded = converter.embedHeaders(new MessageValues(message), "foo");
+
+		MessageValues extracted = converter.extractHeaders(MessageBuilder.withPayload(embedded).build(), false, true);
+		ByteBuffer view = (ByteBuffer) extracted.getPayload();
+		assertSame(embedded, view.array());
+		assertEquals(5, view.remaining());
+		assertEquals("Hello", new String(view.array(), view.arrayOffset() + view.position(), view.remaining()));
+		assertEquals("bar", extracted.get("foo"));
+	}
+
+	@Test
+	public void testBinaryConverterDecodesJsonFormat() throws Exception {
+		EmbeddedHeadersMessageConverter jsonConverter = new EmbeddedHeadersMessageConverter();
+		jsonConverter.setBinaryHeaders(false);
+		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("foo", "bar")
+				.setHeader("baz", 42)
+				.build();
+		byte[] embedded = jsonConverter.embedHeaders(new MessageValues(message), "foo", "baz");
+		assertEquals(0xff, embedded[0] & 0xff);
+
+		MessageValues extracted = new EmbeddedHeadersMessageConverter()
+				.extractHeaders(MessageBuilder.withPayload(embedded).build(), false);
+		assertEquals("Hello", new String((byte[]) extracted.getPayload()));
+		assertEquals("bar", extracted.get("foo"));
+		assertEquals(42, extracted.get("baz"));
+	}
+
 	@Test
 	public void testCanDecodeOldFormat() throws Exception {
 		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
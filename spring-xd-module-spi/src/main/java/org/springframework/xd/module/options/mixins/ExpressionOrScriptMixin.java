@@ -18,6 +18,7 @@ package org.springframework.xd.module.options.mixins;
 
 import javax.validation.constraints.AssertTrue;
 
+import org.springframework.xd.module.options.spi.Mixin;
 import org.springframework.xd.module.options.spi.ModuleOption;
 import org.springframework.xd.module.options.spi.ProfileNamesProvider;
 
@@ -29,6 +30,7 @@ import org.springframework.xd.module.options.spi.ProfileNamesProvider;
  * Provides the following options:
  * <ul>
  * <li>expression</li>
+ * <li>spelCompilerMode (see {@link SpelCompilerModeMixin})</li>
  * </ul>
  * and activates one of the following profile accordingly:
  * <ul>
@@ -39,6 +41,7 @@ import org.springframework.xd.module.options.spi.ProfileNamesProvider;
  * @author Eric Bottard
  * @author David Turanski
  */
+@Mixin(SpelCompilerModeMixin.class)
 public class ExpressionOrScriptMixin extends ScriptMixin implements ProfileNamesProvider {
 	/**
 	 * The default expression if none is provided.
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.module.options.mixins;
+
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.xd.module.options.spi.ModuleOption;
+
+
+/**
+ * Adds a {@code spelCompilerMode} option, for modules that evaluate SpEL expressions against each message.
+ * <p>
+ * With {@code IMMEDIATE}, an expression is compiled to bytecode once it has been evaluated and fails if a later
+ * message does not fit the compiled form; with {@code MIXED}, it silently reverts to interpreted mode in that case.
+ */
+public class SpelCompilerModeMixin {
+
+	private SpelCompilerMode spelCompilerMode = SpelCompilerMode.OFF;
+
+	public SpelCompilerMode getSpelCompilerMode() {
+		return this.spelCompilerMode;
+	}
+
+	@ModuleOption("whether to compile SpEL expressions to bytecode (OFF, IMMEDIATE or MIXED)")
+	public void setSpelCompilerMode(SpelCompilerMode spelCompilerMode) {
+		this.spelCompilerMode = spelCompilerMode;
+	}
+
+}
@@ -16,8 +16,14 @@
 
 package org.springframework.xd.module.options;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -35,6 +41,8 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
 import org.springframework.xd.module.CompositeModuleDefinition;
 import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.SimpleModuleDefinition;
@@ -59,6 +67,15 @@ import org.springframework.xd.module.options.support.StringToEnumIgnoringCaseCon
  * <li>return an instance of {@link PassthruModuleOptionsMetadata}.
  * <ul>
  *
+ * <p>
+ * The outcome of those strategies is cached per module location and archive checksum (the companion {@code .md5}
+ * file if present, the archive timestamp and size otherwise), so that the module archive is only opened and parsed
+ * again when it changes; modules whose checksum cannot be read are not cached. Each call still returns a new
+ * {@link ModuleOptionsMetadata}, as some implementations carry state. Discovery classloaders are closed as soon as
+ * they are no longer needed, or, for those backing a POJO options class, when the module is
+ * {@link #evict(ModuleDefinition) evicted} or drops out of the cache.
+ * </p>
+ *
  * @author Eric Bottard
  * @author Gunnar Hillert
  * @author Ilayaperumal Gopinathan
@@ -73,6 +90,15 @@ public class DefaultModuleOptionsMetadataResolver implements ModuleOptionsMetada
 	 */
 	public static final String OPTIONS_CLASS = "options_class";
 
+	/**
+	 * Default maximum number of modules whose metadata is cached.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 256;
+
+	private static final String HASH_EXTENSION = ".md5";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
 	private static final Map<String, Class<?>> SHORT_CLASSNAMES = new HashMap<String, Class<?>>();
 
 	static {
@@ -103,6 +129,25 @@ public class DefaultModuleOptionsMetadataResolver implements ModuleOptionsMetada
 
 	private boolean shouldCreateModuleClassLoader = true;
 
+	private int cacheSize = DEFAULT_CACHE_SIZE;
+
+	/**
+	 * Resolved metadata, keyed by module location and checksum. Guarded by itself.
+	 */
+	private final Map<String, ResolvedMetadata> cache = new LinkedHashMap<String, ResolvedMetadata>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ResolvedMetadata> eldest) {
+			if (size() > cacheSize) {
+				// metadata handed out earlier has loaded its classes already; release the module archive
+				eldest.getValue().close();
+				return true;
+			}
+			return false;
+		}
+
+	};
+
 	/**
 	 * Construct a new {@link DefaultModuleOptionsMetadataResolver}, using a
 	 * {@link GenericConversionService} which is augmented with a {@link StringToEnumIgnoringCaseConverterFactory}.
@@ -128,6 +173,42 @@ public class DefaultModuleOptionsMetadataResolver implements ModuleOptionsMetada
 		this.shouldCreateModuleClassLoader = shouldCreateModuleClassLoader;
 	}
 
+	/**
+	 * Set the maximum number of modules whose metadata is cached.
+	 *
+	 * @param cacheSize the cache size; 0 disables caching
+	 */
+	public void setCacheSize(int cacheSize) {
+		Assert.isTrue(cacheSize >= 0, "'cacheSize' must not be negative");
+		this.cacheSize = cacheSize;
+	}
+
+	/**
+	 * Discard the cached metadata of the given module, for example because it is being deleted or replaced, and
+	 * release the classloader it was resolved with.
+	 *
+	 * @param definition the module definition
+	 */
+	public void evict(ModuleDefinition definition) {
+		if (definition.isComposed()) {
+			return;
+		}
+		String prefix = ((SimpleModuleDefinition) definition).getLocation() + "|";
+		List<ResolvedMetadata> evicted = new ArrayList<ResolvedMetadata>();
+		synchronized (cache) {
+			for (Iterator<Map.Entry<String, ResolvedMetadata>> it = cache.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<String, ResolvedMetadata> entry = it.next();
+				if (entry.getKey().startsWith(prefix)) {
+					evicted.add(entry.getValue());
+					it.remove();
+				}
+			}
+		}
+		for (ResolvedMetadata resolved : evicted) {
+			resolved.close();
+		}
+	}
+
 	private ModuleOptionsMetadata makeSimpleModuleOptions(Properties props) {
 		SimpleModuleOptionsMetadata result = new SimpleModuleOptionsMetadata();
 		for (Object key : props.keySet()) {
@@ -190,42 +271,107 @@ public class DefaultModuleOptionsMetadataResolver implements ModuleOptionsMetada
 	private ModuleOptionsMetadata resolveNormalMetadata(SimpleModuleDefinition definition) {
 
 		Resource moduleLocation = resourceLoader.getResource(definition.getLocation());
+		String checksum = checksum(definition, moduleLocation);
+		if (checksum == null) {
+			// a changed archive could not be told apart from the cached one
+			return doResolveNormalMetadata(definition, moduleLocation).create();
+		}
+		String key = definition.getLocation() + "|" + checksum;
+		synchronized (cache) {
+			ResolvedMetadata resolved = cache.get(key);
+			if (resolved != null) {
+				return resolved.create();
+			}
+		}
+		ResolvedMetadata resolved = doResolveNormalMetadata(definition, moduleLocation);
+		synchronized (cache) {
+			ResolvedMetadata existing = cache.get(key);
+			if (existing == null) {
+				// create first, as a cache size of 0 evicts the entry straight away
+				ModuleOptionsMetadata metadata = resolved.create();
+				cache.put(key, resolved);
+				return metadata;
+			}
+		}
+		// resolved concurrently by another thread
+		resolved.close();
+		return resolveNormalMetadata(definition);
+	}
+
+	private ResolvedMetadata doResolveNormalMetadata(SimpleModuleDefinition definition, Resource moduleLocation) {
 		Properties props = ModuleUtils.loadModuleProperties(definition);
 		ClassLoader parentCL = ModuleOptionsMetadataResolver.class.getClassLoader();
 		ClassLoader classLoaderToUse = (shouldCreateModuleClassLoader) ?
 				ModuleUtils.createModuleDiscoveryClassLoader(moduleLocation, parentCL) : parentCL;
-		if (props == null) {
-			return inferModuleOptionsMetadata(definition, classLoaderToUse);
-		}
-		else {
-			String pojoClass = props.getProperty(OPTIONS_CLASS);
-			if (pojoClass != null) {
-				List<ModuleOptionsMetadata> mixins = new ArrayList<ModuleOptionsMetadata>();
-				createPojoOptionsMetadata(classLoaderToUse, pojoClass.trim(), mixins);
-				return mixins.size() == 1 ? mixins.get(0) : new FlattenedCompositeModuleOptionsMetadata(mixins);
+		ClassLoader classLoaderToClose = classLoaderToUse != parentCL ? classLoaderToUse : null;
+		try {
+			if (props == null) {
+				return new ResolvedMetadata(inferModuleOptionsMetadata(definition, classLoaderToUse));
 			}
 			else {
-				return makeSimpleModuleOptions(props);
+				String pojoClass = props.getProperty(OPTIONS_CLASS);
+				if (pojoClass != null) {
+					List<Class<?>> classes = new ArrayList<Class<?>>();
+					loadPojoOptionsClasses(classLoaderToUse, pojoClass.trim(), classes);
+					ResolvedMetadata resolved = new ResolvedMetadata(classes, classLoaderToClose);
+					// the classes need their classloader for as long as the metadata is cached
+					classLoaderToClose = null;
+					return resolved;
+				}
+				else {
+					return new ResolvedMetadata(makeSimpleModuleOptions(props));
+				}
+			}
+		}
+		finally {
+			closeQuietly(classLoaderToClose);
+		}
+	}
+
+	/**
+	 * Return the checksum of the module archive, as recorded next to it, or derived from its timestamp and size;
+	 * {@code null} if neither can be read.
+	 */
+	private String checksum(SimpleModuleDefinition definition, Resource moduleLocation) {
+		Resource hash = resourceLoader.getResource(definition.getLocation() + HASH_EXTENSION);
+		try {
+			if (hash.isReadable()) {
+				try (InputStream is = hash.getInputStream()) {
+					return StreamUtils.copyToString(is, UTF_8);
+				}
+			}
+			return moduleLocation.lastModified() + ":" + moduleLocation.contentLength();
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static void closeQuietly(ClassLoader classLoader) {
+		if (classLoader instanceof Closeable) {
+			try {
+				((Closeable) classLoader).close();
+			}
+			catch (IOException ignored) {
 			}
 		}
 	}
 
 	/**
-	 * Create {@link PojoModuleOptionsMetadata} out of the {@code pojoClass} and add them to the list.
+	 * Load the {@code pojoClass} used to create {@link PojoModuleOptionsMetadata} and add it to the list.
 	 * Also, recursively invoke itself with all classes mixed in {@code pojoClass} (that is,
 	 * if {@code pojoClass} bears the {@link Mixin} annotation.
 	 */
-	private void createPojoOptionsMetadata(ClassLoader classLoaderToUse, String pojoClass,
-			List<ModuleOptionsMetadata> mixins) {
+	private void loadPojoOptionsClasses(ClassLoader classLoaderToUse, String pojoClass, List<Class<?>> classes) {
 		try {
 			Class<?> clazz = Class.forName(pojoClass, true, classLoaderToUse);
 			Mixin mixin = clazz.getAnnotation(Mixin.class);
 			if (mixin != null) {
 				for (Class<?> classToMixin : mixin.value()) {
-					createPojoOptionsMetadata(classLoaderToUse, classToMixin.getName(), mixins);
+					loadPojoOptionsClasses(classLoaderToUse, classToMixin.getName(), classes);
 				}
 			}
-			mixins.add(new PojoModuleOptionsMetadata(clazz, conversionService));
+			classes.add(clazz);
 		}
 		catch (ClassNotFoundException e) {
 			throw new IllegalStateException("Unable to load class used by ModuleOptionsMetadata: "
@@ -264,4 +410,57 @@ public class DefaultModuleOptionsMetadataResolver implements ModuleOptionsMetada
 	public void setResourceLoader(ResourceLoader resourceLoader) {
 		this.resourceLoader = (ResourcePatternResolver) resourceLoader;
 	}
+
+	/**
+	 * What resolving a simple module yields: either the POJO classes backing its options, or a template for simple
+	 * options, copied for each caller.
+	 */
+	private class ResolvedMetadata {
+
+		private final List<Class<?>> pojoClasses;
+
+		private final ClassLoader classLoader;
+
+		private final ModuleOptionsMetadata template;
+
+		private ResolvedMetadata(List<Class<?>> pojoClasses, ClassLoader classLoader) {
+			this.pojoClasses = pojoClasses;
+			this.classLoader = classLoader;
+			this.template = null;
+		}
+
+		private ResolvedMetadata(ModuleOptionsMetadata template) {
+			this.pojoClasses = null;
+			this.classLoader = null;
+			this.template = template;
+		}
+
+		private ModuleOptionsMetadata create() {
+			if (pojoClasses != null) {
+				List<ModuleOptionsMetadata> mixins = new ArrayList<ModuleOptionsMetadata>(pojoClasses.size());
+				for (Class<?> clazz : pojoClasses) {
+					mixins.add(new PojoModuleOptionsMetadata(clazz, conversionService));
+				}
+				return mixins.size() == 1 ? mixins.get(0) : new FlattenedCompositeModuleOptionsMetadata(mixins);
+			}
+			if (template instanceof PassthruModuleOptionsMetadata) {
+				return new PassthruModuleOptionsMetadata();
+			}
+			// options are mutable, so hand out copies
+			SimpleModuleOptionsMetadata result = new SimpleModuleOptionsMetadata();
+			for (ModuleOption option : template) {
+				result.add(new ModuleOption(option.getName(), option.getDescription())
+						.withDefaultValue(option.getDefaultValue())
+						.withType(option.getType())
+						.hidden(option.isHidden()));
+			}
+			return result;
+		}
+
+		private void close() {
+			closeQuietly(classLoader);
+		}
+
+	}
+
 }
@@ -108,4 +108,34 @@ public class DefaultModuleOptionsMetadataResolverTests {
 				containsInAnyOrder(moduleOptionNamed("bar"), moduleOptionNamed("foo")));
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testCachedMetadataIsNotShared() {
+		String resource = "classpath:/DefaultModuleOptionsMetadataResolverTests-modules/source/module1/";
+		ModuleDefinition definition = ModuleDefinitions.simple("module1", source, resource);
+		ModuleOptionsMetadata first = metadataResolver.resolve(definition);
+		ModuleOptionsMetadata second = metadataResolver.resolve(definition);
+		assertNotSame(first, second);
+		assertThat(second, containsInAnyOrder(moduleOptionNamed("bar"), moduleOptionNamed("foo")));
+
+		metadataResolver.evict(definition);
+		ModuleOptionsMetadata third = metadataResolver.resolve(definition);
+		assertThat(third, containsInAnyOrder(moduleOptionNamed("bar"), moduleOptionNamed("foo")));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testMetadataIsResolvedAgainAfterDroppingOutOfCache() {
+		metadataResolver.setCacheSize(1);
+		String resource1 = "classpath:/DefaultModuleOptionsMetadataResolverTests-modules/source/module1/";
+		ModuleDefinition definition1 = ModuleDefinitions.simple("module1", source, resource1);
+		String resource6 = "classpath:/DefaultModuleOptionsMetadataResolverTests-modules/source/module6/";
+		ModuleDefinition definition6 = ModuleDefinitions.simple("module6", source, resource6);
+		ModuleOptionsMetadata first = metadataResolver.resolve(definition1);
+		metadataResolver.resolve(definition6);
+		assertThat(first, containsInAnyOrder(moduleOptionNamed("bar"), moduleOptionNamed("foo")));
+		ModuleOptionsMetadata second = metadataResolver.resolve(definition1);
+		assertThat(second, containsInAnyOrder(moduleOptionNamed("bar"), moduleOptionNamed("foo")));
+	}
+
 }
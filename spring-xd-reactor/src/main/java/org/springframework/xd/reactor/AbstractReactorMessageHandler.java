@@ -15,11 +15,20 @@
  */
 package org.springframework.xd.reactor;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
 import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.integration.handler.AbstractMessageProducingHandler;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandlingException;
 import org.springframework.messaging.support.MessageBuilder;
@@ -31,17 +40,40 @@ import reactor.rx.action.support.DefaultSubscriber;
 
 /**
  * Abstract base class for Reactor based MessageHandlers.
+ * <p/>
+ * Output is forwarded to the output channel on demand: the subscriber to the processor's output stream requests
+ * {@link #setRequestBatchSize(int) requestBatchSize} items at a time, so at most that many are in flight. When a
+ * ring buffer is full, the thread delivering messages to this handler, typically a message bus consumer, backs off
+ * until there is space instead of spinning inside the ring buffer, which pauses the upstream consumer. Several
+ * threads may deliver messages concurrently: each reserves a slot before publishing, so they cannot overrun the
+ * ring buffer between checking its capacity and publishing to it.
  *
  * @author Mark Pollack
  */
+@ManagedResource
 public abstract class AbstractReactorMessageHandler extends AbstractMessageProducingHandler implements DisposableBean {
 
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private int stopTimeout = 5000;
 
+    private static final long MIN_PAUSE_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private static final long MAX_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
     private int ringBufferSize = 8192;
 
+    private int requestBatchSize = 256;
+
+    private final AtomicLong requested = new AtomicLong();
+
+    private final AtomicLong forwarded = new AtomicLong();
+
+    private final AtomicLong pauses = new AtomicLong();
+
+    // producers that have reserved a ring buffer slot but not yet published to it
+    private final AtomicInteger publishing = new AtomicInteger();
+
     private final Environment environment = new Environment().assignErrorJournal();
 
     private final Class<?> inputType;
@@ -97,6 +129,76 @@ public abstract class AbstractReactorMessageHandler extends AbstractMessageProdu
         return ringBufferSize;
     }
 
+    /**
+     * The number of output items requested from the processor at a time, which bounds the number of items in
+     * flight to the output channel. Default is 256.
+     *
+     * @param requestBatchSize the number of items to request.
+     */
+    public void setRequestBatchSize(int requestBatchSize) {
+        Assert.isTrue(requestBatchSize > 0, "'requestBatchSize' must be greater than 0");
+        this.requestBatchSize = requestBatchSize;
+    }
+
+    /**
+     * Return the number of output items requested at a time.
+     */
+    @ManagedAttribute
+    public int getRequestBatchSize() {
+        return requestBatchSize;
+    }
+
+    /**
+     * Return the number of output items requested but not yet forwarded to the output channel.
+     */
+    @ManagedAttribute
+    public long getOutstandingDemand() {
+        return requested.get() - forwarded.get();
+    }
+
+    /**
+     * Return the number of output items forwarded to the output channel.
+     */
+    @ManagedAttribute
+    public long getForwardedCount() {
+        return forwarded.get();
+    }
+
+    /**
+     * Return the number of times a message had to wait for space in a full ring buffer.
+     */
+    @ManagedAttribute
+    public long getBackpressurePauseCount() {
+        return pauses.get();
+    }
+
+    /**
+     * Return the number of messages waiting in the ring buffers.
+     */
+    @ManagedAttribute
+    public long getRingBufferOccupancy() {
+        long occupancy = 0;
+        for (RingBufferProcessor<Object> ringBufferProcessor : getRingBufferProcessors()) {
+            occupancy += ringBufferSize - ringBufferProcessor.getAvailableCapacity();
+        }
+        return occupancy;
+    }
+
+    /**
+     * Return the total capacity of the ring buffers in use.
+     */
+    @ManagedAttribute
+    public long getRingBufferCapacity() {
+        return (long) ringBufferSize * getRingBufferProcessors().size();
+    }
+
+    /**
+     * Return the ring buffers currently in use, for metrics.
+     */
+    protected Collection<RingBufferProcessor<Object>> getRingBufferProcessors() {
+        return Collections.emptyList();
+    }
+
     /**
      * Return the environment to use for stream processing operations.
      */
@@ -116,9 +218,9 @@ public abstract class AbstractReactorMessageHandler extends AbstractMessageProdu
         // pass the message directly if the input type accepts it, unless the input type is Object
         // this restricts the branch to Message and its subinterfaces/implementations
         if (!Object.class.equals(inputType) && ClassUtils.isAssignable(inputType, message.getClass())) {
-            reactiveProcessorToUse.onNext(message);
+            publish(message, reactiveProcessorToUse);
         } else if (ClassUtils.isAssignable(inputType, message.getPayload().getClass())) {
-            reactiveProcessorToUse.onNext(message.getPayload());
+            publish(message.getPayload(), reactiveProcessorToUse);
         } else {
             throw new MessageHandlingException(message, "Processor signature does not match [" + message.getClass()
                 + "] or [" + message.getPayload().getClass() + "]");
@@ -126,13 +228,50 @@ public abstract class AbstractReactorMessageHandler extends AbstractMessageProdu
     }
 
 
+    private void publish(Object item, RingBufferProcessor<Object> reactiveProcessorToUse) {
+        reserveCapacity(reactiveProcessorToUse);
+        try {
+            reactiveProcessorToUse.onNext(item);
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    /**
+     * Reserve a slot in the ring buffer, blocking the calling thread with an increasing back off while it is full.
+     * The reservation is taken before the capacity is read, so slots reserved by concurrent producers are counted
+     * against it; this is conservative across ring buffers, which only matters when they are nearly full.
+     */
+    private void reserveCapacity(RingBufferProcessor<Object> reactiveProcessorToUse) {
+        long pauseNanos = MIN_PAUSE_NANOS;
+        boolean paused = false;
+        while (true) {
+            int reservedAhead = publishing.getAndIncrement();
+            if (reactiveProcessorToUse.getAvailableCapacity() > reservedAhead
+                    || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            publishing.decrementAndGet();
+            if (!paused) {
+                pauses.incrementAndGet();
+                paused = true;
+            }
+            LockSupport.parkNanos(pauseNanos);
+            pauseNanos = Math.min(pauseNanos * 2, MAX_PAUSE_NANOS);
+        }
+    }
+
+
     protected class ChannelForwardingSubscriber extends DefaultSubscriber<Object> {
         Subscription s;
 
+        // only used on the thread signalling onNext
+        private long pending;
+
         @Override
         public void onSubscribe(Subscription s) {
             this.s = s;
-            s.request(Long.MAX_VALUE);
+            request(requestBatchSize);
         }
 
         @Override
@@ -142,6 +281,17 @@ public abstract class AbstractReactorMessageHandler extends AbstractMessageProdu
             } else {
                 getOutputChannel().send(MessageBuilder.withPayload(outputObject).build());
             }
+            forwarded.incrementAndGet();
+            // top the demand back up once half of it has been used
+            if (--pending <= requestBatchSize / 2) {
+                request(requestBatchSize - pending);
+            }
+        }
+
+        private void request(long n) {
+            pending += n;
+            requested.addAndGet(n);
+            s.request(n);
         }
 
         @Override
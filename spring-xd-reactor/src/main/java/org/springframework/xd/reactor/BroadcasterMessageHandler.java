@@ -15,6 +15,8 @@
  */
 package org.springframework.xd.reactor;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 
 import org.reactivestreams.Publisher;
@@ -76,6 +78,14 @@ public class BroadcasterMessageHandler extends AbstractReactorMessageHandler {
         invokeProcessor(message, ringBufferProcessor);
     }
 
+    @Override
+    protected Collection<RingBufferProcessor<Object>> getRingBufferProcessors() {
+        if (ringBufferProcessor == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(ringBufferProcessor);
+    }
+
     @Override
     public void destroy() throws Exception {
         if (ringBufferProcessor != null) {
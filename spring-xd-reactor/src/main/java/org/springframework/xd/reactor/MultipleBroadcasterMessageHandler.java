@@ -16,18 +16,29 @@
 
 package org.springframework.xd.reactor;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.reactivestreams.Publisher;
 
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.integration.context.IntegrationContextUtils;
 import org.springframework.messaging.Message;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 
 import reactor.core.processor.RingBufferProcessor;
@@ -47,8 +58,11 @@ import reactor.rx.Streams;
  * Kafka partition, you can use the expression <code>header['kafka_partition_id']</code> since the MessageBus
  * dispatcher thread will be the same for each partition.
  * <p/>
- * If the Stream mapped to the partitionExpression value has an error or completes, it will be recreated when the
- * next message consumed maps to the same partitionExpression value.
+ * By default a Stream, with its own thread, is created for every distinct partitionExpression value. For high
+ * cardinality values, such as a user id, either set an {@link #setIdleTimeout(long) idleTimeout} so that
+ * Streams that no longer receive messages are completed and removed, or enable {@link #setSharded(boolean)
+ * sharding}: values are then hashed onto a fixed number of Streams, so that all messages with the same value are
+ * still processed in order by the same Stream, which also sees the messages of other values.
  * <p/>
  * All error handling is the responsibility of the processor implementation.
  *
@@ -58,17 +72,27 @@ import reactor.rx.Streams;
  */
 public class MultipleBroadcasterMessageHandler extends AbstractReactorMessageHandler {
 
-    private final ConcurrentMap<Object, RingBufferProcessor<Object>> reactiveProcessorMap =
-            new ConcurrentHashMap<Object, RingBufferProcessor<Object>>();
+    private final ConcurrentMap<Object, PartitionProcessor> reactiveProcessorMap =
+            new ConcurrentHashMap<Object, PartitionProcessor>();
 
-    private final Expression partitionExpression;
+    private final Object creationMonitor = new Object();
 
-    private final SpelExpressionParser spelExpressionParser = new SpelExpressionParser();
+    private final Expression partitionExpression;
 
     private EvaluationContext evaluationContext = new StandardEvaluationContext();
 
     private boolean evaluationContextSet;
 
+    private boolean sharded;
+
+    private int shards = Runtime.getRuntime().availableProcessors();
+
+    private AtomicReferenceArray<RingBufferProcessor<Object>> shardProcessors;
+
+    private long idleTimeout;
+
+    private ScheduledExecutorService evictionScheduler;
+
     /**
      * Construct a new MessageHandler given the reactor based Processor to delegate
      * processing to and a partition expression.
@@ -79,6 +103,8 @@ public class MultipleBroadcasterMessageHandler extends AbstractReactorMessageHan
     public MultipleBroadcasterMessageHandler(Processor processor, String partitionExpression) {
         super(processor);
         Assert.notNull(partitionExpression, "Partition expression can not be null");
+        SpelExpressionParser spelExpressionParser = new SpelExpressionParser(
+                new SpelParserConfiguration(SpelCompilerMode.MIXED, getClass().getClassLoader()));
         this.partitionExpression = spelExpressionParser.parseExpression(partitionExpression);
     }
 
@@ -87,53 +113,240 @@ public class MultipleBroadcasterMessageHandler extends AbstractReactorMessageHan
         this.evaluationContextSet = true;
     }
 
+    /**
+     * Hash partitionExpression values onto a fixed number of Streams instead of creating one per value.
+     * Default is false.
+     *
+     * @param sharded true to use a fixed number of Streams.
+     */
+    public void setSharded(boolean sharded) {
+        this.sharded = sharded;
+    }
+
+    /**
+     * The number of Streams used when sharded. Default is the number of available processors.
+     *
+     * @param shards the number of Streams.
+     */
+    public void setShards(int shards) {
+        Assert.isTrue(shards > 0, "'shards' must be greater than 0");
+        this.shards = shards;
+    }
+
+    /**
+     * Time in milliseconds after which the Stream for a partitionExpression value that has not received any
+     * message is completed and removed; it is recreated if another message maps to the same value. Not used
+     * when sharded. Default is 0, Streams are never removed.
+     *
+     * @param idleTimeout the idle timeout in milliseconds.
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        Assert.isTrue(idleTimeout >= 0, "'idleTimeout' must not be negative");
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Return the number of Streams currently in use.
+     */
+    public int getStreamCount() {
+        if (!this.sharded) {
+            return this.reactiveProcessorMap.size();
+        }
+        int count = 0;
+        for (int i = 0; this.shardProcessors != null && i < this.shardProcessors.length(); i++) {
+            if (this.shardProcessors.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
 
     @Override
     protected void onInit() throws Exception {
         if (!this.evaluationContextSet) {
             this.evaluationContext = IntegrationContextUtils.getEvaluationContext(getBeanFactory());
         }
+        if (this.sharded) {
+            this.shardProcessors = new AtomicReferenceArray<RingBufferProcessor<Object>>(this.shards);
+        }
+        else if (this.idleTimeout > 0) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("xd-reactor-eviction-");
+            threadFactory.setDaemon(true);
+            this.evictionScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            long period = Math.max(this.idleTimeout / 2, 1);
+            this.evictionScheduler.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        evictIdleProcessors();
+                    }
+                    catch (RuntimeException e) {
+                        logger.error("Failed to evict idle streams", e);
+                    }
+                }
+
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     protected void handleMessageInternal(Message<?> message) {
-        RingBufferProcessor<Object> reactiveProcessorToUse = getReactiveProcessor(message);
-        invokeProcessor(message, reactiveProcessorToUse);
-    }
-
-    @SuppressWarnings("unchecked")
-    private RingBufferProcessor<Object> getReactiveProcessor(Message<?> message) {
         final Object idToUse = partitionExpression.getValue(evaluationContext, message, Object.class);
         if (logger.isDebugEnabled()) {
             logger.debug("Partition Expression evaluated to " + idToUse);
         }
-        RingBufferProcessor<Object> reactiveProcessor = reactiveProcessorMap.get(idToUse);
+        if (this.sharded) {
+            invokeProcessor(message, getShardProcessor(idToUse));
+            return;
+        }
+        while (true) {
+            PartitionProcessor partitionProcessor = getPartitionProcessor(idToUse);
+            if (this.idleTimeout == 0) {
+                invokeProcessor(message, partitionProcessor.processor);
+                return;
+            }
+            if (partitionProcessor.acquire()) {
+                try {
+                    invokeProcessor(message, partitionProcessor.processor);
+                }
+                finally {
+                    partitionProcessor.release();
+                }
+                return;
+            }
+            // evicted since the lookup; make sure it is gone and create a new one
+            reactiveProcessorMap.remove(idToUse, partitionProcessor);
+        }
+    }
+
+    private RingBufferProcessor<Object> getShardProcessor(Object idToUse) {
+        int hash = idToUse == null ? 0 : idToUse.hashCode();
+        int shard = ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % this.shards;
+        RingBufferProcessor<Object> reactiveProcessor = this.shardProcessors.get(shard);
         if (reactiveProcessor == null) {
-            RingBufferProcessor<Object> existingReactiveProcessor =
-                    reactiveProcessorMap.putIfAbsent(idToUse,
-                            RingBufferProcessor.share("xd-reactor-partition-" + idToUse, getRingBufferSize()));
-            if (existingReactiveProcessor == null) {
-                reactiveProcessor = reactiveProcessorMap.get(idToUse);
-                //user defined stream processing
-                Publisher<?> outputStream = processor.process(Streams.wrap(reactiveProcessor).env(getEnvironment()));
+            synchronized (this.creationMonitor) {
+                reactiveProcessor = this.shardProcessors.get(shard);
+                if (reactiveProcessor == null) {
+                    reactiveProcessor = createReactiveProcessor("xd-reactor-shard-" + shard);
+                    this.shardProcessors.set(shard, reactiveProcessor);
+                }
+            }
+        }
+        return reactiveProcessor;
+    }
 
-                outputStream.subscribe(new ChannelForwardingSubscriber());
+    private PartitionProcessor getPartitionProcessor(Object idToUse) {
+        PartitionProcessor partitionProcessor = reactiveProcessorMap.get(idToUse);
+        if (partitionProcessor == null) {
+            synchronized (this.creationMonitor) {
+                partitionProcessor = reactiveProcessorMap.get(idToUse);
+                if (partitionProcessor == null) {
+                    partitionProcessor = new PartitionProcessor(
+                            createReactiveProcessor("xd-reactor-partition-" + idToUse));
+                    reactiveProcessorMap.put(idToUse, partitionProcessor);
+                }
+            }
+        }
+        return partitionProcessor;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RingBufferProcessor<Object> createReactiveProcessor(String name) {
+        RingBufferProcessor<Object> reactiveProcessor = RingBufferProcessor.share(name, getRingBufferSize());
+        //user defined stream processing
+        Publisher<?> outputStream = processor.process(Streams.wrap(reactiveProcessor).env(getEnvironment()));
+        outputStream.subscribe(new ChannelForwardingSubscriber());
+        return reactiveProcessor;
+    }
 
+    @Override
+    protected Collection<RingBufferProcessor<Object>> getRingBufferProcessors() {
+        List<RingBufferProcessor<Object>> processors = new ArrayList<RingBufferProcessor<Object>>();
+        for (PartitionProcessor partitionProcessor : reactiveProcessorMap.values()) {
+            processors.add(partitionProcessor.processor);
+        }
+        for (int i = 0; this.shardProcessors != null && i < this.shardProcessors.length(); i++) {
+            RingBufferProcessor<Object> shardProcessor = this.shardProcessors.get(i);
+            if (shardProcessor != null) {
+                processors.add(shardProcessor);
             }
-            else {
-                reactiveProcessor = existingReactiveProcessor;
+        }
+        return processors;
+    }
+
+    private void evictIdleProcessors() {
+        long idleSince = System.currentTimeMillis() - this.idleTimeout;
+        for (Map.Entry<Object, PartitionProcessor> entry : reactiveProcessorMap.entrySet()) {
+            PartitionProcessor partitionProcessor = entry.getValue();
+            if (partitionProcessor.evictIfIdle(idleSince)) {
+                reactiveProcessorMap.remove(entry.getKey(), partitionProcessor);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Completing idle stream for " + entry.getKey());
+                }
+                partitionProcessor.processor.onComplete();
+                partitionProcessor.processor.shutdown();
             }
         }
-        return reactiveProcessor;
     }
 
     @Override
-    @SuppressWarnings("rawtypes")
     public void destroy() throws Exception {
-        for (RingBufferProcessor ringBufferProcessor : reactiveProcessorMap.values()) {
-            ringBufferProcessor.awaitAndShutdown(getStopTimeout(), TimeUnit.MILLISECONDS);
+        if (this.evictionScheduler != null) {
+            this.evictionScheduler.shutdownNow();
+        }
+        for (PartitionProcessor partitionProcessor : reactiveProcessorMap.values()) {
+            partitionProcessor.processor.awaitAndShutdown(getStopTimeout(), TimeUnit.MILLISECONDS);
+        }
+        if (this.shardProcessors != null) {
+            for (int i = 0; i < this.shardProcessors.length(); i++) {
+                RingBufferProcessor<Object> shardProcessor = this.shardProcessors.get(i);
+                if (shardProcessor != null) {
+                    shardProcessor.awaitAndShutdown(getStopTimeout(), TimeUnit.MILLISECONDS);
+                }
+            }
         }
         getEnvironment().shutdown();
     }
 
+
+    /**
+     * The processor for one partitionExpression value; {@code users} counts the threads sending to it, and is set
+     * to -1 once it is evicted so that no more messages are sent to it.
+     */
+    private static final class PartitionProcessor {
+
+        private final RingBufferProcessor<Object> processor;
+
+        private final AtomicInteger users = new AtomicInteger();
+
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private PartitionProcessor(RingBufferProcessor<Object> processor) {
+            this.processor = processor;
+        }
+
+        private boolean acquire() {
+            while (true) {
+                int current = this.users.get();
+                if (current < 0) {
+                    return false;
+                }
+                if (this.users.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+            this.lastUsed = System.currentTimeMillis();
+            this.users.decrementAndGet();
+        }
+
+        private boolean evictIfIdle(long idleSince) {
+            return this.lastUsed < idleSince && this.users.compareAndSet(0, -1);
+        }
+
+    }
+
 }
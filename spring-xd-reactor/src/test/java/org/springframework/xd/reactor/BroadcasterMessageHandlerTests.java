@@ -15,7 +15,24 @@
  */
 package org.springframework.xd.reactor;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
 import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.GenericMessage;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -33,4 +50,102 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 @DirtiesContext
 public class BroadcasterMessageHandlerTests extends AbstractMessageHandlerTests {
 
+    @Test
+    public void outputIsRequestedInBatches() throws Exception {
+        BroadcasterMessageHandler handler = new BroadcasterMessageHandler(new PongStringProcessor());
+        QueueChannel output = new QueueChannel();
+        handler.setOutputChannel(output);
+        handler.setBeanFactory(new DefaultListableBeanFactory());
+        handler.setRequestBatchSize(4);
+        handler.setRingBufferSize(16);
+        handler.afterPropertiesSet();
+        try {
+            assertEquals(4, handler.getOutstandingDemand());
+            assertEquals(16, handler.getRingBufferCapacity());
+            for (int i = 0; i < 10; i++) {
+                handler.handleMessage(new GenericMessage<String>("ping"));
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals("ping-stringpong", output.receive(5000).getPayload());
+            }
+            // the count is updated after the send
+            long deadline = System.currentTimeMillis() + 5000;
+            while (handler.getForwardedCount() < 10 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(10, handler.getForwardedCount());
+            long demand = handler.getOutstandingDemand();
+            assertTrue("demand: " + demand, demand > 0 && demand <= 4);
+        }
+        finally {
+            handler.destroy();
+        }
+    }
+
+    @Test
+    public void slowSubscriberPausesUpstreamUntilRingBufferDrains() throws Exception {
+        BroadcasterMessageHandler handler = new BroadcasterMessageHandler(new PongStringProcessor());
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger received = new AtomicInteger();
+        DirectChannel output = new DirectChannel();
+        output.subscribe(new MessageHandler() {
+
+            @Override
+            public void handleMessage(Message<?> message) throws MessagingException {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.incrementAndGet();
+            }
+        });
+        handler.setOutputChannel(output);
+        handler.setBeanFactory(new DefaultListableBeanFactory());
+        handler.setRequestBatchSize(4);
+        handler.setRingBufferSize(16);
+        handler.afterPropertiesSet();
+        final BroadcasterMessageHandler upstreamHandler = handler;
+        final AtomicInteger sent = new AtomicInteger();
+        Thread upstream = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                for (int i = 0; i < 100; i++) {
+                    upstreamHandler.handleMessage(new GenericMessage<String>("ping"));
+                    sent.incrementAndGet();
+                }
+            }
+        });
+        try {
+            upstream.start();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (handler.getBackpressurePauseCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(handler.getBackpressurePauseCount() > 0);
+            // the upstream thread is held while the subscriber blocks and the ring buffer stays full
+            int sentWhileFull = sent.get();
+            Thread.sleep(200);
+            assertEquals(sentWhileFull, sent.get());
+            assertTrue("sent: " + sentWhileFull, sentWhileFull < 100);
+            assertTrue(upstream.isAlive());
+            assertEquals(0, received.get());
+            release.countDown();
+            upstream.join(10000);
+            assertFalse(upstream.isAlive());
+            assertEquals(100, sent.get());
+            deadline = System.currentTimeMillis() + 5000;
+            while (received.get() < 100 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(100, received.get());
+        }
+        finally {
+            release.countDown();
+            handler.destroy();
+        }
+    }
+
 }
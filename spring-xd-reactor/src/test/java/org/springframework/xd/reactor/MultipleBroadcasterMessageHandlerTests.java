@@ -17,17 +17,13 @@ package org.springframework.xd.reactor;
 
 import static org.junit.Assert.*;
 
-import java.io.IOException;
-
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.MessageChannel;
-import org.springframework.messaging.PollableChannel;
-import org.springframework.messaging.support.GenericMessage;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -45,4 +41,33 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 @DirtiesContext
 public class MultipleBroadcasterMessageHandlerTests extends AbstractMessageHandlerTests {
 
+    @Test
+    public void idleStreamsAreEvicted() throws Exception {
+        MultipleBroadcasterMessageHandler handler = new MultipleBroadcasterMessageHandler(new PongStringProcessor(),
+                "headers['key']");
+        QueueChannel output = new QueueChannel();
+        handler.setOutputChannel(output);
+        handler.setBeanFactory(new DefaultListableBeanFactory());
+        handler.setIntegrationEvaluationContext(new StandardEvaluationContext());
+        handler.setIdleTimeout(100);
+        handler.afterPropertiesSet();
+        try {
+            handler.handleMessage(MessageBuilder.withPayload("ping").setHeader("key", "a").build());
+            handler.handleMessage(MessageBuilder.withPayload("ping").setHeader("key", "b").build());
+            assertEquals(2, handler.getStreamCount());
+            assertEquals("ping-stringpong", output.receive(5000).getPayload());
+            assertEquals("ping-stringpong", output.receive(5000).getPayload());
+            long deadline = System.currentTimeMillis() + 10000;
+            while (handler.getStreamCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, handler.getStreamCount());
+            handler.handleMessage(MessageBuilder.withPayload("ping").setHeader("key", "a").build());
+            assertEquals("ping-stringpong", output.receive(5000).getPayload());
+        }
+        finally {
+            handler.destroy();
+        }
+    }
+
 }
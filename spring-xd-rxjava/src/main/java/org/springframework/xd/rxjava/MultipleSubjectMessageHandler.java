@@ -17,10 +17,14 @@
 package org.springframework.xd.rxjava;
 
 import java.lang.reflect.Method;
-import java.util.Hashtable;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +33,8 @@ import org.springframework.beans.factory.DisposableBean;
 import org.springframework.core.ResolvableType;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.integration.context.IntegrationContextUtils;
@@ -36,6 +42,7 @@ import org.springframework.integration.handler.AbstractMessageProducingHandler;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandlingException;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
@@ -45,6 +52,7 @@ import rx.Subscription;
 import rx.functions.Action0;
 import rx.functions.Action1;
 import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
 import rx.subjects.Subject;
 
 /**
@@ -61,6 +69,12 @@ import rx.subjects.Subject;
  * Kafka partition, the expression header['kafka_partition_id'] since the MessageBus dispatcher thread will be
  * the same for each partition.
  * <p/>
+ * By default an Observable is created for every distinct partitionExpression value. For high cardinality values,
+ * such as a user id, either set an {@link #setIdleTimeout(long) idleTimeout} so that Observables that no longer
+ * receive messages are completed and removed, or enable {@link #setSharded(boolean) sharding}: values are then
+ * hashed onto a fixed number of serialized Subjects, so that all messages with the same value are still processed
+ * in order by the same Observable, which also sees the messages of other values.
+ * <p/>
  * If the Observable mapped to the partitionExpression value has an error or completes, it will be recreated when the
  * next message consumed maps to the same partitionExpression value.
  * <p/>
@@ -74,10 +88,10 @@ public class MultipleSubjectMessageHandler extends AbstractMessageProducingHandl
 
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final ConcurrentMap<Object, PublishSubject<Object>> subjectMap =
-            new ConcurrentHashMap<Object, PublishSubject<Object>>();
+    private final ConcurrentMap<Object, PartitionSubject> subjectMap =
+            new ConcurrentHashMap<Object, PartitionSubject>();
 
-    private final Map<Object, Subscription> subscriptionMap = new Hashtable<Object, Subscription>();
+    private final Object creationMonitor = new Object();
 
     @SuppressWarnings("rawtypes")
     private final Processor processor;
@@ -86,17 +100,27 @@ public class MultipleSubjectMessageHandler extends AbstractMessageProducingHandl
 
     private final Expression partitionExpression;
 
-    private final SpelExpressionParser spelExpressionParser = new SpelExpressionParser();
-
     private EvaluationContext evaluationContext = new StandardEvaluationContext();
 
     private boolean evaluationContextSet;
 
+    private boolean sharded;
+
+    private int shards = Runtime.getRuntime().availableProcessors();
+
+    private AtomicReferenceArray<PartitionSubject> shardSubjects;
+
+    private long idleTimeout;
+
+    private ScheduledExecutorService evictionScheduler;
+
     @SuppressWarnings({ "rawtypes" })
     public MultipleSubjectMessageHandler(Processor processor, String partitionExpression) {
         Assert.notNull(processor, "processor cannot be null.");
         Assert.notNull(partitionExpression, "Partition expression can not be null");
         this.processor = processor;
+        SpelExpressionParser spelExpressionParser = new SpelExpressionParser(
+                new SpelParserConfiguration(SpelCompilerMode.MIXED, getClass().getClassLoader()));
         this.partitionExpression = spelExpressionParser.parseExpression(partitionExpression);
         Method method = ReflectionUtils.findMethod(this.processor.getClass(), "process", Observable.class);
         this.inputType = ResolvableType.forMethodParameter(method, 0).getNested(2);
@@ -107,22 +131,121 @@ public class MultipleSubjectMessageHandler extends AbstractMessageProducingHandl
         this.evaluationContextSet = true;
     }
 
+    /**
+     * Hash partitionExpression values onto a fixed number of Observables instead of creating one per value.
+     * Default is false.
+     *
+     * @param sharded true to use a fixed number of Observables.
+     */
+    public void setSharded(boolean sharded) {
+        this.sharded = sharded;
+    }
+
+    /**
+     * The number of Observables used when sharded. Default is the number of available processors.
+     *
+     * @param shards the number of Observables.
+     */
+    public void setShards(int shards) {
+        Assert.isTrue(shards > 0, "'shards' must be greater than 0");
+        this.shards = shards;
+    }
+
+    /**
+     * Time in milliseconds after which the Observable for a partitionExpression value that has not received any
+     * message is completed and removed; it is recreated if another message maps to the same value. Not used
+     * when sharded. Default is 0, Observables are never removed.
+     *
+     * @param idleTimeout the idle timeout in milliseconds.
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        Assert.isTrue(idleTimeout >= 0, "'idleTimeout' must not be negative");
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Return the number of Observables currently in use.
+     */
+    public int getObservableCount() {
+        if (!this.sharded) {
+            return this.subjectMap.size();
+        }
+        int count = 0;
+        for (int i = 0; this.shardSubjects != null && i < this.shardSubjects.length(); i++) {
+            if (this.shardSubjects.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     @Override
     protected void onInit() throws Exception {
         super.onInit();
         if (!this.evaluationContextSet) {
             this.evaluationContext = IntegrationContextUtils.getEvaluationContext(getBeanFactory());
         }
+        if (this.sharded) {
+            this.shardSubjects = new AtomicReferenceArray<PartitionSubject>(this.shards);
+        }
+        else if (this.idleTimeout > 0) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("xd-rxjava-eviction-");
+            threadFactory.setDaemon(true);
+            this.evictionScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            long period = Math.max(this.idleTimeout / 2, 1);
+            this.evictionScheduler.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        evictIdleSubjects();
+                    }
+                    catch (RuntimeException e) {
+                        logger.error("Failed to evict idle observables", e);
+                    }
+                }
+
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     protected void handleMessageInternal(Message<?> message) throws Exception {
-        Subject subjectToUse = getSubject(message);
+        Object payload = getPayloadToUse(message);
+        final Object idToUse = partitionExpression.getValue(evaluationContext, message, Object.class);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Partition Expression evaluated to " + idToUse);
+        }
+        if (this.sharded) {
+            getShardSubject(idToUse).subject.onNext(payload);
+            return;
+        }
+        while (true) {
+            PartitionSubject partitionSubject = getPartitionSubject(idToUse);
+            if (this.idleTimeout == 0) {
+                partitionSubject.subject.onNext(payload);
+                return;
+            }
+            if (partitionSubject.acquire()) {
+                try {
+                    partitionSubject.subject.onNext(payload);
+                }
+                finally {
+                    partitionSubject.release();
+                }
+                return;
+            }
+            // evicted since the lookup; make sure it is gone and create a new one
+            subjectMap.remove(idToUse, partitionSubject);
+        }
+    }
+
+    private Object getPayloadToUse(Message<?> message) {
         if (ClassUtils.isAssignable(inputType.getRawClass(), message.getClass())) {
-            subjectToUse.onNext(message);
+            return message;
         }
         else if (ClassUtils.isAssignable(inputType.getRawClass(), message.getPayload().getClass())) {
-            subjectToUse.onNext(message.getPayload());
+            return message.getPayload();
         }
         else {
             throw new MessageHandlingException(message, "Processor signature does not match [" + message.getClass()
@@ -130,63 +253,165 @@ public class MultipleSubjectMessageHandler extends AbstractMessageProducingHandl
         }
     }
 
-    private Subject getSubject(Message message) {
-        final Object idToUse = partitionExpression.getValue(evaluationContext, message, Object.class);
-        if (logger.isDebugEnabled()) {
-            logger.debug("Partition Expression evaluated to " + idToUse);
+    private PartitionSubject getShardSubject(Object idToUse) {
+        int hash = idToUse == null ? 0 : idToUse.hashCode();
+        final int shard = ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % this.shards;
+        PartitionSubject partitionSubject = this.shardSubjects.get(shard);
+        if (partitionSubject == null) {
+            synchronized (this.creationMonitor) {
+                partitionSubject = this.shardSubjects.get(shard);
+                if (partitionSubject == null) {
+                    // dispatcher threads share shards, so calls to onNext must be serialized
+                    final PartitionSubject newSubject = new PartitionSubject(
+                            new SerializedSubject<Object, Object>(PublishSubject.<Object>create()));
+                    subscribe(newSubject, new Action0() {
+
+                        @Override
+                        public void call() {
+                            shardSubjects.compareAndSet(shard, newSubject, null);
+                        }
+
+                    });
+                    this.shardSubjects.set(shard, newSubject);
+                    partitionSubject = newSubject;
+                }
+            }
         }
-        Subject subject = subjectMap.get(idToUse);
-        if (subject == null) {
-            Subject existingSubject = subjectMap.putIfAbsent(idToUse, PublishSubject.create());
-            if (existingSubject == null) {
-                subject = subjectMap.get(idToUse);
-                //user defined stream processing
-                Observable<?> outputStream = processor.process(subject);
+        return partitionSubject;
+    }
 
-                final Subscription subscription = outputStream.subscribe(new Action1<Object>() {
+    private PartitionSubject getPartitionSubject(final Object idToUse) {
+        PartitionSubject partitionSubject = subjectMap.get(idToUse);
+        if (partitionSubject == null) {
+            synchronized (this.creationMonitor) {
+                partitionSubject = subjectMap.get(idToUse);
+                if (partitionSubject == null) {
+                    final PartitionSubject newSubject = new PartitionSubject(PublishSubject.create());
+                    subscribe(newSubject, new Action0() {
 
-                    @Override
-                    public void call(Object outputObject) {
-                        if (ClassUtils.isAssignable(Message.class, outputObject.getClass())) {
-                            getOutputChannel().send((Message) outputObject);
+                        @Override
+                        public void call() {
+                            subjectMap.remove(idToUse, newSubject);
                         }
-                        else {
-                            getOutputChannel().send(MessageBuilder.withPayload(outputObject).build());
-                        }
-                    }
-                }, new Action1<Throwable>() {
 
-                    @Override
-                    public void call(Throwable throwable) {
-                        logger.error(throwable.getMessage(), throwable);
-                        subjectMap.remove(idToUse);
-                    }
-                });
+                    });
+                    subjectMap.put(idToUse, newSubject);
+                    partitionSubject = newSubject;
+                }
+            }
+        }
+        return partitionSubject;
+    }
 
-                outputStream.doOnCompleted(new Action0() {
+    private void subscribe(PartitionSubject partitionSubject, final Action0 removeAction) {
+        //user defined stream processing
+        Observable<?> outputStream = processor.process(partitionSubject.subject);
 
-                    @Override
-                    public void call() {
-                        logger.error("Subscription close for [" + subscription + "]");
-                        subjectMap.remove(idToUse);
-                    }
-                });
+        final Subscription subscription = outputStream.subscribe(new Action1<Object>() {
 
-                subscriptionMap.put(idToUse, subscription);
+            @Override
+            public void call(Object outputObject) {
+                if (ClassUtils.isAssignable(Message.class, outputObject.getClass())) {
+                    getOutputChannel().send((Message) outputObject);
+                }
+                else {
+                    getOutputChannel().send(MessageBuilder.withPayload(outputObject).build());
+                }
             }
-            else {
-                subject = existingSubject;
+        }, new Action1<Throwable>() {
+
+            @Override
+            public void call(Throwable throwable) {
+                logger.error(throwable.getMessage(), throwable);
+                removeAction.call();
             }
-        }
-        return subject;
+        });
+
+        outputStream.doOnCompleted(new Action0() {
+
+            @Override
+            public void call() {
+                logger.error("Subscription close for [" + subscription + "]");
+                removeAction.call();
+            }
+        });
 
+        partitionSubject.subscription = subscription;
+    }
+
+    private void evictIdleSubjects() {
+        long idleSince = System.currentTimeMillis() - this.idleTimeout;
+        for (Map.Entry<Object, PartitionSubject> entry : subjectMap.entrySet()) {
+            PartitionSubject partitionSubject = entry.getValue();
+            if (partitionSubject.evictIfIdle(idleSince)) {
+                subjectMap.remove(entry.getKey(), partitionSubject);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Completing idle observable for " + entry.getKey());
+                }
+                partitionSubject.subject.onCompleted();
+                partitionSubject.subscription.unsubscribe();
+            }
+        }
     }
 
     @Override
     public void destroy() throws Exception {
-        for (Subscription subscription : subscriptionMap.values()) {
-            subscription.unsubscribe();
+        if (this.evictionScheduler != null) {
+            this.evictionScheduler.shutdownNow();
+        }
+        for (PartitionSubject partitionSubject : subjectMap.values()) {
+            partitionSubject.subscription.unsubscribe();
         }
+        if (this.shardSubjects != null) {
+            for (int i = 0; i < this.shardSubjects.length(); i++) {
+                PartitionSubject partitionSubject = this.shardSubjects.get(i);
+                if (partitionSubject != null) {
+                    partitionSubject.subscription.unsubscribe();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * The subject for one partitionExpression value or shard; {@code users} counts the threads sending to it, and
+     * is set to -1 once it is evicted so that no more messages are sent to it.
+     */
+    private static final class PartitionSubject {
+
+        private final Subject subject;
+
+        private volatile Subscription subscription;
+
+        private final AtomicInteger users = new AtomicInteger();
+
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private PartitionSubject(Subject subject) {
+            this.subject = subject;
+        }
+
+        private boolean acquire() {
+            while (true) {
+                int current = this.users.get();
+                if (current < 0) {
+                    return false;
+                }
+                if (this.users.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+            this.lastUsed = System.currentTimeMillis();
+            this.users.decrementAndGet();
+        }
+
+        private boolean evictIfIdle(long idleSince) {
+            return this.lastUsed < idleSince && this.users.compareAndSet(0, -1);
+        }
+
     }
 
 }
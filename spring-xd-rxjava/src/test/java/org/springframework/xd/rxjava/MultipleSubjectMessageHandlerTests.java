@@ -15,7 +15,15 @@
  */
 package org.springframework.xd.rxjava;
 
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
 import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -25,5 +33,33 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 @DirtiesContext
 public class MultipleSubjectMessageHandlerTests extends AbstractMessageHandlerTests {
 
+    @Test
+    public void idleObservablesAreEvicted() throws Exception {
+        MultipleSubjectMessageHandler handler = new MultipleSubjectMessageHandler(new PongStringProcessor(),
+                "headers['key']");
+        QueueChannel output = new QueueChannel();
+        handler.setOutputChannel(output);
+        handler.setBeanFactory(new DefaultListableBeanFactory());
+        handler.setIntegrationEvaluationContext(new StandardEvaluationContext());
+        handler.setIdleTimeout(100);
+        handler.afterPropertiesSet();
+        try {
+            handler.handleMessage(MessageBuilder.withPayload("ping").setHeader("key", "a").build());
+            handler.handleMessage(MessageBuilder.withPayload("ping").setHeader("key", "b").build());
+            assertEquals(2, handler.getObservableCount());
+            assertEquals("ping-stringpong", output.receive(0).getPayload());
+            assertEquals("ping-stringpong", output.receive(0).getPayload());
+            long deadline = System.currentTimeMillis() + 10000;
+            while (handler.getObservableCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, handler.getObservableCount());
+            handler.handleMessage(MessageBuilder.withPayload("ping").setHeader("key", "a").build());
+            assertEquals("ping-stringpong", output.receive(0).getPayload());
+        }
+        finally {
+            handler.destroy();
+        }
+    }
 
 }
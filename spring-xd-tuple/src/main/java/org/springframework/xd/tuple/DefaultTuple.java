@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,14 +37,16 @@ import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 
 /**
- * Default implementation of Tuple interface
+ * Default implementation of Tuple interface. Field names are resolved through a {@link FieldIndex} shared by
+ * all tuples with the same names, and values that already have the requested type are returned without
+ * going through the conversion service.
  * @author Mark Pollack
  * @author David Turanski
  * @author Michael Minella
  */
 public class DefaultTuple implements Tuple {
 
-	private List<String> names;
+	private FieldIndex index;
 
 	private List<Object> values;
 
@@ -61,11 +63,17 @@ public class DefaultTuple implements Tuple {
 			throw new IllegalArgumentException("Field names must be same length as values: names=" + names
 					+ ", values=" + values);
 		}
-		this.names = new ArrayList<>(names);
+		this.index = FieldIndex.forNames(names);
 		this.values = new ArrayList<>(values); // shallow copy
 		this.configurableConversionService = configurableConversionService;
 	}
 
+	DefaultTuple(FieldIndex index, List<Object> values, ConfigurableConversionService configurableConversionService) {
+		this.index = index;
+		this.values = values;
+		this.configurableConversionService = configurableConversionService;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -82,7 +90,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public List<String> getFieldNames() {
-		return Collections.unmodifiableList(names);
+		return index.getNames();
 	}
 
 	/**
@@ -96,7 +104,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public int getFieldCount() {
-		return this.names.size();
+		return this.index.size();
 	}
 
 	/*
@@ -106,7 +114,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public boolean hasFieldName(String name) {
-		return names.contains(name);
+		return index.indexOf(name) != -1;
 	}
 
 	/*
@@ -152,7 +160,7 @@ public class DefaultTuple implements Tuple {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((names == null) ? 0 : names.hashCode());
+		result = prime * result + index.getNames().hashCode();
 		result = prime * result + ((values == null) ? 0 : values.hashCode());
 		return result;
 	}
@@ -174,12 +182,7 @@ public class DefaultTuple implements Tuple {
 			return false;
 		}
 		DefaultTuple other = (DefaultTuple) obj;
-		if (names == null) {
-			if (other.names != null) {
-				return false;
-			}
-		}
-		else if (!names.equals(other.names)) {
+		if (index != other.index && !index.getNames().equals(other.index.getNames())) {
 			return false;
 		}
 		if (values == null) {
@@ -559,8 +562,7 @@ public class DefaultTuple implements Tuple {
 			return toTuple(resultMap);
 		}
 		else {
-			return new DefaultTuple(new ArrayList<String>(0), new ArrayList<>(0),
-					this.configurableConversionService);
+			return new DefaultTuple(FieldIndex.EMPTY, new ArrayList<>(0), this.configurableConversionService);
 		}
 	}
 
@@ -570,7 +572,7 @@ public class DefaultTuple implements Tuple {
 	Map<String, Object> toMap() {
 		Map<String, Object> map = new LinkedHashMap<>(values.size());
 		for (int i = 0; i < values.size(); i++) {
-			map.put(names.get(i), values.get(i));
+			map.put(index.getNames().get(i), values.get(i));
 		}
 		return map;
 	}
@@ -591,16 +593,24 @@ public class DefaultTuple implements Tuple {
 
 	@SuppressWarnings("unchecked")
 	<T> T convert(Object value, Class<T> targetType) {
+		if (value != null && value.getClass() == targetType && isImmutableValueType(targetType)) {
+			return (T) value;
+		}
 		return (T) configurableConversionService.convert(value, TypeDescriptor.forObject(value),
 				TypeDescriptor.valueOf(targetType));
 	}
 
+	private static boolean isImmutableValueType(Class<?> type) {
+		return type == String.class || type == Integer.class || type == Long.class || type == Double.class
+				|| type == Float.class || type == Short.class || type == Byte.class || type == Boolean.class;
+	}
+
 	/**
 	 * Find the index in the names collection for the given name.
 	 * Returns -1 if not found.
 	 */
 	protected int indexOf(String name) {
-		return names.indexOf(name);
+		return index.indexOf(name);
 	}
 
 	/**
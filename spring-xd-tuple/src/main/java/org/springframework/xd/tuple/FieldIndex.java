@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable mapping of field names to their position in a {@link DefaultTuple}. Tuples with the same
+ * field names share one index, so looking up a field by name is a hash lookup instead of a scan of the names.
+ * Once {@value #MAX_CACHED_INDEXES} name lists are cached, tuples with other names get an unshared index that
+ * scans the names, which is no more expensive than building a hash index that is used only once.
+ */
+final class FieldIndex {
+
+	/**
+	 * Indexes are only cached up to this many distinct field name lists, so that tuples with generated field
+	 * names do not grow the cache without bound; beyond it, each tuple gets its own scanning index.
+	 */
+	static final int MAX_CACHED_INDEXES = 1024;
+
+	private static final ConcurrentMap<List<String>, FieldIndex> cache = new ConcurrentHashMap<List<String>, FieldIndex>();
+
+	static final FieldIndex EMPTY = new FieldIndex(Collections.<String> emptyList());
+
+	private final List<String> names;
+
+	/**
+	 * The position of each name, or null if the names are scanned.
+	 */
+	private final Map<String, Integer> slots;
+
+	private FieldIndex(List<String> names) {
+		this(names, true);
+	}
+
+	private FieldIndex(List<String> names, boolean hashed) {
+		this.names = Collections.unmodifiableList(new ArrayList<String>(names));
+		if (hashed) {
+			this.slots = new HashMap<String, Integer>(names.size() * 2);
+			for (int i = this.names.size() - 1; i >= 0; i--) {
+				// iterate backwards so that a duplicated name resolves to its first position, as List.indexOf does
+				this.slots.put(this.names.get(i), i);
+			}
+		}
+		else {
+			this.slots = null;
+		}
+	}
+
+	/**
+	 * @param names the field names.
+	 * @return the (possibly shared) index for the names.
+	 */
+	static FieldIndex forNames(List<String> names) {
+		return forNames(names, cache, MAX_CACHED_INDEXES);
+	}
+
+	static FieldIndex forNames(List<String> names, ConcurrentMap<List<String>, FieldIndex> cache, int maxCached) {
+		if (names.isEmpty()) {
+			return EMPTY;
+		}
+		FieldIndex index = cache.get(names);
+		if (index == null) {
+			if (cache.size() >= maxCached) {
+				return new FieldIndex(names, false);
+			}
+			index = new FieldIndex(names);
+			FieldIndex existing = cache.putIfAbsent(index.names, index);
+			if (existing != null) {
+				index = existing;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return the unmodifiable field names.
+	 */
+	List<String> getNames() {
+		return this.names;
+	}
+
+	int size() {
+		return this.names.size();
+	}
+
+	/**
+	 * @param name the field name.
+	 * @return the position of the field, or -1 if there is no such field.
+	 */
+	int indexOf(String name) {
+		if (this.slots == null) {
+			return this.names.indexOf(name);
+		}
+		Integer slot = this.slots.get(name);
+		return slot == null ? -1 : slot;
+	}
+
+}
@@ -16,29 +16,40 @@ package org.springframework.xd.tuple;
 import org.springframework.core.convert.converter.Converter;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
+ * Converts JSON bytes to a {@link Tuple}, parsing them with a streaming {@link JsonParser}. A scalar top level
+ * value yields a tuple with a single {@code value} field.
+ *
  * @author David Turanski
  * 
  */
 public class JsonBytesToTupleConverter implements Converter<byte[], Tuple> {
 
-	private final ObjectMapper mapper = new ObjectMapper();
-
-	private final JsonNodeToTupleConverter jsonNodeToTupleConverter = new JsonNodeToTupleConverter();
-
-	public JsonBytesToTupleConverter() {
-		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-	}
-
 	@Override
 	public Tuple convert(byte[] source) {
 		if (source == null) {
 			return null;
 		}
+		return convert(source, 0, source.length);
+	}
+
+	/**
+	 * Convert a region of a byte array, such as a payload view, without copying it.
+	 * @param source the bytes.
+	 * @param offset the offset of the JSON content.
+	 * @param length the length of the JSON content.
+	 * @return the tuple.
+	 */
+	public Tuple convert(byte[] source, int offset, int length) {
 		try {
-			return jsonNodeToTupleConverter.convert(mapper.readTree(source));
+			JsonParser parser = TupleJsonReader.JSON_FACTORY.createParser(source, offset, length);
+			try {
+				return TupleJsonReader.read(parser, true);
+			}
+			finally {
+				parser.close();
+			}
 		}
 		catch (Exception e) {
 			throw new IllegalArgumentException(e.getMessage(), e);
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads JSON into {@link Tuple}s with a streaming {@link JsonParser}, without building an intermediate tree.
+ * Objects become tuples, arrays become lists and numbers keep the type Jackson reports for them.
+ * <p>
+ * All readers share one {@link JsonFactory}, so parsers reuse its buffers and its canonicalized (interned) field
+ * names; repeated events therefore yield tuples whose field names are the same {@code String} instances.
+ */
+final class TupleJsonReader {
+
+	static final JsonFactory JSON_FACTORY = new JsonFactory()
+			.enable(JsonParser.Feature.ALLOW_SINGLE_QUOTES)
+			.enable(JsonFactory.Feature.CANONICALIZE_FIELD_NAMES)
+			.enable(JsonFactory.Feature.INTERN_FIELD_NAMES);
+
+	private TupleJsonReader() {
+	}
+
+	/**
+	 * Read the first JSON value from the parser.
+	 * @param parser a parser positioned before the value.
+	 * @param wrapScalar if true, a scalar top level value is returned as a tuple with a single {@code value} field
+	 * holding its text; otherwise anything but an object yields an empty tuple.
+	 * @return the tuple.
+	 * @throws IOException if the content is not valid JSON.
+	 */
+	static Tuple read(JsonParser parser, boolean wrapScalar) throws IOException {
+		JsonToken token = parser.nextToken();
+		if (token == null) {
+			throw new IOException("No content to map to a Tuple");
+		}
+		if (token == JsonToken.START_OBJECT) {
+			return readObject(parser);
+		}
+		if (token == JsonToken.START_ARRAY) {
+			parser.skipChildren();
+		}
+		else if (wrapScalar) {
+			return TupleBuilder.tuple().of("value", scalarText(parser, token));
+		}
+		return TupleBuilder.tuple().build();
+	}
+
+	private static Tuple readObject(JsonParser parser) throws IOException {
+		List<String> names = new ArrayList<String>();
+		List<Object> values = new ArrayList<Object>();
+		Map<String, Integer> positions = new HashMap<String, Integer>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			Object value = readValue(parser, parser.nextToken());
+			Integer existing = positions.get(name);
+			if (existing == null) {
+				positions.put(name, names.size());
+				names.add(name);
+				values.add(value);
+			}
+			else {
+				// as with a tree model, the last duplicate wins
+				values.set(existing, value);
+			}
+		}
+		return TupleBuilder.tuple().ofNamesAndValues(names, values);
+	}
+
+	private static List<Object> readArray(JsonParser parser) throws IOException {
+		List<Object> list = new ArrayList<Object>();
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			list.add(readValue(parser, token));
+		}
+		return list;
+	}
+
+	private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+		switch (token) {
+			case START_OBJECT:
+				return readObject(parser);
+			case START_ARRAY:
+				return readArray(parser);
+			case VALUE_NULL:
+				return null;
+			case VALUE_TRUE:
+				return Boolean.TRUE;
+			case VALUE_FALSE:
+				return Boolean.FALSE;
+			case VALUE_NUMBER_INT:
+			case VALUE_NUMBER_FLOAT:
+				return parser.getNumberValue();
+			case VALUE_STRING:
+				return parser.getText();
+			case VALUE_EMBEDDED_OBJECT:
+				return parser.getEmbeddedObject();
+			default:
+				throw new IOException("Unexpected token " + token + " at " + parser.getCurrentLocation());
+		}
+	}
+
+	private static String scalarText(JsonParser parser, JsonToken token) throws IOException {
+		if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+			return String.valueOf(parser.getNumberValue());
+		}
+		return parser.getText();
+	}
+
+}
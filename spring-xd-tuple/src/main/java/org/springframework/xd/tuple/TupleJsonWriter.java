@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes {@link Tuple}s as JSON with a streaming {@link JsonGenerator}, directly into the output buffer.
+ * Nested tuples become objects and lists become arrays (null list elements are omitted); simple values are
+ * written by the generator and any other value is serialized by a shared {@link ObjectMapper}.
+ */
+final class TupleJsonWriter {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final boolean prettyPrint;
+
+	TupleJsonWriter(boolean prettyPrint) {
+		this.prettyPrint = prettyPrint;
+	}
+
+	String writeAsString(Tuple tuple) throws IOException {
+		SegmentedStringWriter writer = new SegmentedStringWriter(MAPPER.getFactory()._getBufferRecycler());
+		JsonGenerator generator = MAPPER.getFactory().createGenerator(writer);
+		write(tuple, generator);
+		return writer.getAndClear();
+	}
+
+	byte[] writeAsBytes(Tuple tuple) throws IOException {
+		ByteArrayBuilder builder = new ByteArrayBuilder(MAPPER.getFactory()._getBufferRecycler());
+		JsonGenerator generator = MAPPER.getFactory().createGenerator(builder, JsonEncoding.UTF8);
+		write(tuple, generator);
+		byte[] bytes = builder.toByteArray();
+		builder.release();
+		return bytes;
+	}
+
+	private void write(Tuple tuple, JsonGenerator generator) throws IOException {
+		if (this.prettyPrint) {
+			generator.useDefaultPrettyPrinter();
+		}
+		try {
+			writeTuple(tuple, generator);
+		}
+		finally {
+			generator.close();
+		}
+	}
+
+	private void writeTuple(Tuple tuple, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		List<String> names = tuple.getFieldNames();
+		List<Object> values = tuple.getValues();
+		for (int i = 0; i < names.size(); i++) {
+			generator.writeFieldName(names.get(i));
+			writeValue(values.get(i), generator);
+		}
+		generator.writeEndObject();
+	}
+
+	private void writeList(List<?> list, JsonGenerator generator) throws IOException {
+		generator.writeStartArray();
+		for (Object value : list) {
+			if (value != null) {
+				writeValue(value, generator);
+			}
+		}
+		generator.writeEndArray();
+	}
+
+	private void writeValue(Object value, JsonGenerator generator) throws IOException {
+		if (value == null) {
+			generator.writeNull();
+		}
+		else if (value instanceof String) {
+			generator.writeString((String) value);
+		}
+		else if (value instanceof Integer) {
+			generator.writeNumber((Integer) value);
+		}
+		else if (value instanceof Long) {
+			generator.writeNumber((Long) value);
+		}
+		else if (value instanceof Double) {
+			generator.writeNumber((Double) value);
+		}
+		else if (value instanceof Boolean) {
+			generator.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Tuple) {
+			writeTuple((Tuple) value, generator);
+		}
+		else if (value instanceof List<?>) {
+			writeList((List<?>) value, generator);
+		}
+		else {
+			MAPPER.writeValue(generator, value);
+		}
+	}
+
+}
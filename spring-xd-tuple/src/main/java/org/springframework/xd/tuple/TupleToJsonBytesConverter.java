@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import org.springframework.core.convert.converter.Converter;
+
+/**
+ * Converts a Tuple to UTF-8 encoded JSON, written straight into a byte buffer.
+ *
+ * @see TupleToJsonStringConverter
+ */
+public class TupleToJsonBytesConverter implements Converter<Tuple, byte[]> {
+
+	private final TupleJsonWriter writer;
+
+	public TupleToJsonBytesConverter() {
+		this(false);
+	}
+
+	/**
+	 * @param prettyPrint whether to indent the output.
+	 */
+	public TupleToJsonBytesConverter(boolean prettyPrint) {
+		this.writer = new TupleJsonWriter(prettyPrint);
+	}
+
+	@Override
+	public byte[] convert(Tuple source) {
+		try {
+			return writer.writeAsBytes(source);
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException("Tuple to JSON conversion failed", e);
+		}
+	}
+
+}
@@ -13,15 +13,8 @@
 
 package org.springframework.xd.tuple;
 
-import java.util.List;
-
 import org.springframework.core.convert.converter.Converter;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.BaseJsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-
 /**
  * Converts a Tuple to JSON representation
  *
@@ -31,61 +24,27 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
  */
 public class TupleToJsonStringConverter implements Converter<Tuple, String> {
 
-	private final ObjectMapper mapper = new ObjectMapper();
+	private final TupleJsonWriter writer;
+
+	public TupleToJsonStringConverter() {
+		this(false);
+	}
+
+	/**
+	 * @param prettyPrint whether to indent the output.
+	 */
+	public TupleToJsonStringConverter(boolean prettyPrint) {
+		this.writer = new TupleJsonWriter(prettyPrint);
+	}
 
 	@Override
 	public String convert(Tuple source) {
-		ObjectNode root = toObjectNode(source);
-		String json = null;
 		try {
-			json = mapper.writeValueAsString(root);
+			return writer.writeAsString(source);
 		}
 		catch (Exception e) {
 			throw new IllegalArgumentException("Tuple to string conversion failed", e);
 		}
-		return json;
-	}
-
-	private ObjectNode toObjectNode(Tuple source) {
-		ObjectNode root = mapper.createObjectNode();
-		for (int i = 0; i < source.size(); i++) {
-			Object value = source.getValues().get(i);
-			String name = source.getFieldNames().get(i);
-			if (value == null) {
-				root.putNull(name);
-			} else {
-				root.putPOJO(name, toNode(value));
-			}
-		}
-		return root;
-	}
-
-	private ArrayNode toArrayNode(List<?> source) {
-		ArrayNode array = mapper.createArrayNode();
-		for (Object value : source) {
-			if (value != null) {
-				array.add(toNode(value));
-			}
-		}
-		return array;
-	}
-
-	private BaseJsonNode toNode(Object value) {
-		if (value != null) {
-			if (value instanceof Tuple) {
-				return toObjectNode((Tuple) value);
-			}
-			else if (value instanceof List<?>) {
-				return toArrayNode((List<?>) value);
-			}
-			else if (!value.getClass().isPrimitive()) {
-				return mapper.getNodeFactory().pojoNode(value);
-			}
-			else {
-				return mapper.valueToTree(value);
-			}
-		}
-		return null;
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2016 the original author or authors.
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
@@ -16,35 +16,245 @@
 package org.springframework.xd.tuple.serializer.kryo;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.xd.tuple.Tuple;
 import org.springframework.xd.tuple.TupleBuilder;
 
 /**
- * Deserializes Tuples by writing the field names and then the values as class/object pairs
- * followed by the tuple Id and timestamp.
+ * Serializes Tuples in one of two formats:
+ * <ul>
+ * <li>inline (the default) - the field names followed by the values as class/object pairs;</li>
+ * <li>compact (when enabled) - the id of a {@link TupleSchema} holding the field names and value types,
+ * followed by the values written with the primitive writer for their type.</li>
+ * </ul>
+ * Both formats are always readable; reading a compact tuple requires the registry to resolve its schema.
+ * <p>
+ * A schema is registered on the registration executor the first time a tuple needs it; until the
+ * registration has completed, tuples with that schema are written inline, so a registry that is slow to
+ * write (such as one backed by ZooKeeper) never holds up encoding when given an asynchronous executor.
+ * Since null values and varying value types give a name list several schemas, at most
+ * {@value #MAX_SCHEMAS_PER_NAMES} schemas are registered per name list, for at most
+ * {@value #MAX_NAME_LISTS} name lists; other tuples are written inline. A schema whose registration
+ * fails is not requested again.
  *
  * @author David Turanski
  */
 public class DefaultTupleSerializer extends Serializer<Tuple> {
+
+	static final int MAX_SCHEMAS_PER_NAMES = 8;
+
+	static final int MAX_NAME_LISTS = 128;
+
+	private static final Log logger = LogFactory.getLog(DefaultTupleSerializer.class);
+
+	private final TupleSchemaRegistry schemaRegistry;
+
+	private final boolean compactWrites;
+
+	private final Executor registrationExecutor;
+
+	/**
+	 * Schemas whose registration has completed; only these are written.
+	 */
+	private final ConcurrentMap<SchemaKey, TupleSchema> writeSchemas = new ConcurrentHashMap<SchemaKey, TupleSchema>();
+
+	/**
+	 * The number of schemas requested for each name list, including those still being registered.
+	 */
+	private final ConcurrentMap<List<String>, AtomicInteger> schemasPerNames =
+			new ConcurrentHashMap<List<String>, AtomicInteger>();
+
+	private final ConcurrentMap<SchemaKey, Boolean> pendingSchemas = new ConcurrentHashMap<SchemaKey, Boolean>();
+
+	private final ConcurrentMap<Integer, TupleSchema> readSchemas = new ConcurrentHashMap<Integer, TupleSchema>();
+
+	private volatile TupleSchema lastWriteSchema;
+
+	public DefaultTupleSerializer() {
+		this(null);
+	}
+
+	/**
+	 * @param schemaRegistry the registry used to write and resolve compact tuples; if null, tuples are written
+	 * inline.
+	 */
+	public DefaultTupleSerializer(TupleSchemaRegistry schemaRegistry) {
+		this(schemaRegistry, schemaRegistry != null, new SyncTaskExecutor());
+	}
+
+	/**
+	 * @param schemaRegistry the registry used to resolve compact tuples and, if {@code compactWrites}, to register
+	 * the schemas of tuples written; may be null only if {@code compactWrites} is false.
+	 * @param compactWrites true to write tuples in the compact format.
+	 * @param registrationExecutor the executor used to register schemas.
+	 */
+	public DefaultTupleSerializer(TupleSchemaRegistry schemaRegistry, boolean compactWrites,
+			Executor registrationExecutor) {
+		if (compactWrites && schemaRegistry == null) {
+			throw new IllegalArgumentException("A TupleSchemaRegistry is required to write compact tuples");
+		}
+		this.schemaRegistry = schemaRegistry;
+		this.compactWrites = compactWrites;
+		this.registrationExecutor = registrationExecutor;
+	}
+
 	@Override
 	public void write(Kryo kryo, Output output, Tuple tuple) {
+		if (!this.compactWrites) {
+			writeInline(kryo, output, tuple);
+		}
+		else {
+			writeCompact(kryo, output, tuple);
+		}
+	}
+
+	private void writeInline(Kryo kryo, Output output, Tuple tuple) {
 		kryo.writeObject(output, tuple.getFieldNames());
 		for (Object val: tuple.getValues()) {
 			kryo.writeClassAndObject(output, val);
 		}
 	}
 
+	private void writeCompact(Kryo kryo, Output output, Tuple tuple) {
+		List<Object> values = tuple.getValues();
+		byte[] types = new byte[values.size()];
+		for (int i = 0; i < types.length; i++) {
+			types[i] = TupleSchema.typeOf(values.get(i));
+		}
+		TupleSchema schema = writeSchema(tuple.getFieldNames(), types);
+		if (schema == null) {
+			writeInline(kryo, output, tuple);
+			return;
+		}
+		output.writeVarInt(schema.getId(), true);
+		for (int i = 0; i < types.length; i++) {
+			writeValue(kryo, output, types[i], values.get(i));
+		}
+	}
+
+	private TupleSchema writeSchema(List<String> names, byte[] types) {
+		TupleSchema schema = this.lastWriteSchema;
+		if (schema != null && schema.matches(names, types)) {
+			return schema;
+		}
+		SchemaKey key = new SchemaKey(names, types);
+		schema = this.writeSchemas.get(key);
+		if (schema == null) {
+			requestRegistration(names, types);
+			// a synchronous executor has registered it already
+			schema = this.writeSchemas.get(key);
+			if (schema == null) {
+				return null;
+			}
+		}
+		this.lastWriteSchema = schema;
+		return schema;
+	}
+
+	private void requestRegistration(List<String> names, byte[] types) {
+		AtomicInteger count = this.schemasPerNames.get(names);
+		if (count == null) {
+			if (this.schemasPerNames.size() >= MAX_NAME_LISTS) {
+				return;
+			}
+			count = new AtomicInteger();
+			AtomicInteger existing = this.schemasPerNames.putIfAbsent(new ArrayList<String>(names), count);
+			count = existing != null ? existing : count;
+		}
+		if (count.get() >= MAX_SCHEMAS_PER_NAMES) {
+			return;
+		}
+		final TupleSchema schema = new TupleSchema(names, types);
+		final SchemaKey key = new SchemaKey(schema.getNames(), schema.getTypes());
+		if (this.pendingSchemas.putIfAbsent(key, Boolean.TRUE) != null
+				|| count.incrementAndGet() > MAX_SCHEMAS_PER_NAMES) {
+			// already requested, or another thread took the last slot; a key left pending is not requested again
+			return;
+		}
+		this.registrationExecutor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					schemaRegistry.register(schema);
+					writeSchemas.putIfAbsent(key, schema);
+					pendingSchemas.remove(key);
+				}
+				catch (RuntimeException e) {
+					logger.warn("Failed to register " + schema + "; tuples with this schema are written inline", e);
+				}
+			}
+
+		});
+	}
+
+	private void writeValue(Kryo kryo, Output output, byte type, Object value) {
+		switch (type) {
+			case TupleSchema.NULL:
+				break;
+			case TupleSchema.STRING:
+				output.writeString((String) value);
+				break;
+			case TupleSchema.INTEGER:
+				output.writeVarInt((Integer) value, false);
+				break;
+			case TupleSchema.LONG:
+				output.writeVarLong((Long) value, false);
+				break;
+			case TupleSchema.DOUBLE:
+				output.writeDouble((Double) value);
+				break;
+			case TupleSchema.FLOAT:
+				output.writeFloat((Float) value);
+				break;
+			case TupleSchema.BOOLEAN:
+				output.writeBoolean((Boolean) value);
+				break;
+			case TupleSchema.SHORT:
+				output.writeShort((Short) value);
+				break;
+			case TupleSchema.BYTE:
+				output.writeByte((Byte) value);
+				break;
+			case TupleSchema.CHARACTER:
+				output.writeChar((Character) value);
+				break;
+			default:
+				kryo.writeClassAndObject(output, value);
+		}
+	}
+
 	@Override
-	@SuppressWarnings("unchecked")
 	public Tuple read(Kryo kryo, Input input, Class<Tuple> type) {
+		if (input.canReadVarInt()) {
+			// a negative varint can only be a schema id; anything else is the start of the field names
+			int start = input.position();
+			int id = input.readVarInt(true);
+			if (id < 0) {
+				return readCompact(kryo, input, id);
+			}
+			input.setPosition(start);
+		}
+		return readInline(kryo, input);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Tuple readInline(Kryo kryo, Input input) {
 		List<String> names = kryo.readObject(input, ArrayList.class);
 		List<Object> values = new ArrayList<>(names.size());
 		for (int i = 0; i < names.size(); i++) {
@@ -53,4 +263,88 @@ public class DefaultTupleSerializer extends Serializer<Tuple> {
 		}
 		return TupleBuilder.tuple().ofNamesAndValues(names, values);
 	}
+
+	private Tuple readCompact(Kryo kryo, Input input, int id) {
+		TupleSchema schema = readSchema(id);
+		List<Object> values = new ArrayList<>(schema.size());
+		for (int i = 0; i < schema.size(); i++) {
+			values.add(readValue(kryo, input, schema.getType(i)));
+		}
+		return TupleBuilder.tuple().ofNamesAndValues(schema.getNames(), values);
+	}
+
+	private TupleSchema readSchema(int id) {
+		TupleSchema schema = this.readSchemas.get(id);
+		if (schema == null) {
+			if (this.schemaRegistry == null) {
+				throw new KryoException("Cannot read tuple with schema id " + Integer.toHexString(id)
+						+ "; no TupleSchemaRegistry is configured");
+			}
+			schema = this.schemaRegistry.lookup(id);
+			if (schema == null) {
+				throw new KryoException("Unknown tuple schema id: " + Integer.toHexString(id));
+			}
+			this.readSchemas.putIfAbsent(id, schema);
+		}
+		return schema;
+	}
+
+	private Object readValue(Kryo kryo, Input input, byte type) {
+		switch (type) {
+			case TupleSchema.NULL:
+				return null;
+			case TupleSchema.STRING:
+				return input.readString();
+			case TupleSchema.INTEGER:
+				return input.readVarInt(false);
+			case TupleSchema.LONG:
+				return input.readVarLong(false);
+			case TupleSchema.DOUBLE:
+				return input.readDouble();
+			case TupleSchema.FLOAT:
+				return input.readFloat();
+			case TupleSchema.BOOLEAN:
+				return input.readBoolean();
+			case TupleSchema.SHORT:
+				return input.readShort();
+			case TupleSchema.BYTE:
+				return input.readByte();
+			case TupleSchema.CHARACTER:
+				return input.readChar();
+			default:
+				return kryo.readClassAndObject(input);
+		}
+	}
+
+
+	private static final class SchemaKey {
+
+		private final List<String> names;
+
+		private final byte[] types;
+
+		private final int hashCode;
+
+		private SchemaKey(List<String> names, byte[] types) {
+			this.names = names;
+			this.types = types;
+			this.hashCode = 31 * names.hashCode() + Arrays.hashCode(types);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SchemaKey)) {
+				return false;
+			}
+			SchemaKey other = (SchemaKey) obj;
+			return Arrays.equals(this.types, other.types) && this.names.equals(other.names);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+	}
+
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple.serializer.kryo;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link TupleSchemaRegistry} local to this JVM; suitable when tuples are only exchanged between modules
+ * in the same process (single node, local transport) and for testing.
+ */
+public class InMemoryTupleSchemaRegistry implements TupleSchemaRegistry {
+
+	private final ConcurrentMap<Integer, TupleSchema> schemas = new ConcurrentHashMap<Integer, TupleSchema>();
+
+	@Override
+	public void register(TupleSchema schema) {
+		TupleSchema existing = this.schemas.putIfAbsent(schema.getId(), schema);
+		if (existing != null && !existing.equals(schema)) {
+			throw new IllegalStateException("Schema id collision between " + existing + " and " + schema);
+		}
+	}
+
+	@Override
+	public TupleSchema lookup(int id) {
+		return this.schemas.get(id);
+	}
+
+}
@@ -17,6 +17,7 @@ package org.springframework.xd.tuple.serializer.kryo;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.springframework.integration.codec.kryo.AbstractKryoRegistrar;
 import org.springframework.xd.tuple.DefaultTuple;
@@ -36,10 +37,35 @@ public class TupleKryoRegistrar extends AbstractKryoRegistrar {
 
 	private final static int ARRAY_LIST_REGISTRATION_ID = 42;
 
-	private final DefaultTupleSerializer defaultTupleSerializer = new DefaultTupleSerializer();
+	private final DefaultTupleSerializer defaultTupleSerializer;
 
 	private final CollectionSerializer collectionSerializer = new CollectionSerializer();
 
+	public TupleKryoRegistrar() {
+		this(null);
+	}
+
+	/**
+	 * @param schemaRegistry if not null, tuples are written in the compact format with their schemas
+	 * registered here.
+	 * @see DefaultTupleSerializer
+	 */
+	public TupleKryoRegistrar(TupleSchemaRegistry schemaRegistry) {
+		this.defaultTupleSerializer = new DefaultTupleSerializer(schemaRegistry);
+	}
+
+	/**
+	 * @param schemaRegistry the registry used to resolve the schemas of compact tuples and, if
+	 * {@code compactWrites}, to register the schemas of tuples written.
+	 * @param compactWrites true to write tuples in the compact format.
+	 * @param registrationExecutor the executor used to register schemas.
+	 * @see DefaultTupleSerializer
+	 */
+	public TupleKryoRegistrar(TupleSchemaRegistry schemaRegistry, boolean compactWrites,
+			Executor registrationExecutor) {
+		this.defaultTupleSerializer = new DefaultTupleSerializer(schemaRegistry, compactWrites, registrationExecutor);
+	}
+
 
 	@Override
 	public List<Registration> getRegistrations() {
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple.serializer.kryo;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+/**
+ * The field names and value types shared by tuples written in the compact format by
+ * {@link DefaultTupleSerializer}. A schema is identified on the wire by its {@link #getId() id}, a 31 bit
+ * fingerprint of the names and types with the sign bit set; since a field name list is never encoded as a
+ * negative length, readers can tell the compact format from the inline one.
+ */
+public final class TupleSchema {
+
+	/**
+	 * The value is null and is not written.
+	 */
+	public static final byte NULL = 0;
+
+	/**
+	 * The value is written with {@code writeClassAndObject}.
+	 */
+	public static final byte OBJECT = 1;
+
+	public static final byte STRING = 2;
+
+	public static final byte INTEGER = 3;
+
+	public static final byte LONG = 4;
+
+	public static final byte DOUBLE = 5;
+
+	public static final byte FLOAT = 6;
+
+	public static final byte BOOLEAN = 7;
+
+	public static final byte SHORT = 8;
+
+	public static final byte BYTE = 9;
+
+	public static final byte CHARACTER = 10;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final List<String> names;
+
+	private final byte[] types;
+
+	private final int id;
+
+	/**
+	 * @param names the field names.
+	 * @param types the type of each field, one of the constants defined by this class.
+	 */
+	public TupleSchema(List<String> names, byte[] types) {
+		Assert.notNull(names, "'names' cannot be null");
+		Assert.notNull(types, "'types' cannot be null");
+		Assert.isTrue(names.size() == types.length, "'names' and 'types' must be the same length");
+		for (byte type : types) {
+			Assert.isTrue(type >= NULL && type <= CHARACTER, "Unknown field type: " + type);
+		}
+		this.names = Collections.unmodifiableList(new ArrayList<String>(names));
+		this.types = types.clone();
+		this.id = fingerprint(this.names, this.types);
+	}
+
+	/**
+	 * @param value a field value.
+	 * @return the type used to write the value.
+	 */
+	public static byte typeOf(Object value) {
+		if (value == null) {
+			return NULL;
+		}
+		Class<?> type = value.getClass();
+		if (type == String.class) {
+			return STRING;
+		}
+		if (type == Integer.class) {
+			return INTEGER;
+		}
+		if (type == Long.class) {
+			return LONG;
+		}
+		if (type == Double.class) {
+			return DOUBLE;
+		}
+		if (type == Float.class) {
+			return FLOAT;
+		}
+		if (type == Boolean.class) {
+			return BOOLEAN;
+		}
+		if (type == Short.class) {
+			return SHORT;
+		}
+		if (type == Byte.class) {
+			return BYTE;
+		}
+		if (type == Character.class) {
+			return CHARACTER;
+		}
+		return OBJECT;
+	}
+
+	private static int fingerprint(List<String> names, byte[] types) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < types.length; i++) {
+			for (byte b : names.get(i).getBytes(UTF8)) {
+				hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+			}
+			// 0xff never occurs in UTF-8, so it terminates the name unambiguously
+			hash = (hash ^ 0xff) * FNV_PRIME;
+			hash = (hash ^ types[i]) * FNV_PRIME;
+		}
+		return (int) (hash ^ (hash >>> 32)) | Integer.MIN_VALUE;
+	}
+
+	/**
+	 * @return the schema id; always negative.
+	 */
+	public int getId() {
+		return this.id;
+	}
+
+	/**
+	 * @return the (unmodifiable) field names.
+	 */
+	public List<String> getNames() {
+		return this.names;
+	}
+
+	/**
+	 * @param index the field index.
+	 * @return the type of the field.
+	 */
+	public byte getType(int index) {
+		return this.types[index];
+	}
+
+	/**
+	 * @return a copy of the field types.
+	 */
+	public byte[] getTypes() {
+		return this.types.clone();
+	}
+
+	public int size() {
+		return this.types.length;
+	}
+
+	/**
+	 * @param names field names.
+	 * @param types field types.
+	 * @return true if this schema has exactly these names and types.
+	 */
+	boolean matches(List<String> names, byte[] types) {
+		return Arrays.equals(this.types, types) && this.names.equals(names);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof TupleSchema)) {
+			return false;
+		}
+		TupleSchema other = (TupleSchema) obj;
+		return this.id == other.id && matches(other.names, other.types);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.id;
+	}
+
+	@Override
+	public String toString() {
+		return "TupleSchema [id=" + Integer.toHexString(this.id) + ", names=" + this.names + ", types="
+				+ Arrays.toString(this.types) + "]";
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple.serializer.kryo;
+
+/**
+ * Resolves the {@link TupleSchema schemas} referenced by tuples written in the compact format. Every process
+ * that reads a tuple must be able to look up the schema registered by the process that wrote it.
+ */
+public interface TupleSchemaRegistry {
+
+	/**
+	 * Make the schema available to readers; registering the same schema again has no effect.
+	 * @param schema the schema.
+	 * @throws IllegalStateException if a different schema is already registered with the same id.
+	 */
+	void register(TupleSchema schema);
+
+	/**
+	 * @param id the schema id.
+	 * @return the schema, or null if no schema is registered with this id.
+	 */
+	TupleSchema lookup(int id);
+
+}
@@ -16,19 +16,34 @@
 
 package org.springframework.xd.tuple.spel;
 
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
 import org.springframework.expression.AccessException;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.PropertyAccessor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
+import org.springframework.expression.spel.CompilablePropertyAccessor;
 import org.springframework.xd.tuple.Tuple;
 
 /**
  * A {@link PropertyAccessor} implementation that enables reading of {@link Tuple} values using dot notation within SpEL
  * expressions. Writing is not supported since {@link Tuple}s are immutable.
+ * <p>
+ * The accessor is {@link CompilablePropertyAccessor compilable}: expressions parsed with a SpEL compiler mode other
+ * than {@code OFF} read tuple fields through {@link #getValue(Tuple, String)} from the generated bytecode. Since
+ * field values are typed as {@code Object}, operators that need a known numeric type (such as {@code >}) keep
+ * the expression interpreted; typed getters such as {@code payload.getDouble('price')} compile.
  * 
  * @author Mark Fisher
  */
-public class TuplePropertyAccessor implements PropertyAccessor {
+public class TuplePropertyAccessor implements CompilablePropertyAccessor {
+
+	private static final String TUPLE_TYPE = "org/springframework/xd/tuple/Tuple";
+
+	private static final String TUPLE_DESCRIPTOR = "L" + TUPLE_TYPE;
+
+	private static final String ACCESSOR_TYPE = "org/springframework/xd/tuple/spel/TuplePropertyAccessor";
 
 	@Override
 	public Class<?>[] getSpecificTargetClasses() {
@@ -47,7 +62,7 @@ public class TuplePropertyAccessor implements PropertyAccessor {
 	/**
 	 * Return an integer if the String property name can be parsed as an int, or null otherwise.
 	 */
-	private Integer maybeIndex(String name, Tuple tuple) {
+	private static Integer maybeIndex(String name, Tuple tuple) {
 		Integer index = null;
 		try {
 			int i = Integer.parseInt(name);
@@ -83,6 +98,49 @@ public class TuplePropertyAccessor implements PropertyAccessor {
 		return new TypedValue(value);
 	}
 
+	/**
+	 * Read a field by name, or by index if the name is an integer, as {@link #read} does. Invoked by compiled
+	 * expressions.
+	 * @param tuple the tuple.
+	 * @param name the field name or index.
+	 * @return the value.
+	 * @throws IllegalArgumentException if the tuple has no such field.
+	 */
+	public static Object getValue(Tuple tuple, String name) {
+		if (tuple.hasFieldName(name)) {
+			return tuple.getValue(name);
+		}
+		Integer index = maybeIndex(name, tuple);
+		if (index == null) {
+			throw new IllegalArgumentException("Tuple does not contain a value for field name '" + name + "'");
+		}
+		return tuple.getValue(index);
+	}
+
+	@Override
+	public boolean isCompilable() {
+		return true;
+	}
+
+	@Override
+	public Class<?> getPropertyType() {
+		return Object.class;
+	}
+
+	@Override
+	public void generateCode(String propertyName, MethodVisitor mv, CodeFlow cf) {
+		String descriptor = cf.lastDescriptor();
+		if (descriptor == null) {
+			cf.loadTarget(mv);
+		}
+		if (descriptor == null || !TUPLE_DESCRIPTOR.equals(descriptor)) {
+			mv.visitTypeInsn(Opcodes.CHECKCAST, TUPLE_TYPE);
+		}
+		mv.visitLdcInsn(propertyName);
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, ACCESSOR_TYPE, "getValue",
+				"(" + TUPLE_DESCRIPTOR + ";Ljava/lang/String;)Ljava/lang/Object;", false);
+	}
+
 	@Override
 	public boolean canWrite(EvaluationContext context, Object target, String name) throws AccessException {
 		return false;
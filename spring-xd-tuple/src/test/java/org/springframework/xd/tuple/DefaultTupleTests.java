@@ -34,6 +34,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -492,4 +494,34 @@ public class DefaultTupleTests {
 		t.getTuple("list");
 	}
 
+	@Test
+	public void testFieldIndexSharedAcrossTuples() {
+		DefaultTuple t1 = (DefaultTuple) tuple().of("foo", 1, "bar", 2L, "foo", 3.0d);
+		DefaultTuple t2 = (DefaultTuple) tuple().of("foo", 4, "bar", 5L, "foo", 6.0d);
+		assertThat(t1.getFieldNames(), sameInstance(t2.getFieldNames()));
+		// a duplicated name resolves to its first occurrence
+		assertEquals(1, t1.getInt("foo"));
+		assertEquals(5L, t2.getLong("bar"));
+		assertEquals(6.0d, t2.getDouble(2), 0);
+		assertEquals(-1, t1.indexOf("baz"));
+		assertTrue(t2.hasFieldName("bar"));
+		assertEquals(tuple().of("foo", 1, "bar", 2L, "foo", 3.0d), t1);
+	}
+
+	@Test
+	public void testFieldIndexScansNamesOnceCacheIsFull() {
+		ConcurrentMap<List<String>, FieldIndex> cache = new ConcurrentHashMap<List<String>, FieldIndex>();
+		FieldIndex cached = FieldIndex.forNames(Arrays.asList("foo", "bar"), cache, 1);
+		assertThat(FieldIndex.forNames(Arrays.asList("foo", "bar"), cache, 1), sameInstance(cached));
+
+		List<String> names = Arrays.asList("baz", "qux", "baz");
+		FieldIndex uncached = FieldIndex.forNames(names, cache, 1);
+		assertThat(FieldIndex.forNames(names, cache, 1), not(sameInstance(uncached)));
+		assertEquals(1, cache.size());
+		assertEquals(names, uncached.getNames());
+		assertEquals(0, uncached.indexOf("baz"));
+		assertEquals(1, uncached.indexOf("qux"));
+		assertEquals(-1, uncached.indexOf("foo"));
+	}
+
 }
@@ -14,6 +14,11 @@
 package org.springframework.xd.tuple;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
 
 import org.junit.Test;
 
@@ -31,4 +36,57 @@ public class JsonBytesToTupleConverterTests {
 		Tuple t = converter.convert(json.getBytes());
 		assertEquals("VMW", t.getValue("symbol"));
 	}
+
+	@Test
+	public void testNestedValues() {
+		String json = "{'quote':{'bid':1.5,'size':100,'big':12345678901},'tags':['a',null,true],'none':null}";
+		Tuple t = converter.convert(json.getBytes());
+		Tuple quote = t.getTuple("quote");
+		assertEquals(1.5d, quote.getValue("bid"));
+		assertEquals(100, quote.getValue("size"));
+		assertEquals(12345678901L, quote.getValue("big"));
+		List<?> tags = (List<?>) t.getValue("tags");
+		assertEquals(3, tags.size());
+		assertEquals("a", tags.get(0));
+		assertNull(tags.get(1));
+		assertEquals(Boolean.TRUE, tags.get(2));
+		assertTrue(t.hasFieldName("none"));
+		assertNull(t.getValue("none"));
+	}
+
+	@Test
+	public void testRegionOfArray() {
+		byte[] bytes = "xx{\"symbol\":\"VMW\"}yy".getBytes();
+		Tuple t = converter.convert(bytes, 2, bytes.length - 4);
+		assertEquals("VMW", t.getValue("symbol"));
+	}
+
+	@Test
+	public void testScalarIsWrapped() {
+		Tuple t = converter.convert("42".getBytes());
+		assertEquals("42", t.getValue("value"));
+	}
+
+	@Test
+	public void testDuplicateFieldLastWins() {
+		Tuple t = converter.convert("{\"a\":1,\"b\":2,\"a\":3}".getBytes());
+		assertEquals(2, t.size());
+		assertEquals(3, t.getValue("a"));
+	}
+
+	@Test
+	public void testFieldNamesAreShared() {
+		String json = "{\"symbol\":\"VMW\"}";
+		Tuple first = converter.convert(json.getBytes());
+		Tuple second = converter.convert(json.getBytes());
+		assertSame(first.getFieldNames().get(0), second.getFieldNames().get(0));
+	}
+
+	@Test
+	public void testRoundTripThroughBytes() {
+		String json = "{\"symbol\":\"VMW\",\"price\":73,\"quote\":{\"bid\":1.5},\"tags\":[\"a\",\"b\"]}";
+		Tuple t = converter.convert(json.getBytes());
+		assertEquals(json, new String(new TupleToJsonBytesConverter().convert(t)));
+		assertEquals(json, new TupleToJsonStringConverter().convert(t));
+	}
 }
@@ -16,14 +16,26 @@
 package org.springframework.xd.tuple.serializer.kryo;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import com.esotericsoftware.kryo.KryoException;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.integration.codec.Codec;
+import org.springframework.integration.codec.kryo.KryoRegistrar;
 import org.springframework.integration.codec.kryo.PojoCodec;
 import org.springframework.xd.tuple.DefaultTuple;
 import org.springframework.xd.tuple.Tuple;
@@ -71,4 +83,107 @@ public class TupleCodecTests {
 		assertEquals(foo.getInt(0), foo2.getInt(0));
 		assertEquals(foo.getString(1), foo2.getString(1));
 	}
+
+	@Test
+	public void testCompactTupleSerialization() throws IOException {
+		TupleSchemaRegistry registry = new InMemoryTupleSchemaRegistry();
+		Codec compact = new PojoCodec(new TupleKryoRegistrar(registry));
+		Tuple nested = TupleBuilder.tuple().of("bid", 1.5d, "ask", 1.6f);
+		Tuple tuple = TupleBuilder.tuple()
+				.put("string", "foo")
+				.put("int", -42)
+				.put("long", Long.MAX_VALUE)
+				.put("boolean", true)
+				.put("short", (short) 7)
+				.put("byte", (byte) -1)
+				.put("char", 'x')
+				.put("null", null)
+				.put("date", new Date(1000L))
+				.put("nested", nested)
+				.build();
+		byte[] bytes = compact.encode(tuple);
+		Tuple decoded = compact.decode(bytes, DefaultTuple.class);
+		assertEquals(tuple, decoded);
+		assertNull(decoded.getValue("null"));
+		assertEquals(nested, decoded.getValue("nested"));
+		assertTrue(bytes.length < codec.encode(tuple).length);
+
+		// a second process sharing the registry resolves the schema
+		Codec reader = new PojoCodec(new TupleKryoRegistrar(registry));
+		assertEquals(tuple, reader.decode(bytes, DefaultTuple.class));
+	}
+
+	@Test
+	public void testCompactSerializerReadsInlineFormat() throws IOException {
+		Tuple tuple = TupleBuilder.tuple().of("hello", 123, "foo", "bar", "t0", TupleBuilder.tuple().of("one", 1));
+		for (boolean references : new boolean[] { true, false }) {
+			Codec inline = new PojoCodec(Collections.<KryoRegistrar> singletonList(new TupleKryoRegistrar()),
+					references);
+			Codec compact = new PojoCodec(Collections.<KryoRegistrar> singletonList(
+					new TupleKryoRegistrar(new InMemoryTupleSchemaRegistry())), references);
+			assertEquals(tuple, compact.decode(inline.encode(tuple), DefaultTuple.class));
+		}
+	}
+
+	@Test
+	public void testInlineWriterReadsCompactFormat() throws IOException {
+		TupleSchemaRegistry registry = new InMemoryTupleSchemaRegistry();
+		Codec compact = new PojoCodec(new TupleKryoRegistrar(registry));
+		Codec inlineWriter = new PojoCodec(new TupleKryoRegistrar(registry, false, new SyncTaskExecutor()));
+		Tuple tuple = TupleBuilder.tuple().of("hello", 123, "foo", "bar");
+		byte[] bytes = compact.encode(tuple);
+		assertTrue(bytes.length < inlineWriter.encode(tuple).length);
+		assertEquals(tuple, inlineWriter.decode(bytes, DefaultTuple.class));
+	}
+
+	@Test
+	public void testSchemasAreWrittenOnceRegistered() throws IOException {
+		final List<Runnable> registrations = new ArrayList<Runnable>();
+		Codec compact = new PojoCodec(new TupleKryoRegistrar(new InMemoryTupleSchemaRegistry(), true,
+				new Executor() {
+
+					@Override
+					public void execute(Runnable command) {
+						registrations.add(command);
+					}
+
+				}));
+		Tuple tuple = TupleBuilder.tuple().of("hello", 123, "foo", "bar");
+		int inlineLength = codec.encode(tuple).length;
+		assertEquals(inlineLength, compact.encode(tuple).length);
+		assertEquals(inlineLength, compact.encode(tuple).length);
+		assertEquals(1, registrations.size());
+		registrations.get(0).run();
+		assertTrue(compact.encode(tuple).length < inlineLength);
+	}
+
+	@Test
+	public void testSchemasPerNameListAreBounded() throws IOException {
+		InMemoryTupleSchemaRegistry registry = new InMemoryTupleSchemaRegistry();
+		Codec compact = new PojoCodec(new TupleKryoRegistrar(registry));
+		Object[] values = { 1, 1L, "1", 1d, 1f, true, (short) 1, (byte) 1, 'c', null };
+		for (int i = 0; i < values.length; i++) {
+			Tuple tuple = TupleBuilder.tuple().of("value", values[i]);
+			byte[] bytes = compact.encode(tuple);
+			if (i >= DefaultTupleSerializer.MAX_SCHEMAS_PER_NAMES) {
+				assertEquals(codec.encode(tuple).length, bytes.length);
+			}
+			assertEquals(tuple, compact.decode(bytes, DefaultTuple.class));
+		}
+	}
+
+	@Test
+	public void testUnknownSchema() throws IOException {
+		Codec writer = new PojoCodec(new TupleKryoRegistrar(new InMemoryTupleSchemaRegistry()));
+		Codec reader = new PojoCodec(new TupleKryoRegistrar(new InMemoryTupleSchemaRegistry()));
+		byte[] bytes = writer.encode(TupleBuilder.tuple().of("hello", 123));
+		try {
+			reader.decode(bytes, DefaultTuple.class);
+			fail("Expected KryoException");
+		}
+		catch (KryoException e) {
+			assertTrue(e.getMessage().contains("Unknown tuple schema id"));
+		}
+	}
+
 }
@@ -17,11 +17,13 @@
 package org.springframework.xd.tuple.spel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.xd.tuple.Tuple;
@@ -123,6 +125,46 @@ public class TuplePropertyAccessorTests {
 		assertEquals(8, result);
 	}
 
+	@Test
+	public void testCompiledPropertyByFieldName() {
+		Tuple tuple = TupleBuilder.tuple().of("foo", "bar");
+		SpelExpression expression = compile("foo", tuple);
+		assertEquals("bar", expression.getValue(this.context, TupleBuilder.tuple().of("foo", "baz"), String.class));
+	}
+
+	@Test
+	public void testCompiledNestedPropertyByFieldName() {
+		Tuple tuple = TupleBuilder.tuple().of("a", TupleBuilder.tuple().of("b", 123));
+		SpelExpression expression = compile("a.b", tuple);
+		Tuple other = TupleBuilder.tuple().of("a", TupleBuilder.tuple().of("b", 456));
+		assertEquals(Integer.valueOf(456), expression.getValue(this.context, other, Integer.class));
+	}
+
+	@Test
+	public void testCompiledTypedGetter() {
+		Tuple tuple = TupleBuilder.tuple().of("price", 12.5d);
+		SpelExpression expression = compile("getDouble('price') > 10.0", tuple);
+		assertEquals(Boolean.FALSE,
+				expression.getValue(this.context, TupleBuilder.tuple().of("price", 7.5d), Boolean.class));
+	}
+
+	@Test(expected = SpelEvaluationException.class)
+	public void failCompiledOnMissingField() {
+		Tuple tuple = TupleBuilder.tuple().of("foo", "bar");
+		SpelExpression expression = compile("foo", tuple);
+		expression.getValue(this.context, TupleBuilder.tuple().of("baz", "bar"), String.class);
+	}
+
+	/**
+	 * Evaluate the expression once, so that SpEL learns the types involved, then compile it.
+	 */
+	private SpelExpression compile(String expressionString, Tuple tuple) {
+		SpelExpression expression = (SpelExpression) parser.parseExpression(expressionString);
+		expression.getValue(this.context, tuple);
+		assertTrue(expression.compileExpression());
+		return expression;
+	}
+
 	private <T> T evaluate(String expression, Tuple tuple, Class<T> expectedType) {
 		return parser.parseExpression(expression).getValue(this.context, tuple, expectedType);
 	}